@@ -1,3 +1,7 @@
 @echo off
 
+rem Class data sharing archive made by gradle cdsArchive, which shortens the startup of the JVM
+setlocal
+if exist "build\install\jmm\lib\jmm.jsa" set JMM_OPTS=-XX:SharedArchiveFile=build\install\jmm\lib\jmm.jsa -Xshare:auto -Xlog:cds=off -Xlog:cds+dynamic=off %JMM_OPTS%
+
 call "./build/install/jmm/bin/jmm.bat" %*
@@ -0,0 +1,198 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2023.Jasmin.JasminGenerator;
+import pt.up.fe.comp2023.SimpleParser;
+import pt.up.fe.comp2023.ollir.OllirGenerator;
+import pt.up.fe.comp2023.optimization.InterferenceGraph;
+import pt.up.fe.comp2023.optimization.LivenessNode;
+import pt.up.fe.comp2023.optimization.MethodLivenessAnalysis;
+import pt.up.fe.comp2023.semantic.Analyzer;
+import pt.up.fe.comp2023.table.ASymbolTable;
+import pt.up.fe.comp2023.table.SymbolTableGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Throughput of each compiler stage, measured in isolation: the inputs of a stage are produced once by the
+ * previous stages, so a benchmark only runs the stage itself. One operation runs the stage over every program
+ * of the input set.
+ * <p>
+ * The "corpus" input is every .jmm file of the test folder that compiles without errors. The other inputs are
+ * the options of a {@link ProgramGenerator}, to see how the stages scale with the size and shape of a program.
+ * Run with {@code gradle jmh}, which also reports the allocation rate of each stage ({@code -prof gc}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CompilerStagesBenchmark {
+    private static final String CORPUS = "corpus";
+
+    @Param({"corpus", "methods=10", "methods=100", "methods=1;statements=1000", "methods=1;statements=100;locals=100"})
+    public String input;
+
+    private final Map<String, String> config = new HashMap<>();
+
+    private List<String> sources;
+    private List<JmmNode> roots;
+    private List<ASymbolTable> symbolTables;
+    private List<Method> methods;
+    private List<InterferenceGraph> interferenceGraphs;
+    private List<ClassUnit> classUnits;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        sources = new ArrayList<>();
+        roots = new ArrayList<>();
+        symbolTables = new ArrayList<>();
+        methods = new ArrayList<>();
+        interferenceGraphs = new ArrayList<>();
+        classUnits = new ArrayList<>();
+
+        for (String source : getSources()) {
+            try {
+                add(source);
+            } catch (RuntimeException e) {
+                // the corpus also has programs with errors, for the tests of the semantic analysis
+            }
+        }
+        if (sources.isEmpty()) {
+            throw new RuntimeException("No valid programs for input '" + input + "'");
+        }
+    }
+
+    private List<String> getSources() {
+        if (!input.equals(CORPUS)) {
+            return List.of(ProgramGenerator.fromSpec(input).generate("Synthetic"));
+        }
+
+        // gradle runs the benchmarks from the project folder
+        Path folder = Paths.get(System.getProperty("jmm.corpus", "test"));
+        try (Stream<Path> paths = Files.walk(folder)) {
+            return paths.filter(path -> path.toString().endsWith(".jmm")).sorted()
+                    .map(path -> SpecsIo.read(path.toFile())).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read the corpus in " + folder, e);
+        }
+    }
+
+    /**
+     * Runs every stage over the source, keeping the input of each benchmark. The source is only added if no
+     * stage fails.
+     */
+    private void add(String source) {
+        JmmParserResult parserResult = new SimpleParser().parse(source, config);
+        if (parserResult.getRootNode() == null) return;
+        JmmNode root = parserResult.getRootNode();
+
+        ASymbolTable symbolTable = new SymbolTableGenerator().getSymbolTable(root);
+        Analyzer analyzer = new Analyzer(symbolTable);
+        analyzer.analyze(root);
+        if (!analyzer.getReports().isEmpty()) return;
+
+        OllirGenerator ollirGenerator = new OllirGenerator(symbolTable);
+        ollirGenerator.visit(root);
+        ClassUnit classUnit = ollirGenerator.ollirClass;
+        classUnit.buildVarTables();
+        new JasminGenerator(classUnit).generate();
+
+        List<InterferenceGraph> graphs = new ArrayList<>();
+        for (Method method : classUnit.getMethods()) {
+            method.buildCFG();
+            graphs.add(new InterferenceGraph(new MethodLivenessAnalysis(method).analyze()));
+        }
+
+        sources.add(source);
+        roots.add(root);
+        symbolTables.add(symbolTable);
+        methods.addAll(classUnit.getMethods());
+        interferenceGraphs.addAll(graphs);
+        classUnits.add(classUnit);
+    }
+
+    @Benchmark
+    public void parse(Blackhole blackhole) {
+        for (String source : sources) {
+            blackhole.consume(new SimpleParser().parse(source, config));
+        }
+    }
+
+    @Benchmark
+    public void symbolTable(Blackhole blackhole) {
+        for (JmmNode root : roots) {
+            blackhole.consume(new SymbolTableGenerator().getSymbolTable(root));
+        }
+    }
+
+    @Benchmark
+    public void semanticAnalysis(Blackhole blackhole) {
+        for (int i = 0; i < roots.size(); i++) {
+            Analyzer analyzer = new Analyzer(symbolTables.get(i));
+            analyzer.analyze(roots.get(i));
+            blackhole.consume(analyzer.getReports());
+        }
+    }
+
+    @Benchmark
+    public void ollirGeneration(Blackhole blackhole) {
+        for (int i = 0; i < roots.size(); i++) {
+            OllirGenerator ollirGenerator = new OllirGenerator(symbolTables.get(i));
+            ollirGenerator.visit(roots.get(i));
+            ollirGenerator.ollirClass.buildVarTables();
+            blackhole.consume(ollirGenerator.ollirClass);
+        }
+    }
+
+    @Benchmark
+    public void liveness(Blackhole blackhole) {
+        for (Method method : methods) {
+            ArrayList<LivenessNode> nodes = new MethodLivenessAnalysis(method).analyze();
+            blackhole.consume(nodes);
+        }
+    }
+
+    @Benchmark
+    public void coloring(Blackhole blackhole) {
+        for (InterferenceGraph graph : interferenceGraphs) {
+            blackhole.consume(graph.color(0));
+        }
+    }
+
+    @Benchmark
+    public void jasminGeneration(Blackhole blackhole) {
+        for (ClassUnit classUnit : classUnits) {
+            blackhole.consume(new JasminGenerator(classUnit).generate());
+        }
+    }
+}
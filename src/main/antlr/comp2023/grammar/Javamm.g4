@@ -20,7 +20,7 @@ importDeclaration : 'import' id = ID (subimportDeclaration)* ';' #Import;
 subimportDeclaration : '.' id = ID #SubImport;
 
 classDeclaration :
-    ('public')? 'class' id = ID (classExtension)? '{' (varDeclaration)* (instanceMethodDeclaration)* (mainMethodDeclaration)? (instanceMethodDeclaration)*'}' #Class;
+    ('public')? 'class' id = ID (classExtension)? '{' (varDeclaration)* (instanceMethodDeclaration)* (mainMethodDeclaration (instanceMethodDeclaration)*)? '}' #Class;
 
 classExtension : 'extends' id = ID #Extends;
 
@@ -66,13 +66,14 @@ elseStatement : 'else' statement #Else;
 
 expression :
     '(' expression ')' #Parentheses
+    // the postfix operators, one step each, so a chain such as a.b(c)[d].length is a single loop
     | expression '[' expression ']' #ArrayAccess
+    | expression '.' id = ID #ChainMethods
+    | expression '.' 'length' #MemberAccessLength
+    | expression '(' ( expression ( ',' expression )* )? ')' #MethodCall
     | expression op = ('++' | '--') #UnaryOp
     | op = ('++' | '--') expression #UnaryOp
     | '!' expression #Negate
-    | expression ('.' id = ID)+ #ChainMethods
-    | expression '(' ( expression ( ',' expression )* )? ')' #MethodCall
-    | expression '.' 'length' #MemberAccessLength
     | expression op = ('*' | '/') expression #BinaryOp
     | expression op = ('+' | '-') expression #BinaryOp
     | expression op = ('<' | '<=' | '>' | '>=') expression #BinaryOp
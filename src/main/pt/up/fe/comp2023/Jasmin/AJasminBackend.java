@@ -4,6 +4,7 @@ import org.specs.comp.ollir.ClassUnit;
 import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.stats.StageStats;
 
 import java.util.ArrayList;
 
@@ -11,7 +12,7 @@ public class AJasminBackend implements JasminBackend {
     @Override
     public JasminResult toJasmin(OllirResult ollirResult) {
         ClassUnit classUnit = ollirResult.getOllirClass();
-        String code = new JasminGenerator(classUnit).generate();
+        String code = StageStats.measure(StageStats.CODE_GENERATION, () -> new JasminGenerator(classUnit).generate());
         return new JasminResult(classUnit.getClassName(), code, new ArrayList<>());
     }
 }
@@ -0,0 +1,140 @@
+package pt.up.fe.comp2023.Jasmin;
+
+import org.specs.comp.ollir.*;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the comparisons that are assigned to a variable only to be tested by the branch right after them, e.g.
+ * {@code t.bool :=.bool a.i32 <.bool b.i32; if (t.bool) goto L;}, so the backends can emit them as a single
+ * comparison and jump ({@code if_icmplt L}) instead of making the boolean, storing it and loading it back.
+ * <p>
+ * The assignment is only fused when the branch has no label, so it is only reached from the assignment, and the
+ * variable is not used anywhere else in the method. Its entry in the var table is kept.
+ */
+public class BranchFusion {
+    private static final Map<OperationType, OperationType> INVERSES = Map.of(
+            OperationType.LTH, OperationType.GTE, OperationType.GTE, OperationType.LTH,
+            OperationType.GTH, OperationType.LTE, OperationType.LTE, OperationType.GTH,
+            OperationType.EQ, OperationType.NEQ, OperationType.NEQ, OperationType.EQ);
+
+    // fused assignment -> branch that tests it, and branch -> the comparison it jumps on
+    private final Map<Instruction, Instruction> fusedAssigns = new HashMap<>();
+    private final Map<Instruction, BinaryOpInstruction> conditions = new HashMap<>();
+
+    private BranchFusion() {
+    }
+
+    public static BranchFusion of(Method method) {
+        BranchFusion fusion = new BranchFusion();
+        List<Instruction> instructions = method.getInstructions();
+        Map<String, Integer> uses = new HashMap<>();
+        for (Instruction instruction : instructions) {
+            countUses(instruction, uses);
+        }
+
+        for (int i = 0; i + 1 < instructions.size(); i++) {
+            Instruction branch = instructions.get(i + 1);
+            if (!(instructions.get(i) instanceof AssignInstruction assign) || branch.getInstType() != InstructionType.BRANCH
+                    || !method.getLabels(branch).isEmpty())
+                continue;
+
+            Element dest = assign.getDest();
+            if (dest instanceof ArrayOperand || !(dest instanceof Operand variable) || variable.isParameter()
+                    || !(assign.getRhs() instanceof BinaryOpInstruction comparison)
+                    || !INVERSES.containsKey(comparison.getOperation().getOpType()))
+                continue;
+
+            String name = variable.getName();
+            Boolean negated = testedVariable((CondBranchInstruction) branch, name);
+            if (negated == null || uses.getOrDefault(name, 0) != 1)
+                continue;
+
+            fusion.fusedAssigns.put(assign, branch);
+            fusion.conditions.put(branch, negated ? invert(comparison) : comparison);
+        }
+        return fusion;
+    }
+
+    /**
+     * Whether the instruction is an assignment whose comparison is done by the branch after it, so it emits nothing.
+     */
+    public boolean isFused(Instruction instruction) {
+        return fusedAssigns.containsKey(instruction);
+    }
+
+    /**
+     * The comparison the branch jumps on, or null when it tests its condition as usual.
+     */
+    public BinaryOpInstruction getCondition(CondBranchInstruction branch) {
+        return conditions.get(branch);
+    }
+
+    /**
+     * Whether the branch tests the variable (false) or its negation (true), or null when it does something else.
+     */
+    private static Boolean testedVariable(CondBranchInstruction branch, String name) {
+        if (branch instanceof SingleOpCondInstruction singleOpCond)
+            return isVariable(singleOpCond.getCondition().getSingleOperand(), name) ? false : null;
+
+        if (branch instanceof OpCondInstruction opCond && opCond.getCondition() instanceof UnaryOpInstruction unary) {
+            OperationType opType = unary.getOperation().getOpType();
+            if ((opType == OperationType.NOT || opType == OperationType.NOTB) && isVariable(unary.getOperand(), name))
+                return true;
+        }
+        return null;
+    }
+
+    private static boolean isVariable(Element element, String name) {
+        return !element.isLiteral() && !(element instanceof ArrayOperand) && ((Operand) element).getName().equals(name);
+    }
+
+    private static BinaryOpInstruction invert(BinaryOpInstruction comparison) {
+        Operation operation = new Operation(INVERSES.get(comparison.getOperation().getOpType()),
+                comparison.getOperation().getTypeInfo());
+        return new BinaryOpInstruction(comparison.getLeftOperand(), operation, comparison.getRightOperand());
+    }
+
+    private static void countUses(Instruction instruction, Map<String, Integer> uses) {
+        switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+                if (assign.getDest() instanceof ArrayOperand)
+                    countUses(assign.getDest(), uses);
+                countUses(assign.getRhs(), uses);
+            }
+            case CALL -> {
+                CallInstruction call = (CallInstruction) instruction;
+                countUses(call.getFirstArg(), uses);
+                if (call.getListOfOperands() != null)
+                    call.getListOfOperands().forEach(operand -> countUses(operand, uses));
+            }
+            case BRANCH -> ((CondBranchInstruction) instruction).getOperands().forEach(operand -> countUses(operand, uses));
+            case RETURN -> {
+                ReturnInstruction ret = (ReturnInstruction) instruction;
+                if (ret.hasReturnValue())
+                    countUses(ret.getOperand(), uses);
+            }
+            case PUTFIELD -> {
+                countUses(((PutFieldInstruction) instruction).getFirstOperand(), uses);
+                countUses(((PutFieldInstruction) instruction).getThirdOperand(), uses);
+            }
+            case GETFIELD -> countUses(((GetFieldInstruction) instruction).getFirstOperand(), uses);
+            case UNARYOPER -> countUses(((UnaryOpInstruction) instruction).getOperand(), uses);
+            case BINARYOPER -> ((BinaryOpInstruction) instruction).getOperands().forEach(operand -> countUses(operand, uses));
+            case NOPER -> countUses(((SingleOpInstruction) instruction).getSingleOperand(), uses);
+            case GOTO -> {
+            }
+        }
+    }
+
+    private static void countUses(Element element, Map<String, Integer> uses) {
+        if (element == null || element.isLiteral())
+            return;
+        uses.merge(((Operand) element).getName(), 1, Integer::sum);
+        if (element instanceof ArrayOperand array)
+            array.getIndexOperands().forEach(index -> countUses(index, uses));
+    }
+}
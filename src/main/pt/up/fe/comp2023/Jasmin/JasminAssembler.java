@@ -0,0 +1,52 @@
+package pt.up.fe.comp2023.Jasmin;
+
+import jas.jasError;
+import jasmin.ClassFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.StringReader;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2023.classfile.ClassFileResult;
+import pt.up.fe.comp2023.stats.StageStats;
+
+/**
+ * Assembles Jasmin code straight into class file bytes, without writing the .j or .class files to disk.
+ */
+public class JasminAssembler {
+
+    /**
+     * @return the class file of the result, assembled from its Jasmin code unless the backend wrote it directly
+     */
+    public static byte[] toClassBytes(JasminResult jasminResult) {
+        return jasminResult instanceof ClassFileResult classFileResult ? classFileResult.getClassBytes() :
+                assemble(jasminResult.getClassName(), jasminResult.getJasminCode());
+    }
+
+    public static byte[] assemble(String className, String jasminCode) {
+        return StageStats.measure(StageStats.ASSEMBLY, () -> assembleCode(className, jasminCode));
+    }
+
+    private static byte[] assembleCode(String className, String jasminCode) {
+        try {
+            ClassFile classFile = new ClassFile();
+            classFile.readJasmin(new StringReader(jasminCode), className + ".j", true);
+
+            if (classFile.errorCount() > 0) {
+                throw new RuntimeException("Found " + classFile.errorCount()
+                        + " errors while compiling Jasmin code:\n" + jasminCode);
+            }
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            classFile.write(bytes);
+            return bytes.toByteArray();
+        } catch (jasError e) {
+            throw new RuntimeException("JAS Error: " + e.getMessage() + "\nCode: " + jasminCode, e);
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new RuntimeException("Exception while assembling Jasmin code: " + e.getMessage()
+                    + "\nCode: " + jasminCode, e);
+        }
+    }
+}
@@ -14,15 +14,17 @@ public class JasminGenerator {
 
     private final StringBuilder instructionsBuilder;
 
-    private static int maxStack = 0;
-    private static int currentStack = 0;
+    private final JasminInstructions instructions;
 
     private int comparisonLabelsCounter = 0;
 
+    private BranchFusion branchFusion;
+
     public  JasminGenerator(ClassUnit classUnit) {
         this.classUnit = classUnit;
         this.builder = new StringBuilder();
         this.instructionsBuilder = new StringBuilder();
+        this.instructions = new JasminInstructions();
     }
 
     public String generate() {
@@ -82,16 +84,18 @@ public class JasminGenerator {
 
     private void generateMethodBody(Method method) {
         instructionsBuilder.setLength(0);
+        instructions.resetStack();
+        branchFusion = BranchFusion.of(method);
         for (Instruction instruction : method.getInstructions()) {
             generateInstruction(instruction,method);
             if (instruction.getInstType() == InstructionType.CALL ){
                 CallInstruction call = (CallInstruction) instruction;
                 if (call.getReturnType().getTypeOfElement() != ElementType.VOID) {
-                    instructionsBuilder.append("\t").append(JasminInstructions.pop()).append("\n");
+                    instructionsBuilder.append("\t").append(instructions.pop()).append("\n");
                 }
             }
         }
-        builder.append(".limit stack ").append(maxStack).append("\n");
+        builder.append(".limit stack ").append(instructions.getMaxStack()).append("\n");
         builder.append(".limit locals ").append(getNumLocals(method)).append("\n");
         builder.append(instructionsBuilder);
     }
@@ -118,6 +122,8 @@ public class JasminGenerator {
 
     private void generateInstruction(Instruction instruction,Method method) {
         generateInstructionLabels(instruction,method);
+        if (branchFusion.isFused(instruction))
+            return;
         switch (instruction.getInstType()){
             case ASSIGN -> generateAssignInstruction((AssignInstruction) instruction,method);
             case CALL -> generateCallInstruction((CallInstruction) instruction,method);
@@ -154,36 +160,36 @@ public class JasminGenerator {
             switch (instruction.getOperation().getOpType()){
                 case LTH -> {
                     String mainLabel = "LTH";
-                    String operation = leftIsZero ? JasminInstructions.ifgt(mainLabel+ "_" + comparisonLabelsCounter) :
-                            JasminInstructions.iflt(mainLabel+ "_" + comparisonLabelsCounter);
+                    String operation = leftIsZero ? instructions.ifgt(mainLabel+ "_" + comparisonLabelsCounter) :
+                            instructions.iflt(mainLabel+ "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation,mainLabel);
                 }
                 case GTH -> {
                     String mainLabel = "GTH";
-                    String operation = leftIsZero ? JasminInstructions.iflt(mainLabel+ "_" + comparisonLabelsCounter) :
-                            JasminInstructions.ifgt(mainLabel+ "_" + comparisonLabelsCounter);
+                    String operation = leftIsZero ? instructions.iflt(mainLabel+ "_" + comparisonLabelsCounter) :
+                            instructions.ifgt(mainLabel+ "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation,mainLabel);
                 }
                 case LTE -> {
                     String mainLabel = "LTE";
-                    String operation = leftIsZero ? JasminInstructions.ifge(mainLabel+ "_" + comparisonLabelsCounter) :
-                            JasminInstructions.ifle(mainLabel+ "_" + comparisonLabelsCounter);
+                    String operation = leftIsZero ? instructions.ifge(mainLabel+ "_" + comparisonLabelsCounter) :
+                            instructions.ifle(mainLabel+ "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation,mainLabel);
                 }
                 case GTE -> {
                     String mainLabel = "GTE";
-                    String operation = leftIsZero ? JasminInstructions.ifle(mainLabel+ "_" + comparisonLabelsCounter) :
-                            JasminInstructions.ifge(mainLabel+ "_" + comparisonLabelsCounter);
+                    String operation = leftIsZero ? instructions.ifle(mainLabel+ "_" + comparisonLabelsCounter) :
+                            instructions.ifge(mainLabel+ "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation,mainLabel);
                 }
                 case EQ -> {
                     String mainLabel = "EQ";
-                    String operation = JasminInstructions.ifeq(mainLabel+ "_" + comparisonLabelsCounter);
+                    String operation = instructions.ifeq(mainLabel+ "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation,mainLabel);
                 }
                 case NEQ-> {
                     String mainLabel = "NE";
-                    String operation = JasminInstructions.ifne(mainLabel+ "_" + comparisonLabelsCounter);
+                    String operation = instructions.ifne(mainLabel+ "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation,mainLabel);
                 }
             }
@@ -192,40 +198,40 @@ public class JasminGenerator {
             generateLoadInstruction(instruction.getLeftOperand(),method);
             generateLoadInstruction(instruction.getRightOperand(),method);
             switch (instruction.getOperation().getOpType()) {
-                case ADD -> instructionsBuilder.append("\t").append(JasminInstructions.iadd()).append("\n");
-                case SUB -> instructionsBuilder.append("\t").append(JasminInstructions.isub()).append("\n");
-                case MUL -> instructionsBuilder.append("\t").append(JasminInstructions.imul()).append("\n");
-                case DIV -> instructionsBuilder.append("\t").append(JasminInstructions.idiv()).append("\n");
-                case AND, ANDB -> instructionsBuilder.append("\t").append(JasminInstructions.iand()).append("\n");
-                case OR, ORB -> instructionsBuilder.append("\t").append(JasminInstructions.ior()).append("\n");
+                case ADD -> instructionsBuilder.append("\t").append(instructions.iadd()).append("\n");
+                case SUB -> instructionsBuilder.append("\t").append(instructions.isub()).append("\n");
+                case MUL -> instructionsBuilder.append("\t").append(instructions.imul()).append("\n");
+                case DIV -> instructionsBuilder.append("\t").append(instructions.idiv()).append("\n");
+                case AND, ANDB -> instructionsBuilder.append("\t").append(instructions.iand()).append("\n");
+                case OR, ORB -> instructionsBuilder.append("\t").append(instructions.ior()).append("\n");
                 case LTH -> {
                     String mainLabel = "LTH";
-                    String operation = JasminInstructions.if_icmplt(mainLabel + "_" + comparisonLabelsCounter);
+                    String operation = instructions.if_icmplt(mainLabel + "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation, mainLabel);
                 }
                 case GTH -> {
                     String mainLabel = "GTH";
-                    String operation = JasminInstructions.if_icmpgt(mainLabel + "_" + comparisonLabelsCounter);
+                    String operation = instructions.if_icmpgt(mainLabel + "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation, mainLabel);
                 }
                 case LTE -> {
                     String mainLabel = "LTE";
-                    String operation = JasminInstructions.if_icmple(mainLabel + "_" + comparisonLabelsCounter);
+                    String operation = instructions.if_icmple(mainLabel + "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation, mainLabel);
                 }
                 case GTE -> {
                     String mainLabel = "GTE";
-                    String operation = JasminInstructions.if_icmpge(mainLabel + "_" + comparisonLabelsCounter);
+                    String operation = instructions.if_icmpge(mainLabel + "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation, mainLabel);
                 }
                 case EQ -> {
                     String mainLabel = "EQ";
-                    String operation = JasminInstructions.if_icmpeq(mainLabel + "_" + comparisonLabelsCounter);
+                    String operation = instructions.if_icmpeq(mainLabel + "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation, mainLabel);
                 }
                 case NEQ -> {
                     String mainLabel = "NE";
-                    String operation = JasminInstructions.if_icmpne(mainLabel + "_" + comparisonLabelsCounter);
+                    String operation = instructions.if_icmpne(mainLabel + "_" + comparisonLabelsCounter);
                     generateComparisonInstruction(operation, mainLabel);
                 }
             }
@@ -234,10 +240,10 @@ public class JasminGenerator {
 
     private void generateComparisonInstruction(String operation, String mainLabel) {
         instructionsBuilder.append("\t").append(operation).append("\n");
-        instructionsBuilder.append("\t").append(JasminInstructions.generateInt("0")).append("\n");
-        instructionsBuilder.append("\t").append(JasminInstructions.gotoInstruction(mainLabel +"_"+ comparisonLabelsCounter + "_end")).append("\n");
+        instructionsBuilder.append("\t").append(instructions.generateInt("0")).append("\n");
+        instructionsBuilder.append("\t").append(instructions.gotoInstruction(mainLabel +"_"+ comparisonLabelsCounter + "_end")).append("\n");
         instructionsBuilder.append("\t").append(mainLabel).append("_").append(comparisonLabelsCounter).append(":\n");
-        instructionsBuilder.append("\t").append(JasminInstructions.generateInt("1")).append("\n");
+        instructionsBuilder.append("\t").append(instructions.generateInt("1")).append("\n");
         instructionsBuilder.append("\t").append(mainLabel).append("_").append(comparisonLabelsCounter).append("_end:\n");
         comparisonLabelsCounter++;
     }
@@ -246,8 +252,8 @@ public class JasminGenerator {
         if (instruction.getOperation().getOpType() != OperationType.NOT && instruction.getOperation().getOpType() != OperationType.NOTB)
             return;
         generateLoadInstruction(instruction.getOperand(),method);
-        instructionsBuilder.append("\t").append(JasminInstructions.generateInt("1")).append("\n");
-        instructionsBuilder.append("\t").append(JasminInstructions.ixor()).append("\n");
+        instructionsBuilder.append("\t").append(instructions.generateInt("1")).append("\n");
+        instructionsBuilder.append("\t").append(instructions.ixor()).append("\n");
     }
 
     private void generateFieldInstruction(FieldInstruction instruction, Method method, boolean putfield){
@@ -258,9 +264,9 @@ public class JasminGenerator {
         String fieldName = JasminUtils.getElementName(instruction.getSecondOperand());
         String fieldType = JasminUtils.getFieldType(instruction.getSecondOperand().getType(),true,classUnit);
         if (putfield)
-            instructionsBuilder.append("\t").append(JasminInstructions.putfield(className,fieldName,fieldType)).append("\n");
+            instructionsBuilder.append("\t").append(instructions.putfield(className,fieldName,fieldType)).append("\n");
         else
-            instructionsBuilder.append("\t").append(JasminInstructions.getfield(className,fieldName,fieldType)).append("\n");
+            instructionsBuilder.append("\t").append(instructions.getfield(className,fieldName,fieldType)).append("\n");
     }
 
     private void generateReturnInstruction(ReturnInstruction instruction,Method method) {
@@ -268,53 +274,56 @@ public class JasminGenerator {
             generateLoadInstruction(instruction.getOperand(),method);
         }
         switch (instruction.getElementType()){
-            case BOOLEAN, INT32 -> instructionsBuilder.append("\t").append(JasminInstructions.ireturn()).append("\n");
-            case STRING, CLASS, OBJECTREF, ARRAYREF -> instructionsBuilder.append("\t").append(JasminInstructions.areturn()).append("\n");
+            case BOOLEAN, INT32 -> instructionsBuilder.append("\t").append(instructions.ireturn()).append("\n");
+            case STRING, CLASS, OBJECTREF, ARRAYREF -> instructionsBuilder.append("\t").append(instructions.areturn()).append("\n");
             case VOID -> instructionsBuilder.append("\treturn\n");
         }
 
     }
 
     private void generateBranchInstruction(CondBranchInstruction instruction, Method method) {
-        if (instruction instanceof SingleOpCondInstruction){
+        BinaryOpInstruction fusedCondition = branchFusion.getCondition(instruction);
+        if (fusedCondition != null){
+            generateOpCondInstruction(instruction.getLabel(),fusedCondition,method);
+        }
+        else if (instruction instanceof SingleOpCondInstruction){
             Element operand = ((SingleOpCondInstruction) instruction).getCondition().getSingleOperand();
             generateSingleOpCondInstruction(operand,method,instruction.getLabel());
         }
         else if (instruction instanceof OpCondInstruction){
-            generateOpCondInstruction(instruction,method);
+            generateOpCondInstruction(instruction.getLabel(),((OpCondInstruction) instruction).getCondition(),method);
         }
     }
 
     private void generateSingleOpCondInstruction(Element operand, Method method, String label) {
         generateLoadInstruction(operand,method);
-        instructionsBuilder.append("\t").append(JasminInstructions.ifne(label)).append("\n");
+        instructionsBuilder.append("\t").append(instructions.ifne(label)).append("\n");
     }
 
-    private void generateOpCondInstruction(CondBranchInstruction instruction, Method method) {
-        OpInstruction condition = ((OpCondInstruction) instruction).getCondition();
+    private void generateOpCondInstruction(String label, OpInstruction condition, Method method) {
         OperationType opType = condition.getOperation().getOpType();
         if (condition instanceof BinaryOpInstruction){
             if (checkComparisonWithZero((BinaryOpInstruction) condition)){
-                generateZeroComparisonInstruction(instruction,(BinaryOpInstruction) condition,method);
+                generateZeroComparisonInstruction(label,(BinaryOpInstruction) condition,method);
                 return;
             }
             generateLoadInstruction(((BinaryOpInstruction) condition).getLeftOperand(),method);
             generateLoadInstruction(((BinaryOpInstruction) condition).getRightOperand(),method);
             switch(opType){
-                case AND,ANDB -> instructionsBuilder.append("\t").append(JasminInstructions.iand()).append("\n").append("\t").append(JasminInstructions.ifne(instruction.getLabel())).append("\n");
-                case OR,ORB -> instructionsBuilder.append("\t").append(JasminInstructions.ior()).append("\n").append("\t").append(JasminInstructions.ifne(instruction.getLabel())).append("\n");
-                case LTH -> instructionsBuilder.append("\t").append(JasminInstructions.if_icmplt(instruction.getLabel())).append("\n");
-                case GTH -> instructionsBuilder.append("\t").append(JasminInstructions.if_icmpgt(instruction.getLabel())).append("\n");
-                case LTE -> instructionsBuilder.append("\t").append(JasminInstructions.if_icmple(instruction.getLabel())).append("\n");
-                case GTE -> instructionsBuilder.append("\t").append(JasminInstructions.if_icmpge(instruction.getLabel())).append("\n");
-                case EQ -> instructionsBuilder.append("\t").append(JasminInstructions.if_icmpeq(instruction.getLabel())).append("\n");
-                case NEQ -> instructionsBuilder.append("\t").append(JasminInstructions.if_icmpne(instruction.getLabel())).append("\n");
+                case AND,ANDB -> instructionsBuilder.append("\t").append(instructions.iand()).append("\n").append("\t").append(instructions.ifne(label)).append("\n");
+                case OR,ORB -> instructionsBuilder.append("\t").append(instructions.ior()).append("\n").append("\t").append(instructions.ifne(label)).append("\n");
+                case LTH -> instructionsBuilder.append("\t").append(instructions.if_icmplt(label)).append("\n");
+                case GTH -> instructionsBuilder.append("\t").append(instructions.if_icmpgt(label)).append("\n");
+                case LTE -> instructionsBuilder.append("\t").append(instructions.if_icmple(label)).append("\n");
+                case GTE -> instructionsBuilder.append("\t").append(instructions.if_icmpge(label)).append("\n");
+                case EQ -> instructionsBuilder.append("\t").append(instructions.if_icmpeq(label)).append("\n");
+                case NEQ -> instructionsBuilder.append("\t").append(instructions.if_icmpne(label)).append("\n");
             }
         }
         else if (condition instanceof UnaryOpInstruction){
             generateLoadInstruction(((UnaryOpInstruction) condition).getOperand(),method);
             switch(opType){
-                case NOT,NOTB -> instructionsBuilder.append("\t").append(JasminInstructions.ifeq(instruction.getLabel())).append("\n");
+                case NOT,NOTB -> instructionsBuilder.append("\t").append(instructions.ifeq(label)).append("\n");
             }
         }
     }
@@ -327,7 +336,7 @@ public class JasminGenerator {
         return JasminUtils.getElementName(instruction.getLeftOperand()).equals("0") || JasminUtils.getElementName(instruction.getRightOperand()).equals("0");
     }
 
-    private void generateZeroComparisonInstruction(CondBranchInstruction instruction, BinaryOpInstruction condition, Method method) {
+    private void generateZeroComparisonInstruction(String label, BinaryOpInstruction condition, Method method) {
         boolean leftIsZero = JasminUtils.getElementName(condition.getLeftOperand()).equals("0");
         if (leftIsZero)
             generateLoadInstruction(condition.getRightOperand(),method);
@@ -335,21 +344,23 @@ public class JasminGenerator {
             generateLoadInstruction(condition.getLeftOperand(),method);
         instructionsBuilder.append("\t");
         switch(condition.getOperation().getOpType()){
-            case LTH -> instructionsBuilder.append(leftIsZero ? JasminInstructions.ifgt(instruction.getLabel()) : JasminInstructions.iflt(instruction.getLabel()));
-            case GTH -> instructionsBuilder.append(leftIsZero ? JasminInstructions.iflt(instruction.getLabel()) : JasminInstructions.ifgt(instruction.getLabel()));
-            case LTE -> instructionsBuilder.append(leftIsZero ? JasminInstructions.ifge(instruction.getLabel()) : JasminInstructions.ifle(instruction.getLabel()));
-            case GTE -> instructionsBuilder.append(leftIsZero ? JasminInstructions.ifle(instruction.getLabel()) : JasminInstructions.ifge(instruction.getLabel()));
-            case EQ -> instructionsBuilder.append(JasminInstructions.ifeq(instruction.getLabel()));
-            case NEQ -> instructionsBuilder.append(JasminInstructions.ifne(instruction.getLabel()));
+            case LTH -> instructionsBuilder.append(leftIsZero ? instructions.ifgt(label) : instructions.iflt(label));
+            case GTH -> instructionsBuilder.append(leftIsZero ? instructions.iflt(label) : instructions.ifgt(label));
+            case LTE -> instructionsBuilder.append(leftIsZero ? instructions.ifge(label) : instructions.ifle(label));
+            case GTE -> instructionsBuilder.append(leftIsZero ? instructions.ifle(label) : instructions.ifge(label));
+            case EQ -> instructionsBuilder.append(instructions.ifeq(label));
+            case NEQ -> instructionsBuilder.append(instructions.ifne(label));
         }
         instructionsBuilder.append("\n");
     }
 
     private void generateGotoInstruction(GotoInstruction instruction, Method method) {
-        while(method.getLabels().get(instruction.getLabel()).getInstType() == InstructionType.GOTO){
+        // a cycle of gotos, e.g. of while (true) { }, jumps to any of them
+        for (int jumps = 0; jumps < method.getInstructions().size()
+                && method.getLabels().get(instruction.getLabel()).getInstType() == InstructionType.GOTO; jumps++){
             instruction = (GotoInstruction) method.getLabels().get(instruction.getLabel());
         }
-        instructionsBuilder.append("\t").append(JasminInstructions.gotoInstruction(instruction.getLabel())).append("\n");
+        instructionsBuilder.append("\t").append(instructions.gotoInstruction(instruction.getLabel())).append("\n");
 
     }
 
@@ -365,7 +376,7 @@ public class JasminGenerator {
 
     private void generateArrayLengthCall(CallInstruction instruction, Method method) {
         generateLoadInstruction(instruction.getFirstArg(),method);
-        instructionsBuilder.append('\t').append(JasminInstructions.arraylength()).append('\n');
+        instructionsBuilder.append('\t').append(instructions.arraylength()).append('\n');
     }
 
     private void generateNewCall(CallInstruction instruction, Method method) {
@@ -373,12 +384,12 @@ public class JasminGenerator {
         if ( instruction.getReturnType().getTypeOfElement() == ElementType.ARRAYREF){
             className = "int";
             generateLoadInstruction(instruction.getListOfOperands().get(0),method);
-            instructionsBuilder.append('\t').append(JasminInstructions.newarray(className)).append('\n');
+            instructionsBuilder.append('\t').append(instructions.newarray(className)).append('\n');
         }
         else{
             className = JasminUtils.getFieldType(instruction.getFirstArg().getType(),false,classUnit);
-            instructionsBuilder.append('\t').append(JasminInstructions.newInstruction(className)).append('\n');
-            instructionsBuilder.append('\t').append(JasminInstructions.dup()).append('\n');
+            instructionsBuilder.append('\t').append(instructions.newInstruction(className)).append('\n');
+            instructionsBuilder.append('\t').append(instructions.dup()).append('\n');
         }
     }
 
@@ -391,7 +402,7 @@ public class JasminGenerator {
             className = JasminUtils.getFieldType(instruction.getFirstArg().getType(),false,classUnit);
         }
         generateGeneralCall("invokespecial",className,instruction,method);
-        updateStack(-1);
+        instructions.updateStack(-1);
         if (localConstructor) {
             instructionsBuilder.append("\t").append("return").append("\n");
         }
@@ -405,7 +416,7 @@ public class JasminGenerator {
 
     private void generateVirtualCall(CallInstruction instruction, Method method) {
         generateGeneralCall("invokevirtual",JasminUtils.getFieldType(instruction.getFirstArg().getType(),false,classUnit),instruction,method);
-        updateStack(-1);
+        instructions.updateStack(-1);
     }
 
     private void generateGeneralCall(String invoke,String className, CallInstruction instruction, Method method) {
@@ -417,9 +428,9 @@ public class JasminGenerator {
         for (Element elem : instruction.getListOfOperands()) {
             generateLoadInstruction(elem,method);
         }
-        updateStack(-instruction.getListOfOperands().size());
+        instructions.updateStack(-instruction.getListOfOperands().size());
         if(instruction.getReturnType().getTypeOfElement() != ElementType.VOID)
-            updateStack(1);
+            instructions.updateStack(1);
 
         instructionsBuilder.append("\t").append(invoke).append(" ").append(className).append("/").append(methodName).append("(");
         for (Element elem : instruction.getListOfOperands()) {
@@ -446,7 +457,7 @@ public class JasminGenerator {
         ArrayOperand arrayOperand = (ArrayOperand) instruction.getDest();
 
         Descriptor arrayDescriptor = method.getVarTable().get(arrayOperand.getName());
-        instructionsBuilder.append("\t").append(JasminInstructions.aload(arrayDescriptor.getVirtualReg())).append("\n");
+        instructionsBuilder.append("\t").append(instructions.aload(arrayDescriptor.getVirtualReg())).append("\n");
 
         Element idx = arrayOperand.getIndexOperands().get(0);
         generateLoadInstruction(idx,method);
@@ -454,8 +465,8 @@ public class JasminGenerator {
         generateInstruction(instruction.getRhs(),method);
 
         String jasminInstruction = switch (destType) {
-            case INT32, BOOLEAN -> JasminInstructions.iastore();
-            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> JasminInstructions.aastore();
+            case INT32, BOOLEAN -> instructions.iastore();
+            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> instructions.aastore();
             case VOID -> null;
         };
 
@@ -469,8 +480,8 @@ public class JasminGenerator {
         if (descriptor == null) return;
         generateInstruction(instruction.getRhs(), method);
         String jasminInstruction = switch (destType) {
-            case INT32, BOOLEAN -> JasminInstructions.istore(descriptor.getVirtualReg());
-            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> JasminInstructions.astore(descriptor.getVirtualReg());
+            case INT32, BOOLEAN -> instructions.istore(descriptor.getVirtualReg());
+            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> instructions.astore(descriptor.getVirtualReg());
             case VOID -> null;
         };
         instructionsBuilder.append("\t").append(jasminInstruction).append("\n");
@@ -511,7 +522,7 @@ public class JasminGenerator {
 
         if (incrementValue < -128 || incrementValue > 127) return false;
 
-        instructionsBuilder.append("\t").append(JasminInstructions.iinc(varDescriptor.getVirtualReg(),incrementValue)).append("\n");
+        instructionsBuilder.append("\t").append(instructions.iinc(varDescriptor.getVirtualReg(),incrementValue)).append("\n");
 
         return true;
 
@@ -520,11 +531,11 @@ public class JasminGenerator {
     private void generateLoadInstruction(Element elem,Method method) {
         if (elem.isLiteral()){
             String literal = ((LiteralElement) elem).getLiteral();
-            instructionsBuilder.append("\t").append(JasminInstructions.generateInt(literal)).append("\n");
+            instructionsBuilder.append("\t").append(instructions.generateInt(literal)).append("\n");
             return;
         } else if (elem.getType().getTypeOfElement() == ElementType.BOOLEAN &&
             (JasminUtils.getElementName(elem).equals("true") || JasminUtils.getElementName(elem).equals("false"))) {
-            instructionsBuilder.append("\t").append(JasminInstructions.generateBoolean(JasminUtils.getElementName(elem))).append("\n");
+            instructionsBuilder.append("\t").append(instructions.generateBoolean(JasminUtils.getElementName(elem))).append("\n");
             return;
         }
 
@@ -543,14 +554,14 @@ public class JasminGenerator {
     private void generateArrayLoad(ArrayOperand arrayOperand, ElementType elemType, Method method) {
         Descriptor arrayDescriptor = method.getVarTable().get(arrayOperand.getName());
         if (arrayDescriptor == null) return;
-        instructionsBuilder.append("\t").append(JasminInstructions.aload(arrayDescriptor.getVirtualReg())).append("\n");
+        instructionsBuilder.append("\t").append(instructions.aload(arrayDescriptor.getVirtualReg())).append("\n");
 
         Element idx = arrayOperand.getIndexOperands().get(0);
         generateLoadInstruction(idx,method);
 
         String jasminInstruction = switch (elemType) {
-            case INT32, BOOLEAN -> JasminInstructions.iaload();
-            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> JasminInstructions.aaload();
+            case INT32, BOOLEAN -> instructions.iaload();
+            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> instructions.aaload();
             case VOID -> null;
         };
 
@@ -559,16 +570,11 @@ public class JasminGenerator {
 
     private void generateGeneralLoad(Descriptor descriptor, ElementType elemType) {
         String jasminInstruction = switch (elemType) {
-            case INT32, BOOLEAN -> JasminInstructions.iload(descriptor.getVirtualReg());
-            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> JasminInstructions.aload(descriptor.getVirtualReg());
+            case INT32, BOOLEAN -> instructions.iload(descriptor.getVirtualReg());
+            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> instructions.aload(descriptor.getVirtualReg());
             case VOID -> null;
         };
         instructionsBuilder.append("\t").append(jasminInstruction).append("\n");
     }
 
-    public static void updateStack(int change){
-        currentStack += change;
-        if (currentStack > maxStack) maxStack = currentStack;
-    }
-
 }
\ No newline at end of file
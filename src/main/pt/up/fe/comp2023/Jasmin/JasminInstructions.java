@@ -1,28 +1,49 @@
 package pt.up.fe.comp2023.Jasmin;
 
+/**
+ * Builds Jasmin instructions while keeping track of the operand stack depth they produce.
+ * Each generator owns its own instance, so several classes can be generated concurrently.
+ */
 public class JasminInstructions {
-    public static String astore(int index) {
-        JasminGenerator.updateStack(-1);
+    private int maxStack = 0;
+    private int currentStack = 0;
+
+    public void updateStack(int change) {
+        currentStack += change;
+        if (currentStack > maxStack) maxStack = currentStack;
+    }
+
+    public void resetStack() {
+        maxStack = 0;
+        currentStack = 0;
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    public String astore(int index) {
+        updateStack(-1);
         return "astore" + (index < 4 ? "_": " ") + index;
     }
 
-    public static String istore(int index) {
-        JasminGenerator.updateStack(-1);
+    public String istore(int index) {
+        updateStack(-1);
         return "istore" + (index < 4 ? "_": " ") + index;
     }
 
-    public static String iastore() {
-        JasminGenerator.updateStack(-3);
+    public String iastore() {
+        updateStack(-3);
         return "iastore";
     }
 
-    public static String aastore() {
-        JasminGenerator.updateStack(-3);
+    public String aastore() {
+        updateStack(-3);
         return "aastore";
     }
 
-    public static String generateInt(String value) {
-        JasminGenerator.updateStack(1);
+    public String generateInt(String value) {
+        updateStack(1);
         int intValue = Integer.parseInt(value);
         if (intValue == -1) {
             return "iconst_m1";
@@ -37,176 +58,177 @@ public class JasminInstructions {
         }
     }
 
-    public static String ldc(String value) {
+    public String ldc(String value) {
         return "ldc " + value;
     }
 
-    public static String generateBoolean(String value) {
+    public String generateBoolean(String value) {
+        updateStack(1);
         return value.equals("true") ? "iconst_1" : "iconst_0";
     }
 
-    public static String aload(int virtualReg) {
-        JasminGenerator.updateStack(1);
+    public String aload(int virtualReg) {
+        updateStack(1);
         return "aload" + (virtualReg < 4 ? "_": " ") + virtualReg;
     }
 
-    public static String iload(int virtualReg) {
-        JasminGenerator.updateStack(1);
+    public String iload(int virtualReg) {
+        updateStack(1);
         return "iload" + (virtualReg < 4 ? "_": " ") + virtualReg;
     }
 
-    public static String iaload() {
-        JasminGenerator.updateStack(-1);
+    public String iaload() {
+        updateStack(-1);
         return "iaload";
     }
 
-    public static String aaload() {
-        JasminGenerator.updateStack(-1);
+    public String aaload() {
+        updateStack(-1);
         return "aaload";
     }
 
-    public static String newInstruction(String className) {
-        JasminGenerator.updateStack(1);
+    public String newInstruction(String className) {
+        updateStack(1);
         return "new " + className;
     }
 
-    public static String newarray(String type) {
+    public String newarray(String type) {
         return "newarray " + type;
     }
 
-    public static String arraylength() {
+    public String arraylength() {
         return "arraylength";
     }
 
-    public static String dup() {
-        JasminGenerator.updateStack(1);
+    public String dup() {
+        updateStack(1);
         return "dup";
     }
 
-    public static String ifne(String label) {
-        JasminGenerator.updateStack(-1);
+    public String ifne(String label) {
+        updateStack(-1);
         return "ifne " + label;
     }
 
-    public static String ifeq(String label) {
-        JasminGenerator.updateStack(-1);
+    public String ifeq(String label) {
+        updateStack(-1);
         return "ifeq " + label;
     }
 
-    public static String iflt(String label) {
-        JasminGenerator.updateStack(-1);
+    public String iflt(String label) {
+        updateStack(-1);
         return "iflt " + label;
     }
 
-    public static String ifgt(String label) {
-        JasminGenerator.updateStack(-1);
+    public String ifgt(String label) {
+        updateStack(-1);
         return "ifgt " + label;
     }
 
-    public static String ifle(String label) {
-        JasminGenerator.updateStack(-1);
+    public String ifle(String label) {
+        updateStack(-1);
         return "ifle " + label;
     }
 
-    public static String ifge(String label) {
-        JasminGenerator.updateStack(-1);
+    public String ifge(String label) {
+        updateStack(-1);
         return "ifge " + label;
     }
 
-    public static String if_icmpeq(String label) {
-        JasminGenerator.updateStack(-2);
+    public String if_icmpeq(String label) {
+        updateStack(-2);
         return "if_icmpeq " + label;
     }
 
-    public static String if_icmpge(String label) {
-        JasminGenerator.updateStack(-2);
+    public String if_icmpge(String label) {
+        updateStack(-2);
         return "if_icmpge " + label;
     }
 
-    public static String if_icmpgt(String label) {
-        JasminGenerator.updateStack(-2);
+    public String if_icmpgt(String label) {
+        updateStack(-2);
         return "if_icmpgt " + label;
     }
 
-    public static String if_icmple(String label) {
-        JasminGenerator.updateStack(-2);
+    public String if_icmple(String label) {
+        updateStack(-2);
         return "if_icmple " + label;
     }
 
-    public static String if_icmplt(String label) {
-        JasminGenerator.updateStack(-2);
+    public String if_icmplt(String label) {
+        updateStack(-2);
         return "if_icmplt " + label;
     }
 
-    public static String if_icmpne(String label) {
-        JasminGenerator.updateStack(-2);
+    public String if_icmpne(String label) {
+        updateStack(-2);
         return "if_icmpne " + label;
     }
 
-    public static String getfield(String className, String fieldName, String fieldType) {
+    public String getfield(String className, String fieldName, String fieldType) {
         return "getfield " + className + "/" + fieldName + " " + fieldType;
     }
 
-    public static String putfield(String className, String fieldName, String fieldType) {
-        JasminGenerator.updateStack(-2);
+    public String putfield(String className, String fieldName, String fieldType) {
+        updateStack(-2);
         return "putfield " + className + "/" + fieldName + " " + fieldType;
     }
 
-    public static String iand() {
-        JasminGenerator.updateStack(-1);
+    public String iand() {
+        updateStack(-1);
         return "iand";
     }
 
-    public static String ior() {
-        JasminGenerator.updateStack(-1);
+    public String ior() {
+        updateStack(-1);
         return "ior";
     }
 
-    public static String iadd() {
-        JasminGenerator.updateStack(-1);
+    public String iadd() {
+        updateStack(-1);
         return "iadd";
     }
 
-    public static String isub() {
-        JasminGenerator.updateStack(-1);
+    public String isub() {
+        updateStack(-1);
         return "isub";
     }
 
-    public static String imul() {
-        JasminGenerator.updateStack(-1);
+    public String imul() {
+        updateStack(-1);
         return "imul";
     }
 
-    public static String idiv() {
-        JasminGenerator.updateStack(-1);
+    public String idiv() {
+        updateStack(-1);
         return "idiv";
     }
 
-    public static String ixor() {
-        JasminGenerator.updateStack(-1);
+    public String ixor() {
+        updateStack(-1);
         return "ixor";
     }
 
-    public static String ireturn() {
-        JasminGenerator.updateStack(-1);
+    public String ireturn() {
+        updateStack(-1);
         return "ireturn";
     }
 
-    public static String areturn() {
-        JasminGenerator.updateStack(-1);
+    public String areturn() {
+        updateStack(-1);
         return "areturn";
     }
 
-    public static String iinc(int virtualReg, int value) {
+    public String iinc(int virtualReg, int value) {
         return "iinc " + virtualReg + " " + value;
     }
 
-    public static String gotoInstruction(String label) {
+    public String gotoInstruction(String label) {
         return "goto " + label;
     }
 
-    public static String pop(){
-        JasminGenerator.updateStack(-1);
+    public String pop(){
+        updateStack(-1);
         return "pop";
     }
 
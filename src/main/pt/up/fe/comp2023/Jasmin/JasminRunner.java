@@ -0,0 +1,272 @@
+package pt.up.fe.comp2023.Jasmin;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import pt.up.fe.comp.TestUtils;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+/**
+ * Runs Jasmin code inside the current JVM: the code is assembled in memory, loaded by a dedicated class loader
+ * over the libs-jmm classpath and its main method is invoked with captured standard streams. The streams belong
+ * to the class loader of the run, not to the JVM, so any number of programs can run at the same time.
+ * This is an in-process replacement for {@link JasminResult#runWithFullOutput}, which writes files to disk and
+ * starts a new JVM for every run.
+ * <p>
+ * A program that runs past the timeout is interrupted and then stopped with {@link Thread#stop()}, which is safe
+ * here as the program shares no state with the compiler. On Java 20 and later, where threads can no longer be
+ * stopped, a program that ignores the interrupt, e.g. an infinite loop, keeps running on its thread until the JVM
+ * exits: the run still returns at the timeout, but long-running processes (the compile server) should only run
+ * programs they trust to end.
+ */
+public class JasminRunner {
+    private static final long TIMEOUT_MS = 5_000;
+    private static final long KILL_WAIT_MS = 100;
+
+    private final List<URL> classpath;
+    private final boolean echo;
+
+    public JasminRunner() {
+        this(false);
+    }
+
+    /**
+     * @param echo if true, the output of the program is also written to the console as it is produced
+     */
+    public JasminRunner(boolean echo) {
+        this(Collections.singletonList(TestUtils.getLibsClasspath()), echo);
+    }
+
+    public JasminRunner(List<String> classpath, boolean echo) {
+        this.classpath = new ArrayList<>();
+        for (String path : classpath) {
+            try {
+                this.classpath.add(new File(path).toURI().toURL());
+            } catch (MalformedURLException e) {
+                throw new RuntimeException("Invalid classpath element '" + path + "'", e);
+            }
+        }
+        this.echo = echo;
+    }
+
+    public ProcessOutputAsString run(JasminResult jasminResult) {
+        return run(jasminResult, Collections.emptyList(), null);
+    }
+
+    public ProcessOutputAsString run(JasminResult jasminResult, String input) {
+        return run(jasminResult, Collections.emptyList(), input);
+    }
+
+    public ProcessOutputAsString run(JasminResult jasminResult, List<String> args, String input) {
+        return run(JasminAssembler.toClassBytes(jasminResult), args, input);
+    }
+
+    public ProcessOutputAsString run(byte[] classBytes, List<String> args, String input) {
+        return run(classBytes, args, input == null ? System.in :
+                new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * @param input the standard input of the program, which is only read as the program asks for it
+     */
+    public ProcessOutputAsString run(byte[] classBytes, List<String> args, InputStream input) {
+        ByteArrayOutputStream stdout = new ByteArrayOutputStream();
+        ByteArrayOutputStream stderr = new ByteArrayOutputStream();
+        OutputStream out = echo ? new TeeOutputStream(stdout, System.out) : stdout;
+        InputStream in = new LineInputStream(input);
+        int[] returnValue = {0};
+
+        Thread thread = new Thread(() -> {
+            try (ProgramClassLoader loader = new ProgramClassLoader(classpath)) {
+                loader.setStreams(new PrintStream(out, true), new PrintStream(stderr, true), in);
+                Class<?> mainClass = loader.define(classBytes);
+                mainClass.getMethod("main", String[].class).invoke(null, (Object) args.toArray(new String[0]));
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause.getClass().getName().equals(ProgramSystem.Exit.class.getName())) {
+                    returnValue[0] = getExitStatus(cause);
+                } else {
+                    cause.printStackTrace(new PrintStream(stderr, true));
+                    returnValue[0] = 1;
+                }
+            } catch (Throwable e) {
+                e.printStackTrace(new PrintStream(stderr, true));
+                returnValue[0] = 1;
+            }
+        }, "jasmin-runner");
+        thread.setDaemon(true);
+        thread.start();
+
+        try {
+            thread.join(TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (thread.isAlive()) {
+            kill(thread);
+            return new ProcessOutputAsString(-1, toString(stdout),
+                    toString(stderr) + "Timeout after " + TimeUnit.MILLISECONDS.toSeconds(TIMEOUT_MS) + "s\n");
+        }
+
+        return new ProcessOutputAsString(returnValue[0], toString(stdout), toString(stderr));
+    }
+
+    /**
+     * Interrupts the thread of a program that timed out and, if it does not end soon after, stops it.
+     */
+    @SuppressWarnings({"deprecation", "removal"})
+    private static void kill(Thread thread) {
+        thread.interrupt();
+        try {
+            thread.join(KILL_WAIT_MS);
+            if (thread.isAlive()) {
+                thread.stop();
+                thread.join(KILL_WAIT_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (UnsupportedOperationException e) {
+            // the thread can not be stopped on this JVM, see the class comment
+        }
+    }
+
+    /**
+     * The exception comes from the copy of {@link ProgramSystem} of the program, a different class from ours.
+     */
+    private static int getExitStatus(Throwable exit) {
+        try {
+            return exit.getClass().getField("status").getInt(exit);
+        } catch (ReflectiveOperationException e) {
+            throw new RuntimeException("Could not read the exit status of the program", e);
+        }
+    }
+
+    private static String toString(ByteArrayOutputStream stream) {
+        synchronized (stream) {
+            return stream.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Class loader for a single run. Classes of the program are defined from memory and everything else is
+     * looked up in the libs-jmm classpath, with the platform class loader as parent so the compiler's own
+     * classes are not visible to the program. Every class it defines uses its own copy of {@link ProgramSystem}
+     * in place of the standard streams of System.
+     */
+    private static class ProgramClassLoader extends URLClassLoader {
+        private static final String PROGRAM_SYSTEM = ProgramSystem.class.getName();
+
+        ProgramClassLoader(List<URL> classpath) {
+            super(classpath.toArray(new URL[0]), ClassLoader.getPlatformClassLoader());
+        }
+
+        Class<?> define(byte[] classBytes) {
+            byte[] redirected = SystemRedirector.redirect(classBytes);
+            return defineClass(null, redirected, 0, redirected.length);
+        }
+
+        void setStreams(PrintStream out, PrintStream err, InputStream in) throws ReflectiveOperationException {
+            Class<?> system = loadClass(PROGRAM_SYSTEM);
+            system.getField("out").set(null, out);
+            system.getField("err").set(null, err);
+            system.getField("in").set(null, in);
+        }
+
+        @Override
+        protected Class<?> findClass(String name) throws ClassNotFoundException {
+            String resource = name.replace('.', '/') + ".class";
+            URL url = name.startsWith(PROGRAM_SYSTEM) ? ProgramSystem.class.getClassLoader().getResource(resource)
+                    : findResource(resource);
+            if (url == null) {
+                throw new ClassNotFoundException(name);
+            }
+
+            try (InputStream stream = url.openStream()) {
+                byte[] classBytes = SystemRedirector.redirect(stream.readAllBytes());
+                return defineClass(name, classBytes, 0, classBytes.length);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+        }
+    }
+
+    private static class TeeOutputStream extends OutputStream {
+        private final OutputStream first;
+        private final OutputStream second;
+
+        TeeOutputStream(OutputStream first, OutputStream second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            first.write(b);
+            second.write(b);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            first.write(b, off, len);
+            second.write(b, off, len);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            first.flush();
+            second.flush();
+        }
+    }
+
+    /**
+     * Input that hands out at most one line per read. The libraries used by Java-- programs create a new
+     * reader over System.in for every value they read, so a reader must never buffer past the current line.
+     */
+    private static class LineInputStream extends InputStream {
+        private final InputStream input;
+
+        LineInputStream(InputStream input) {
+            this.input = input;
+        }
+
+        @Override
+        public int read() throws IOException {
+            return input.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+
+            int count = 0;
+            while (count < len) {
+                int next = input.read();
+                if (next == -1) break;
+                b[off + count++] = (byte) next;
+                if (next == '\n') break;
+            }
+            return count == 0 ? -1 : count;
+        }
+
+        @Override
+        public int available() {
+            return 0;
+        }
+    }
+}
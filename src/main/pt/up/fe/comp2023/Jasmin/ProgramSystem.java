@@ -0,0 +1,31 @@
+package pt.up.fe.comp2023.Jasmin;
+
+import java.io.InputStream;
+import java.io.PrintStream;
+
+/**
+ * Standard streams of a program run by {@link JasminRunner}. Every run defines its own copy of this class in the
+ * class loader of the program, and the uses of System.out, System.err, System.in and System.exit in the classes
+ * of the program are redirected here, so programs running at the same time never see each other's streams and
+ * cannot stop the JVM.
+ */
+public class ProgramSystem {
+    public static PrintStream out;
+    public static PrintStream err;
+    public static InputStream in;
+
+    public static void exit(int status) {
+        throw new Exit(status);
+    }
+
+    public static class Exit extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+
+        public final int status;
+
+        public Exit(int status) {
+            super("System.exit(" + status + ")");
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package pt.up.fe.comp2023.Jasmin;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Rewrites a class file so that its uses of System.out, System.err, System.in and System.exit refer to
+ * {@link ProgramSystem} instead. Only the constant pool changes: the field and method references to
+ * java/lang/System are pointed to a new class entry, appended at the end of the pool, so no code is moved.
+ */
+class SystemRedirector {
+    private static final String SYSTEM = "java/lang/System";
+    private static final String TARGET = ProgramSystem.class.getName().replace('.', '/');
+    private static final Set<String> FIELDS = Set.of("out", "err", "in");
+    private static final Set<String> METHODS = Set.of("exit");
+
+    private static final int UTF8 = 1;
+    private static final int LONG = 5;
+    private static final int DOUBLE = 6;
+    private static final int CLASS = 7;
+    private static final int FIELDREF = 9;
+    private static final int METHODREF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    static byte[] redirect(byte[] classBytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(classBytes);
+        buffer.position(8);
+        int count = buffer.getShort() & 0xffff;
+
+        // offset of each entry in the class file, the tag is the first byte
+        int[] offsets = new int[count];
+        for (int index = 1; index < count; index++) {
+            offsets[index] = buffer.position();
+            int tag = buffer.get() & 0xff;
+            buffer.position(buffer.position() + entrySize(buffer, tag));
+            if (tag == LONG || tag == DOUBLE) index++;
+        }
+        int poolEnd = buffer.position();
+
+        List<Integer> references = new ArrayList<>();
+        for (int index = 1; index < count; index++) {
+            int offset = offsets[index];
+            if (offset == 0) continue;
+            int tag = classBytes[offset] & 0xff;
+            if (tag != FIELDREF && tag != METHODREF) continue;
+
+            int classIndex = getShort(classBytes, offset + 1);
+            String className = getUtf8(classBytes, offsets, getShort(classBytes, offsets[classIndex] + 1));
+            if (!className.equals(SYSTEM)) continue;
+
+            int nameAndType = offsets[getShort(classBytes, offset + 3)];
+            String name = getUtf8(classBytes, offsets, getShort(classBytes, nameAndType + 1));
+            if ((tag == FIELDREF ? FIELDS : METHODS).contains(name)) {
+                references.add(offset);
+            }
+        }
+        if (references.isEmpty()) return classBytes;
+
+        byte[] targetName = TARGET.getBytes(StandardCharsets.UTF_8);
+        ByteBuffer result = ByteBuffer.allocate(classBytes.length + 3 + targetName.length + 3);
+        result.put(classBytes, 0, 8);
+        result.putShort((short) (count + 2));
+        result.put(classBytes, 10, poolEnd - 10);
+        result.put((byte) UTF8).putShort((short) targetName.length).put(targetName);
+        result.put((byte) CLASS).putShort((short) count);
+        result.put(classBytes, poolEnd, classBytes.length - poolEnd);
+
+        byte[] redirected = result.array();
+        for (int offset : references) {
+            // the entries before the end of the pool keep their offsets, the header is the same size
+            redirected[offset + 1] = (byte) ((count + 1) >> 8);
+            redirected[offset + 2] = (byte) (count + 1);
+        }
+        return redirected;
+    }
+
+    /**
+     * Size of a constant pool entry, without its tag. The buffer is positioned just after the tag.
+     */
+    private static int entrySize(ByteBuffer buffer, int tag) {
+        return switch (tag) {
+            case UTF8 -> 2 + (buffer.getShort(buffer.position()) & 0xffff);
+            case 3, 4, FIELDREF, METHODREF, 11, NAME_AND_TYPE, 17, 18 -> 4;
+            case LONG, DOUBLE -> 8;
+            case CLASS, 8, 16, 19, 20 -> 2;
+            case 15 -> 3;
+            default -> throw new RuntimeException("Invalid constant pool tag " + tag);
+        };
+    }
+
+    private static int getShort(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+
+    private static String getUtf8(byte[] bytes, int[] offsets, int index) {
+        int offset = offsets[index];
+        // names are compared with ASCII names only, so decoding modified UTF-8 as UTF-8 is enough
+        return new String(bytes, offset + 3, getShort(bytes, offset + 1), StandardCharsets.UTF_8);
+    }
+}
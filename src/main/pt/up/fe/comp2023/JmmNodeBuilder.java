@@ -0,0 +1,283 @@
+package pt.up.fe.comp2023;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.antlr.v4.runtime.Parser;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.Token;
+import org.antlr.v4.runtime.tree.ErrorNode;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.ParseTreeListener;
+import org.antlr.v4.runtime.tree.RuleNode;
+import org.antlr.v4.runtime.tree.TerminalNode;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.comp2023.ast.KindedNode;
+import pt.up.fe.comp2023.ast.NodeKind;
+import pt.up.fe.comp2023.ast.PackedAst;
+
+/**
+ * Builds the AST while the parser runs, instead of converting the whole parse tree at the end. It listens to
+ * the parser for the end of each rule, and visits that rule context to turn it into a JmmNode, whose children
+ * are the nodes already built for its sub-rules. The children of the context are then dropped, so the parse
+ * tree is never held in memory at once.
+ * <p>
+ * The nodes are the same as those of {@link pt.up.fe.comp.jmm.ast.antlr.AntlrParser}: the kind is the name of
+ * the context class, the attributes are the positions and the labeled tokens, and terminals are left out. The
+ * {@link NodeKind} is found once per context class, and the labels are read by the visit methods below, with no
+ * reflection on each node. A new label in the grammar needs its kind and its visit method here.
+ * <p>
+ * The nodes are either {@link KindedNode}s or, with a {@link PackedAst}, rows of that store, whose root is
+ * returned as a {@link pt.up.fe.comp2023.ast.PackedNode} view.
+ */
+public class JmmNodeBuilder extends JavammBaseVisitor<Void> {
+    private static final String LINE_START = NodePosition.LINE_START.getKey();
+    private static final String COL_START = NodePosition.COL_START.getKey();
+    private static final String LINE_END = NodePosition.LINE_END.getKey();
+    private static final String COL_END = NodePosition.COL_END.getKey();
+
+    private static final String ID = "id";
+    private static final String OP = "op";
+    private static final String VALUE = "value";
+
+    // kind of the node of each context class, checked against the context class and its superclasses
+    private static final ClassValue<NodeKind> KINDS = new ClassValue<>() {
+        @Override
+        protected NodeKind computeValue(Class<?> contextClass) {
+            List<String> hierarchy = new ArrayList<>();
+            for (Class<?> current = contextClass; current != ParserRuleContext.class; current = current.getSuperclass()) {
+                String name = current.getSimpleName();
+                hierarchy.add(name.substring(0, name.length() - "Context".length()));
+            }
+
+            NodeKind kind = NodeKind.fromName(hierarchy.get(0));
+            if (kind == null || !kind.getHierarchy().equals(hierarchy)) {
+                throw new RuntimeException("No NodeKind for the nodes of " + contextClass.getSimpleName()
+                        + ", with hierarchy " + hierarchy);
+            }
+            return kind;
+        }
+    };
+
+    private final Parser parser;
+    private final List<JmmNodeImpl> nodes = new ArrayList<>();
+    // null when building JmmNodeImpls, otherwise the store and the indexes of the nodes without a parent yet
+    private final PackedAst packedAst;
+    private int[] packedNodes = new int[64];
+    private int packedCount;
+
+    // label of the context being visited, set by the visit methods
+    private String labelName;
+    private Token labelToken;
+
+    /**
+     * Starts listening to the given parser, whose next rule invocation builds the AST as JmmNodeImpls.
+     */
+    public JmmNodeBuilder(Parser parser) {
+        this(parser, null);
+    }
+
+    /**
+     * Starts listening to the given parser, whose next rule invocation builds the AST into the given store, or as
+     * JmmNodeImpls if it is null.
+     */
+    public JmmNodeBuilder(Parser parser, PackedAst packedAst) {
+        this.parser = parser;
+        this.packedAst = packedAst;
+        parser.addParseListener(new ParseTreeListener() {
+            @Override
+            public void exitEveryRule(ParserRuleContext ctx) {
+                exitRule(ctx);
+            }
+
+            @Override
+            public void enterEveryRule(ParserRuleContext ctx) {
+            }
+
+            @Override
+            public void visitTerminal(TerminalNode node) {
+            }
+
+            @Override
+            public void visitErrorNode(ErrorNode node) {
+            }
+        });
+    }
+
+    /**
+     * @return the node of the rule the parser was invoked with, once it returns
+     */
+    public JmmNode getRoot() {
+        int roots = packedAst == null ? nodes.size() : packedCount;
+        if (roots != 1) {
+            throw new RuntimeException("Expected one root node after parsing, found " + roots);
+        }
+        return packedAst == null ? nodes.get(0) : packedAst.getNode(packedNodes[0]);
+    }
+
+    private void exitRule(ParserRuleContext ctx) {
+        // the AST is discarded after a syntax error, and the recovery may leave contexts without a label
+        if (parser.getNumberOfSyntaxErrors() > 0) return;
+
+        labelName = null;
+        labelToken = null;
+        ctx.accept(this);
+
+        int ruleChildren = 0;
+        if (ctx.children != null) {
+            for (ParseTree child : ctx.children) {
+                if (child instanceof ParserRuleContext) ruleChildren++;
+            }
+            ctx.children = null;
+        }
+
+        Token start = ctx.getStart();
+        // the contexts of left-recursive rules only get their stop token after they end, it is the previous token
+        Token stop = ctx.getStop() != null ? ctx.getStop() : parser.getTokenStream().LT(-1);
+        NodeKind kind = KINDS.get(ctx.getClass());
+        if (packedAst == null) {
+            addNode(kind, start, stop, ruleChildren);
+        } else {
+            addPackedNode(kind, start, stop, ruleChildren);
+        }
+    }
+
+    private void addNode(NodeKind kind, Token start, Token stop, int ruleChildren) {
+        JmmNodeImpl node = new KindedNode(kind);
+        node.put(LINE_START, Integer.toString(start.getLine()));
+        node.put(COL_START, Integer.toString(start.getCharPositionInLine()));
+        node.put(LINE_END, Integer.toString(stop.getLine()));
+        node.put(COL_END, Integer.toString(stop.getCharPositionInLine()));
+        if (labelToken != null) {
+            node.put(labelName, labelToken.getText());
+        }
+
+        int first = nodes.size() - ruleChildren;
+        List<JmmNodeImpl> children = nodes.subList(first, nodes.size());
+        for (JmmNodeImpl child : children) {
+            node.add(child);
+        }
+        children.clear();
+        nodes.add(node);
+    }
+
+    private void addPackedNode(NodeKind kind, Token start, Token stop, int ruleChildren) {
+        int node = packedAst.addNode(kind, start.getLine(), start.getCharPositionInLine(),
+                stop.getLine(), stop.getCharPositionInLine());
+        if (labelToken != null) {
+            packedAst.setLabel(node, labelName, labelToken.getText());
+        }
+
+        int first = packedCount - ruleChildren;
+        for (int i = first; i < packedCount; i++) {
+            packedAst.appendChild(node, packedNodes[i]);
+        }
+        packedCount = first;
+        if (packedCount == packedNodes.length) {
+            packedNodes = Arrays.copyOf(packedNodes, packedCount * 2);
+        }
+        packedNodes[packedCount++] = node;
+    }
+
+    /**
+     * Contexts without labels.
+     */
+    @Override
+    public Void visitChildren(RuleNode ruleNode) {
+        return null;
+    }
+
+    private Void withLabel(String name, Token token) {
+        labelName = name;
+        labelToken = token;
+        return null;
+    }
+
+    @Override
+    public Void visitImport(JavammParser.ImportContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitSubImport(JavammParser.SubImportContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitClass(JavammParser.ClassContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitExtends(JavammParser.ExtendsContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitVar(JavammParser.VarContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitInstanceMethod(JavammParser.InstanceMethodContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitArgumentObject(JavammParser.ArgumentObjectContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitType(JavammParser.TypeContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitIsArray(JavammParser.IsArrayContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitAssignment(JavammParser.AssignmentContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitArrayAssignment(JavammParser.ArrayAssignmentContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitUnaryOp(JavammParser.UnaryOpContext ctx) {
+        return withLabel(OP, ctx.op);
+    }
+
+    @Override
+    public Void visitChainMethods(JavammParser.ChainMethodsContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitBinaryOp(JavammParser.BinaryOpContext ctx) {
+        return withLabel(OP, ctx.op);
+    }
+
+    @Override
+    public Void visitNewObject(JavammParser.NewObjectContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+
+    @Override
+    public Void visitLiteral(JavammParser.LiteralContext ctx) {
+        return withLabel(VALUE, ctx.value);
+    }
+
+    @Override
+    public Void visitVariable(JavammParser.VariableContext ctx) {
+        return withLabel(ID, ctx.id);
+    }
+}
@@ -1,21 +1,33 @@
 package pt.up.fe.comp2023;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp2023.ollir.JmmOptimizer;
 
-import pt.up.fe.comp2023.Jasmin.AJasminBackend;
+import pt.up.fe.comp2023.Jasmin.JasminAssembler;
+import pt.up.fe.comp2023.Jasmin.JasminRunner;
+import pt.up.fe.comp2023.driver.BatchCompiler;
+import pt.up.fe.comp2023.driver.CompilationCache;
+import pt.up.fe.comp2023.driver.CompilerPipeline;
 import pt.up.fe.comp2023.semantic.AJmmAnalysis;
+import pt.up.fe.comp2023.server.CompileServer;
+import pt.up.fe.comp2023.stats.StageStats;
+import pt.up.fe.comp2023.stats.StatsReport;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsLogs;
 import pt.up.fe.specs.util.SpecsSystem;
@@ -24,12 +36,26 @@ import static java.lang.Integer.parseInt;
 
 public class Launcher {
 
-    public static void main(String[] args) {
+    public static void main(String[] args) throws IOException {
         // Setups console logging and other things
         SpecsSystem.programStandardInit();
 
+        // Resident compiler, which the jmm script forwards to while it runs
+        if (args.length > 0 && args[0].startsWith("--server")) {
+            String port = args[0].startsWith("--server=") ? args[0].substring(9) : String.valueOf(CompileServer.DEFAULT_PORT);
+            CompileServer.main(new String[]{port});
+            return;
+        }
+
         // Parse arguments as a map with predefined options
-        var config = parseArgs(args);
+        List<String> inputs = new ArrayList<>();
+        var config = parseArgs(args, inputs);
+
+        // Several inputs, a directory or a glob compile in batch mode
+        if (inputs.size() > 1 || !new File(inputs.get(0)).isFile()) {
+            new BatchCompiler(config).compile(BatchCompiler.resolveInputs(inputs));
+            return;
+        }
 
         // Get input file
         File inputFile = new File(config.get("inputFile"));
@@ -39,9 +65,26 @@ public class Launcher {
             throw new RuntimeException("Expected a path to an existing input file, got '" + inputFile + "'.");
         }
 
+        // Record the time and allocations of each stage
+        long start = System.nanoTime();
+        if (config.containsKey("stats")) {
+            StageStats.start();
+        }
+
         // Read contents of input file
         String code = SpecsIo.read(inputFile);
 
+        // On a cache hit every stage is skipped
+        CompilationCache cache = CompilationCache.fromConfig(config);
+        CompilationCache.Entry cached = cache == null ? null : cache.get(code, config);
+        if (cached != null) {
+            System.out.println(cache.getStats());
+            emitStats(config, inputFile, start, true);
+            System.out.println("Jasmin code running ...");
+            run(cached.getClassBytes());
+            return;
+        }
+
         // Instantiate JmmParser
         SimpleParser parser = new SimpleParser();
 
@@ -76,7 +119,7 @@ public class Launcher {
         // Check if there are parsing errors
         TestUtils.noErrors(ollirResult.getReports());
 
-        AJasminBackend jasmin = new AJasminBackend();
+        JasminBackend jasmin = CompilerPipeline.createBackend(config);
 
         JasminResult jasminResult = jasmin.toJasmin(ollirResult);
 
@@ -84,14 +127,39 @@ public class Launcher {
 
         TestUtils.noErrors(jasminResult.getReports());
 
+        if (cache != null) {
+            jasminResult = cache.put(code, config, ollirResult.getOllirCode(), jasminResult).toJasminResult(config);
+            System.out.println(cache.getStats());
+        }
+
+        byte[] classBytes = JasminAssembler.toClassBytes(jasminResult);
+        emitStats(config, inputFile, start, false);
+
         System.out.println("Jasmin code running ...");
+        run(classBytes);
+    }
+
+    private static void run(byte[] classBytes) {
+        // Run in this JVM, printing the output of the program as it runs
+        var output = new JasminRunner(true).run(classBytes, Collections.emptyList(), System.in);
+        if (!output.getStdErr().isEmpty()) {
+            System.err.print(output.getStdErr());
+        }
+    }
 
-        jasminResult.compile();
-        jasminResult.run();
+    private static void emitStats(Map<String, String> config, File inputFile, long start, boolean cached) {
+        StageStats stats = StageStats.stop();
+        if (stats == null) return;
 
+        StatsReport report = new StatsReport(config);
+        report.add(inputFile.getPath(), stats, System.nanoTime() - start, cached);
+        report.emit();
     }
 
-    private static Map<String, String> parseArgs(String[] args) {
+    /**
+     * Parses the command line options into a config, adding the other arguments, the input files, to inputs.
+     */
+    public static Map<String, String> parseArgs(String[] args, List<String> inputs) {
         SpecsLogs.info("Executing with args: " + Arrays.toString(args));
 
         // Check if there is at least one argument
@@ -100,7 +168,6 @@ public class Launcher {
         }
 
         Map<String, String> config = new HashMap<>();
-        config.put("inputFile", args[0]);
         config.put("optimize", "false");
         config.put("registerAllocation", "-1");
         config.put("debug", "false");
@@ -113,10 +180,53 @@ public class Launcher {
                 config.put("registerAllocation", registerAllocation);
             } else if (args[i].equals("-d")) {
                 config.put("debug", "true");
+            } else if (args[i].startsWith("-j=")) {
+                config.put("jobs", args[i].substring(3));
+            } else if (args[i].equals("-j") && i + 1 < args.length) {
+                config.put("jobs", args[++i]);
+            } else if (args[i].startsWith("-backend=")) {
+                config.put("backend", args[i].substring(9));
+            } else if (args[i].startsWith("-ast=")) {
+                config.put("ast", args[i].substring(5));
+            } else if (args[i].startsWith("-max-errors=")) {
+                config.put("maxErrors", parseMaxErrors(args[i].substring(12)));
+            } else if (args[i].startsWith("-ollir=")) {
+                config.put("ollir", args[i].substring(7));
+            } else if (args[i].equals("-t") || args[i].equals("--stats")) {
+                config.put("stats", "true");
+            } else if (args[i].startsWith("--stats=")) {
+                config.put("stats", args[i].substring(8));
+            } else if (args[i].equals("-cache")) {
+                config.put("cacheDir", CompilationCache.DEFAULT_FOLDER);
+            } else if (args[i].startsWith("-cache=")) {
+                config.put("cacheDir", args[i].substring(7));
+            } else if (args[i].startsWith("-out=")) {
+                config.put("outputDir", args[i].substring(5));
+            } else {
+                inputs.add(args[i]);
             }
         }
 
+        if (inputs.isEmpty()) {
+            throw new RuntimeException("Missing argument required: a path to an existing input file.");
+        }
+        config.put("inputFile", inputs.get(0));
+
         return config;
     }
 
+    private static String parseMaxErrors(String value) {
+        int maxErrors;
+        try {
+            maxErrors = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            maxErrors = -1;
+        }
+        if (maxErrors < 0) {
+            throw new RuntimeException("Expected -max-errors=<n> with a number of errors, 0 for no limit, got '"
+                    + value + "'.");
+        }
+        return value;
+    }
+
 }
@@ -1,19 +1,27 @@
 package pt.up.fe.comp2023;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.BailErrorStrategy;
 import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.PredictionMode;
+import org.antlr.v4.runtime.misc.ParseCancellationException;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.ast.antlr.AntlrParser;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.ast.antlr.ThrowingErrorListener;
 import pt.up.fe.comp.jmm.parser.JmmParser;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2023.ast.PackedAst;
+import pt.up.fe.comp2023.stats.StageStats;
+import pt.up.fe.specs.util.SpecsSystem;
 
 
 import java.util.Collections;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Copyright 2022 SPeCS.
@@ -29,29 +37,52 @@ import java.util.Map;
  */
 
 public class SimpleParser implements JmmParser {
+    private static final AtomicLong sllParses = new AtomicLong();
+    private static final AtomicLong llFallbacks = new AtomicLong();
 
     @Override
     public String getDefaultRule() {
         return "program";
     }
 
+    /**
+     * @return how many inputs were parsed with SLL prediction alone, by all the parsers
+     */
+    public static long getSllParses() {
+        return sllParses.get();
+    }
+
+    /**
+     * @return how many inputs had to be parsed again with full LL prediction, by all the parsers. Inputs with
+     * syntax errors are among them, as the errors are only reported by the second parse.
+     */
+    public static long getLlFallbacks() {
+        return llFallbacks.get();
+    }
+
     @Override
     public JmmParserResult parse(String jmmCode, String startingRule, Map<String, String> config) {
+        return StageStats.measure(StageStats.PARSE, () -> parseCode(jmmCode, startingRule, config));
+    }
 
+    private JmmParserResult parseCode(String jmmCode, String startingRule, Map<String, String> config) {
         try {
-            // Convert code string into a character stream
-            var input = new ANTLRInputStream(jmmCode);
-            // Transform characters into tokens using the lexer
-            var lex = new pt.up.fe.comp2023.JavammLexer(input);
-            // Wrap lexer around a token stream
-            var tokens = new CommonTokenStream(lex);
-            // Transforms tokens into a parse tree
-            var parser = new pt.up.fe.comp2023.JavammParser(tokens);
-
-            // Convert ANTLR CST to JmmNode AST
-            return AntlrParser.parse(lex, parser, startingRule)
+            // SLL prediction is much cheaper and enough for almost every valid program
+            boolean packed = "packed".equals(config.get("ast"));
+            var root = parseSll(jmmCode, startingRule, packed);
+            if (root != null) {
+                sllParses.incrementAndGet();
+            } else {
+                // Parse again from the start with full LL prediction and the default error handling, which
+                // also reports the syntax errors, if that is why SLL failed
+                llFallbacks.incrementAndGet();
+                root = parse(newParser(jmmCode), startingRule, packed);
+            }
+
+            // The AST was built while parsing, see JmmNodeBuilder
+            return root
                     // If there were no errors and a root node was generated, create a JmmParserResult with the node
-                    .map(root -> new JmmParserResult(root, Collections.emptyList(), config))
+                    .map(node -> new JmmParserResult(node, Collections.emptyList(), config))
                     // If there were errors, create an error JmmParserResult without root node
                     .orElseGet(() -> JmmParserResult.newError(new Report(ReportType.ERROR, Stage.SYNTATIC, -1,
                             "There were syntax errors during parsing, terminating")));
@@ -61,4 +92,56 @@ public class SimpleParser implements JmmParser {
             return JmmParserResult.newError(Report.newError(Stage.SYNTATIC, -1, -1, "Exception during parsing", e));
         }
     }
+
+    /**
+     * Parses with SLL prediction, giving up at the first syntax error instead of recovering from it.
+     *
+     * @return the root node, or null if SLL prediction could not parse the input
+     */
+    private static Optional<JmmNode> parseSll(String jmmCode, String startingRule, boolean packed) {
+        var parser = newParser(jmmCode);
+        parser.getInterpreter().setPredictionMode(PredictionMode.SLL);
+        parser.removeErrorListeners();
+        parser.setErrorHandler(new BailErrorStrategy());
+
+        try {
+            return parse(parser, startingRule, packed);
+        } catch (RuntimeException e) {
+            // the rule is invoked by reflection, so the cancellation comes wrapped in other exceptions
+            for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+                if (cause instanceof ParseCancellationException) return null;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Invokes the given rule, building the AST as it parses (see {@link JmmNodeBuilder}), as a {@link PackedAst}
+     * if packed is set, or else as JmmNodeImpls.
+     *
+     * @return the root node, or empty if there were syntax errors
+     */
+    private static Optional<JmmNode> parse(JavammParser parser, String startingRule, boolean packed) {
+        // the parse tree is dropped by the builder as the nodes are built
+        var builder = new JmmNodeBuilder(parser, packed ? new PackedAst() : null);
+        SpecsSystem.invoke(parser, startingRule);
+
+        if (parser.getNumberOfSyntaxErrors() > 0) {
+            return Optional.empty();
+        }
+        return Optional.of(builder.getRoot());
+    }
+
+    private static JavammParser newParser(String jmmCode) {
+        // Convert code string into a character stream
+        var input = new ANTLRInputStream(jmmCode);
+        // Transform characters into tokens using the lexer, which throws at the first invalid token
+        var lex = new JavammLexer(input);
+        lex.removeErrorListeners();
+        lex.addErrorListener(new ThrowingErrorListener());
+        // Wrap lexer around a token stream
+        var tokens = new CommonTokenStream(lex);
+        // Transforms tokens into a parse tree
+        return new JavammParser(tokens);
+    }
 }
@@ -0,0 +1,81 @@
+package pt.up.fe.comp2023.ast;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+
+import pt.up.fe.comp.jmm.ast.AJmmVisitor;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.specs.util.SpecsCheck;
+
+/**
+ * {@link AJmmVisitor} that dispatches on the {@link NodeKind} of the node, through a table indexed by the kind,
+ * instead of looking up each name of the hierarchy of the node in a map of strings.
+ * <p>
+ * Visits can still be added by name, including the name of a rule such as "Expression". The visit of each kind
+ * is resolved the first time a node of that kind is visited, in the same order as AJmmVisitor would, and only
+ * nodes whose kind is not in the grammar go through the hierarchy on every visit.
+ */
+public abstract class AKindVisitor<D, R> extends AJmmVisitor<D, R> {
+    // without initializers, as the constructor of AJmmVisitor already adds the visits, with buildVisitor
+    private Map<String, BiFunction<JmmNode, D, R>> visitsByName;
+    private BiFunction<JmmNode, D, R> defaultVisit;
+    // visit of each kind, by ordinal, resolved when first needed
+    private BiFunction<JmmNode, D, R>[] visits;
+
+    public void addVisit(NodeKind kind, BiFunction<JmmNode, D, R> method) {
+        addVisit(kind.getName(), method);
+    }
+
+    @Override
+    public void addVisit(String kind, BiFunction<JmmNode, D, R> method) {
+        if (visitsByName == null) {
+            visitsByName = new HashMap<>();
+        }
+        visitsByName.put(kind, method);
+        visits = null;
+    }
+
+    @Override
+    public void setDefaultVisit(BiFunction<JmmNode, D, R> defaultVisit) {
+        this.defaultVisit = defaultVisit;
+        visits = null;
+    }
+
+    @Override
+    protected BiFunction<JmmNode, D, R> getVisit(JmmNode node) {
+        NodeKind kind = NodeKind.of(node);
+        if (kind == null) {
+            return resolve(node.getHierarchy(), node.getKind());
+        }
+
+        if (visits == null) {
+            visits = newTable();
+        }
+        BiFunction<JmmNode, D, R> visit = visits[kind.ordinal()];
+        if (visit == null) {
+            visit = resolve(kind.getHierarchy(), kind.getName());
+            visits[kind.ordinal()] = visit;
+        }
+        return visit;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <D, R> BiFunction<JmmNode, D, R>[] newTable() {
+        return new BiFunction[NodeKind.values().length];
+    }
+
+    private BiFunction<JmmNode, D, R> resolve(Iterable<String> hierarchy, String kind) {
+        if (visitsByName != null) {
+            for (String name : hierarchy) {
+                var visit = visitsByName.get(name);
+                if (visit != null) return visit;
+            }
+        }
+
+        SpecsCheck.checkNotNull(defaultVisit,
+                () -> "Could not find a suitable visit method for node of kind " + kind
+                        + ", and no default visitor is set");
+        return defaultVisit;
+    }
+}
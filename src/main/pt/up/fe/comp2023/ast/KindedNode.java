@@ -0,0 +1,20 @@
+package pt.up.fe.comp2023.ast;
+
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+
+/**
+ * {@link JmmNodeImpl} that also keeps its {@link NodeKind}, with the kind and hierarchy of that kind.
+ */
+public class KindedNode extends JmmNodeImpl {
+    private final NodeKind nodeKind;
+
+    public KindedNode(NodeKind nodeKind) {
+        super(nodeKind.getName());
+        setHierarchy(nodeKind.getHierarchy());
+        this.nodeKind = nodeKind;
+    }
+
+    public NodeKind getNodeKind() {
+        return nodeKind;
+    }
+}
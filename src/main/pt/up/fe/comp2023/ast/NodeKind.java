@@ -0,0 +1,106 @@
+package pt.up.fe.comp2023.ast;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+
+/**
+ * Kinds of the nodes of the AST, one per label of Javamm.g4 (or per rule, for the rules without labels), with the
+ * same hierarchy as the context classes ANTLR generates for them, e.g. [Literal, Expression]. JmmNodeBuilder checks
+ * that they match the grammar when it builds the first node of each kind, so a new label in the grammar needs its
+ * kind here.
+ * <p>
+ * The kind is assigned once, when the node is built ({@link KindedNode}, {@link PackedNode}), so the passes can
+ * switch on it, or compare it by identity, instead of comparing the names of the kinds.
+ */
+public enum NodeKind {
+    PROGRAM("Program"),
+    IMPORT("Import", "ImportDeclaration"),
+    SUB_IMPORT("SubImport", "SubimportDeclaration"),
+    CLASS("Class", "ClassDeclaration"),
+    EXTENDS("Extends", "ClassExtension"),
+    VAR("Var", "VarDeclaration"),
+    MAIN_METHOD("MainMethod", "MainMethodDeclaration"),
+    INSTANCE_METHOD("InstanceMethod", "InstanceMethodDeclaration"),
+    STATIC_METHOD("StaticMethod"),
+    RETURN_TYPE("ReturnType"),
+    RETURN_OBJECT("ReturnObject"),
+    ARGUMENT_OBJECT("ArgumentObject"),
+    TYPE("Type"),
+    IS_ARRAY("IsArray"),
+
+    BLOCK("Block", "Statement"),
+    IF("If", "Statement"),
+    WHILE("While", "Statement"),
+    EXPRESSION_STATEMENT("ExpressionStatement", "Statement"),
+    ASSIGNMENT("Assignment", "Statement"),
+    ARRAY_ASSIGNMENT("ArrayAssignment", "Statement"),
+    CONDITION("Condition"),
+    ELSE("Else", "ElseStatement"),
+
+    PARENTHESES("Parentheses", "Expression"),
+    ARRAY_ACCESS("ArrayAccess", "Expression"),
+    CHAIN_METHODS("ChainMethods", "Expression"),
+    MEMBER_ACCESS_LENGTH("MemberAccessLength", "Expression"),
+    METHOD_CALL("MethodCall", "Expression"),
+    UNARY_OP("UnaryOp", "Expression"),
+    NEGATE("Negate", "Expression"),
+    BINARY_OP("BinaryOp", "Expression"),
+    NEW_ARRAY("NewArray", "Expression"),
+    NEW_OBJECT("NewObject", "Expression"),
+    LITERAL("Literal", "Expression"),
+    VARIABLE("Variable", "Expression");
+
+    private static final Map<String, NodeKind> BY_NAME = new HashMap<>();
+
+    static {
+        for (NodeKind kind : values()) {
+            BY_NAME.put(kind.getName(), kind);
+        }
+    }
+
+    private final List<String> hierarchy;
+
+    NodeKind(String... hierarchy) {
+        this.hierarchy = List.of(hierarchy);
+    }
+
+    /**
+     * @return the name of the kind, as returned by {@link JmmNode#getKind()}
+     */
+    public String getName() {
+        return hierarchy.get(0);
+    }
+
+    /**
+     * @return the name of the kind followed by the name of its rule, if it is a label, as in {@link
+     * JmmNode#getHierarchy()}
+     */
+    public List<String> getHierarchy() {
+        return hierarchy;
+    }
+
+    @Override
+    public String toString() {
+        return getName();
+    }
+
+    /**
+     * @return the kind with the given name, or null if there is none
+     */
+    public static NodeKind fromName(String name) {
+        return BY_NAME.get(name);
+    }
+
+    /**
+     * @return the kind of the node, or null if its kind is not one of the grammar. It is read from the node if it
+     * was built with one, otherwise it is looked up by name.
+     */
+    public static NodeKind of(JmmNode node) {
+        if (node instanceof KindedNode kinded) return kinded.getNodeKind();
+        if (node instanceof PackedNode packed) return packed.getNodeKind();
+        return fromName(node.getKind());
+    }
+}
@@ -0,0 +1,325 @@
+package pt.up.fe.comp2023.ast;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * AST stored as a struct of arrays: a node is an index into parallel int arrays with its kind, parent, first child,
+ * next sibling and source position, instead of an object with its own attribute map and child list.
+ * Identifiers and operators go to a string pool, and integer literals also keep their value as an int.
+ * <p>
+ * Every node of the Java-- grammar has at most one label (id, op or value), which is stored in the label column;
+ * any other attribute, e.g. one added by a later pass, goes to a side map. Passes that walk the whole tree can
+ * use the arrays directly, the others see the nodes through {@link PackedNode}, a {@link
+ * pt.up.fe.comp.jmm.ast.JmmNode} view of this store.
+ * <p>
+ * Once built, different nodes can be read and given attributes from several threads at the same time.
+ */
+public class PackedAst {
+    public static final int NONE = -1;
+
+    private static final int INITIAL_CAPACITY = 256;
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    // per kind, the name of its label attribute, if any
+    private final String[] labelNames = new String[KINDS.length];
+
+    private final List<String> strings = new ArrayList<>();
+    private final Map<String, Integer> stringIds = new HashMap<>();
+
+    private int size;
+    // ordinal of the NodeKind of each node
+    private int[] kind = new int[INITIAL_CAPACITY];
+    private int[] parent = new int[INITIAL_CAPACITY];
+    private int[] firstChild = new int[INITIAL_CAPACITY];
+    private int[] lastChild = new int[INITIAL_CAPACITY];
+    private int[] nextSibling = new int[INITIAL_CAPACITY];
+    private int[] label = new int[INITIAL_CAPACITY];
+    private int[] intValue = new int[INITIAL_CAPACITY];
+    // lineStart, colStart, lineEnd and colEnd of each node, one after the other
+    private int[] position = new int[INITIAL_CAPACITY * 4];
+
+    // concurrent, as the semantic analysis annotates the methods in parallel
+    private final Map<Integer, Map<String, Object>> extraAttributes = new ConcurrentHashMap<>();
+    private PackedNode[] views = new PackedNode[INITIAL_CAPACITY];
+
+    /**
+     * Adds a node without parent or children.
+     *
+     * @return the index of the node
+     */
+    public int addNode(NodeKind nodeKind, int lineStart, int colStart, int lineEnd, int colEnd) {
+        if (size == kind.length) grow();
+
+        int node = size++;
+        kind[node] = nodeKind.ordinal();
+        parent[node] = NONE;
+        firstChild[node] = NONE;
+        lastChild[node] = NONE;
+        nextSibling[node] = NONE;
+        label[node] = NONE;
+        position[node * 4] = lineStart;
+        position[node * 4 + 1] = colStart;
+        position[node * 4 + 2] = lineEnd;
+        position[node * 4 + 3] = colEnd;
+        return node;
+    }
+
+    private void grow() {
+        int capacity = kind.length * 2;
+        kind = Arrays.copyOf(kind, capacity);
+        parent = Arrays.copyOf(parent, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        lastChild = Arrays.copyOf(lastChild, capacity);
+        nextSibling = Arrays.copyOf(nextSibling, capacity);
+        label = Arrays.copyOf(label, capacity);
+        intValue = Arrays.copyOf(intValue, capacity);
+        position = Arrays.copyOf(position, capacity * 4);
+        views = Arrays.copyOf(views, capacity);
+    }
+
+    /**
+     * Sets the label of the node, e.g. the id of a Variable. An integer value is also kept as an int.
+     */
+    public void setLabel(int node, String name, String value) {
+        String labelName = labelNames[kind[node]];
+        if (labelName == null) {
+            labelNames[kind[node]] = name;
+        } else if (!labelName.equals(name)) {
+            throw new RuntimeException("Nodes of kind " + getKind(node) + " have the label '" + labelName
+                    + "', not '" + name + "'");
+        }
+
+        Integer id = stringIds.get(value);
+        if (id == null) {
+            id = strings.size();
+            strings.add(value);
+            stringIds.put(value, id);
+        }
+        label[node] = id;
+        intValue[node] = isInteger(value) ? Integer.parseInt(value) : 0;
+    }
+
+    private static boolean isInteger(String value) {
+        if (value.isEmpty() || value.length() > 10) return false;
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) return false;
+        }
+        return value.length() < 10 || value.compareTo("2147483647") <= 0;
+    }
+
+    /**
+     * Adds the child as the last child of the parent. The child must not have a parent.
+     */
+    public void appendChild(int parentNode, int child) {
+        if (parent[child] != NONE) {
+            throw new RuntimeException("Node " + child + " already has a parent");
+        }
+        parent[child] = parentNode;
+        if (lastChild[parentNode] == NONE) {
+            firstChild[parentNode] = child;
+        } else {
+            nextSibling[lastChild[parentNode]] = child;
+        }
+        lastChild[parentNode] = child;
+    }
+
+    /**
+     * Adds the child at the given position among the children of the parent. The child must not have a parent.
+     */
+    public void insertChild(int parentNode, int child, int index) {
+        if (index == 0) {
+            if (parent[child] != NONE) {
+                throw new RuntimeException("Node " + child + " already has a parent");
+            }
+            parent[child] = parentNode;
+            nextSibling[child] = firstChild[parentNode];
+            firstChild[parentNode] = child;
+            if (lastChild[parentNode] == NONE) lastChild[parentNode] = child;
+            return;
+        }
+
+        int previous = getChild(parentNode, index - 1);
+        if (previous == NONE) {
+            throw new RuntimeException("Node " + parentNode + " has less than " + index + " children");
+        }
+        if (previous == lastChild[parentNode]) {
+            appendChild(parentNode, child);
+            return;
+        }
+        if (parent[child] != NONE) {
+            throw new RuntimeException("Node " + child + " already has a parent");
+        }
+        parent[child] = parentNode;
+        nextSibling[child] = nextSibling[previous];
+        nextSibling[previous] = child;
+    }
+
+    /**
+     * Detaches the node from its parent, with its subtree.
+     */
+    public void detach(int node) {
+        int parentNode = parent[node];
+        if (parentNode == NONE) return;
+
+        int previous = NONE;
+        for (int child = firstChild[parentNode]; child != node; child = nextSibling[child]) {
+            previous = child;
+        }
+        if (previous == NONE) {
+            firstChild[parentNode] = nextSibling[node];
+        } else {
+            nextSibling[previous] = nextSibling[node];
+        }
+        if (lastChild[parentNode] == node) lastChild[parentNode] = previous;
+
+        parent[node] = NONE;
+        nextSibling[node] = NONE;
+    }
+
+    /**
+     * Turns the node into a literal with the given value, dropping its children. This is how constant folding
+     * replaces an expression, without allocating a new node.
+     */
+    public void replaceWithLiteral(int node, String value) {
+        for (int child = firstChild[node]; child != NONE; ) {
+            int next = nextSibling[child];
+            parent[child] = NONE;
+            nextSibling[child] = NONE;
+            child = next;
+        }
+        firstChild[node] = NONE;
+        lastChild[node] = NONE;
+
+        // the attributes of the replaced expression, e.g. its type, may not hold for the literal
+        extraAttributes.remove(node);
+        kind[node] = NodeKind.LITERAL.ordinal();
+        setLabel(node, "value", value);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public NodeKind getNodeKind(int node) {
+        return KINDS[kind[node]];
+    }
+
+    public String getKind(int node) {
+        return KINDS[kind[node]].getName();
+    }
+
+    public List<String> getHierarchy(int node) {
+        return KINDS[kind[node]].getHierarchy();
+    }
+
+    public int getParent(int node) {
+        return parent[node];
+    }
+
+    public int getFirstChild(int node) {
+        return firstChild[node];
+    }
+
+    public int getNextSibling(int node) {
+        return nextSibling[node];
+    }
+
+    /**
+     * @return the child at the given position, or {@link #NONE} if there are not so many children
+     */
+    public int getChild(int node, int index) {
+        int child = firstChild[node];
+        for (int i = 0; i < index && child != NONE; i++) {
+            child = nextSibling[child];
+        }
+        return child;
+    }
+
+    public int getNumChildren(int node) {
+        int count = 0;
+        for (int child = firstChild[node]; child != NONE; child = nextSibling[child]) {
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * @return the name of the label attribute of the node (id, op or value), or null if its kind has no label
+     */
+    public String getLabelName(int node) {
+        return labelNames[kind[node]];
+    }
+
+    /**
+     * @return the label of the node, or null if it has none
+     */
+    public String getLabel(int node) {
+        return label[node] == NONE ? null : strings.get(label[node]);
+    }
+
+    /**
+     * @return the id of the label in the string pool, so labels can be compared as ints, or {@link #NONE}
+     */
+    public int getLabelId(int node) {
+        return label[node];
+    }
+
+    /**
+     * @return the value of an integer literal, or 0 if the label of the node is not an integer
+     */
+    public int getIntValue(int node) {
+        return intValue[node];
+    }
+
+    public int getLineStart(int node) {
+        return position[node * 4];
+    }
+
+    public int getColStart(int node) {
+        return position[node * 4 + 1];
+    }
+
+    public int getLineEnd(int node) {
+        return position[node * 4 + 2];
+    }
+
+    public int getColEnd(int node) {
+        return position[node * 4 + 3];
+    }
+
+    void setPosition(int node, int field, int value) {
+        position[node * 4 + field] = value;
+    }
+
+    /**
+     * @return the attributes of the node that have no column, created when the first one is set
+     */
+    Map<String, Object> getExtraAttributes(int node, boolean create) {
+        if (create) {
+            return extraAttributes.computeIfAbsent(node, key -> new HashMap<>());
+        }
+        return extraAttributes.get(node);
+    }
+
+    /**
+     * @return the {@link PackedNode} view of the node, always the same object for the same node
+     */
+    public PackedNode getNode(int node) {
+        PackedNode view = views[node];
+        return view != null ? view : createNode(node);
+    }
+
+    private synchronized PackedNode createNode(int node) {
+        PackedNode view = views[node];
+        if (view == null) {
+            view = new PackedNode(this, node);
+            views[node] = view;
+        }
+        return view;
+    }
+}
@@ -0,0 +1,227 @@
+package pt.up.fe.comp2023.ast;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.NodePosition;
+import pt.up.fe.specs.util.SpecsCheck;
+
+/**
+ * {@link JmmNode} view of a node of a {@link PackedAst}, so the passes written with AJmmVisitor work on the packed
+ * form unchanged. Reads and writes go to the arrays of the store; there is one view per node, so views can be
+ * compared by identity. Children can only be moved between nodes of the same store.
+ */
+public class PackedNode implements JmmNode {
+    private static final String LINE_START = NodePosition.LINE_START.getKey();
+    private static final String COL_START = NodePosition.COL_START.getKey();
+    private static final String LINE_END = NodePosition.LINE_END.getKey();
+    private static final String COL_END = NodePosition.COL_END.getKey();
+    private static final List<String> POSITIONS = List.of(LINE_START, COL_START, LINE_END, COL_END);
+
+    private final PackedAst ast;
+    private final int index;
+
+    PackedNode(PackedAst ast, int index) {
+        this.ast = ast;
+        this.index = index;
+    }
+
+    public PackedAst getAst() {
+        return ast;
+    }
+
+    /**
+     * @return the index of this node in its {@link PackedAst}
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    public NodeKind getNodeKind() {
+        return ast.getNodeKind(index);
+    }
+
+    @Override
+    public String getKind() {
+        return ast.getKind(index);
+    }
+
+    @Override
+    public Collection<String> getHierarchy() {
+        return ast.getHierarchy(index);
+    }
+
+    @Override
+    public Collection<String> getAttributes() {
+        List<String> attributes = new ArrayList<>(POSITIONS);
+        if (ast.getLabelId(index) != PackedAst.NONE) {
+            attributes.add(ast.getLabelName(index));
+        }
+        Map<String, Object> extra = ast.getExtraAttributes(index, false);
+        if (extra != null) {
+            attributes.addAll(extra.keySet());
+        }
+        return attributes;
+    }
+
+    @Override
+    public boolean hasAttribute(String attribute) {
+        return getOptionalObject(attribute).isPresent();
+    }
+
+    @Override
+    public void putObject(String attribute, Object value) {
+        int position = POSITIONS.indexOf(attribute);
+        if (position >= 0) {
+            ast.setPosition(index, position, Integer.parseInt(value.toString()));
+        } else if (attribute.equals(ast.getLabelName(index))) {
+            ast.setLabel(index, attribute, value.toString());
+        } else {
+            ast.getExtraAttributes(index, true).put(attribute, value);
+        }
+    }
+
+    @Override
+    public Object getObject(String attribute) {
+        var value = getOptionalObject(attribute).orElse(null);
+
+        SpecsCheck.checkNotNull(value, () -> "Node " + getKind() + " does not contain attribute '" + attribute + "'");
+
+        return value;
+    }
+
+    @Override
+    public Optional<Object> getOptionalObject(String attribute) {
+        if (attribute.equals(ast.getLabelName(index))) {
+            return Optional.ofNullable(ast.getLabel(index));
+        }
+        if (attribute.equals(LINE_START)) return Optional.of(Integer.toString(ast.getLineStart(index)));
+        if (attribute.equals(COL_START)) return Optional.of(Integer.toString(ast.getColStart(index)));
+        if (attribute.equals(LINE_END)) return Optional.of(Integer.toString(ast.getLineEnd(index)));
+        if (attribute.equals(COL_END)) return Optional.of(Integer.toString(ast.getColEnd(index)));
+
+        Map<String, Object> extra = ast.getExtraAttributes(index, false);
+        return extra == null ? Optional.empty() : Optional.ofNullable(extra.get(attribute));
+    }
+
+    @Override
+    public JmmNode getJmmParent() {
+        int parent = ast.getParent(index);
+        return parent == PackedAst.NONE ? null : ast.getNode(parent);
+    }
+
+    @Override
+    public List<JmmNode> getChildren() {
+        List<JmmNode> children = new ArrayList<>();
+        for (int child = ast.getFirstChild(index); child != PackedAst.NONE; child = ast.getNextSibling(child)) {
+            children.add(ast.getNode(child));
+        }
+        return children;
+    }
+
+    @Override
+    public JmmNode getJmmChild(int childIndex) {
+        int child = ast.getChild(index, childIndex);
+        if (child == PackedAst.NONE) {
+            throw new IndexOutOfBoundsException("Index " + childIndex + " out of bounds for " + getNumChildren()
+                    + " children");
+        }
+        return ast.getNode(child);
+    }
+
+    @Override
+    public int getNumChildren() {
+        return ast.getNumChildren(index);
+    }
+
+    @Override
+    public int getIndexOfSelf() {
+        int parent = ast.getParent(index);
+        if (parent == PackedAst.NONE) return -1;
+
+        int position = 0;
+        for (int child = ast.getFirstChild(parent); child != index; child = ast.getNextSibling(child)) {
+            position++;
+        }
+        return position;
+    }
+
+    private PackedNode fromSameAst(JmmNode node) {
+        if (!(node instanceof PackedNode packed) || packed.ast != ast) {
+            throw new RuntimeException(getClass().getName() + " can only have children of the same PackedAst.");
+        }
+        return packed;
+    }
+
+    @Override
+    public void add(JmmNode child, int childIndex) {
+        ast.insertChild(index, fromSameAst(child).index, childIndex);
+    }
+
+    @Override
+    public void setChild(JmmNode newNode, int childIndex) {
+        PackedNode newChild = fromSameAst(newNode);
+        JmmNode currentChild = getJmmChild(childIndex);
+
+        // if the new node had a parent, the current child takes its place there, as in JmmNodeImpl
+        JmmNode newNodeParent = newChild.getJmmParent();
+        int newNodeIndex = newChild.getIndexOfSelf();
+        newChild.removeParent();
+
+        currentChild.removeParent();
+        add(newChild, childIndex);
+        if (newNodeParent != null) {
+            newNodeParent.add(currentChild, newNodeIndex);
+        }
+    }
+
+    @Override
+    public JmmNode removeJmmChild(int childIndex) {
+        JmmNode child = getJmmChild(childIndex);
+        child.removeParent();
+        return child;
+    }
+
+    @Override
+    public int removeJmmChild(JmmNode node) {
+        if (node.getJmmParent() != this) return -1;
+
+        int childIndex = node.getIndexOfSelf();
+        node.removeParent();
+        return childIndex;
+    }
+
+    @Override
+    public void delete() {
+        removeParent();
+    }
+
+    @Override
+    public void removeParent() {
+        ast.detach(index);
+    }
+
+    @Override
+    public void setParent(JmmNode parent) {
+        if (parent == getJmmParent()) return;
+
+        removeParent();
+        if (parent != null) {
+            fromSameAst(parent).add(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        var attributes = getAttributes().stream()
+                .filter(attribute -> !POSITIONS.contains(attribute))
+                .map(attribute -> attribute + ": " + get(attribute))
+                .collect(Collectors.joining(", ", " (", ")"));
+        return getKind() + (attributes.equals(" ()") ? "" : attributes);
+    }
+}
@@ -0,0 +1,23 @@
+package pt.up.fe.comp2023.classfile;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.stats.StageStats;
+
+import java.util.ArrayList;
+
+/**
+ * Backend that writes the class file straight from the OLLIR class, skipping the generation of Jasmin code
+ * and its assembly by jasmin.jar.
+ */
+public class ClassFileBackend implements JasminBackend {
+    @Override
+    public JasminResult toJasmin(OllirResult ollirResult) {
+        ClassUnit classUnit = ollirResult.getOllirClass();
+        byte[] classBytes = StageStats.measure(StageStats.CODE_GENERATION,
+                () -> new ClassFileGenerator(classUnit).generate());
+        return new ClassFileResult(classUnit.getClassName(), classBytes, new ArrayList<>(), ollirResult.getConfig());
+    }
+}
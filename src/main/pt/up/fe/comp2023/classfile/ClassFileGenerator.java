@@ -0,0 +1,481 @@
+package pt.up.fe.comp2023.classfile;
+
+import org.specs.comp.ollir.*;
+import pt.up.fe.comp2023.Jasmin.BranchFusion;
+import pt.up.fe.comp2023.Jasmin.JasminUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Writes the class file of an OLLIR {@link ClassUnit} directly, without going through Jasmin code.
+ * Instruction selection is the same as in {@code JasminGenerator}, so both backends produce the same bytecode.
+ */
+public class ClassFileGenerator {
+    // class files up to version 49 are checked by the type inferencing verifier, so no StackMapTable is needed
+    private static final int MAJOR_VERSION = 49;
+
+    private static final int ACC_PUBLIC = 0x0001;
+    private static final int ACC_PRIVATE = 0x0002;
+    private static final int ACC_PROTECTED = 0x0004;
+    private static final int ACC_STATIC = 0x0008;
+    private static final int ACC_FINAL = 0x0010;
+    private static final int ACC_SUPER = 0x0020;
+
+    private final ClassUnit classUnit;
+    private final ConstantPool constantPool;
+
+    private CodeBuffer code;
+    private int comparisonLabelsCounter = 0;
+    private BranchFusion branchFusion;
+
+    public ClassFileGenerator(ClassUnit classUnit) {
+        this.classUnit = classUnit;
+        this.constantPool = new ConstantPool();
+    }
+
+    public byte[] generate() {
+        try {
+            int thisClass = constantPool.classRef(classUnit.getClassName());
+            int superClass = constantPool.classRef(getSuperClassName());
+            byte[] fields = generateFields();
+            byte[] methods = generateMethods();
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(MAJOR_VERSION);
+            constantPool.write(out);
+            out.writeShort(ACC_PUBLIC | ACC_SUPER);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(0);
+            out.write(fields);
+            out.write(methods);
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private String getSuperClassName() {
+        return classUnit.getSuperClass() == null ? "java/lang/Object" :
+                JasminUtils.getFullClassName(classUnit.getSuperClass(), classUnit);
+    }
+
+    private byte[] generateFields() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(classUnit.getFields().size());
+        for (Field field : classUnit.getFields()) {
+            int flags = getAccessFlags(field.getFieldAccessModifier());
+            if (field.isStaticField()) flags |= ACC_STATIC;
+            if (field.isFinalField()) flags |= ACC_FINAL;
+            out.writeShort(flags);
+            out.writeShort(constantPool.utf8(field.getFieldName()));
+            out.writeShort(constantPool.utf8(getDescriptor(field.getFieldType())));
+            out.writeShort(0);
+        }
+        return bytes.toByteArray();
+    }
+
+    private byte[] generateMethods() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeShort(classUnit.getMethods().size());
+        int codeAttribute = constantPool.utf8("Code");
+        for (Method method : classUnit.getMethods()) {
+            int flags = getAccessFlags(method.getMethodAccessModifier());
+            if (method.isStaticMethod()) flags |= ACC_STATIC;
+            if (method.isFinalMethod()) flags |= ACC_FINAL;
+
+            StringBuilder descriptor = new StringBuilder("(");
+            method.getParams().forEach(parameter -> descriptor.append(getDescriptor(parameter.getType())));
+            descriptor.append(")").append(getDescriptor(method.getReturnType()));
+
+            out.writeShort(flags);
+            out.writeShort(constantPool.utf8(method.isConstructMethod() ? "<init>" : method.getMethodName()));
+            out.writeShort(constantPool.utf8(descriptor.toString()));
+            out.writeShort(1);
+
+            byte[] body = generateMethodBody(method);
+            out.writeShort(codeAttribute);
+            out.writeInt(2 + 2 + 4 + body.length + 2 + 2);
+            out.writeShort(code.getMaxStack());
+            out.writeShort(getNumLocals(method));
+            out.writeInt(body.length);
+            out.write(body);
+            out.writeShort(0);
+            out.writeShort(0);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static int getAccessFlags(AccessModifiers accessModifier) {
+        return switch (accessModifier) {
+            case PUBLIC, DEFAULT -> ACC_PUBLIC;
+            case PRIVATE -> ACC_PRIVATE;
+            case PROTECTED -> ACC_PROTECTED;
+        };
+    }
+
+    private String getDescriptor(Type type) {
+        if (type.getTypeOfElement() == ElementType.THIS) {
+            return "L" + classUnit.getClassName() + ";";
+        }
+        return JasminUtils.getFieldType(type, true, classUnit);
+    }
+
+    private byte[] generateMethodBody(Method method) {
+        code = new CodeBuffer();
+        branchFusion = BranchFusion.of(method);
+        for (Instruction instruction : method.getInstructions()) {
+            generateInstruction(instruction, method);
+            if (instruction.getInstType() == InstructionType.CALL) {
+                CallInstruction call = (CallInstruction) instruction;
+                if (call.getReturnType().getTypeOfElement() != ElementType.VOID) {
+                    code.op(CodeBuffer.POP, -1);
+                }
+            }
+        }
+        return code.toByteArray();
+    }
+
+    private int getNumLocals(Method method) {
+        int numLocals = method.getParams().size() + (method.isStaticMethod() ? 0 : 1);
+        for (Descriptor descriptor : method.getVarTable().values()) {
+            numLocals = Math.max(numLocals, descriptor.getVirtualReg() + 1);
+        }
+        return numLocals;
+    }
+
+    private void generateInstruction(Instruction instruction, Method method) {
+        for (String label : method.getLabels(instruction)) {
+            code.label(label);
+        }
+        if (branchFusion.isFused(instruction))
+            return;
+        switch (instruction.getInstType()) {
+            case ASSIGN -> generateAssignInstruction((AssignInstruction) instruction, method);
+            case CALL -> generateCallInstruction((CallInstruction) instruction, method);
+            case GOTO -> generateGotoInstruction((GotoInstruction) instruction, method);
+            case BRANCH -> generateBranchInstruction((CondBranchInstruction) instruction, method);
+            case RETURN -> generateReturnInstruction((ReturnInstruction) instruction, method);
+            case PUTFIELD -> generateFieldInstruction((FieldInstruction) instruction, method, true);
+            case GETFIELD -> generateFieldInstruction((FieldInstruction) instruction, method, false);
+            case UNARYOPER -> generateUnaryInstruction((UnaryOpInstruction) instruction, method);
+            case BINARYOPER -> generateBinaryInstruction((BinaryOpInstruction) instruction, method);
+            case NOPER -> generateLoadInstruction(((SingleOpInstruction) instruction).getSingleOperand(), method);
+        }
+    }
+
+    private void generateBinaryInstruction(BinaryOpInstruction instruction, Method method) {
+        OperationType opType = instruction.getOperation().getOpType();
+        if (checkComparisonWithZero(instruction)) {
+            boolean leftIsZero = JasminUtils.getElementName(instruction.getLeftOperand()).equals("0");
+            generateLoadInstruction(leftIsZero ? instruction.getRightOperand() : instruction.getLeftOperand(), method);
+            generateComparison(getZeroBranchOpcode(opType, leftIsZero), -1);
+            return;
+        }
+
+        generateLoadInstruction(instruction.getLeftOperand(), method);
+        generateLoadInstruction(instruction.getRightOperand(), method);
+        switch (opType) {
+            case ADD -> code.op(CodeBuffer.IADD, -1);
+            case SUB -> code.op(CodeBuffer.ISUB, -1);
+            case MUL -> code.op(CodeBuffer.IMUL, -1);
+            case DIV -> code.op(CodeBuffer.IDIV, -1);
+            case AND, ANDB -> code.op(CodeBuffer.IAND, -1);
+            case OR, ORB -> code.op(CodeBuffer.IOR, -1);
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> generateComparison(getCompareBranchOpcode(opType), -2);
+        }
+    }
+
+    /**
+     * Turns the result of a conditional branch into 0 or 1 on the stack.
+     */
+    private void generateComparison(int branchOpcode, int stackChange) {
+        // '#' cannot appear in OLLIR labels, so these never clash with the labels of the method
+        String label = "#cmp_" + comparisonLabelsCounter++;
+        code.jump(branchOpcode, label, stackChange);
+        code.pushInt(0, constantPool);
+        code.jump(CodeBuffer.GOTO, label + "_end", 0);
+        code.label(label);
+        code.pushInt(1, constantPool);
+        code.label(label + "_end");
+    }
+
+    private static int getZeroBranchOpcode(OperationType opType, boolean leftIsZero) {
+        return switch (opType) {
+            case LTH -> leftIsZero ? CodeBuffer.IFGT : CodeBuffer.IFLT;
+            case GTH -> leftIsZero ? CodeBuffer.IFLT : CodeBuffer.IFGT;
+            case LTE -> leftIsZero ? CodeBuffer.IFGE : CodeBuffer.IFLE;
+            case GTE -> leftIsZero ? CodeBuffer.IFLE : CodeBuffer.IFGE;
+            case EQ -> CodeBuffer.IFEQ;
+            case NEQ -> CodeBuffer.IFNE;
+            default -> throw new RuntimeException("Not a comparison: " + opType);
+        };
+    }
+
+    private static int getCompareBranchOpcode(OperationType opType) {
+        return switch (opType) {
+            case LTH -> CodeBuffer.IF_ICMPLT;
+            case GTH -> CodeBuffer.IF_ICMPGT;
+            case LTE -> CodeBuffer.IF_ICMPLE;
+            case GTE -> CodeBuffer.IF_ICMPGE;
+            case EQ -> CodeBuffer.IF_ICMPEQ;
+            case NEQ -> CodeBuffer.IF_ICMPNE;
+            default -> throw new RuntimeException("Not a comparison: " + opType);
+        };
+    }
+
+    private void generateUnaryInstruction(UnaryOpInstruction instruction, Method method) {
+        if (instruction.getOperation().getOpType() != OperationType.NOT && instruction.getOperation().getOpType() != OperationType.NOTB)
+            return;
+        generateLoadInstruction(instruction.getOperand(), method);
+        code.pushInt(1, constantPool);
+        code.op(CodeBuffer.IXOR, -1);
+    }
+
+    private void generateFieldInstruction(FieldInstruction instruction, Method method, boolean putfield) {
+        generateLoadInstruction(instruction.getFirstOperand(), method);
+        if (putfield)
+            generateLoadInstruction(((PutFieldInstruction) instruction).getThirdOperand(), method);
+        String className = JasminUtils.getFieldType(instruction.getFirstOperand().getType(), false, classUnit);
+        String fieldName = JasminUtils.getElementName(instruction.getSecondOperand());
+        String fieldType = getDescriptor(instruction.getSecondOperand().getType());
+        int field = constantPool.fieldRef(className, fieldName, fieldType);
+        if (putfield)
+            code.op2(CodeBuffer.PUTFIELD, field, -2);
+        else
+            code.op2(CodeBuffer.GETFIELD, field, 0);
+    }
+
+    private void generateReturnInstruction(ReturnInstruction instruction, Method method) {
+        if (instruction.hasReturnValue()) {
+            generateLoadInstruction(instruction.getOperand(), method);
+        }
+        switch (instruction.getElementType()) {
+            case BOOLEAN, INT32 -> code.op(CodeBuffer.IRETURN, -1);
+            case STRING, CLASS, OBJECTREF, ARRAYREF, THIS -> code.op(CodeBuffer.ARETURN, -1);
+            case VOID -> code.op(CodeBuffer.RETURN, 0);
+        }
+    }
+
+    private void generateBranchInstruction(CondBranchInstruction instruction, Method method) {
+        BinaryOpInstruction fusedCondition = branchFusion.getCondition(instruction);
+        if (fusedCondition != null) {
+            generateOpCondInstruction(instruction.getLabel(), fusedCondition, method);
+        } else if (instruction instanceof SingleOpCondInstruction singleOpCond) {
+            generateLoadInstruction(singleOpCond.getCondition().getSingleOperand(), method);
+            code.jump(CodeBuffer.IFNE, instruction.getLabel(), -1);
+        } else if (instruction instanceof OpCondInstruction opCond) {
+            generateOpCondInstruction(instruction.getLabel(), opCond.getCondition(), method);
+        }
+    }
+
+    private void generateOpCondInstruction(String label, OpInstruction condition, Method method) {
+        OperationType opType = condition.getOperation().getOpType();
+        if (condition instanceof BinaryOpInstruction binaryCondition) {
+            if (checkComparisonWithZero(binaryCondition)) {
+                boolean leftIsZero = JasminUtils.getElementName(binaryCondition.getLeftOperand()).equals("0");
+                generateLoadInstruction(leftIsZero ? binaryCondition.getRightOperand() : binaryCondition.getLeftOperand(), method);
+                code.jump(getZeroBranchOpcode(opType, leftIsZero), label, -1);
+                return;
+            }
+            generateLoadInstruction(binaryCondition.getLeftOperand(), method);
+            generateLoadInstruction(binaryCondition.getRightOperand(), method);
+            switch (opType) {
+                case AND, ANDB -> {
+                    code.op(CodeBuffer.IAND, -1);
+                    code.jump(CodeBuffer.IFNE, label, -1);
+                }
+                case OR, ORB -> {
+                    code.op(CodeBuffer.IOR, -1);
+                    code.jump(CodeBuffer.IFNE, label, -1);
+                }
+                case LTH, GTH, LTE, GTE, EQ, NEQ -> code.jump(getCompareBranchOpcode(opType), label, -2);
+            }
+        } else if (condition instanceof UnaryOpInstruction unaryCondition) {
+            generateLoadInstruction(unaryCondition.getOperand(), method);
+            if (opType == OperationType.NOT || opType == OperationType.NOTB) {
+                code.jump(CodeBuffer.IFEQ, label, -1);
+            }
+        }
+    }
+
+    private boolean checkComparisonWithZero(BinaryOpInstruction instruction) {
+        switch (instruction.getOperation().getOpType()) {
+            case LTH, GTH, LTE, GTE, EQ, NEQ -> {
+                return JasminUtils.getElementName(instruction.getLeftOperand()).equals("0")
+                        || JasminUtils.getElementName(instruction.getRightOperand()).equals("0");
+            }
+            default -> {
+                return false;
+            }
+        }
+    }
+
+    private void generateGotoInstruction(GotoInstruction instruction, Method method) {
+        // a cycle of gotos, e.g. of while (true) { }, jumps to any of them
+        for (int jumps = 0; jumps < method.getInstructions().size()
+                && method.getLabels().get(instruction.getLabel()).getInstType() == InstructionType.GOTO; jumps++) {
+            instruction = (GotoInstruction) method.getLabels().get(instruction.getLabel());
+        }
+        code.jump(CodeBuffer.GOTO, instruction.getLabel(), 0);
+    }
+
+    private void generateCallInstruction(CallInstruction instruction, Method method) {
+        switch (instruction.getInvocationType()) {
+            case invokevirtual -> {
+                String className = JasminUtils.getFieldType(instruction.getFirstArg().getType(), false, classUnit);
+                generateGeneralCall(CodeBuffer.INVOKEVIRTUAL, className, instruction, method);
+            }
+            case invokestatic -> {
+                String className = JasminUtils.getFullClassName(JasminUtils.getElementName(instruction.getFirstArg()), classUnit);
+                generateGeneralCall(CodeBuffer.INVOKESTATIC, className, instruction, method);
+            }
+            case invokespecial -> generateSpecialCall(instruction, method);
+            case NEW -> generateNewCall(instruction, method);
+            case arraylength -> {
+                generateLoadInstruction(instruction.getFirstArg(), method);
+                code.op(CodeBuffer.ARRAYLENGTH, 0);
+            }
+        }
+    }
+
+    private void generateNewCall(CallInstruction instruction, Method method) {
+        if (instruction.getReturnType().getTypeOfElement() == ElementType.ARRAYREF) {
+            generateLoadInstruction(instruction.getListOfOperands().get(0), method);
+            code.newarray(CodeBuffer.T_INT);
+        } else {
+            String className = JasminUtils.getFieldType(instruction.getFirstArg().getType(), false, classUnit);
+            code.op2(CodeBuffer.NEW, constantPool.classRef(className), 1);
+            code.op(CodeBuffer.DUP, 1);
+        }
+    }
+
+    private void generateSpecialCall(CallInstruction instruction, Method method) {
+        String className;
+        boolean localConstructor = method.isConstructMethod() && JasminUtils.getElementName(instruction.getFirstArg()).equals("this");
+        if (localConstructor) {
+            className = getSuperClassName();
+        } else {
+            className = JasminUtils.getFieldType(instruction.getFirstArg().getType(), false, classUnit);
+        }
+        generateGeneralCall(CodeBuffer.INVOKESPECIAL, className, instruction, method);
+        if (localConstructor) {
+            code.op(CodeBuffer.RETURN, 0);
+        }
+    }
+
+    private void generateGeneralCall(int opcode, String className, CallInstruction instruction, Method method) {
+        String methodName = JasminUtils.getElementName(instruction.getSecondArg());
+        methodName = methodName.substring(1, methodName.length() - 1);
+
+        int stackChange = -instruction.getListOfOperands().size();
+        if (opcode != CodeBuffer.INVOKESTATIC) {
+            generateLoadInstruction(instruction.getFirstArg(), method);
+            stackChange--;
+        }
+        StringBuilder descriptor = new StringBuilder("(");
+        for (Element elem : instruction.getListOfOperands()) {
+            generateLoadInstruction(elem, method);
+            descriptor.append(getDescriptor(elem.getType()));
+        }
+        descriptor.append(")").append(getDescriptor(instruction.getReturnType()));
+        if (instruction.getReturnType().getTypeOfElement() != ElementType.VOID) stackChange++;
+
+        code.op2(opcode, constantPool.methodRef(className, methodName, descriptor.toString()), stackChange);
+    }
+
+    private void generateAssignInstruction(AssignInstruction instruction, Method method) {
+        ElementType destType = instruction.getTypeOfAssign().getTypeOfElement();
+
+        if (instruction.getDest() instanceof ArrayOperand arrayOperand) {
+            Descriptor arrayDescriptor = method.getVarTable().get(arrayOperand.getName());
+            code.load(true, arrayDescriptor.getVirtualReg());
+            generateLoadInstruction(arrayOperand.getIndexOperands().get(0), method);
+            generateInstruction(instruction.getRhs(), method);
+            code.op(isReference(destType) ? CodeBuffer.AASTORE : CodeBuffer.IASTORE, -3);
+            return;
+        }
+
+        Descriptor descriptor = JasminUtils.getDescriptor(instruction.getDest(), method);
+        if (descriptor == null || checkIncrementAndGenerate(instruction, method, descriptor)) {
+            return;
+        }
+        generateInstruction(instruction.getRhs(), method);
+        if (destType != ElementType.VOID) {
+            code.store(isReference(destType), descriptor.getVirtualReg());
+        }
+    }
+
+    private boolean checkIncrementAndGenerate(AssignInstruction instruction, Method method, Descriptor descriptor) {
+        if (!(instruction.getRhs() instanceof BinaryOpInstruction binaryOpInstruction)) return false;
+
+        OperationType opType = binaryOpInstruction.getOperation().getOpType();
+        if (opType != OperationType.ADD && opType != OperationType.SUB) return false;
+
+        Element leftOperand = binaryOpInstruction.getLeftOperand();
+        Element rightOperand = binaryOpInstruction.getRightOperand();
+        Descriptor leftDescriptor = JasminUtils.getDescriptor(leftOperand, method);
+        Descriptor rightDescriptor = JasminUtils.getDescriptor(rightOperand, method);
+
+        Element element;
+        if (leftDescriptor != null && leftDescriptor.getVirtualReg() == descriptor.getVirtualReg()) {
+            element = rightOperand;
+        } else if (rightDescriptor != null && rightDescriptor.getVirtualReg() == descriptor.getVirtualReg()) {
+            element = leftOperand;
+        } else {
+            return false;
+        }
+
+        if (!element.isLiteral() || element.getType().getTypeOfElement() != ElementType.INT32) return false;
+
+        int incrementValue = Integer.parseInt(JasminUtils.getElementName(element));
+        if (opType == OperationType.SUB) incrementValue = -incrementValue;
+        if (incrementValue < -128 || incrementValue > 127) return false;
+
+        code.iinc(descriptor.getVirtualReg(), incrementValue);
+        return true;
+    }
+
+    private void generateLoadInstruction(Element elem, Method method) {
+        if (elem.isLiteral()) {
+            code.pushInt(Integer.parseInt(((LiteralElement) elem).getLiteral()), constantPool);
+            return;
+        }
+
+        String name = JasminUtils.getElementName(elem);
+        if (elem.getType().getTypeOfElement() == ElementType.BOOLEAN && (name.equals("true") || name.equals("false"))) {
+            code.pushInt(name.equals("true") ? 1 : 0, constantPool);
+            return;
+        }
+
+        Descriptor descriptor = JasminUtils.getDescriptor(elem, method);
+        if (descriptor == null) return;
+        ElementType elemType = elem.getType().getTypeOfElement();
+
+        if (elem instanceof ArrayOperand arrayOperand) {
+            Descriptor arrayDescriptor = method.getVarTable().get(arrayOperand.getName());
+            code.load(true, arrayDescriptor.getVirtualReg());
+            generateLoadInstruction(arrayOperand.getIndexOperands().get(0), method);
+            code.op(isReference(elemType) ? CodeBuffer.AALOAD : CodeBuffer.IALOAD, -1);
+        } else {
+            code.load(isReference(elemType), descriptor.getVirtualReg());
+        }
+    }
+
+    private static boolean isReference(ElementType type) {
+        return switch (type) {
+            case THIS, OBJECTREF, ARRAYREF, STRING, CLASS -> true;
+            default -> false;
+        };
+    }
+
+}
@@ -0,0 +1,49 @@
+package pt.up.fe.comp2023.classfile;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.report.Report;
+
+/**
+ * Result of the {@link ClassFileBackend}. It holds the bytes of the class file instead of Jasmin code, and
+ * compiling it just writes those bytes, so everything built on {@link JasminResult#compile} keeps working.
+ */
+public class ClassFileResult extends JasminResult {
+    private final byte[] classBytes;
+
+    public ClassFileResult(String className, byte[] classBytes, List<Report> reports, Map<String, String> config) {
+        this(className, "; " + className + ".class was generated directly, there is no Jasmin code\n",
+                classBytes, reports, config);
+    }
+
+    /**
+     * For a class file that was already assembled from the given Jasmin code.
+     */
+    public ClassFileResult(String className, String jasminCode, byte[] classBytes, List<Report> reports,
+                           Map<String, String> config) {
+        super(className, jasminCode, reports, config);
+        this.classBytes = classBytes;
+    }
+
+    public byte[] getClassBytes() {
+        return classBytes;
+    }
+
+    @Override
+    public File compile(File outputDir) {
+        File classFile = new File(outputDir, getClassName() + ".class");
+        try {
+            Files.createDirectories(outputDir.toPath());
+            Files.write(classFile.toPath(), classBytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return classFile;
+    }
+}
@@ -0,0 +1,213 @@
+package pt.up.fe.comp2023.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bytecode of a single method. Instructions are appended with their stack effect, which is used to compute
+ * max_stack, and branches to labels that are not yet placed are patched once the label is reached.
+ * Stack tracking follows the instructions in order, the same way {@code JasminInstructions} does.
+ */
+public class CodeBuffer {
+    public static final int ICONST_M1 = 0x02;
+    public static final int BIPUSH = 0x10;
+    public static final int SIPUSH = 0x11;
+    public static final int LDC = 0x12;
+    public static final int LDC_W = 0x13;
+    public static final int ILOAD = 0x15;
+    public static final int ALOAD = 0x19;
+    public static final int ILOAD_0 = 0x1a;
+    public static final int ALOAD_0 = 0x2a;
+    public static final int IALOAD = 0x2e;
+    public static final int AALOAD = 0x32;
+    public static final int ISTORE = 0x36;
+    public static final int ASTORE = 0x3a;
+    public static final int ISTORE_0 = 0x3b;
+    public static final int ASTORE_0 = 0x4b;
+    public static final int IASTORE = 0x4f;
+    public static final int AASTORE = 0x53;
+    public static final int POP = 0x57;
+    public static final int DUP = 0x59;
+    public static final int IADD = 0x60;
+    public static final int ISUB = 0x64;
+    public static final int IMUL = 0x68;
+    public static final int IDIV = 0x6c;
+    public static final int IAND = 0x7e;
+    public static final int IOR = 0x80;
+    public static final int IXOR = 0x82;
+    public static final int IINC = 0x84;
+    public static final int IFEQ = 0x99;
+    public static final int IFNE = 0x9a;
+    public static final int IFLT = 0x9b;
+    public static final int IFGE = 0x9c;
+    public static final int IFGT = 0x9d;
+    public static final int IFLE = 0x9e;
+    public static final int IF_ICMPEQ = 0x9f;
+    public static final int IF_ICMPNE = 0xa0;
+    public static final int IF_ICMPLT = 0xa1;
+    public static final int IF_ICMPGE = 0xa2;
+    public static final int IF_ICMPGT = 0xa3;
+    public static final int IF_ICMPLE = 0xa4;
+    public static final int GOTO = 0xa7;
+    public static final int IRETURN = 0xac;
+    public static final int ARETURN = 0xb0;
+    public static final int RETURN = 0xb1;
+    public static final int GETFIELD = 0xb4;
+    public static final int PUTFIELD = 0xb5;
+    public static final int INVOKEVIRTUAL = 0xb6;
+    public static final int INVOKESPECIAL = 0xb7;
+    public static final int INVOKESTATIC = 0xb8;
+    public static final int NEW = 0xbb;
+    public static final int NEWARRAY = 0xbc;
+    public static final int ARRAYLENGTH = 0xbe;
+    public static final int WIDE = 0xc4;
+
+    public static final int T_INT = 10;
+
+    private final ByteArrayOutputStream code = new ByteArrayOutputStream();
+    private final Map<String, Integer> labels = new HashMap<>();
+    private final List<PendingJump> pendingJumps = new ArrayList<>();
+
+    private int currentStack = 0;
+    private int maxStack = 0;
+
+    public void updateStack(int change) {
+        currentStack += change;
+        maxStack = Math.max(maxStack, currentStack);
+    }
+
+    public int getMaxStack() {
+        return maxStack;
+    }
+
+    /**
+     * Appends an instruction without operands.
+     */
+    public void op(int opcode, int stackChange) {
+        code.write(opcode);
+        updateStack(stackChange);
+    }
+
+    /**
+     * Appends an instruction with a 2 byte operand, such as a constant pool index.
+     */
+    public void op2(int opcode, int operand, int stackChange) {
+        code.write(opcode);
+        writeShort(operand);
+        updateStack(stackChange);
+    }
+
+    public void pushInt(int value, ConstantPool constantPool) {
+        if (value >= -1 && value <= 5) {
+            code.write(ICONST_M1 + value + 1);
+        } else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+            code.write(BIPUSH);
+            code.write(value);
+        } else if (value >= Short.MIN_VALUE && value <= Short.MAX_VALUE) {
+            code.write(SIPUSH);
+            writeShort(value);
+        } else {
+            int index = constantPool.integer(value);
+            if (index <= 0xFF) {
+                code.write(LDC);
+                code.write(index);
+            } else {
+                code.write(LDC_W);
+                writeShort(index);
+            }
+        }
+        updateStack(1);
+    }
+
+    public void load(boolean reference, int register) {
+        local(reference ? ALOAD : ILOAD, reference ? ALOAD_0 : ILOAD_0, register);
+        updateStack(1);
+    }
+
+    public void store(boolean reference, int register) {
+        local(reference ? ASTORE : ISTORE, reference ? ASTORE_0 : ISTORE_0, register);
+        updateStack(-1);
+    }
+
+    private void local(int opcode, int shortOpcode, int register) {
+        if (register <= 3) {
+            code.write(shortOpcode + register);
+        } else if (register <= 0xFF) {
+            code.write(opcode);
+            code.write(register);
+        } else {
+            code.write(WIDE);
+            code.write(opcode);
+            writeShort(register);
+        }
+    }
+
+    public void iinc(int register, int value) {
+        if (register <= 0xFF) {
+            code.write(IINC);
+            code.write(register);
+            code.write(value);
+        } else {
+            code.write(WIDE);
+            code.write(IINC);
+            writeShort(register);
+            writeShort(value);
+        }
+    }
+
+    public void newarray(int type) {
+        code.write(NEWARRAY);
+        code.write(type);
+    }
+
+    /**
+     * Appends a branch or goto to the given label, which may not have been placed yet.
+     */
+    public void jump(int opcode, String label, int stackChange) {
+        pendingJumps.add(new PendingJump(code.size(), label));
+        code.write(opcode);
+        writeShort(0);
+        updateStack(stackChange);
+    }
+
+    public void label(String label) {
+        if (labels.putIfAbsent(label, code.size()) != null) {
+            throw new RuntimeException("Label '" + label + "' is placed more than once");
+        }
+    }
+
+    public byte[] toByteArray() {
+        byte[] bytes = code.toByteArray();
+        for (PendingJump jump : pendingJumps) {
+            Integer target = labels.get(jump.label);
+            if (target == null) {
+                throw new RuntimeException("Jump to undefined label '" + jump.label + "'");
+            }
+            int offset = target - jump.position;
+            if (offset < Short.MIN_VALUE || offset > Short.MAX_VALUE) {
+                throw new RuntimeException("Jump to label '" + jump.label + "' is out of range");
+            }
+            bytes[jump.position + 1] = (byte) (offset >> 8);
+            bytes[jump.position + 2] = (byte) offset;
+        }
+        return bytes;
+    }
+
+    private void writeShort(int value) {
+        code.write(value >> 8);
+        code.write(value);
+    }
+
+    private static class PendingJump {
+        private final int position;
+        private final String label;
+
+        PendingJump(int position, String label) {
+            this.position = position;
+            this.label = label;
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package pt.up.fe.comp2023.classfile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Constant pool of a class file. Every entry is added at most once, so asking for the same constant again
+ * returns the index of the existing entry.
+ */
+public class ConstantPool {
+    private static final int UTF8 = 1;
+    private static final int INTEGER = 3;
+    private static final int CLASS = 7;
+    private static final int FIELD_REF = 9;
+    private static final int METHOD_REF = 10;
+    private static final int NAME_AND_TYPE = 12;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream entries = new DataOutputStream(bytes);
+    private final Map<String, Integer> indexes = new HashMap<>();
+    private int count = 1;
+
+    public int utf8(String value) {
+        return add("U" + value, () -> {
+            entries.writeByte(UTF8);
+            entries.writeUTF(value);
+        });
+    }
+
+    public int integer(int value) {
+        return add("I" + value, () -> {
+            entries.writeByte(INTEGER);
+            entries.writeInt(value);
+        });
+    }
+
+    public int classRef(String internalName) {
+        int name = utf8(internalName);
+        return add("C" + internalName, () -> {
+            entries.writeByte(CLASS);
+            entries.writeShort(name);
+        });
+    }
+
+    public int fieldRef(String owner, String name, String descriptor) {
+        return memberRef(FIELD_REF, owner, name, descriptor);
+    }
+
+    public int methodRef(String owner, String name, String descriptor) {
+        return memberRef(METHOD_REF, owner, name, descriptor);
+    }
+
+    private int memberRef(int tag, String owner, String name, String descriptor) {
+        int ownerIndex = classRef(owner);
+        int nameAndType = nameAndType(name, descriptor);
+        return add(tag + owner + "." + name + ":" + descriptor, () -> {
+            entries.writeByte(tag);
+            entries.writeShort(ownerIndex);
+            entries.writeShort(nameAndType);
+        });
+    }
+
+    private int nameAndType(String name, String descriptor) {
+        int nameIndex = utf8(name);
+        int descriptorIndex = utf8(descriptor);
+        return add("N" + name + ":" + descriptor, () -> {
+            entries.writeByte(NAME_AND_TYPE);
+            entries.writeShort(nameIndex);
+            entries.writeShort(descriptorIndex);
+        });
+    }
+
+    private int add(String key, EntryWriter writer) {
+        Integer index = indexes.get(key);
+        if (index != null) return index;
+
+        try {
+            writer.write();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (count > 0xFFFF) {
+            throw new RuntimeException("Constant pool is too large");
+        }
+        indexes.put(key, count);
+        return count++;
+    }
+
+    public void write(DataOutputStream out) throws IOException {
+        out.writeShort(count);
+        bytes.writeTo(out);
+    }
+
+    private interface EntryWriter {
+        void write() throws IOException;
+    }
+}
@@ -0,0 +1,158 @@
+package pt.up.fe.comp2023.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2023.stats.StatsReport;
+
+/**
+ * Compiles several Java-- files in the same process, reusing one {@link CompilerPipeline}.
+ * With more than one job, whole per-file pipelines run concurrently on a work-stealing pool; results are
+ * still printed in input order.
+ */
+public class BatchCompiler {
+    private final CompilerPipeline pipeline;
+    private final Map<String, String> config;
+    private final int jobs;
+
+    public BatchCompiler(Map<String, String> config) {
+        this.pipeline = new CompilerPipeline(CompilationCache.fromConfig(config));
+        this.config = config;
+        this.jobs = Integer.parseInt(config.getOrDefault("jobs", "1"));
+    }
+
+    public List<CompilationResult> compile(List<File> inputFiles) {
+        long start = System.nanoTime();
+        List<CompilationResult> results = jobs > 1 ? compileParallel(inputFiles) : compileSequential(inputFiles);
+        printSummary(results, System.nanoTime() - start);
+        if (pipeline.getCache() != null) {
+            System.out.println(pipeline.getCache().getStats());
+        }
+        if (config.containsKey("stats")) {
+            StatsReport report = new StatsReport(config);
+            for (CompilationResult result : results) {
+                if (result.getStats() != null) {
+                    report.add(result.getInputFile().getPath(), result.getStats(), result.getElapsedNanos(), result.isCached());
+                }
+            }
+            report.emit();
+        }
+        return results;
+    }
+
+    private List<CompilationResult> compileSequential(List<File> inputFiles) {
+        List<CompilationResult> results = new ArrayList<>();
+        for (File inputFile : inputFiles) {
+            CompilationResult result = pipeline.compile(inputFile, config);
+            printResult(result);
+            results.add(result);
+        }
+        return results;
+    }
+
+    private List<CompilationResult> compileParallel(List<File> inputFiles) {
+        ForkJoinPool pool = new ForkJoinPool(jobs);
+        try {
+            List<ForkJoinTask<CompilationResult>> tasks = new ArrayList<>();
+            for (File inputFile : inputFiles) {
+                tasks.add(pool.submit(() -> pipeline.compile(inputFile, config)));
+            }
+
+            // wait in submission order so the output does not depend on scheduling
+            List<CompilationResult> results = new ArrayList<>();
+            for (ForkJoinTask<CompilationResult> task : tasks) {
+                CompilationResult result = task.join();
+                printResult(result);
+                results.add(result);
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void printResult(CompilationResult result) {
+        System.out.printf("[%s] %s (%.2f ms%s)%n", result.isSuccess() ? "ok" : "failed",
+                result.getInputFile().getPath(), result.getElapsedMillis(), result.isCached() ? ", cached" : "");
+        result.getReports().stream()
+                .filter(report -> report.getType() == ReportType.ERROR)
+                .forEach(report -> System.out.println("    " + report));
+    }
+
+    public static void printSummary(List<CompilationResult> results, long wallNanos) {
+        long succeeded = results.stream().filter(CompilationResult::isSuccess).count();
+        double total = results.stream().mapToDouble(CompilationResult::getElapsedMillis).sum();
+        double min = results.stream().mapToDouble(CompilationResult::getElapsedMillis).min().orElse(0);
+        double max = results.stream().mapToDouble(CompilationResult::getElapsedMillis).max().orElse(0);
+
+        System.out.println();
+        System.out.printf("Compiled %d file(s): %d succeeded, %d failed%n",
+                results.size(), succeeded, results.size() - succeeded);
+        System.out.printf("Time: total %.2f ms, mean %.2f ms, min %.2f ms, max %.2f ms%n",
+                total, results.isEmpty() ? 0 : total / results.size(), min, max);
+        System.out.printf("Wall time: %.2f ms%n", wallNanos / 1_000_000.0);
+    }
+
+    /**
+     * Expands the inputs given on the command line: regular files are kept as they are, directories are
+     * searched recursively for .jmm files and arguments with '*' or '?' are treated as globs.
+     */
+    public static List<File> resolveInputs(List<String> inputs) {
+        Set<File> files = new LinkedHashSet<>();
+        for (String input : inputs) {
+            File file = new File(input);
+            if (file.isFile()) {
+                files.add(file);
+            } else if (file.isDirectory()) {
+                files.addAll(walk(file.toPath(), path -> path.toString().endsWith(".jmm")));
+            } else if (input.contains("*") || input.contains("?")) {
+                files.addAll(glob(input));
+            } else {
+                throw new RuntimeException("Expected a path to an existing input file, got '" + input + "'.");
+            }
+        }
+        return new ArrayList<>(files);
+    }
+
+    private static List<File> glob(String pattern) {
+        // walk from the longest prefix without wildcards
+        Path patternPath = Paths.get(pattern);
+        Path root = patternPath.isAbsolute() ? patternPath.getRoot() : Paths.get(".");
+        for (Path part : patternPath) {
+            if (part.toString().contains("*") || part.toString().contains("?")) break;
+            root = root.resolve(part);
+        }
+
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        return walk(root, path -> matcher.matches(path.normalize()));
+    }
+
+    private static List<File> walk(Path root, Predicate<Path> filter) {
+        try (Stream<Path> paths = Files.walk(root)) {
+            return paths.filter(Files::isRegularFile)
+                    .filter(filter)
+                    .sorted()
+                    .map(path -> path.normalize().toFile())
+                    .collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package pt.up.fe.comp2023.driver;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import jasmin.ClassFile;
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2023.Jasmin.JasminAssembler;
+import pt.up.fe.comp2023.classfile.ClassFileResult;
+import pt.up.fe.specs.util.SpecsLogs;
+
+/**
+ * On-disk cache of compilation outputs, keyed by a hash of the source code, of the options that change the
+ * generated code and of the compiler itself. Each entry keeps the OLLIR code, the Jasmin code and the
+ * assembled class file, so a hit skips every stage.
+ * <p>
+ * Entries are written to a temporary file and then renamed, so several processes can share the same folder
+ * and never see a partial entry. Hits refresh the modification time of the entry, and when the folder grows
+ * past its maximum size the least recently used entries are deleted.
+ */
+public class CompilationCache {
+    public static final String DEFAULT_FOLDER = "build/jmm-cache";
+    public static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int FORMAT_VERSION = 1;
+    private static final String ENTRY_EXTENSION = ".entry";
+    private static final List<String> KEY_OPTIONS = List.of("optimize", "registerAllocation", "backend");
+
+    // classes of the compiler, of the OLLIR library, of jasmin and of the jmm library
+    private static final List<Class<?>> FINGERPRINTED_CLASSES = List.of(CompilationCache.class, ClassUnit.class,
+            ClassFile.class, JasminResult.class);
+
+    private static String compilerFingerprint;
+    private static boolean fingerprintComputed = false;
+
+    private final Path folder;
+    private final long maxBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong stores = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public CompilationCache(File folder, long maxBytes) {
+        this.folder = folder.toPath();
+        this.maxBytes = maxBytes;
+        try {
+            Files.createDirectories(this.folder);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not create cache folder " + folder, e);
+        }
+    }
+
+    /**
+     * Creates the cache configured by the "cacheDir" and "cacheSize" (in MB) options.
+     *
+     * @return the cache, or null if caching is not enabled
+     */
+    public static CompilationCache fromConfig(Map<String, String> config) {
+        String cacheDir = config.get("cacheDir");
+        if (cacheDir == null) return null;
+
+        long maxBytes = config.containsKey("cacheSize") ?
+                Long.parseLong(config.get("cacheSize")) * 1024 * 1024 : DEFAULT_MAX_BYTES;
+        return new CompilationCache(new File(cacheDir), maxBytes);
+    }
+
+    public static class Entry {
+        private final String className;
+        private final String ollirCode;
+        private final String jasminCode;
+        private final byte[] classBytes;
+
+        public Entry(String className, String ollirCode, String jasminCode, byte[] classBytes) {
+            this.className = className;
+            this.ollirCode = ollirCode;
+            this.jasminCode = jasminCode;
+            this.classBytes = classBytes;
+        }
+
+        public String getClassName() {
+            return className;
+        }
+
+        public String getOllirCode() {
+            return ollirCode;
+        }
+
+        public String getJasminCode() {
+            return jasminCode;
+        }
+
+        public byte[] getClassBytes() {
+            return classBytes;
+        }
+
+        /**
+         * @return a result that runs and compiles from the cached class file, without assembling again
+         */
+        public JasminResult toJasminResult(Map<String, String> config) {
+            return new ClassFileResult(className, jasminCode, classBytes, new ArrayList<>(), config);
+        }
+    }
+
+    public String key(String code, Map<String, String> config) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(String.valueOf(getCompilerFingerprint()).getBytes(StandardCharsets.UTF_8));
+            for (String option : KEY_OPTIONS) {
+                String value = config.getOrDefault(option, getDefault(option));
+                digest.update(("\0" + option + "=" + value).getBytes(StandardCharsets.UTF_8));
+            }
+            digest.update((byte) 0);
+            digest.update(code.getBytes(StandardCharsets.UTF_8));
+
+            StringBuilder key = new StringBuilder();
+            for (byte b : digest.digest()) {
+                key.append(String.format("%02x", b));
+            }
+            return key.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    private static String getDefault(String option) {
+        return switch (option) {
+            case "optimize" -> "false";
+            case "registerAllocation" -> "-1";
+            case "backend" -> "jasmin";
+            default -> "";
+        };
+    }
+
+    public Entry get(String code, Map<String, String> config) {
+        if (getCompilerFingerprint() == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+
+        Path path = getPath(key(code, config));
+        Entry entry;
+        try {
+            entry = read(Files.readAllBytes(path));
+        } catch (NoSuchFileException e) {
+            // missing, or evicted by another process in the meantime
+            misses.incrementAndGet();
+            return null;
+        } catch (IOException | RuntimeException e) {
+            // unreadable entry, e.g. written by another version of the cache
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException ignored) {
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+
+        // the modification time is the last use, for the LRU eviction
+        try {
+            Files.setLastModifiedTime(path, FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException ignored) {
+        }
+        hits.incrementAndGet();
+        return entry;
+    }
+
+    /**
+     * Stores the outputs of a successful compilation, unless the cache is disabled. The class file is taken from
+     * the result when it has one, otherwise the Jasmin code is assembled.
+     *
+     * @return the stored entry
+     */
+    public Entry put(String code, Map<String, String> config, String ollirCode, JasminResult jasminResult) {
+        byte[] classBytes = JasminAssembler.toClassBytes(jasminResult);
+        Entry entry = new Entry(jasminResult.getClassName(), ollirCode, jasminResult.getJasminCode(), classBytes);
+        if (getCompilerFingerprint() == null) return entry;
+
+        Path path = getPath(key(code, config));
+        try {
+            Path temp = Files.createTempFile(folder, "tmp", ".part");
+            try {
+                Files.write(temp, write(entry));
+                try {
+                    Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                } catch (AtomicMoveNotSupportedException e) {
+                    Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING);
+                }
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+            stores.incrementAndGet();
+            evict();
+        } catch (IOException e) {
+            // a failure to cache should never fail the compilation
+        }
+        return entry;
+    }
+
+    private Path getPath(String key) {
+        return folder.resolve(key + ENTRY_EXTENSION);
+    }
+
+    /**
+     * Deletes the least recently used entries until the cache fits in its maximum size.
+     */
+    private void evict() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> paths = Files.list(folder)) {
+            entries = paths.filter(path -> path.toString().endsWith(ENTRY_EXTENSION)).collect(Collectors.toList());
+        }
+
+        long total = 0;
+        List<EntryFile> files = new ArrayList<>();
+        for (Path path : entries) {
+            try {
+                EntryFile file = new EntryFile(path, Files.size(path), Files.getLastModifiedTime(path).toMillis());
+                files.add(file);
+                total += file.size;
+            } catch (NoSuchFileException e) {
+                // deleted by another process
+            }
+        }
+        if (total <= maxBytes) return;
+
+        files.sort(Comparator.comparingLong(file -> file.lastUsed));
+        for (EntryFile file : files) {
+            if (total <= maxBytes) break;
+            if (Files.deleteIfExists(file.path)) {
+                evictions.incrementAndGet();
+            }
+            total -= file.size;
+        }
+    }
+
+    private static class EntryFile {
+        private final Path path;
+        private final long size;
+        private final long lastUsed;
+
+        EntryFile(Path path, long size, long lastUsed) {
+            this.path = path;
+            this.size = size;
+            this.lastUsed = lastUsed;
+        }
+    }
+
+    private static byte[] write(Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeInt(FORMAT_VERSION);
+        writeString(out, entry.className);
+        writeString(out, entry.ollirCode);
+        writeString(out, entry.jasminCode);
+        out.writeInt(entry.classBytes.length);
+        out.write(entry.classBytes);
+        return bytes.toByteArray();
+    }
+
+    private static Entry read(byte[] bytes) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != FORMAT_VERSION) {
+            throw new IOException("Unknown cache entry format");
+        }
+        String className = readString(in);
+        String ollirCode = readString(in);
+        String jasminCode = readString(in);
+        byte[] classBytes = new byte[in.readInt()];
+        in.readFully(classBytes);
+        return new Entry(className, ollirCode, jasminCode, classBytes);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value == null ? new byte[0] : value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[in.readInt()];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Identifies the build of the compiler and of the libraries that make its output (the OLLIR library, jasmin
+     * and the jmm library), so that entries generated by older builds are never used. It is the size and
+     * modification time of each jar, or of every class file when running from a classes folder.
+     *
+     * @return the fingerprint, or null if a location could not be read, in which case the cache is disabled
+     */
+    private static synchronized String getCompilerFingerprint() {
+        if (fingerprintComputed) return compilerFingerprint;
+        fingerprintComputed = true;
+
+        StringBuilder fingerprint = new StringBuilder();
+        try {
+            Set<Path> locations = new LinkedHashSet<>();
+            for (Class<?> fingerprinted : FINGERPRINTED_CLASSES) {
+                locations.add(Path.of(fingerprinted.getProtectionDomain().getCodeSource().getLocation().toURI()));
+            }
+            for (Path location : locations) {
+                fingerprint.append(location.getFileName()).append('=');
+                if (Files.isDirectory(location)) {
+                    try (Stream<Path> paths = Files.walk(location)) {
+                        for (Path path : paths.filter(Files::isRegularFile).sorted().collect(Collectors.toList())) {
+                            fingerprint.append(location.relativize(path)).append(':').append(Files.size(path))
+                                    .append(':').append(Files.getLastModifiedTime(path).toMillis()).append(';');
+                        }
+                    }
+                } else {
+                    fingerprint.append(Files.size(location)).append(':')
+                            .append(Files.getLastModifiedTime(location).toMillis());
+                }
+                fingerprint.append('\n');
+            }
+        } catch (IOException | URISyntaxException | RuntimeException e) {
+            SpecsLogs.warn("Could not identify the build of the compiler, the compilation cache is disabled", e);
+            return null;
+        }
+        compilerFingerprint = fingerprint.toString();
+        return compilerFingerprint;
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    public String getStats() {
+        long lookups = hits.get() + misses.get();
+        return String.format("Cache: %d hits, %d misses (%.1f%% hit rate), %d stored, %d evicted",
+                hits.get(), misses.get(), lookups == 0 ? 0 : 100.0 * hits.get() / lookups,
+                stores.get(), evictions.get());
+    }
+}
@@ -0,0 +1,91 @@
+package pt.up.fe.comp2023.driver;
+
+import java.io.File;
+import java.util.List;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2023.stats.StageStats;
+
+/**
+ * Outcome of running one input file through the whole compiler pipeline.
+ */
+public class CompilationResult {
+    private final File inputFile;
+    private final List<Report> reports;
+    private final OllirResult ollirResult;
+    private final JasminResult jasminResult;
+    private final long elapsedNanos;
+    private final boolean cached;
+    private StageStats stats;
+
+    public CompilationResult(File inputFile, List<Report> reports, OllirResult ollirResult,
+                             JasminResult jasminResult, long elapsedNanos) {
+        this(inputFile, reports, ollirResult, jasminResult, elapsedNanos, false);
+    }
+
+    /**
+     * @param cached if the result came from the {@link CompilationCache}, in which case there is no OLLIR result
+     */
+    public CompilationResult(File inputFile, List<Report> reports, OllirResult ollirResult,
+                             JasminResult jasminResult, long elapsedNanos, boolean cached) {
+        this.inputFile = inputFile;
+        this.reports = reports;
+        this.ollirResult = ollirResult;
+        this.jasminResult = jasminResult;
+        this.elapsedNanos = elapsedNanos;
+        this.cached = cached;
+    }
+
+    public File getInputFile() {
+        return inputFile;
+    }
+
+    public List<Report> getReports() {
+        return reports;
+    }
+
+    public OllirResult getOllirResult() {
+        return ollirResult;
+    }
+
+    public JasminResult getJasminResult() {
+        return jasminResult;
+    }
+
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    public double getElapsedMillis() {
+        return elapsedNanos / 1_000_000.0;
+    }
+
+    /**
+     * @return the measurements of each stage, or null if they were not recorded
+     */
+    public StageStats getStats() {
+        return stats;
+    }
+
+    void setStats(StageStats stats) {
+        this.stats = stats;
+    }
+
+    public boolean isCached() {
+        return cached;
+    }
+
+    public long getErrorCount() {
+        return reports.stream().filter(report -> report.getType() == ReportType.ERROR).count();
+    }
+
+    /**
+     * @return true if every stage ran and produced Jasmin code
+     */
+    public boolean isSuccess() {
+        return jasminResult != null && getErrorCount() == 0;
+    }
+}
@@ -0,0 +1,189 @@
+package pt.up.fe.comp2023.driver;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.jasmin.JasminBackend;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.jasmin.JasminUtils;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2023.Jasmin.AJasminBackend;
+import pt.up.fe.comp2023.SimpleParser;
+import pt.up.fe.comp2023.classfile.ClassFileBackend;
+import pt.up.fe.comp2023.classfile.ClassFileResult;
+import pt.up.fe.comp2023.ollir.JmmOptimizer;
+import pt.up.fe.comp2023.semantic.AJmmAnalysis;
+import pt.up.fe.comp2023.stats.StageStats;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Runs source files through parse -> analysis -> OLLIR -> Jasmin (or class file, see {@link #createBackend}).
+ * The stage objects are created once and reused for every file, so a single instance can compile
+ * many files while the ANTLR prediction caches and the JIT stay warm.
+ * None of the stages keep state between compilations, so an instance can be shared by several threads.
+ */
+public class CompilerPipeline {
+    private final SimpleParser parser;
+    private final AJmmAnalysis analysis;
+    private final JmmOptimizer optimizer;
+    private final JasminBackend jasminBackend;
+    private final JasminBackend classFileBackend;
+    private final CompilationCache cache;
+
+    public CompilerPipeline() {
+        this(null);
+    }
+
+    /**
+     * @param cache cache of compilation outputs, or null to always run every stage
+     */
+    public CompilerPipeline(CompilationCache cache) {
+        this.parser = new SimpleParser();
+        this.analysis = new AJmmAnalysis();
+        this.optimizer = new JmmOptimizer();
+        this.jasminBackend = new AJasminBackend();
+        this.classFileBackend = new ClassFileBackend();
+        this.cache = cache;
+    }
+
+    public CompilationCache getCache() {
+        return cache;
+    }
+
+    /**
+     * Creates the backend selected by the "backend" option: "jasmin" (default) generates Jasmin code that is
+     * assembled by jasmin.jar, "classfile" writes the class file directly.
+     */
+    public static JasminBackend createBackend(Map<String, String> config) {
+        return isClassFileBackend(config) ? new ClassFileBackend() : new AJasminBackend();
+    }
+
+    private static boolean isClassFileBackend(Map<String, String> config) {
+        String backend = config.getOrDefault("backend", "jasmin");
+        return switch (backend) {
+            case "jasmin" -> false;
+            case "classfile" -> true;
+            default -> throw new RuntimeException("Unknown backend '" + backend + "', expected 'jasmin' or 'classfile'");
+        };
+    }
+
+    /**
+     * Compiles the given file. When the "stats" option is set, the time and allocations of each stage are
+     * recorded in the result.
+     */
+    public CompilationResult compile(File inputFile, Map<String, String> baseConfig) {
+        return compile(inputFile, null, baseConfig);
+    }
+
+    /**
+     * Compiles the given code, which did not come from a file, e.g. sent to the compile server. The file is
+     * only used to name the input in the reports.
+     *
+     * @param code the source to compile, or null to read it from the file
+     */
+    public CompilationResult compile(File inputFile, String code, Map<String, String> baseConfig) {
+        Map<String, String> config = new HashMap<>(baseConfig);
+        config.put("inputFile", inputFile.getPath());
+
+        if (!config.containsKey("stats")) {
+            return compileStages(inputFile, code, config);
+        }
+
+        StageStats.start();
+        CompilationResult result = null;
+        try {
+            result = compileStages(inputFile, code, config);
+        } finally {
+            StageStats stats = StageStats.stop();
+            if (result != null) result.setStats(stats);
+        }
+        return result;
+    }
+
+    private CompilationResult compileStages(File inputFile, String source, Map<String, String> config) {
+        long start = System.nanoTime();
+        List<Report> reports = new ArrayList<>();
+        OllirResult ollirResult = null;
+        JasminResult jasminResult = null;
+
+        try {
+            String code = source != null ? source : SpecsIo.read(inputFile);
+
+            CompilationCache.Entry cached = cache == null ? null : cache.get(code, config);
+            if (cached != null) {
+                jasminResult = cached.toJasminResult(config);
+                if (config.containsKey("outputDir")) {
+                    jasminResult.compile(new File(config.get("outputDir")));
+                }
+                return new CompilationResult(inputFile, reports, null, jasminResult, System.nanoTime() - start, true);
+            }
+
+            JmmParserResult parserResult = parser.parse(code, parser.getDefaultRule(), config);
+            reports.addAll(parserResult.getReports());
+            if (!hasErrors(reports)) {
+                JmmSemanticsResult semanticsResult = analysis.semanticAnalysis(parserResult);
+                reports.addAll(semanticsResult.getReports());
+
+                if (!hasErrors(reports)) {
+                    ollirResult = optimizer.toOllir(semanticsResult);
+                    reports.addAll(ollirResult.getReports());
+
+                    if (!hasErrors(reports)) {
+                        JasminBackend backend = isClassFileBackend(config) ? classFileBackend : jasminBackend;
+                        jasminResult = backend.toJasmin(ollirResult);
+                        reports.addAll(jasminResult.getReports());
+
+                        if (cache != null && !hasErrors(reports)) {
+                            // reuse the class file assembled for the cache
+                            jasminResult = cache.put(code, config, ollirResult.getOllirCode(), jasminResult)
+                                    .toJasminResult(config);
+                        }
+                        if (config.containsKey("outputDir") && !hasErrors(reports)) {
+                            assemble(jasminResult, new File(config.get("outputDir")));
+                        }
+                    }
+                }
+            }
+        } catch (RuntimeException e) {
+            reports.add(Report.newError(Stage.OTHER, -1, -1, "Exception while compiling " + inputFile, e));
+        }
+
+        return new CompilationResult(inputFile, reports, ollirResult, jasminResult, System.nanoTime() - start);
+    }
+
+    /**
+     * Same as {@link JasminResult#compile(File)}, but with a unique temporary .j file, so that concurrent
+     * compilations of classes with the same name do not overwrite each other's sources.
+     */
+    private static File assemble(JasminResult jasminResult, File outputDir) {
+        if (jasminResult instanceof ClassFileResult) {
+            return jasminResult.compile(outputDir);
+        }
+
+        try {
+            File jasminFile = File.createTempFile("jasmin_" + jasminResult.getClassName(), ".j");
+            try {
+                SpecsIo.write(jasminFile, jasminResult.getJasminCode());
+                return StageStats.measure(StageStats.ASSEMBLY, () -> JasminUtils.assemble(jasminFile, outputDir));
+            } finally {
+                jasminFile.delete();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static boolean hasErrors(List<Report> reports) {
+        return reports.stream().anyMatch(report -> report.getType() == ReportType.ERROR);
+    }
+}
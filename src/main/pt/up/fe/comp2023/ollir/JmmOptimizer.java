@@ -6,9 +6,11 @@ import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.ollir.JmmOptimization;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.comp2023.optimization.ConstantAnalysis;
+import pt.up.fe.comp2023.optimization.ConstantPropagation;
 import pt.up.fe.comp2023.optimization.InterferenceGraph;
 import pt.up.fe.comp2023.optimization.LivenessNode;
 import pt.up.fe.comp2023.optimization.MethodLivenessAnalysis;
+import pt.up.fe.comp2023.stats.StageStats;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -24,9 +26,23 @@ public class JmmOptimizer implements JmmOptimization {
         if (config.containsKey("optimize") && config.get("optimize").equals("true"))
             semanticsResult = optimize(semanticsResult);
 
+        // the class is built in memory, "text" prints it and parses it back instead, to check the printed code
+        boolean text = "text".equals(config.get("ollir"));
         OllirGenerator ollirGenerator = new OllirGenerator(semanticsResult.getSymbolTable());
-        ollirGenerator.visit(semanticsResult.getRootNode());
-        OllirResult ollirResult = new OllirResult(ollirGenerator.ollirCode.toString(), semanticsResult.getConfig());
+        JmmSemanticsResult finalSemanticsResult = semanticsResult;
+        StageStats.measure(StageStats.OLLIR_GENERATION, () -> ollirGenerator.visit(finalSemanticsResult.getRootNode()));
+        if ("true".equals(config.get("optimize")))
+            StageStats.measure(StageStats.CONSTANT_PROPAGATION, () -> propagateConstants(ollirGenerator.ollirClass));
+        // as the parser does for the classes it parses, once their code is final
+        if (!text) ollirGenerator.ollirClass.buildVarTables();
+
+        OllirResult ollirResult;
+        if (text) {
+            String ollirCode = OllirPrinter.print(ollirGenerator.ollirClass);
+            ollirResult = StageStats.measure(StageStats.OLLIR_PARSING, () -> new OllirResult(ollirCode, config));
+        } else {
+            ollirResult = new OllirClassResult(ollirGenerator.ollirClass, config);
+        }
 
         if (config.containsKey("registerAllocation")) {
             int registers = parseInt(semanticsResult.getConfig().get("registerAllocation"));
@@ -43,7 +59,7 @@ public class JmmOptimizer implements JmmOptimization {
         if (!config.containsKey("optimize") || !config.get("optimize").equals("true"))
             return semanticsResult;
         ConstantAnalysis constantAnalysis = new ConstantAnalysis(semanticsResult);
-        return constantAnalysis.analyze();
+        return StageStats.measure(StageStats.CONSTANT_FOLDING, constantAnalysis::analyze);
     }
 
     @Override
@@ -61,17 +77,23 @@ public class JmmOptimizer implements JmmOptimization {
         return ollirResult;
     }
 
+    private void propagateConstants(ClassUnit classUnit) {
+        for (Method method : classUnit.getMethods()) {
+            new ConstantPropagation(method).propagate();
+        }
+    }
+
     private void allocate(OllirResult ollirResult, int maxRegisters) {
         ClassUnit classUnit = ollirResult.getOllirClass();
         for (Method method: classUnit.getMethods()) {
             method.buildCFG();
 
             MethodLivenessAnalysis methodLivenessAnalysis = new MethodLivenessAnalysis(method);
-            ArrayList<LivenessNode> instructionNodes = methodLivenessAnalysis.analyze();
-
-            InterferenceGraph interferenceGraph = new InterferenceGraph(instructionNodes);
+            ArrayList<LivenessNode> instructionNodes = StageStats.measure(StageStats.LIVENESS,
+                    methodLivenessAnalysis::analyze);
 
-            HashMap<String, Integer> colors =  interferenceGraph.color(maxRegisters);
+            HashMap<String, Integer> colors = StageStats.measure(StageStats.COLORING,
+                    () -> new InterferenceGraph(instructionNodes).color(maxRegisters));
             for (String var : method.getVarTable().keySet()) {
                 if (colors.containsKey(var)) {
                     method.getVarTable().get(var).setVirtualReg(colors.get(var));
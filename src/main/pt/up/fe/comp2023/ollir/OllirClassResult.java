@@ -0,0 +1,35 @@
+package pt.up.fe.comp2023.ollir;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+
+import java.util.Map;
+
+/**
+ * Result of {@link JmmOptimizer} that holds the {@link ClassUnit} built by the {@link OllirGenerator}, instead of one
+ * parsed from OLLIR code. The code is only printed, by {@link OllirPrinter}, the first time it is asked for.
+ */
+public class OllirClassResult extends OllirResult {
+    // the constructors of OllirResult always parse some code, this is the shortest class
+    private static final String EMPTY_CLASS = "Empty {}";
+
+    private final ClassUnit ollirClass;
+    private String ollirCode;
+
+    public OllirClassResult(ClassUnit ollirClass, Map<String, String> config) {
+        super(EMPTY_CLASS, config);
+        this.ollirClass = ollirClass;
+    }
+
+    @Override
+    public ClassUnit getOllirClass() {
+        return ollirClass;
+    }
+
+    @Override
+    public synchronized String getOllirCode() {
+        if (ollirCode == null)
+            ollirCode = OllirPrinter.print(ollirClass);
+        return ollirCode;
+    }
+}
@@ -0,0 +1,60 @@
+package pt.up.fe.comp2023.ollir;
+
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.SingleOpInstruction;
+
+import java.util.function.Function;
+
+/**
+ * What {@link OllirGenerator} gives the parent of an expression: the code of the operand that holds its value, e.g.
+ * "t0", "$1.a" or "1", or, when the parent can take it whole, the instruction that computes it, e.g. a call on the
+ * right side of an assignment. Only the parent knows the type the value is used with, so it gives it to
+ * {@link #toElement} and {@link #toInstruction}.
+ */
+public class OllirExpr {
+    private final String operand;
+    private final Function<String, Instruction> instruction;
+
+    private OllirExpr(String operand, Function<String, Instruction> instruction) {
+        this.operand = operand;
+        this.instruction = instruction;
+    }
+
+    public static OllirExpr operand(String code) {
+        return new OllirExpr(code, null);
+    }
+
+    /**
+     * @param instruction builds the instruction, given the OLLIR type of its value
+     */
+    public static OllirExpr instruction(Function<String, Instruction> instruction) {
+        return new OllirExpr(null, instruction);
+    }
+
+    public boolean isOperand() {
+        return operand != null;
+    }
+
+    /**
+     * @return the code of the operand, without its type
+     */
+    public String getOperand() {
+        if (operand == null)
+            throw new RuntimeException("Expected an operand, found an instruction");
+        return operand;
+    }
+
+    public Element toElement(String ollirType) {
+        return OllirFactory.operand(getOperand(), ollirType);
+    }
+
+    /**
+     * @return the instruction that gives the value, to be assigned, a single operand if it is an operand
+     */
+    public Instruction toInstruction(String ollirType) {
+        if (operand != null)
+            return new SingleOpInstruction(toElement(ollirType));
+        return instruction.apply(ollirType);
+    }
+}
@@ -0,0 +1,148 @@
+package pt.up.fe.comp2023.ollir;
+
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.ArrayType;
+import org.specs.comp.ollir.ClassType;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.ElementType;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.Operation;
+import org.specs.comp.ollir.OperationType;
+import org.specs.comp.ollir.Type;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the elements of the OLLIR classes the way the OLLIR parser builds them from their code, so the
+ * {@link org.specs.comp.ollir.ClassUnit} of the {@link OllirGenerator} is the one the parser would give for the code
+ * {@link OllirPrinter} prints for it. The operands are given by their code without the type, e.g. "t0", "$1.a" or
+ * "5", and the types by their OLLIR suffix, e.g. "i32" or "array.String".
+ */
+public class OllirFactory {
+    private static final Pattern PARAMETER = Pattern.compile("\\$(\\d+)\\.(.+)");
+    private static final Pattern LITERAL = Pattern.compile("[+-]?\\d+");
+
+    public static Type type(String ollirType) {
+        if (ollirType == null || ollirType.isEmpty())
+            throw new RuntimeException("Expected an OLLIR type, found none");
+
+        String[] parts = ollirType.split("\\.");
+        String name = parts[parts.length - 1];
+        ElementType elementType = switch (name) {
+            case "i32" -> ElementType.INT32;
+            case "bool" -> ElementType.BOOLEAN;
+            case "String" -> ElementType.STRING;
+            case "V" -> ElementType.VOID;
+            default -> ElementType.OBJECTREF;
+        };
+        if (parts.length == 1) {
+            return elementType == ElementType.OBJECTREF ? new ClassType(elementType, name) : new Type(elementType);
+        }
+
+        ArrayType arrayType = new ArrayType();
+        arrayType.setNumDimensions(parts.length - 1);
+        arrayType.setTypeOfElements(elementType);
+        if (elementType == ElementType.OBJECTREF || elementType == ElementType.STRING)
+            arrayType.setElementClass(name);
+        return arrayType;
+    }
+
+    /**
+     * @return the literal or the variable of the code, as an argument or the operand of an operation
+     */
+    public static Element operand(String code, String ollirType) {
+        if (LITERAL.matcher(code).matches())
+            return new LiteralElement(code, type(ollirType));
+        return variable(code, ollirType);
+    }
+
+    /**
+     * @return the variable of the code, e.g. "t0" or "$1.a"
+     */
+    public static Operand variable(String code, String ollirType) {
+        Matcher parameter = PARAMETER.matcher(code);
+        if (!parameter.matches())
+            return new Operand(code, type(ollirType));
+
+        Operand operand = new Operand(parameter.group(2), type(ollirType));
+        operand.setParamId(Integer.parseInt(parameter.group(1)));
+        return operand;
+    }
+
+    /**
+     * @return the element of the array of the code at the given index, e.g. a[t0.i32].i32
+     */
+    public static ArrayOperand arrayElement(String code, String index, String ollirType) {
+        Matcher parameter = PARAMETER.matcher(code);
+        String name = parameter.matches() ? parameter.group(2) : code;
+        ArrayOperand operand = new ArrayOperand(name, type(ollirType), new ArrayList<>(List.of(operand(index, "i32"))));
+        if (parameter.matches())
+            operand.setParamId(Integer.parseInt(parameter.group(1)));
+        return operand;
+    }
+
+    /**
+     * @return the object a method is invoked on, or a field is accessed in. "this" may have no type, it has the
+     * class.
+     */
+    public static Operand receiver(String code, String ollirType, String className) {
+        boolean typed = ollirType != null && !ollirType.isEmpty();
+        if (code.equals("this")) {
+            Type type = typed ? type(ollirType) : null;
+            String name = type instanceof ClassType classType ? classType.getName() : className;
+            return new Operand(code, new ClassType(ElementType.THIS, name));
+        }
+        if (!typed)
+            throw new RuntimeException("Expected the type of the receiver " + code + ", found none");
+        return variable(code, ollirType);
+    }
+
+    /**
+     * @return the class a static method is invoked on. The parser gives it the type of the class being compiled.
+     */
+    public static Operand staticReceiver(String name, String className) {
+        return new Operand(name, new ClassType(ElementType.CLASS, className));
+    }
+
+    /**
+     * @return the name of an invoked method, with its quotes
+     */
+    public static LiteralElement methodName(String name) {
+        return new LiteralElement("\"" + name + "\"", new Type(ElementType.STRING));
+    }
+
+    /**
+     * @param name "array", or the name of the class of the new object
+     * @return the first argument of a new instruction
+     */
+    public static Operand newTarget(String name) {
+        if (name.equals("array"))
+            return new Operand(name, new ArrayType());
+        return new Operand(name, new ClassType(ElementType.OBJECTREF, name));
+    }
+
+    /**
+     * @param op the operator of Java--, e.g. "+" or "&amp;&amp;"
+     */
+    public static Operation operation(String op, String ollirType) {
+        OperationType operationType = switch (op) {
+            case "+" -> OperationType.ADD;
+            case "-" -> OperationType.SUB;
+            case "*" -> OperationType.MUL;
+            case "/" -> OperationType.DIV;
+            case "<" -> OperationType.LTH;
+            case "<=" -> OperationType.LTE;
+            case ">" -> OperationType.GTH;
+            case ">=" -> OperationType.GTE;
+            case "&&" -> OperationType.ANDB;
+            case "||" -> OperationType.ORB;
+            case "!" -> OperationType.NOTB;
+            default -> throw new RuntimeException("Unknown operator " + op);
+        };
+        return new Operation(operationType, type(ollirType));
+    }
+}
@@ -1,513 +1,772 @@
 package pt.up.fe.comp2023.ollir;
 
+import org.specs.comp.ollir.AccessModifiers;
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.CallInstruction;
+import org.specs.comp.ollir.CallType;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.CondBranchInstruction;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.ElementType;
+import org.specs.comp.ollir.Field;
+import org.specs.comp.ollir.GetFieldInstruction;
+import org.specs.comp.ollir.GotoInstruction;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.OpCondInstruction;
+import org.specs.comp.ollir.OpInstruction;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.PutFieldInstruction;
+import org.specs.comp.ollir.ReturnInstruction;
+import org.specs.comp.ollir.SingleOpCondInstruction;
+import org.specs.comp.ollir.SingleOpInstruction;
+import org.specs.comp.ollir.BinaryOpInstruction;
+import org.specs.comp.ollir.UnaryOpInstruction;
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2023.ast.AKindVisitor;
+import pt.up.fe.comp2023.ast.NodeKind;
+import pt.up.fe.comp2023.table.ResolvedSymbol;
 
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
-import java.util.stream.Collectors;
-
-public class OllirGenerator extends AJmmVisitor<Void, StringBuilder> {
-
-    public final StringBuilder ollirCode;
+import java.util.function.Function;
+
+/**
+ * Builds the OLLIR {@link ClassUnit} of the program, with the instructions the OLLIR parser would build for its code,
+ * which {@link OllirPrinter} prints when it is needed.
+ * <p>
+ * Temporaries are only made for the values OLLIR needs in a variable: the operands of operations, the arguments and
+ * receivers of calls, the values returned and put in fields. The other values are given whole to their assignment,
+ * and the variables and literals are used where they are, e.g. as array indexes. A temporary is free again once the
+ * instruction that uses its value is added, and the next one of the same type takes its name, so a method has as
+ * many as its most nested expression needs, not one per value. The naive lowering, a new temporary for every
+ * value, is kept to measure the difference.
+ */
+public class OllirGenerator extends AKindVisitor<Void, OllirExpr> {
+    // the comparisons and the ones that are true when they are false
+    private static final Map<String, String> COMPARISONS = Map.of("<", ">=", "<=", ">", ">", "<=", ">=", "<");
+
+    public final ClassUnit ollirClass;
     public final SymbolTable symbolTable;
+    private Method method;
+    // the labels of the next instruction
+    private final List<String> labels;
+    private final boolean minimizeTemps;
     private int tempCount;
+    // the temporaries that hold a value no instruction used yet, and the names of the free ones, by their type
+    private final Map<String, String> liveTemps;
+    private final Map<String, Deque<String>> freeTemps;
     private int auxIfLabel;
     private int auxWhileLabel;
-    private HashMap<String,String> tempTypes;
+    private int auxShortCircuitLabel;
+    private int auxConditionLabel;
 
     public OllirGenerator(SymbolTable symbolTable) {
-        this.ollirCode = new StringBuilder();
+        this(symbolTable, true);
+    }
+
+    /**
+     * @param minimizeTemps false for the naive lowering, with a new temporary for every value
+     */
+    public OllirGenerator(SymbolTable symbolTable, boolean minimizeTemps) {
+        this.ollirClass = new ClassUnit();
         this.symbolTable = symbolTable;
+        this.labels = new ArrayList<>();
+        this.minimizeTemps = minimizeTemps;
         this.tempCount = 0;
+        this.liveTemps = new HashMap<>();
+        this.freeTemps = new HashMap<>();
         this.auxIfLabel = 0;
         this.auxWhileLabel = 0;
-        this.tempTypes = new HashMap<>();
+        this.auxShortCircuitLabel = 0;
+        this.auxConditionLabel = 0;
     }
 
     @Override
     protected void buildVisitor() {
-        addVisit("Program", this::dealWithProgram);
-        addVisit("Class", this::dealWithClass);
-        addVisit("MainMethod", this::dealWithMainMethod);
-        addVisit("InstanceMethod", this::dealWithInstanceMethod);
-        addVisit("Assignment", this::dealWithAssignment);
-        addVisit("ArrayAssignment", this::dealWithArrayAssignment);
-        addVisit("NewArray", this::dealWithNewArray);
-        addVisit("ArrayAccess", this::dealWithArrayAccess);
-        addVisit("MemberAccessLength", this::dealWithArrayLength);
-        addVisit("NewObject", this::dealWithNewObject);
-        addVisit("ExpressionStatement", this::dealWithExpressionStatement);
-        addVisit("MethodCall", this::dealWithMethodCall);
-        addVisit("ChainMethods", this::dealWithChainMethods);
-        addVisit("While",this::dealWithWhile);
-        addVisit("If", this::dealWithIf);
-        addVisit("Condition", this::dealWithCondition);
-        addVisit("Block", this::dealWithBlock);
-        addVisit("Else", this::dealWithElse);
-        addVisit("Parentheses", this::dealWithParentheses);
-        addVisit("BinaryOp", this::dealWithBinaryOp);
-        addVisit("Negate", this::dealWithNegate);
-        addVisit("Literal", this::dealWithLeafNode);
-        addVisit("Variable", this::dealWithLeafNode);
-    }
-
-    private StringBuilder dealWithProgram(JmmNode node, Void arg) {
+        addVisit(NodeKind.PROGRAM, this::dealWithProgram);
+        addVisit(NodeKind.CLASS, this::dealWithClass);
+        addVisit(NodeKind.MAIN_METHOD, this::dealWithMainMethod);
+        addVisit(NodeKind.INSTANCE_METHOD, this::dealWithInstanceMethod);
+        addVisit(NodeKind.ASSIGNMENT, this::dealWithAssignment);
+        addVisit(NodeKind.ARRAY_ASSIGNMENT, this::dealWithArrayAssignment);
+        addVisit(NodeKind.NEW_ARRAY, this::dealWithNewArray);
+        addVisit(NodeKind.ARRAY_ACCESS, this::dealWithArrayAccess);
+        addVisit(NodeKind.MEMBER_ACCESS_LENGTH, this::dealWithArrayLength);
+        addVisit(NodeKind.NEW_OBJECT, this::dealWithNewObject);
+        addVisit(NodeKind.EXPRESSION_STATEMENT, this::dealWithExpressionStatement);
+        addVisit(NodeKind.METHOD_CALL, this::dealWithMethodCall);
+        addVisit(NodeKind.WHILE,this::dealWithWhile);
+        addVisit(NodeKind.IF, this::dealWithIf);
+        addVisit(NodeKind.BLOCK, this::dealWithBlock);
+        addVisit(NodeKind.ELSE, this::dealWithElse);
+        addVisit(NodeKind.PARENTHESES, this::dealWithParentheses);
+        addVisit(NodeKind.BINARY_OP, this::dealWithBinaryOp);
+        addVisit(NodeKind.NEGATE, this::dealWithNegate);
+        addVisit(NodeKind.LITERAL, this::dealWithLeafNode);
+        addVisit(NodeKind.VARIABLE, this::dealWithLeafNode);
+    }
+
+    private OllirExpr dealWithProgram(JmmNode node, Void arg) {
         for (var importString : symbolTable.getImports()) {
-            ollirCode.append("import ").append(importString).append(";\n");
+            ollirClass.addImport(importString);
         }
-        ollirCode.append("\n");
         for (var child : node.getChildren()) {
-            if (!child.getKind().equals("Import"))
+            if (NodeKind.of(child) != NodeKind.IMPORT)
                 visit(child);
         }
         return null;
     }
 
-    private StringBuilder dealWithClass(JmmNode node, Void arg) {
+    private OllirExpr dealWithClass(JmmNode node, Void arg) {
         String superClass = symbolTable.getSuper();
 
-        ollirCode.append(symbolTable.getClassName());
+        ollirClass.setClassName(symbolTable.getClassName());
         if (!Objects.equals(superClass, "")
                 && !Objects.equals(superClass, "java.lang.Object"))
-            ollirCode.append(" extends ").append(superClass);
-
-        ollirCode.append("{\n\n");
-
-        List<Symbol> fields = symbolTable.getFields();
-        if (!fields.isEmpty()){
-            for (Symbol field : fields) {
-                ollirCode.append(".field private ");
-                ollirCode.append(OllirUtils.getCode(field));
-                ollirCode.append(";\n");
-            }
+            ollirClass.setSuperClass(superClass);
+
+        for (Symbol symbol : symbolTable.getFields()) {
+            Field field = new Field();
+            field.setFieldAccessModifier(AccessModifiers.PRIVATE);
+            field.setFieldName(symbol.getName());
+            field.setFieldType(OllirFactory.type(OllirUtils.getOllirType(symbol.getType())));
+            ollirClass.addField(field);
         }
 
-        ollirCode.append("\n.construct ").append(symbolTable.getClassName()).append("().V{\n");
-        ollirCode.append("\tinvokespecial(this, \"<init>\").V;\n}\n");
+        startMethod(symbolTable.getClassName(), List.of(), false);
+        method.setConstructMethod();
+        method.setReturnType(OllirFactory.type("V"));
+        addInstruction(invokeSpecial("this", null));
 
         for (var child : node.getChildren()) {
-            if (!child.getKind().equals("Extends") && !child.getKind().equals("Var")) {
+            NodeKind kind = NodeKind.of(child);
+            if (kind != NodeKind.EXTENDS && kind != NodeKind.VAR) {
                 visit(child);
             }
         }
 
-        ollirCode.append("}\n");
-
         return null;
     }
 
-    private StringBuilder dealWithMainMethod(JmmNode node, Void arg) {
+    private OllirExpr dealWithMainMethod(JmmNode node, Void arg) {
 
         String returnType = OllirUtils.getOllirType(symbolTable.getReturnType("main"));
-        String paramCode = symbolTable.getParameters("main")
-                .stream()
-                .map(OllirUtils::getCode)
-                .collect(Collectors.joining(", "));
-
-        ollirCode.append("\n.method public static main(");
-        ollirCode.append(paramCode).append(").");
-        ollirCode.append(returnType);
-        ollirCode.append("{\n");
+        startMethod("main", symbolTable.getParameters("main"), true);
+        method.setMethodAccessModifier(AccessModifiers.PUBLIC);
+        method.setReturnType(OllirFactory.type(returnType));
 
         for (JmmNode child : node.getChildren()) {
-            if (!child.getKind().equals("Var")){
+            if (NodeKind.of(child) != NodeKind.VAR){
                 visit(child);
             }
         }
 
-        ollirCode.append("\n\tret.V;\n");
-        ollirCode.append("}\n\n");
+        ReturnInstruction ret = new ReturnInstruction();
+        ret.setReturnType(OllirFactory.type("V"));
+        addInstruction(ret);
 
         return null;
     }
 
-    private StringBuilder dealWithInstanceMethod(JmmNode node, Void arg) {
+    private OllirExpr dealWithInstanceMethod(JmmNode node, Void arg) {
 
         String returnType = OllirUtils.getOllirType(symbolTable.getReturnType(node.get("id")));
-        String paramCode = symbolTable.getParameters(node.get("id"))
-                .stream()
-                .map(OllirUtils::getCode)
-                .collect(Collectors.joining(", "));
-
-        ollirCode.append("\n.method public ").append(node.get("id"));
-        ollirCode.append("(").append(paramCode).append(").");
-        ollirCode.append(returnType).append("{\n");
+        startMethod(node.get("id"), symbolTable.getParameters(node.get("id")), false);
+        method.setMethodAccessModifier(AccessModifiers.PUBLIC);
+        method.setReturnType(OllirFactory.type(returnType));
 
         for (JmmNode child : node.getChildren()) {
-            if (!child.getKind().equals("ReturnType") && !child.getKind().equals("Var")
-                    && !child.getKind().equals("ReturnObject") && !child.getKind().equals("ArgumentObject"))
+            NodeKind kind = NodeKind.of(child);
+            if (kind != NodeKind.RETURN_TYPE && kind != NodeKind.VAR
+                    && kind != NodeKind.RETURN_OBJECT && kind != NodeKind.ARGUMENT_OBJECT)
                 visit(child);
         }
 
-        StringBuilder returnObject = visit(node.getJmmChild(node.getNumChildren()-1).getJmmChild(0));
-
-        ollirCode.append("\n\tret.").append(returnType).append(" ");
-        ollirCode.append(returnObject).append(".").append(returnType);
-        ollirCode.append(";\n}\n");
+        OllirExpr returnObject = visit(node.getJmmChild(node.getNumChildren()-1).getJmmChild(0));
+        ReturnInstruction ret = new ReturnInstruction(returnObject.toElement(returnType));
+        ret.setReturnType(OllirFactory.type(returnType));
+        addInstruction(ret);
 
         return null;
     }
 
-    private StringBuilder dealWithAssignment(JmmNode node, Void arg) {
+    private OllirExpr dealWithAssignment(JmmNode node, Void arg) {
 
         String lhs = node.get("id");
-        StringBuilder rhs = visit(node.getJmmChild(0));
-        String type = OllirUtils.getOllirType(OllirUtils.getSymbol(node,symbolTable).getType());
+        ResolvedSymbol symbol = OllirUtils.getResolved(node, symbolTable);
+        String type = OllirUtils.getOllirType(symbol.getType());
+
+        if (symbol.getScope() != ResolvedSymbol.Scope.FIELD && isShortCircuit(node.getJmmChild(0))) {
+            assignCondition(lhs, node.getJmmChild(0));
+            return null;
+        }
+
+        OllirExpr rhs = visit(node.getJmmChild(0));
 
-        if (OllirUtils.isLocal(node, symbolTable, OllirUtils.getParentMethod(node)) == null
-            && OllirUtils.isParam(node, symbolTable, OllirUtils.getParentMethod(node)) == null
-            && OllirUtils.isField(node,symbolTable) != null) {
-            ollirCode.append(OllirUtils.putField(node.get("id"),rhs,type));
+        if (symbol.getScope() == ResolvedSymbol.Scope.FIELD) {
+            // putfield takes an operand, the calls and field reads give their instruction to any assignment
+            if (!rhs.isOperand()) {
+                String temp = createTemp(type);
+                addInstruction(assign(temp, type, rhs.toInstruction(type)));
+                rhs = OllirExpr.operand(temp);
+            }
+            addInstruction(new PutFieldInstruction(OllirFactory.receiver("this", null, ollirClass.getClassName()),
+                    OllirFactory.variable(lhs, type), rhs.toElement(type), OllirFactory.type("V")));
             return null;
         }
 
-        ollirCode.append("\t");
-        ollirCode.append(lhs).append(".").append(type);
-        ollirCode.append(" :=.").append(type).append(" ");
-        ollirCode.append(rhs);
-        if (!node.getJmmChild(0).getKind().equals("BinaryOp"))
-            ollirCode.append(".").append(type);
-        ollirCode.append(";\n");
+        addInstruction(assign(lhs, type, rhs.toInstruction(type)));
+        // the new object is put in the variable, which is then initialized, instead of a temporary
+        if (!rhs.isOperand() && NodeKind.of(node.getJmmChild(0)) == NodeKind.NEW_OBJECT)
+            addInstruction(invokeSpecial(lhs, node.getJmmChild(0).get("id")));
 
         return null;
     }
 
-    private StringBuilder dealWithArrayAssignment(JmmNode node, Void arg){
-        StringBuilder arrayAccess = visit(node.getJmmChild(0));
-        StringBuilder rhs = visit(node.getJmmChild(1));
-        String temp = createTemp();
-        ollirCode.append("\t").append(temp).append(".i32 ");
-        ollirCode.append(":=.i32 ").append(arrayAccess).append(".i32").append(";\n");
-        ollirCode.append("\t").append(node.get("id")).append("[").append(temp).append(".i32").append("].i32 ");
-        ollirCode.append(":=.i32 ").append(rhs).append(".i32;\n");
+    private OllirExpr dealWithArrayAssignment(JmmNode node, Void arg){
+        OllirExpr arrayAccess = visit(node.getJmmChild(0));
+        String index = toIndex(arrayAccess);
+        OllirExpr rhs = visit(node.getJmmChild(1));
+        addInstruction(new AssignInstruction(OllirFactory.arrayElement(node.get("id"), index, "i32"),
+                OllirFactory.type("i32"), rhs.toInstruction("i32")));
 
         return null;
     }
 
-    private StringBuilder dealWithNewArray(JmmNode node, Void arg){
+    private OllirExpr dealWithNewArray(JmmNode node, Void arg){
         var rhs = visit(node.getJmmChild(0));
-        String temp = createTemp();
-        ollirCode.append("\t").append(temp).append(".i32").append(" ");
-        ollirCode.append(":=.i32").append(" ");
-        ollirCode.append(rhs).append(".i32").append(";\n");
+        String size = toIndex(rhs);
 
-        return new StringBuilder("new(array, " + temp + ".i32)");
+        return OllirExpr.instruction(type -> new CallInstruction(CallType.NEW, OllirFactory.newTarget("array"),
+                new ArrayList<>(List.of(OllirFactory.operand(size, "i32"))), OllirFactory.type(type)));
     }
 
-    private StringBuilder dealWithArrayAccess(JmmNode node, Void arg){
-        String temp1 = createTemp();
-        StringBuilder variable = visit(node.getJmmChild(0));
-        StringBuilder arrayAccess = visit(node.getJmmChild(1));
-        ollirCode.append("\t").append(temp1).append(".i32 ");
-        ollirCode.append(":=.i32 ").append(arrayAccess).append(".i32").append(";\n");
-        String temp2 = createTemp();
-        ollirCode.append("\t").append(temp2).append(".i32 :=.i32 ").append(variable).append("[").append(temp1).append(".i32").append("].i32;\n");
-        return new StringBuilder(temp2);
+    private OllirExpr dealWithArrayAccess(JmmNode node, Void arg){
+        OllirExpr variable = visit(node.getJmmChild(0));
+        OllirExpr arrayAccess = visit(node.getJmmChild(1));
+        String index = toIndex(arrayAccess);
+        String array = variable.getOperand();
+        if (takesInstruction(node))
+            return OllirExpr.instruction(type -> new SingleOpInstruction(OllirFactory.arrayElement(array, index, type)));
+
+        String temp = createTemp("i32");
+        addInstruction(assign(temp, "i32", new SingleOpInstruction(OllirFactory.arrayElement(array, index, "i32"))));
+        return OllirExpr.operand(temp);
     }
 
-    private StringBuilder dealWithArrayLength(JmmNode node, Void arg){
-        String temp = createTemp();
-        StringBuilder variable = visit(node.getJmmChild(0));
-        ollirCode.append("\t").append(temp).append(".i32 :=.i32 ");
-        ollirCode.append("arraylength(").append(variable).append(".array.i32).i32;\n");
-        tempTypes.put(temp,".i32");
-        return new StringBuilder(temp);
+    private OllirExpr dealWithArrayLength(JmmNode node, Void arg){
+        OllirExpr variable = visit(node.getJmmChild(0));
+        Element array = variable.toElement("array.i32");
+        if (takesInstruction(node))
+            return OllirExpr.instruction(type -> new CallInstruction(CallType.arraylength, array, OllirFactory.type(type)));
+
+        String temp = createTemp("i32");
+        addInstruction(assign(temp, "i32", new CallInstruction(CallType.arraylength, array, OllirFactory.type("i32"))));
+        return OllirExpr.operand(temp);
     }
 
-    private StringBuilder dealWithNewObject(JmmNode node, Void arg) {
+    private OllirExpr dealWithNewObject(JmmNode node, Void arg) {
         Symbol fieldSymbol = OllirUtils.isField(node.getJmmParent(), symbolTable);
-        if (fieldSymbol != null || node.getJmmParent().getKind().equals("ChainMethods")
-                || node.getJmmParent().getKind().equals("Assignment") || node.getJmmParent().getKind().equals("MethodCall")
-                || node.getJmmParent().getKind().equals("Parentheses")){
-            var type = node.get("id");
-            String temp = createTemp();
-            ollirCode.append("\t").append(temp).append(".").append(type).append(" ");
-            ollirCode.append(":=.").append(type).append(" ");
-            ollirCode.append("new(").append(node.get("id")).append(").").append(type).append(";\n");
-            ollirCode.append(OllirUtils.invokeSpecial(temp,type));
-            tempTypes.put(temp,type);
-            return new StringBuilder(temp);
+        NodeKind parentKind = NodeKind.of(node.getJmmParent());
+        String id = node.get("id");
+        // the assignment initializes the variable it puts the object in
+        if (isAssignedToVariable(node))
+            return OllirExpr.instruction(type -> new CallInstruction(CallType.NEW, OllirFactory.newTarget(id),
+                    new ArrayList<>(), OllirFactory.type(type)));
+        if (fieldSymbol != null || parentKind == NodeKind.CHAIN_METHODS
+                || parentKind == NodeKind.ASSIGNMENT || parentKind == NodeKind.METHOD_CALL
+                || parentKind == NodeKind.PARENTHESES){
+            String temp = createTemp(id);
+            addInstruction(assign(temp, id, new CallInstruction(CallType.NEW, OllirFactory.newTarget(id),
+                    new ArrayList<>(), OllirFactory.type(id))));
+            addInstruction(invokeSpecial(temp, id));
+            return OllirExpr.operand(temp);
         }
-        return new StringBuilder("new("+node.get("id")+")");
+        return OllirExpr.instruction(type -> new CallInstruction(CallType.NEW, OllirFactory.newTarget(id),
+                new ArrayList<>(), OllirFactory.type(type)));
     }
 
-    private StringBuilder dealWithExpressionStatement(JmmNode node, Void arg){
-        ollirCode.append(visit(node.getJmmChild(0)));
+    private OllirExpr dealWithExpressionStatement(JmmNode node, Void arg){
+        // the calls add their own instruction, the other expressions have no instruction of their own
+        if (NodeKind.of(node.getJmmChild(0)) != NodeKind.METHOD_CALL)
+            throw new RuntimeException("Expected a method call in the expression statement, found "
+                    + node.getJmmChild(0).getKind());
+        visit(node.getJmmChild(0));
         return null;
     }
 
-    private StringBuilder dealWithMethodCall(JmmNode node, Void arg) {
+    private OllirExpr dealWithMethodCall(JmmNode node, Void arg) {
 
-        StringBuilder methodInvokeString = visit(node.getJmmChild(0));
-        StringBuilder result = new StringBuilder();
-        var grandChild = node.getJmmChild(0).getJmmChild(0).getKind().equals("Parentheses") ? node.getJmmChild(0).getJmmChild(0).getJmmChild(0):node.getJmmChild(0).getJmmChild(0);
-        Symbol symbol = OllirUtils.getSymbol(grandChild,symbolTable);
+        JmmNode chain = node.getJmmChild(0);
+        var grandChild = NodeKind.of(chain.getJmmChild(0)) == NodeKind.PARENTHESES ? chain.getJmmChild(0).getJmmChild(0) : chain.getJmmChild(0);
+        String receiverType = getReceiverType(grandChild);
+        String receiver = visit(grandChild).getOperand();
+        String methodName = chain.get("id");
         String methodType = "";
-        String type = "";
-        String temp = "";
-        StringBuilder params = new StringBuilder();
+        ArrayList<Element> params = new ArrayList<>();
+        Function<String, Instruction> call;
 
-        if (symbol != null || grandChild.getKind().equals("NewObject")){
+        // only the objects have a type, the names of the imported classes do not
+        if (OllirUtils.getType(grandChild) != null || NodeKind.of(grandChild) == NodeKind.NEW_OBJECT){
 
-            if (symbolTable.getMethods().contains(node.getJmmChild(0).get("id"))){
-                methodType = OllirUtils.getOllirType(symbolTable.getReturnType(node.getJmmChild(0).get("id")));
+            if (symbolTable.getMethods().contains(methodName)){
+                methodType = OllirUtils.getOllirType(symbolTable.getReturnType(methodName));
                 params = joinParamsWithTypes(node,symbolTable);
             }
-            if (params.isEmpty())
-                result.append("\tinvokevirtual(").append(methodInvokeString).append(")");
-            else
-                result.append("\tinvokevirtual(").append(methodInvokeString).append(", ").append(params).append(")");
+            Operand firstArg = OllirFactory.receiver(receiver, receiverType, ollirClass.getClassName());
+            ArrayList<Element> args = params;
+            call = type -> new CallInstruction(CallType.invokevirtual, firstArg, OllirFactory.methodName(methodName),
+                    args, OllirFactory.type(type));
         }
         else{
             var values = node.getChildren();
             values.remove(0);
             for (var child : values) {
-                if (child.getKind().equals("Variable")) {
-                    symbol = OllirUtils.getSymbol(child, symbolTable);
-                    if (symbol != null)
-                        type = OllirUtils.getOllirType(symbol.getType());
-                }
-                else if (child.getKind().equals("Literal"))
-                    type = OllirUtils.getLiteralType(child.get("value"));
-                else if (child.getKind().equals("MethodCall"))
-                    type = OllirUtils.getOllirType(symbolTable.getReturnType(child.getJmmChild(0).get("id")));
-                else if (child.getKind().equals("NewObject"))
-                    type = child.get("id");
-                else if (child.getKind().equals("BinaryOp") || child.getKind().equals("MemberAccessLength")){
-                    temp = visit(child).toString();
-                    type = tempTypes.get(temp).substring(1);
-                }
-                else if (child.getKind().equals("Negate"))
-                    type = "bool";
-                else if (child.getKind().equals("ArrayAccess"))
-                    type = "i32";
-                else
-                    type = "V";
-
-                params.append(child.getKind().equals("MemberAccessLength") ? temp : visit(child)).append(".").append(type).append(",");
+                String type = OllirUtils.getOllirType(child);
+                params.add(visit(child).toElement(type == null ? "V" : type));
             }
-            if (params.length() > 0 && params.charAt(params.length() - 1) == ',') {
-                params.deleteCharAt(params.length() - 1);
-                result.append("\tinvokestatic(").append(methodInvokeString).append(", ").append(params).append(")");
-            }
-            else
-                result.append("\tinvokestatic(").append(methodInvokeString).append(")");
+            Operand firstArg = OllirFactory.staticReceiver(receiver, ollirClass.getClassName());
+            ArrayList<Element> args = params;
+            call = type -> new CallInstruction(CallType.invokestatic, firstArg, OllirFactory.methodName(methodName),
+                    args, OllirFactory.type(type));
         }
 
-        if(!node.getJmmParent().getKind().equals("ExpressionStatement") && !node.getJmmParent().getKind().equals("Assignment")){
+        NodeKind parentKind = NodeKind.of(node.getJmmParent());
+        if(parentKind != NodeKind.EXPRESSION_STATEMENT && consumerKind(node) != NodeKind.ASSIGNMENT){
+            // the type of a call to an imported method is the one its context expects
             if (methodType.equals(""))
+                methodType = OllirUtils.getOllirType(node);
+            if (methodType == null)
                 methodType = OllirUtils.getParentType(node,symbolTable);
-            temp = createTemp();
-            ollirCode.append("\t").append(temp).append(".").append(methodType).append(" :=").append(".").append(methodType);
-            ollirCode.append(" ").append(result).append(".").append(methodType).append(";\n");
-            tempTypes.put(temp,type);
-            return new StringBuilder(temp);
+            String temp = createTemp(methodType);
+            addInstruction(assign(temp, methodType, call.apply(methodType)));
+            return OllirExpr.operand(temp);
         }
-        if(node.getJmmParent().getKind().equals("ExpressionStatement")){
-            if (methodType.isEmpty())
-                result.append(".V;\n");
-            else
-                result.append(".").append(methodType).append(";\n");
+        if(parentKind == NodeKind.EXPRESSION_STATEMENT){
+            addInstruction(call.apply(methodType.isEmpty() ? "V" : methodType));
+            return null;
         }
 
-        return result;
+        return OllirExpr.instruction(call);
     }
 
-    private StringBuilder dealWithChainMethods(JmmNode node, Void arg) {
-        String type = "";
-        JmmNode src = node.getJmmChild(0).getKind().equals("Parentheses") ? node.getJmmChild(0).getJmmChild(0) : node.getJmmChild(0);
-
-        if (src.getKind().equals("Variable") && OllirUtils.isImport(src,symbolTable) == null){
-            type = OllirUtils.getOllirType(OllirUtils.getSymbol(src,symbolTable).getType());
-        }
-        else if (src.getKind().equals("NewObject"))
-            type = src.get("id");
-
-        StringBuilder variable = visit(src);
-        String methodInvokeString;
-        if (Objects.equals(type, "")) {
-            methodInvokeString = variable.toString() + ", " + "\"" + node.get("id") + "\"";
-        } else
-            methodInvokeString = variable.toString() + "." + type + ", " + "\"" + node.get("id") + "\"";
-
-        return new StringBuilder(methodInvokeString);
+    /**
+     * @return the type of the object a method is invoked on, or "" for the imported classes and this
+     */
+    private String getReceiverType(JmmNode src) {
+        // the variables that name imported classes have no type
+        if (NodeKind.of(src) == NodeKind.VARIABLE && OllirUtils.getOllirType(src) != null)
+            return OllirUtils.getOllirType(src);
+        if (NodeKind.of(src) == NodeKind.NEW_OBJECT)
+            return src.get("id");
+        return "";
     }
 
-    private StringBuilder dealWithWhile(JmmNode node, Void arg) {
-        StringBuilder condition = visit(node.getJmmChild(0));
+    private OllirExpr dealWithWhile(JmmNode node, Void arg) {
+        JmmNode condition = node.getJmmChild(0).getJmmChild(0);
         int currentLabel = ++auxWhileLabel;
 
-        ollirCode.append("\nif (").append(condition).append(")").append(" goto While").append(currentLabel).append(";\n");
-        ollirCode.append("goto EndWhile").append(currentLabel).append(";\n");
-        ollirCode.append("While").append(currentLabel).append(":\n");
+        // the condition is tested before the first iteration and then at the end of each one
+        branch(condition, false, "EndWhile" + currentLabel);
+        labels.add("While" + currentLabel);
 
         visit(node.getJmmChild(1));
 
-        condition = visit(node.getJmmChild(0));
-        ollirCode.append("\nif (").append(condition).append(")").append(" goto While").append(currentLabel).append(";\n");
-        ollirCode.append("EndWhile").append(currentLabel).append(":\n");
+        branch(condition, true, "While" + currentLabel);
+        labels.add("EndWhile" + currentLabel);
         return null;
     }
 
-    private StringBuilder dealWithIf(JmmNode node, Void arg) {
+    private OllirExpr dealWithIf(JmmNode node, Void arg) {
         List<JmmNode> children = node.getChildren();
+        JmmNode condition = node.getJmmChild(0).getJmmChild(0);
         int currentLabel = ++auxIfLabel;
 
-        children.remove(0);
-        ollirCode.append("\nif (").append(visit(node.getJmmChild(0))).append(")");
-
-        if (children.get(children.size()-1).getKind().equals("Else")) {
-            ollirCode.append(" goto Then").append(currentLabel).append(";\n");
-            ollirCode.append("goto Else").append(currentLabel).append(";\n");
-            ollirCode.append("Then").append(currentLabel).append(":\n");
+        if (NodeKind.of(children.get(children.size()-1)) == NodeKind.ELSE) {
+            branch(condition, false, "Else" + currentLabel);
             visit(node.getJmmChild(1));
-            ollirCode.append("goto EndIf").append(currentLabel).append(";\n");
+            addInstruction(new GotoInstruction("EndIf" + currentLabel));
+            // the label is placed here, the then branch may have nested ifs that changed auxIfLabel
+            labels.add("Else" + currentLabel);
             visit(node.getJmmChild(2));
         }
         else {
-            ollirCode.append(" goto EndIf").append(currentLabel).append(";\n");
+            branch(condition, false, "EndIf" + currentLabel);
             visit(node.getJmmChild(1));
         }
 
-        ollirCode.append("EndIf").append(currentLabel).append(":\n");
+        labels.add("EndIf" + currentLabel);
         return null;
     }
 
-    private StringBuilder dealWithCondition(JmmNode node, Void arg) {
-        StringBuilder condition = visit(node.getJmmChild(0));
-
-        if (!node.getJmmChild(0).getKind().equals("BinaryOp")){
-            String type = OllirUtils.getOllirType(OllirUtils.getSymbol(node.getJmmChild(0),symbolTable).getType());
-            return new StringBuilder(condition+"."+type);
-        }
-
-        return new StringBuilder(condition);
-    }
-
-    private StringBuilder dealWithElse(JmmNode node, Void arg) {
+    private OllirExpr dealWithElse(JmmNode node, Void arg) {
         List<JmmNode> children = node.getChildren();
 
-        ollirCode.append("Else").append(auxIfLabel).append(":\n");
         for (var child : children){
             visit(child);
         }
         return null;
     }
 
-    private StringBuilder dealWithBlock(JmmNode node, Void arg){
+    private OllirExpr dealWithBlock(JmmNode node, Void arg){
         for (var child : node.getChildren())
             visit(child);
         return null;
     }
 
-    private StringBuilder dealWithParentheses(JmmNode node, Void arg) {
+    private OllirExpr dealWithParentheses(JmmNode node, Void arg) {
         return visit(node.getJmmChild(0));
     }
 
-    private StringBuilder dealWithBinaryOp(JmmNode node, Void arg) {
+    private OllirExpr dealWithBinaryOp(JmmNode node, Void arg) {
+
+        String op = node.get("op");
+        if (isShortCircuit(node)) {
+            String temp = createTemp("bool");
+            assignCondition(temp, node);
+            return OllirExpr.operand(temp);
+        }
 
-        StringBuilder lhs = visit(node.getJmmChild(0));
-        StringBuilder rhs = visit(node.getJmmChild(1));
+        OllirExpr lhs = visit(node.getJmmChild(0));
+        OllirExpr rhs = visit(node.getJmmChild(1));
 
-        String op = OllirUtils.getOllirOperator(node);
         String typeOp = OllirUtils.getTypeOperator(node);
         String typeOperands = OllirUtils.getTypeOperands(node);
 
-        if ((!node.getJmmParent().getKind().equals("Assignment")
-            && !node.getJmmParent().getKind().equals("Condition"))
-            || OllirUtils.isField(node.getJmmParent(),symbolTable) != null){
-
-            String temp = createTemp();
-            ollirCode.append("\t").append(temp).append(typeOp).append(":=").append(typeOp);
-            ollirCode.append(lhs).append(typeOperands);
-            ollirCode.append(op);
-            ollirCode.append(rhs).append(typeOperands).append(";\n");
-            tempTypes.put(temp,typeOp);
-            return new StringBuilder(temp);
+        if (needsTemp(node)){
+
+            String temp = createTemp(typeOp);
+            addInstruction(assign(temp, typeOp, new BinaryOpInstruction(lhs.toElement(typeOperands),
+                    OllirFactory.operation(op, typeOp), rhs.toElement(typeOperands))));
+            return OllirExpr.operand(temp);
         }
 
-        return new StringBuilder(lhs + typeOperands + op + rhs + typeOperands);
+        return OllirExpr.instruction(ignored -> new BinaryOpInstruction(lhs.toElement(typeOperands),
+                OllirFactory.operation(op, typeOp), rhs.toElement(typeOperands)));
     }
 
-    private StringBuilder dealWithNegate(JmmNode node, Void arg) {
+    private OllirExpr dealWithNegate(JmmNode node, Void arg) {
         var child = visit(node.getJmmChild(0));
-        if ((!node.getJmmParent().getKind().equals("Assignment")
-                && !node.getJmmParent().getKind().equals("Condition"))
-                || OllirUtils.isField(node.getJmmParent(),symbolTable) != null){
-
-            String temp = createTemp();
-            ollirCode.append("\t").append(temp).append(".bool :=.bool !.bool ").append(child).append(".bool;\n");
-            tempTypes.put(temp,"bool");
-            return new StringBuilder(temp);
+        if (needsTemp(node)){
+
+            String temp = createTemp("bool");
+            addInstruction(assign(temp, "bool",
+                    new UnaryOpInstruction(OllirFactory.operation("!", "bool"), child.toElement("bool"))));
+            return OllirExpr.operand(temp);
         }
-        return new StringBuilder("!.bool " + child);
+        return OllirExpr.instruction(type ->
+                new UnaryOpInstruction(OllirFactory.operation("!", "bool"), child.toElement(type)));
     }
 
-    private StringBuilder dealWithLeafNode(JmmNode node, Void arg) {
-        if (Objects.equals(node.getKind(), "Literal")){
+    private OllirExpr dealWithLeafNode(JmmNode node, Void arg) {
+        if (NodeKind.of(node) == NodeKind.LITERAL){
             return switch (node.get("value")) {
-                case "true" -> new StringBuilder("1");
-                case "false" -> new StringBuilder("0");
-                default -> new StringBuilder(node.get("value"));
+                case "true" -> OllirExpr.operand("1");
+                case "false" -> OllirExpr.operand("0");
+                default -> OllirExpr.operand(node.get("value"));
             };
         }
 
-        Symbol fieldSymbol = OllirUtils.isField(node, symbolTable);
-        String parentMethod = OllirUtils.getParentMethod(node);
-        Symbol paramSymbol = OllirUtils.isParam(node, symbolTable, parentMethod);
-        Symbol localSymbol = OllirUtils.isLocal(node, symbolTable, parentMethod);
-
-        if (Objects.equals(node.getKind(), "Variable")){
-            if (localSymbol != null){
-                return new StringBuilder(node.get("id"));
+        if (NodeKind.of(node) == NodeKind.VARIABLE){
+            ResolvedSymbol symbol = OllirUtils.getResolved(node, symbolTable);
+            if (symbol == null || symbol.getScope() == ResolvedSymbol.Scope.LOCAL){
+                return OllirExpr.operand(node.get("id"));
             }
-            else if (paramSymbol != null){
-                int index = symbolTable.getParameters(parentMethod).indexOf(paramSymbol)+1;
-                return new StringBuilder("$" + index + "." + node.get("id"));
+            else if (symbol.getScope() == ResolvedSymbol.Scope.PARAMETER){
+                return OllirExpr.operand("$" + symbol.getParameterIndex() + "." + node.get("id"));
             }
-            else if (fieldSymbol != null){
-                String type = OllirUtils.getOllirType(fieldSymbol.getType());
-                if (node.getJmmParent().getKind().equals("Assignment"))
-                    return new StringBuilder("getfield(this, " + node.get("id") + "." + type + ")");
+            else {
+                String type = OllirUtils.getOllirType(symbol.getType());
+                if (NodeKind.of(node.getJmmParent()) == NodeKind.ASSIGNMENT)
+                    return OllirExpr.instruction(fieldType -> getField(node.get("id"), type, fieldType));
                 else{
-                    String temp = createTemp();
-                    ollirCode.append("\t").append(temp).append(".").append(type);
-                    ollirCode.append(" :=.").append(type).append(" ");
-                    ollirCode.append(OllirUtils.getField(node,type));
-                    tempTypes.put(temp,type);
-                    return new StringBuilder(temp);
+                    String temp = createTemp(type);
+                    addInstruction(assign(temp, type, getField(node.get("id"), type, type)));
+                    return OllirExpr.operand(temp);
                 }
             }
-            else
-                return new StringBuilder(node.get("id"));
         }
         return null;
     }
 
-    private String createTemp() {
-        return "t" + tempCount++;
+    /**
+     * @return a temporary for a value of the type, a free one if there is one
+     */
+    private String createTemp(String type) {
+        Deque<String> free = freeTemps.get(type);
+        String temp = free == null || free.isEmpty() ? "t" + tempCount++ : free.pop();
+        if (minimizeTemps)
+            liveTemps.put(temp, type);
+        return temp;
+    }
+
+    /**
+     * @return the operand of an array index or size: the variable or literal itself, a temporary if it is computed
+     */
+    private String toIndex(OllirExpr expr) {
+        if (minimizeTemps && expr.isOperand())
+            return expr.getOperand();
+        String temp = createTemp("i32");
+        addInstruction(assign(temp, "i32", expr.toInstruction("i32")));
+        return temp;
+    }
+
+    /**
+     * @return the node that takes the value of the expression, past the parentheses around it, which the naive
+     * lowering does not look past
+     */
+    private JmmNode getConsumer(JmmNode node) {
+        JmmNode parent = node.getJmmParent();
+        while (minimizeTemps && NodeKind.of(parent) == NodeKind.PARENTHESES)
+            parent = parent.getJmmParent();
+        return parent;
+    }
+
+    private NodeKind consumerKind(JmmNode node) {
+        return NodeKind.of(getConsumer(node));
+    }
+
+    /**
+     * @return whether the operation must put its value in a temporary, as the operand of another instruction. The
+     * assignments to variables and to array elements take the operation itself.
+     */
+    private boolean needsTemp(JmmNode node) {
+        NodeKind consumerKind = consumerKind(node);
+        if (minimizeTemps && consumerKind == NodeKind.ARRAY_ASSIGNMENT)
+            return false;
+        return consumerKind != NodeKind.ASSIGNMENT || OllirUtils.isField(getConsumer(node), symbolTable) != null;
+    }
+
+    /**
+     * @return whether the value of the expression is assigned to a local variable or a parameter, which takes any
+     * instruction, where a field takes only an operand
+     */
+    private boolean isAssignedToVariable(JmmNode node) {
+        if (!minimizeTemps || NodeKind.of(node.getJmmParent()) != NodeKind.ASSIGNMENT)
+            return false;
+        ResolvedSymbol symbol = OllirUtils.getResolved(node.getJmmParent(), symbolTable);
+        return symbol != null && symbol.getScope() != ResolvedSymbol.Scope.FIELD;
+    }
+
+    /**
+     * @return whether the value of the expression is assigned to a variable or to an element of an array
+     */
+    private boolean takesInstruction(JmmNode node) {
+        return isAssignedToVariable(node)
+                || minimizeTemps && NodeKind.of(node.getJmmParent()) == NodeKind.ARRAY_ASSIGNMENT;
+    }
+
+    private void startMethod(String name, List<Symbol> parameters, boolean isStatic) {
+        method = new Method(ollirClass);
+        method.setMethodName(name);
+        if (isStatic)
+            method.setStaticMethod();
+        ollirClass.addMethod(method);
+        // the temporaries are numbered in each method
+        if (minimizeTemps) {
+            tempCount = 0;
+            liveTemps.clear();
+            freeTemps.clear();
+        }
+        // the parameters are numbered from 1, the static methods have no this before them
+        int paramId = isStatic ? 0 : 1;
+        for (Symbol parameter : parameters) {
+            Operand param = new Operand(parameter.getName(),
+                    OllirFactory.type(OllirUtils.getOllirType(parameter.getType())));
+            param.setParamId(paramId++);
+            method.addParam(param);
+        }
+    }
+
+    private void addInstruction(Instruction instruction) {
+        for (String label : labels) {
+            method.addLabel(label, instruction);
+        }
+        labels.clear();
+        method.addInstr(instruction);
+        if (!liveTemps.isEmpty())
+            freeUsedTemps(instruction);
+    }
+
+    /**
+     * Frees the temporaries whose value the instruction uses, each value is used once. The new objects are used by
+     * their initialization too, which does not free them.
+     */
+    private void freeUsedTemps(Instruction instruction) {
+        switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+                if (assign.getDest() instanceof ArrayOperand array)
+                    array.getIndexOperands().forEach(this::freeTemp);
+                freeUsedTemps(assign.getRhs());
+            }
+            case CALL -> {
+                CallInstruction call = (CallInstruction) instruction;
+                if (call.getInvocationType() != CallType.invokespecial)
+                    freeTemp(call.getFirstArg());
+                if (call.getListOfOperands() != null)
+                    call.getListOfOperands().forEach(this::freeTemp);
+            }
+            case BRANCH -> ((CondBranchInstruction) instruction).getOperands().forEach(this::freeTemp);
+            case RETURN -> {
+                ReturnInstruction ret = (ReturnInstruction) instruction;
+                if (ret.hasReturnValue())
+                    freeTemp(ret.getOperand());
+            }
+            case PUTFIELD -> freeTemp(((PutFieldInstruction) instruction).getThirdOperand());
+            case UNARYOPER -> freeTemp(((UnaryOpInstruction) instruction).getOperand());
+            case BINARYOPER -> ((BinaryOpInstruction) instruction).getOperands().forEach(this::freeTemp);
+            case NOPER -> freeTemp(((SingleOpInstruction) instruction).getSingleOperand());
+            default -> {
+            }
+        }
+    }
+
+    private void freeTemp(Element element) {
+        if (element instanceof ArrayOperand array)
+            array.getIndexOperands().forEach(this::freeTemp);
+        if (!(element instanceof Operand operand) || operand.isParameter())
+            return;
+        String type = liveTemps.remove(operand.getName());
+        if (type != null)
+            freeTemps.computeIfAbsent(type, key -> new ArrayDeque<>()).push(operand.getName());
+    }
+
+    private static AssignInstruction assign(String variable, String type, Instruction value) {
+        return new AssignInstruction(OllirFactory.variable(variable, type), OllirFactory.type(type), value);
     }
 
-    private StringBuilder joinParamsWithTypes(JmmNode node, SymbolTable symbolTable){
-        StringBuilder params = new StringBuilder();
+    private CallInstruction invokeSpecial(String variable, String type) {
+        return new CallInstruction(CallType.invokespecial,
+                OllirFactory.receiver(variable, type, ollirClass.getClassName()), OllirFactory.methodName("<init>"),
+                new ArrayList<>(), OllirFactory.type("V"));
+    }
+
+    private GetFieldInstruction getField(String field, String type, String valueType) {
+        return new GetFieldInstruction(OllirFactory.receiver("this", null, ollirClass.getClassName()),
+                OllirFactory.variable(field, type), OllirFactory.type(valueType));
+    }
+
+    /**
+     * Adds the instructions that jump to the label when the condition has the given value, and go on to the next
+     * instruction when it does not. The right side of && and || is only evaluated when the left side does not decide
+     * the result, the comparisons jump on their own and the negations only change the value jumped on, so a
+     * condition never has its boolean value computed and then tested.
+     */
+    private void branch(JmmNode condition, boolean jumpIf, String label) {
+        NodeKind kind = NodeKind.of(condition);
+        if (kind == NodeKind.PARENTHESES) {
+            branch(condition.getJmmChild(0), jumpIf, label);
+            return;
+        }
+        if (kind == NodeKind.NEGATE) {
+            branch(condition.getJmmChild(0), !jumpIf, label);
+            return;
+        }
+
+        if (kind == NodeKind.BINARY_OP && (condition.get("op").equals("&&") || condition.get("op").equals("||"))) {
+            // the left side decides the result of && when it is false, and of || when it is true
+            boolean decides = condition.get("op").equals("||");
+            if (jumpIf == decides) {
+                branch(condition.getJmmChild(0), decides, label);
+                branch(condition.getJmmChild(1), jumpIf, label);
+            }
+            else {
+                String next = "ShortCircuit" + ++auxShortCircuitLabel;
+                branch(condition.getJmmChild(0), decides, next);
+                branch(condition.getJmmChild(1), jumpIf, label);
+                labels.add(next);
+            }
+            return;
+        }
+
+        if (kind == NodeKind.BINARY_OP && COMPARISONS.containsKey(condition.get("op"))) {
+            OllirExpr lhs = visit(condition.getJmmChild(0));
+            OllirExpr rhs = visit(condition.getJmmChild(1));
+            String op = jumpIf ? condition.get("op") : COMPARISONS.get(condition.get("op"));
+            addInstruction(branch(new BinaryOpInstruction(lhs.toElement("i32"), OllirFactory.operation(op, "bool"),
+                    rhs.toElement("i32")), label));
+            return;
+        }
+
+        OllirExpr value = visit(condition);
+        addInstruction(branch(jumpIf ? value.toInstruction("bool")
+                : new UnaryOpInstruction(OllirFactory.operation("!", "bool"), value.toElement("bool")), label));
+    }
+
+    /**
+     * Assigns the value of a condition with && or || to the variable, 1 or 0 depending on where it jumps to.
+     */
+    private void assignCondition(String variable, JmmNode condition) {
+        int currentLabel = ++auxConditionLabel;
+        branch(condition, false, "False" + currentLabel);
+        addInstruction(assign(variable, "bool", new SingleOpInstruction(OllirFactory.operand("1", "bool"))));
+        addInstruction(new GotoInstruction("EndCondition" + currentLabel));
+        labels.add("False" + currentLabel);
+        addInstruction(assign(variable, "bool", new SingleOpInstruction(OllirFactory.operand("0", "bool"))));
+        labels.add("EndCondition" + currentLabel);
+    }
+
+    /**
+     * @return whether the value of the expression is computed by jumps: it is an && or an ||, in parentheses or
+     * negated, whose right side may call a method or needs instructions of its own. A variable or a literal on the
+     * right side gives the same value in the operation itself, which needs no jumps.
+     */
+    private boolean isShortCircuit(JmmNode node) {
+        while (NodeKind.of(node) == NodeKind.PARENTHESES || NodeKind.of(node) == NodeKind.NEGATE)
+            node = node.getJmmChild(0);
+        if (NodeKind.of(node) != NodeKind.BINARY_OP || !(node.get("op").equals("&&") || node.get("op").equals("||")))
+            return false;
+
+        JmmNode right = node.getJmmChild(1);
+        while (NodeKind.of(right) == NodeKind.PARENTHESES)
+            right = right.getJmmChild(0);
+        if (NodeKind.of(right) == NodeKind.LITERAL)
+            return false;
+        if (NodeKind.of(right) != NodeKind.VARIABLE)
+            return true;
+        ResolvedSymbol symbol = OllirUtils.getResolved(right, symbolTable);
+        return symbol != null && symbol.getScope() == ResolvedSymbol.Scope.FIELD;
+    }
+
+    /**
+     * @return the instruction that jumps to the label if the condition is true, which must be a boolean operand or
+     * operation, as the OLLIR parser requires
+     */
+    private static CondBranchInstruction branch(Instruction instruction, String label) {
+        CondBranchInstruction branch;
+        if (instruction instanceof SingleOpInstruction single
+                && single.getSingleOperand().getType().getTypeOfElement() == ElementType.BOOLEAN)
+            branch = new SingleOpCondInstruction(single);
+        else if (instruction instanceof OpInstruction op
+                && op.getOperation().getTypeInfo().getTypeOfElement() == ElementType.BOOLEAN)
+            branch = new OpCondInstruction(op);
+        else
+            throw new RuntimeException("Found invalid expression in 'if' condition: " + instruction);
+        branch.setLabel(label);
+        return branch;
+    }
+
+    private ArrayList<Element> joinParamsWithTypes(JmmNode node, SymbolTable symbolTable){
+        ArrayList<Element> params = new ArrayList<>();
         List<JmmNode> values = node.getChildren();
         values.remove(0);
         Iterator<JmmNode> iter1 = values.iterator();
         Iterator<Symbol> iter2 = symbolTable.getParameters(node.getJmmChild(0).get("id")).iterator();
 
         while (iter1.hasNext() && iter2.hasNext()) {
-            params.append(visit(iter1.next()).toString());
-            params.append(".");
-            params.append(OllirUtils.getOllirType(iter2.next().getType()));
-            params.append(",");
-        }
-        if (params.length() > 0 && params.charAt(params.length() - 1) == ',') {
-            params.deleteCharAt(params.length() - 1);
+            JmmNode value = iter1.next();
+            params.add(visit(value).toElement(OllirUtils.getOllirType(iter2.next().getType())));
         }
         return params;
     }
@@ -0,0 +1,201 @@
+package pt.up.fe.comp2023.ollir;
+
+import org.specs.comp.ollir.AccessModifiers;
+import org.specs.comp.ollir.ArrayOperand;
+import org.specs.comp.ollir.ArrayType;
+import org.specs.comp.ollir.AssignInstruction;
+import org.specs.comp.ollir.BinaryOpInstruction;
+import org.specs.comp.ollir.CallInstruction;
+import org.specs.comp.ollir.ClassType;
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.CondBranchInstruction;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.ElementType;
+import org.specs.comp.ollir.Field;
+import org.specs.comp.ollir.GetFieldInstruction;
+import org.specs.comp.ollir.GotoInstruction;
+import org.specs.comp.ollir.Instruction;
+import org.specs.comp.ollir.LiteralElement;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import org.specs.comp.ollir.Operation;
+import org.specs.comp.ollir.PutFieldInstruction;
+import org.specs.comp.ollir.ReturnInstruction;
+import org.specs.comp.ollir.SingleOpInstruction;
+import org.specs.comp.ollir.Type;
+import org.specs.comp.ollir.UnaryOpInstruction;
+
+import java.util.List;
+
+/**
+ * Prints the OLLIR code of a {@link ClassUnit}, which the OLLIR parser parses back into the same class. It is only
+ * used when the code is asked for, e.g. to show it or to store it in the cache, the backends use the class itself.
+ */
+public class OllirPrinter {
+
+    public static String print(ClassUnit ollirClass) {
+        StringBuilder code = new StringBuilder();
+        for (String importString : ollirClass.getImports()) {
+            code.append("import ").append(importString).append(";\n");
+        }
+        code.append("\n").append(ollirClass.getClassName());
+        if (ollirClass.getSuperClass() != null)
+            code.append(" extends ").append(ollirClass.getSuperClass());
+        code.append(" {\n");
+
+        for (Field field : ollirClass.getFields()) {
+            code.append(".field ").append(modifier(field.getFieldAccessModifier()));
+            code.append(field.getFieldName()).append(".").append(type(field.getFieldType())).append(";\n");
+        }
+        for (Method method : ollirClass.getMethods()) {
+            printMethod(method, code);
+        }
+
+        return code.append("}\n").toString();
+    }
+
+    private static void printMethod(Method method, StringBuilder code) {
+        if (method.isConstructMethod())
+            code.append("\n.construct ");
+        else
+            code.append("\n.method ").append(modifier(method.getMethodAccessModifier()));
+        if (method.isStaticMethod())
+            code.append("static ");
+        code.append(method.getMethodName()).append("(");
+        List<Element> params = method.getParams();
+        for (int i = 0; i < params.size(); i++) {
+            if (i > 0) code.append(", ");
+            code.append(((Operand) params.get(i)).getName()).append(".").append(type(params.get(i).getType()));
+        }
+        code.append(").").append(type(method.getReturnType())).append(" {\n");
+
+        for (Instruction instruction : method.getInstructions()) {
+            for (String label : method.getLabels(instruction)) {
+                code.append(label).append(":\n");
+            }
+            code.append("\t").append(instruction(instruction)).append(";\n");
+        }
+        code.append("}\n");
+    }
+
+    private static String modifier(AccessModifiers modifier) {
+        return modifier == AccessModifiers.DEFAULT ? "" : modifier.name().toLowerCase() + " ";
+    }
+
+    private static String instruction(Instruction instruction) {
+        return switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+                yield element(assign.getDest()) + " :=." + type(assign.getTypeOfAssign()) + " "
+                        + instruction(assign.getRhs());
+            }
+            case CALL -> call((CallInstruction) instruction);
+            case GOTO -> "goto " + ((GotoInstruction) instruction).getLabel();
+            case BRANCH -> {
+                CondBranchInstruction branch = (CondBranchInstruction) instruction;
+                yield "if (" + instruction(branch.getCondition()) + ") goto " + branch.getLabel();
+            }
+            case RETURN -> {
+                ReturnInstruction ret = (ReturnInstruction) instruction;
+                String code = "ret." + type(ret.getReturnType());
+                yield ret.hasReturnValue() ? code + " " + element(ret.getOperand()) : code;
+            }
+            case PUTFIELD -> {
+                PutFieldInstruction putField = (PutFieldInstruction) instruction;
+                yield "putfield(" + receiver(putField.getFirstOperand()) + ", " + element(putField.getSecondOperand())
+                        + ", " + element(putField.getThirdOperand()) + ").V";
+            }
+            case GETFIELD -> {
+                GetFieldInstruction getField = (GetFieldInstruction) instruction;
+                yield "getfield(" + receiver(getField.getFirstOperand()) + ", " + element(getField.getSecondOperand())
+                        + ")." + type(getField.getFieldType());
+            }
+            case UNARYOPER -> {
+                UnaryOpInstruction unary = (UnaryOpInstruction) instruction;
+                yield operation(unary.getOperation()) + " " + element(unary.getOperand());
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction binary = (BinaryOpInstruction) instruction;
+                yield element(binary.getLeftOperand()) + " " + operation(binary.getOperation()) + " "
+                        + element(binary.getRightOperand());
+            }
+            case NOPER -> element(((SingleOpInstruction) instruction).getSingleOperand());
+        };
+    }
+
+    private static String call(CallInstruction call) {
+        StringBuilder code = new StringBuilder();
+        Element firstArg = call.getFirstArg();
+        switch (call.getInvocationType()) {
+            case invokestatic -> code.append("invokestatic(").append(((Operand) firstArg).getName());
+            case invokevirtual, invokespecial -> code.append(call.getInvocationType()).append("(")
+                    .append(receiver(firstArg));
+            case NEW -> code.append("new(").append(((Operand) firstArg).getName());
+            case arraylength -> code.append("arraylength(").append(element(firstArg));
+            case ldc -> code.append("ldc(").append(((LiteralElement) firstArg).getLiteral());
+        }
+        if (call.getSecondArg() != null)
+            code.append(", ").append(((LiteralElement) call.getSecondArg()).getLiteral());
+        if (call.getListOfOperands() != null) {
+            for (Element operand : call.getListOfOperands()) {
+                code.append(", ").append(element(operand));
+            }
+        }
+        return code.append(").").append(type(call.getReturnType())).toString();
+    }
+
+    private static String receiver(Element element) {
+        if (element.getType().getTypeOfElement() == ElementType.THIS)
+            return "this";
+        return element(element);
+    }
+
+    private static String element(Element element) {
+        if (element instanceof LiteralElement literal)
+            return literal.getLiteral() + "." + type(literal.getType());
+
+        Operand operand = (Operand) element;
+        StringBuilder code = new StringBuilder();
+        if (operand.isParameter())
+            code.append("$").append(operand.getParamId()).append(".");
+        code.append(operand.getName());
+        if (operand instanceof ArrayOperand array) {
+            for (Element index : array.getIndexOperands()) {
+                code.append("[").append(element(index)).append("]");
+            }
+        }
+        return code.append(".").append(type(operand.getType())).toString();
+    }
+
+    private static String operation(Operation operation) {
+        String operator = switch (operation.getOpType()) {
+            case ADD -> "+";
+            case SUB -> "-";
+            case MUL -> "*";
+            case DIV -> "/";
+            case LTH -> "<";
+            case LTE -> "<=";
+            case GTH -> ">";
+            case GTE -> ">=";
+            case EQ -> "==";
+            case NEQ -> "!=";
+            case ANDB -> "&&";
+            case ORB -> "||";
+            case NOTB -> "!";
+            default -> throw new RuntimeException("Operation " + operation.getOpType() + " is not printed");
+        };
+        return operator + "." + type(operation.getTypeInfo());
+    }
+
+    private static String type(Type type) {
+        if (type instanceof ArrayType array)
+            return "array.".repeat(array.getNumDimensions()) + type(array.getElementType());
+        return switch (type.getTypeOfElement()) {
+            case INT32 -> "i32";
+            case BOOLEAN -> "bool";
+            case STRING -> "String";
+            case VOID -> "V";
+            default -> ((ClassType) type).getName();
+        };
+    }
+}
@@ -4,12 +4,15 @@ import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2023.ast.NodeKind;
+import pt.up.fe.comp2023.semantic.Analysis;
+import pt.up.fe.comp2023.table.ASymbolTable;
+import pt.up.fe.comp2023.table.ResolvedSymbol;
+import pt.up.fe.comp2023.table.SymbolTableMethod;
 
-public class OllirUtils {
+import java.util.Optional;
 
-    public static String getCode(Symbol symbol){
-        return symbol.getName()+"."+ getOllirType(symbol.getType());
-    }
+public class OllirUtils {
 
     public static String getLiteralType(String value){
         if (value.matches("\\d+")){
@@ -35,43 +38,46 @@ public class OllirUtils {
         return ollirType + type.getName();
     }
 
-    public static String getOllirOperator(JmmNode node){
-        return switch (node.get("op")) {
-            case "+" -> "+.i32 ";
-            case "-" -> "-.i32 ";
-            case "*" -> "*.i32 ";
-            case "/" -> "/.i32 ";
-            case "<" -> "<.bool ";
-            case "<=" -> "<=.bool ";
-            case ">" -> ">.bool ";
-            case ">=" -> ">=.bool ";
-            case "&&" -> "&&.bool ";
-            case "||" -> "||.bool ";
-            default -> null;
-        };
+    /**
+     * @return the type of the expression, as put in it by the semantic analysis, or null if it has none
+     */
+    public static Type getType(JmmNode node) {
+        return (Type) node.getOptionalObject(Analysis.TYPE).orElse(null);
+    }
+
+    /**
+     * @return the OLLIR suffix of the type of the expression, as put in it by the semantic analysis, or null if it
+     * is not known. Literals made by the constant folding, after the analysis, have it from their value.
+     */
+    public static String getOllirType(JmmNode node) {
+        Optional<String> ollirType = node.getOptional(Analysis.OLLIR_TYPE);
+        if (ollirType.isPresent()) {
+            return ollirType.get();
+        }
+        return NodeKind.of(node) == NodeKind.LITERAL ? getLiteralType(node.get("value")) : null;
     }
 
     public static String getTypeOperator(JmmNode node){
         return switch (node.get("op")) {
-            case "+", "-", "*", "/" -> ".i32 ";
-            case "&&", "||", "<", "<=", ">", ">=" -> ".bool ";
+            case "+", "-", "*", "/" -> "i32";
+            case "&&", "||", "<", "<=", ">", ">=" -> "bool";
             default -> null;
         };
     }
 
     public static String getTypeOperands(JmmNode node){
         return switch (node.get("op")) {
-            case "+", "-", "*", "/", "<", "<=", ">", ">=" -> ".i32 ";
-            case "&&", "||" -> ".bool ";
+            case "+", "-", "*", "/", "<", "<=", ">", ">=" -> "i32";
+            case "&&", "||" -> "bool";
             default -> null;
         };
     }
 
     public static String getParentMethod(JmmNode node) {
-        while(!node.getKind().equals("InstanceMethod") && !node.getKind().equals("MainMethod"))
+        while(NodeKind.of(node) != NodeKind.INSTANCE_METHOD && NodeKind.of(node) != NodeKind.MAIN_METHOD)
             node = node.getJmmParent();
 
-        if(node.getKind().equals("InstanceMethod"))
+        if(NodeKind.of(node) == NodeKind.INSTANCE_METHOD)
             return node.get("id");
 
         return "main";
@@ -80,10 +86,10 @@ public class OllirUtils {
     public static String getParentType(JmmNode node, SymbolTable symbolTable){
         var childNode = node;
         node = node.getJmmParent();
-        while (!node.getKind().equals("MethodCall") && !node.getKind().equals("Assignment"))
+        while (NodeKind.of(node) != NodeKind.METHOD_CALL && NodeKind.of(node) != NodeKind.ASSIGNMENT)
             node = node.getJmmParent();
 
-        if (node.getKind().equals("Assignment"))
+        if (NodeKind.of(node) == NodeKind.ASSIGNMENT)
             return getOllirType(getSymbol(node,symbolTable).getType());
 
         return getParameterType(node, childNode, symbolTable);
@@ -97,8 +103,15 @@ public class OllirUtils {
     }
 
     public static Symbol isField(JmmNode node, SymbolTable symbolTable){
+        // it is also asked of the parents of expressions, which may have no id
+        Optional<String> id = node.getOptional("id");
+        if (id.isEmpty()) return null;
+
+        if (symbolTable instanceof ASymbolTable table) {
+            return table.getField(id.get());
+        }
         for (Symbol symbol : symbolTable.getFields()) {
-            if (symbol.getName().equals(node.get("id"))){
+            if (symbol.getName().equals(id.get())){
                 return symbol;
             }
         }
@@ -106,6 +119,10 @@ public class OllirUtils {
     }
 
     public static Symbol isParam(JmmNode node, SymbolTable symbolTable, String parentMethod) {
+        if (symbolTable instanceof ASymbolTable table) {
+            SymbolTableMethod method = table.getMethod(parentMethod);
+            return method == null ? null : method.getParameter(node.get("id"));
+        }
         for (Symbol symbol : symbolTable.getParameters(parentMethod)) {
             if (symbol.getName().equals(node.get("id"))){
                 return symbol;
@@ -115,6 +132,10 @@ public class OllirUtils {
     }
 
     public static Symbol isLocal(JmmNode node, SymbolTable symbolTable, String parentMethod) {
+        if (symbolTable instanceof ASymbolTable table) {
+            SymbolTableMethod method = table.getMethod(parentMethod);
+            return method == null ? null : method.getLocalVariable(node.get("id"));
+        }
         for (Symbol symbol : symbolTable.getLocalVariables(parentMethod)){
             if (symbol.getName().equals(node.get("id"))) {
                 return symbol;
@@ -123,6 +144,33 @@ public class OllirUtils {
         return null;
     }
 
+    /**
+     * @return the symbol the id of the node refers to, as put in the node by the semantic analysis, or else as found
+     * in the method the node is in. Null if there is none.
+     */
+    public static ResolvedSymbol getResolved(JmmNode node, SymbolTable symbolTable) {
+        Optional<Object> resolved = node.getOptionalObject(ResolvedSymbol.ATTRIBUTE);
+        if (resolved.isPresent()) {
+            return (ResolvedSymbol) resolved.get();
+        }
+
+        String parentMethod = getParentMethod(node);
+        if (symbolTable instanceof ASymbolTable table) {
+            return table.resolve(node.get("id"), parentMethod);
+        }
+        Symbol localSymbol = isLocal(node, symbolTable, parentMethod);
+        if (localSymbol != null) {
+            return new ResolvedSymbol(localSymbol, ResolvedSymbol.Scope.LOCAL, 0);
+        }
+        Symbol paramSymbol = isParam(node, symbolTable, parentMethod);
+        if (paramSymbol != null) {
+            int index = symbolTable.getParameters(parentMethod).indexOf(paramSymbol) + 1;
+            return new ResolvedSymbol(paramSymbol, ResolvedSymbol.Scope.PARAMETER, index);
+        }
+        Symbol fieldSymbol = isField(node, symbolTable);
+        return fieldSymbol == null ? null : new ResolvedSymbol(fieldSymbol, ResolvedSymbol.Scope.FIELD, 0);
+    }
+
     public static Symbol isImport(JmmNode node, SymbolTable symbolTable){
         for (String imp : symbolTable.getImports())
             if (node.get("id").equals(imp))
@@ -130,20 +178,8 @@ public class OllirUtils {
         return null;
     }
 
-    public static String invokeSpecial(String variable, String type){
-        return "\tinvokespecial("+ variable + "." + type + ",\"<init>\").V;\n";
-    }
-
-    public static String putField(String field, StringBuilder rhs, String type){
-        return "\tputfield(this, " + field + "." + type + ", " + rhs + "." + type +").V;\n";
-    }
-
-    public static String getField(JmmNode node, String type) {
-        return "getfield(this, " + node.get("id") + "." + type + ")." + type + ";\n";
-    }
-
     public static Symbol getSymbol(JmmNode node, SymbolTable symbolTable) {
-        if (node.getKind().equals("Literal")){
+        if (NodeKind.of(node) == NodeKind.LITERAL){
             var type = "";
             if (node.get("value").equals("false") || node.get("value").equals("true"))
                 type = "bool";
@@ -151,17 +187,8 @@ public class OllirUtils {
                 type = node.get("value");
             return new Symbol(new Type(type,false),node.get("value"));
         }
-        String parentMethod = getParentMethod(node);
-        Symbol localSymbol = isLocal(node, symbolTable, parentMethod);
-        if (localSymbol != null) {
-            return localSymbol;
-        }
-        Symbol paramSymbol = isParam(node, symbolTable, parentMethod);
-        if (paramSymbol != null) {
-            return paramSymbol;
-        }
-
-        return isField(node, symbolTable);
+        ResolvedSymbol resolved = getResolved(node, symbolTable);
+        return resolved == null ? null : resolved.getSymbol();
     }
 
 }
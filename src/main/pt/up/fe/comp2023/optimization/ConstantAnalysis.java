@@ -1,70 +1,67 @@
 package pt.up.fe.comp2023.optimization;
 
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
-
-import java.util.HashMap;
-
-public class ConstantAnalysis extends AJmmVisitor<Boolean, Void> {
+import pt.up.fe.comp2023.ast.AKindVisitor;
+import pt.up.fe.comp2023.ast.KindedNode;
+import pt.up.fe.comp2023.ast.NodeKind;
+import pt.up.fe.comp2023.ast.PackedNode;
+
+/**
+ * Folds the operations on literals of the AST into their result, in one pass over the tree, e.g. {@code 2 * 3 + 1}
+ * into {@code 7}. The values of the variables are propagated later, on the OLLIR code, by {@link ConstantPropagation}.
+ */
+public class ConstantAnalysis extends AKindVisitor<Void, Void> {
     private final JmmSemanticsResult semanticsResult;
-    private final HashMap<String, String> constants;
-    private boolean run; // keep running while there are changes
 
     public ConstantAnalysis(JmmSemanticsResult semanticsResult) {
         super();
         this.semanticsResult = semanticsResult;
         setDefaultVisit(this::defaultVisit);
-        constants = new HashMap<>();
-        run = true;
     }
 
     public JmmSemanticsResult analyze() {
-        while (run) {
-            run = false;
-            visit(semanticsResult.getRootNode(), false);
-        }
+        visit(semanticsResult.getRootNode());
         return semanticsResult;
     }
 
     @Override
     protected void buildVisitor() {
-        addVisit("BinaryOp", this::dealWithBinaryOp);
-        addVisit("Assignment", this::dealWithAssignment);
-        addVisit("Negate", this::dealWithNegate);
-        addVisit("Variable", this::dealWithVariable);
+        addVisit(NodeKind.BINARY_OP, this::dealWithBinaryOp);
+        addVisit(NodeKind.NEGATE, this::dealWithNegate);
     }
 
-    protected Void defaultVisit(JmmNode node, Boolean inLoop) {
-        visitAllChildren(node, inLoop || node.getKind().equals("While"));
+    protected Void defaultVisit(JmmNode node, Void unused) {
+        visitAllChildren(node, unused);
         return null;
     }
 
     /**
      * Performs constant folding for binary operations.
      */
-    private Void dealWithBinaryOp(JmmNode node, Boolean inLoop) {
-        visitAllChildren(node, inLoop);
+    private Void dealWithBinaryOp(JmmNode node, Void unused) {
+        visitAllChildren(node, unused);
         JmmNode left = node.getChildren().get(0);
         JmmNode right = node.getChildren().get(1);
-        if (!left.getKind().equals("Literal") && !right.getKind().equals("Literal")) return null;
+        if (NodeKind.of(left) != NodeKind.LITERAL && NodeKind.of(right) != NodeKind.LITERAL) return null;
         String op = node.get("op");
+        // the right side decides alone only when the left side has no effects
+        boolean pureLeft = NodeKind.of(left) == NodeKind.LITERAL || NodeKind.of(left) == NodeKind.VARIABLE;
         if (op.equals("||")) {
-            if (left.getKind().equals("Literal") && left.get("value").equals("true"))
+            if (NodeKind.of(left) == NodeKind.LITERAL && left.get("value").equals("true"))
                 switchNode(node, "true");
-            else if (right.getKind().equals("Literal") && right.get("value").equals("true")) {
+            else if (pureLeft && NodeKind.of(right) == NodeKind.LITERAL && right.get("value").equals("true")) {
                 switchNode(node, "true");
             }
         } else if (op.equals("&&")) {
-            if (left.getKind().equals("Literal") && left.get("value").equals("false"))
+            if (NodeKind.of(left) == NodeKind.LITERAL && left.get("value").equals("false"))
                 switchNode(node, "false");
-            else if (right.getKind().equals("Literal") && right.get("value").equals("false")) {
+            else if (pureLeft && NodeKind.of(right) == NodeKind.LITERAL && right.get("value").equals("false")) {
                 switchNode(node, "false");
             }
         }
 
-        if (left.getKind().equals("Literal") && right.getKind().equals("Literal")) {
+        if (NodeKind.of(left) == NodeKind.LITERAL && NodeKind.of(right) == NodeKind.LITERAL) {
             if (op.equals("<") || op.equals(">") || op.equals("<=") || op.equals(">=") || op.equals("==") || op.equals("!=")) {
                 int leftValue = Integer.parseInt(left.get("value"));
                 int rightValue = Integer.parseInt(right.get("value"));
@@ -72,7 +69,7 @@ public class ConstantAnalysis extends AJmmVisitor<Boolean, Void> {
                 switchNode(node, Boolean.toString(result));
             }
 
-            if (op.equals("+") || op.equals("-") || op.equals("*") || (op.equals("/"))) {
+            if (op.equals("+") || op.equals("-") || op.equals("*") || (op.equals("/") && !right.get("value").equals("0"))) {
                     int leftValue = Integer.parseInt(left.get("value"));
                     int rightValue = Integer.parseInt(right.get("value"));
                     int result = performIntegerOperation(op, leftValue, rightValue);
@@ -85,10 +82,10 @@ public class ConstantAnalysis extends AJmmVisitor<Boolean, Void> {
     /**
      * Performs constant folding for negation operations.
      */
-    private Void dealWithNegate(JmmNode node, Boolean inLoop) {
-        visitAllChildren(node, inLoop);
+    private Void dealWithNegate(JmmNode node, Void unused) {
+        visitAllChildren(node, unused);
         JmmNode child = node.getChildren().get(0);
-        if (child.getKind().equals("Literal")) {
+        if (NodeKind.of(child) == NodeKind.LITERAL) {
             if (child.get("value").equals("true")) {
                 switchNode(node, "false");
             } else if (child.get("value").equals("false")) {
@@ -98,42 +95,15 @@ public class ConstantAnalysis extends AJmmVisitor<Boolean, Void> {
         return null;
     }
 
-    /**
-     * Deals with variable assignments.
-     * Constant assignments are added to the constant table.
-     */
-    private Void dealWithAssignment(JmmNode node, Boolean inLoop) {
-        // if the visitor is inside a loop, not all constants can be changed
-        // thus, it is necessary to visit after the variable is removed
-        if (!inLoop)
-            defaultVisit(node, false);
-        if (node.getChildren().get(0).getKind().equals("Literal")) {
-            constants.put(node.get("id"), node.getChildren().get(0).get("value"));
-        }
-        else if (constants.containsKey(node.get("id"))) {
-            constants.remove(node.get("id"));
-        }
-        if (inLoop)
-            defaultVisit(node, true);
-
-        return null;
-    }
-
-    /**
-     * Performs constant propagation.
-     */
-    private Void dealWithVariable(JmmNode node, Boolean inLoop) {
-        if (constants.containsKey(node.get("id"))) {
-            switchNode(node, constants.get(node.get("id")));
-        }
-        return null;
-    }
-
     private void switchNode(JmmNode old, String value) {
-        JmmNode newNode = new JmmNodeImpl("Literal");
-        newNode.put("value", value);
-        old.replace(newNode);
-        run = true;
+        if (old instanceof PackedNode packed) {
+            // the packed AST turns the node into the literal in place
+            packed.getAst().replaceWithLiteral(packed.getIndex(), value);
+        } else {
+            JmmNode newNode = new KindedNode(NodeKind.LITERAL);
+            newNode.put("value", value);
+            old.replace(newNode);
+        }
     }
 
     private boolean performBooleanOperation(String op, int leftValue, int rightValue) {
@@ -0,0 +1,728 @@
+package pt.up.fe.comp2023.optimization;
+
+import org.specs.comp.ollir.*;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+/**
+ * Sparse conditional constant propagation (Wegman and Zadeck) over the control flow graph of an OLLIR method.
+ * <p>
+ * The int and boolean variables are put in SSA form: each assignment defines a new value of its variable, and a phi
+ * joins the values of a variable where its definitions meet (at their iterated dominance frontier). Each value is
+ * unknown yet (TOP), a constant, or not a constant (BOTTOM). An edge of the graph is only followed once it is known
+ * to run, so a branch on a constant only follows one side, and a value is only evaluated again, through its uses,
+ * when it changes. So the analysis takes time linear in the edges and the uses of the method, and values that are
+ * the same on every path that runs, e.g. around a loop or on both sides of an if, are constants.
+ * <p>
+ * The method is then rewritten: the uses of constants become literals, operations on constants become their result,
+ * branches on constants become gotos or are removed, and so are the code that never runs and the assignments of
+ * constants that no use needs anymore.
+ * <p>
+ * The graph is built here with the rules of {@link Method#buildCFG()}, which can only run once on a method and is
+ * run by the register allocation on the rewritten code. The labels of the removed instructions move to the next
+ * instruction, so this runs before anything asks for the labels of an instruction, which the method caches.
+ */
+public class ConstantPropagation {
+    private static final int TOP = 0;
+    private static final int CONSTANT = 1;
+    private static final int BOTTOM = 2;
+
+    private final Method method;
+    private final List<Instruction> instructions;
+    // the nodes are the instructions, by index, and a node before the first one that defines the parameters
+    private final int entry;
+    private final List<List<Edge>> successors = new ArrayList<>();
+    private final List<List<Edge>> predecessors = new ArrayList<>();
+    // the edge a branch takes when its condition is true
+    private final Edge[] taken;
+
+    private final Map<String, Integer> variables = new HashMap<>();
+    // the variable each instruction defines and its value, -1 if none
+    private final int[] defVariable;
+    private final int[] defValue;
+    private final List<List<Phi>> phis = new ArrayList<>();
+    // the value of each variable each instruction uses
+    private final List<Map<Integer, Integer>> uses = new ArrayList<>();
+
+    // the values are the initial values of the variables, then the definitions, then the phis
+    private int numValues;
+    private int[] state;
+    private int[] constant;
+    private List<List<Integer>> instructionUses;
+    private List<List<Phi>> phiUses;
+    private final List<Phi> allPhis = new ArrayList<>();
+
+    private final boolean[] executed;
+    private final Deque<Edge> flowWorklist = new ArrayDeque<>();
+    private final Deque<Integer> valueWorklist = new ArrayDeque<>();
+
+    private static class Edge {
+        private final int from;
+        private final int to;
+        // the position of the edge in the predecessors of its target, and of the arguments of the phis there
+        private int index;
+        private boolean executable;
+
+        private Edge(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+
+    private static class Phi {
+        private final int node;
+        private final int variable;
+        private int value;
+        private int[] arguments;
+
+        private Phi(int node, int variable) {
+            this.node = node;
+            this.variable = variable;
+        }
+    }
+
+    public ConstantPropagation(Method method) {
+        this.method = method;
+        this.instructions = method.getInstructions();
+        this.entry = instructions.size();
+        this.taken = new Edge[entry];
+        this.defVariable = new int[entry];
+        this.defValue = new int[entry];
+        this.executed = new boolean[entry + 1];
+    }
+
+    /**
+     * Propagates the constants of the method and rewrites its instructions.
+     */
+    public void propagate() {
+        if (instructions.isEmpty())
+            return;
+        buildGraph();
+        buildSsa();
+        analyze();
+        rewrite();
+    }
+
+    private void buildGraph() {
+        Map<Instruction, Integer> indexes = new IdentityHashMap<>();
+        for (int i = 0; i <= entry; i++) {
+            successors.add(new ArrayList<>());
+            predecessors.add(new ArrayList<>());
+            if (i < entry) indexes.put(instructions.get(i), i);
+        }
+
+        addEdge(entry, 0);
+        for (int i = 0; i < entry; i++) {
+            Instruction instruction = instructions.get(i);
+            switch (instruction.getInstType()) {
+                case GOTO -> addEdge(i, indexes.get(method.getLabels().get(((GotoInstruction) instruction).getLabel())));
+                case BRANCH -> {
+                    if (i + 1 < entry) addEdge(i, i + 1);
+                    Instruction target = method.getLabels().get(((CondBranchInstruction) instruction).getLabel());
+                    taken[i] = addEdge(i, indexes.get(target));
+                }
+                case RETURN -> {
+                }
+                default -> {
+                    if (i + 1 < entry) addEdge(i, i + 1);
+                }
+            }
+        }
+    }
+
+    private Edge addEdge(int from, int to) {
+        Edge edge = new Edge(from, to);
+        edge.index = predecessors.get(to).size();
+        successors.get(from).add(edge);
+        predecessors.get(to).add(edge);
+        return edge;
+    }
+
+    // ---------- SSA ----------
+
+    private void buildSsa() {
+        List<List<Integer>> defSites = new ArrayList<>();
+        for (int i = 0; i < entry; i++) {
+            defVariable[i] = -1;
+            if (instructions.get(i) instanceof AssignInstruction assign && isVariable(assign.getDest())) {
+                String name = ((Operand) assign.getDest()).getName();
+                Integer variable = variables.get(name);
+                if (variable == null) {
+                    variable = variables.size();
+                    variables.put(name, variable);
+                    defSites.add(new ArrayList<>());
+                }
+                defVariable[i] = variable;
+                defSites.get(variable).add(i);
+            }
+        }
+
+        // dominators, with the algorithm of Cooper, Harvey and Kennedy over the reverse postorder
+        List<Integer> order = reversePostorder();
+        int[] orderIndex = new int[entry + 1];
+        Arrays.fill(orderIndex, -1);
+        for (int i = 0; i < order.size(); i++) {
+            orderIndex[order.get(i)] = i;
+        }
+        int[] dominator = new int[entry + 1];
+        Arrays.fill(dominator, -1);
+        dominator[entry] = entry;
+        boolean changed = true;
+        while (changed) {
+            changed = false;
+            for (int node : order) {
+                if (node == entry) continue;
+                int newDominator = -1;
+                for (Edge edge : predecessors.get(node)) {
+                    if (dominator[edge.from] == -1) continue;
+                    newDominator = newDominator == -1 ? edge.from
+                            : intersect(edge.from, newDominator, dominator, orderIndex);
+                }
+                if (dominator[node] != newDominator) {
+                    dominator[node] = newDominator;
+                    changed = true;
+                }
+            }
+        }
+
+        // dominance frontiers
+        List<List<Integer>> frontier = new ArrayList<>();
+        List<List<Integer>> children = new ArrayList<>();
+        for (int i = 0; i <= entry; i++) {
+            frontier.add(new ArrayList<>());
+            children.add(new ArrayList<>());
+            phis.add(new ArrayList<>());
+            uses.add(new HashMap<>());
+        }
+        for (int node : order) {
+            if (node != entry) children.get(dominator[node]).add(node);
+            if (predecessors.get(node).size() < 2) continue;
+            for (Edge edge : predecessors.get(node)) {
+                int runner = edge.from;
+                while (dominator[runner] != -1 && runner != dominator[node]) {
+                    List<Integer> runnerFrontier = frontier.get(runner);
+                    if (runnerFrontier.isEmpty() || runnerFrontier.get(runnerFrontier.size() - 1) != node)
+                        runnerFrontier.add(node);
+                    runner = dominator[runner];
+                }
+            }
+        }
+
+        // phis at the iterated dominance frontier of the definitions of each variable
+        int[] hasPhi = new int[entry + 1];
+        int[] inWorklist = new int[entry + 1];
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int variable = 0; variable < variables.size(); variable++) {
+            for (int site : defSites.get(variable)) {
+                if (orderIndex[site] == -1 || inWorklist[site] == variable + 1) continue;
+                inWorklist[site] = variable + 1;
+                worklist.push(site);
+            }
+            while (!worklist.isEmpty()) {
+                for (int node : frontier.get(worklist.pop())) {
+                    if (hasPhi[node] == variable + 1) continue;
+                    hasPhi[node] = variable + 1;
+                    Phi phi = new Phi(node, variable);
+                    phi.arguments = new int[predecessors.get(node).size()];
+                    Arrays.fill(phi.arguments, -1);
+                    phis.get(node).add(phi);
+                    allPhis.add(phi);
+                    if (inWorklist[node] != variable + 1) {
+                        inWorklist[node] = variable + 1;
+                        worklist.push(node);
+                    }
+                }
+            }
+        }
+
+        numValues = variables.size();
+        for (int i = 0; i < entry; i++) {
+            if (defVariable[i] != -1) defValue[i] = numValues++;
+        }
+        for (Phi phi : allPhis) {
+            phi.value = numValues++;
+        }
+        state = new int[numValues];
+        constant = new int[numValues];
+        instructionUses = new ArrayList<>(numValues);
+        phiUses = new ArrayList<>(numValues);
+        for (int value = 0; value < numValues; value++) {
+            instructionUses.add(new ArrayList<>());
+            phiUses.add(new ArrayList<>());
+        }
+
+        rename(children);
+    }
+
+    private List<Integer> reversePostorder() {
+        List<Integer> postorder = new ArrayList<>();
+        boolean[] visited = new boolean[entry + 1];
+        Deque<int[]> stack = new ArrayDeque<>();
+        visited[entry] = true;
+        stack.push(new int[]{entry, 0});
+        while (!stack.isEmpty()) {
+            int[] frame = stack.peek();
+            List<Edge> edges = successors.get(frame[0]);
+            if (frame[1] < edges.size()) {
+                int next = edges.get(frame[1]++).to;
+                if (!visited[next]) {
+                    visited[next] = true;
+                    stack.push(new int[]{next, 0});
+                }
+            } else {
+                postorder.add(stack.pop()[0]);
+            }
+        }
+        Collections.reverse(postorder);
+        return postorder;
+    }
+
+    private static int intersect(int first, int second, int[] dominator, int[] orderIndex) {
+        while (first != second) {
+            while (orderIndex[first] > orderIndex[second]) first = dominator[first];
+            while (orderIndex[second] > orderIndex[first]) second = dominator[second];
+        }
+        return first;
+    }
+
+    /**
+     * Gives each use the value that reaches it, walking the dominator tree with a stack of values for each variable.
+     */
+    private void rename(List<List<Integer>> children) {
+        List<Deque<Integer>> current = new ArrayList<>();
+        for (int variable = 0; variable < variables.size(); variable++) {
+            current.add(new ArrayDeque<>());
+        }
+        List<List<Integer>> pushed = new ArrayList<>();
+        for (int i = 0; i <= entry; i++) {
+            pushed.add(new ArrayList<>());
+        }
+
+        Deque<int[]> stack = new ArrayDeque<>();
+        stack.push(new int[]{entry, -1});
+        while (!stack.isEmpty()) {
+            int[] frame = stack.peek();
+            int node = frame[0];
+            if (frame[1] == -1) {
+                frame[1] = 0;
+                List<Integer> nodePushed = pushed.get(node);
+                if (node == entry) {
+                    for (int variable = 0; variable < variables.size(); variable++) {
+                        current.get(variable).push(variable);
+                        nodePushed.add(variable);
+                    }
+                } else {
+                    for (Phi phi : phis.get(node)) {
+                        current.get(phi.variable).push(phi.value);
+                        nodePushed.add(phi.variable);
+                    }
+                    Map<Integer, Integer> nodeUses = uses.get(node);
+                    mapUses(instructions.get(node), element -> {
+                        Integer variable = isVariable(element) ? variables.get(((Operand) element).getName()) : null;
+                        if (variable != null && !nodeUses.containsKey(variable)) {
+                            int value = current.get(variable).peek();
+                            nodeUses.put(variable, value);
+                            instructionUses.get(value).add(node);
+                        }
+                        return element;
+                    });
+                    if (defVariable[node] != -1) {
+                        current.get(defVariable[node]).push(defValue[node]);
+                        nodePushed.add(defVariable[node]);
+                    }
+                }
+                for (Edge edge : successors.get(node)) {
+                    for (Phi phi : phis.get(edge.to)) {
+                        int value = current.get(phi.variable).peek();
+                        phi.arguments[edge.index] = value;
+                        phiUses.get(value).add(phi);
+                    }
+                }
+            }
+
+            List<Integer> nodeChildren = children.get(node);
+            if (frame[1] < nodeChildren.size()) {
+                stack.push(new int[]{nodeChildren.get(frame[1]++), -1});
+            } else {
+                stack.pop();
+                for (int variable : pushed.get(node)) {
+                    current.get(variable).pop();
+                }
+            }
+        }
+    }
+
+    // ---------- analysis ----------
+
+    private void analyze() {
+        for (int variable = 0; variable < variables.size(); variable++) {
+            // parameters, and locals read before they are assigned
+            state[variable] = BOTTOM;
+        }
+        flowWorklist.add(successors.get(entry).get(0));
+        executed[entry] = true;
+
+        while (!flowWorklist.isEmpty() || !valueWorklist.isEmpty()) {
+            while (!flowWorklist.isEmpty()) {
+                Edge edge = flowWorklist.poll();
+                if (edge.executable) continue;
+                edge.executable = true;
+                for (Phi phi : phis.get(edge.to)) {
+                    evaluatePhi(phi);
+                }
+                if (!executed[edge.to]) {
+                    executed[edge.to] = true;
+                    evaluate(edge.to);
+                    if (instructions.get(edge.to).getInstType() != InstructionType.BRANCH)
+                        flowWorklist.addAll(successors.get(edge.to));
+                }
+            }
+            while (!valueWorklist.isEmpty()) {
+                int value = valueWorklist.poll();
+                for (int node : instructionUses.get(value)) {
+                    if (executed[node]) evaluate(node);
+                }
+                for (Phi phi : phiUses.get(value)) {
+                    if (executed[phi.node]) evaluatePhi(phi);
+                }
+            }
+        }
+    }
+
+    private void evaluatePhi(Phi phi) {
+        int phiState = TOP;
+        int phiConstant = 0;
+        for (Edge edge : predecessors.get(phi.node)) {
+            if (!edge.executable) continue;
+            int argument = phi.arguments[edge.index];
+            if (state[argument] == TOP) continue;
+            if (state[argument] == BOTTOM || (phiState == CONSTANT && phiConstant != constant[argument])) {
+                phiState = BOTTOM;
+                break;
+            }
+            phiState = CONSTANT;
+            phiConstant = constant[argument];
+        }
+        lower(phi.value, phiState, phiConstant);
+    }
+
+    private void evaluate(int node) {
+        Instruction instruction = instructions.get(node);
+        if (defVariable[node] != -1) {
+            long value = evaluate(((AssignInstruction) instruction).getRhs(), node);
+            lower(defValue[node], stateOf(value), constantOf(value));
+        } else if (instruction instanceof CondBranchInstruction branch) {
+            long condition = evaluate(branch.getCondition(), node);
+            for (Edge edge : successors.get(node)) {
+                if (stateOf(condition) == BOTTOM
+                        || stateOf(condition) == CONSTANT && (edge == taken[node]) == (constantOf(condition) != 0))
+                    flowWorklist.add(edge);
+            }
+        }
+    }
+
+    /**
+     * Lowers the value to its meet with the given one, and evaluates its uses again if it changed.
+     */
+    private void lower(int value, int newState, int newConstant) {
+        if (newState == TOP || state[value] == BOTTOM)
+            return;
+        if (state[value] == CONSTANT && (newState == BOTTOM || constant[value] != newConstant)) {
+            state[value] = BOTTOM;
+        } else if (state[value] == TOP) {
+            state[value] = newState;
+            constant[value] = newConstant;
+        } else {
+            return;
+        }
+        valueWorklist.add(value);
+    }
+
+    /**
+     * @return the state of the value of the instruction and its constant, packed in a long by {@link #pack}
+     */
+    private long evaluate(Instruction instruction, int node) {
+        switch (instruction.getInstType()) {
+            case NOPER -> {
+                return evaluate(((SingleOpInstruction) instruction).getSingleOperand(), node);
+            }
+            case UNARYOPER -> {
+                UnaryOpInstruction unary = (UnaryOpInstruction) instruction;
+                OperationType opType = unary.getOperation().getOpType();
+                if (opType != OperationType.NOT && opType != OperationType.NOTB)
+                    return pack(BOTTOM, 0);
+                long operand = evaluate(unary.getOperand(), node);
+                if (stateOf(operand) != CONSTANT)
+                    return pack(stateOf(operand), 0);
+                return pack(CONSTANT, constantOf(operand) == 0 ? 1 : 0);
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction binary = (BinaryOpInstruction) instruction;
+                long left = evaluate(binary.getLeftOperand(), node);
+                long right = evaluate(binary.getRightOperand(), node);
+                return fold(binary.getOperation().getOpType(), left, right);
+            }
+            default -> {
+                return pack(BOTTOM, 0);
+            }
+        }
+    }
+
+    private long evaluate(Element element, int node) {
+        if (element instanceof LiteralElement literal) {
+            try {
+                return pack(CONSTANT, Integer.parseInt(literal.getLiteral()));
+            } catch (NumberFormatException e) {
+                return pack(BOTTOM, 0);
+            }
+        }
+        if (!isVariable(element))
+            return pack(BOTTOM, 0);
+        Integer variable = variables.get(((Operand) element).getName());
+        Integer value = variable == null ? null : uses.get(node).get(variable);
+        if (value == null)
+            return pack(BOTTOM, 0);
+        return pack(state[value], constant[value]);
+    }
+
+    private static long fold(OperationType opType, long left, long right) {
+        int leftState = stateOf(left);
+        int rightState = stateOf(right);
+        int leftValue = constantOf(left);
+        int rightValue = constantOf(right);
+        // false && x and true || x do not depend on x
+        if (opType == OperationType.ANDB && (leftState == CONSTANT && leftValue == 0 || rightState == CONSTANT && rightValue == 0))
+            return pack(CONSTANT, 0);
+        if (opType == OperationType.ORB && (leftState == CONSTANT && leftValue != 0 || rightState == CONSTANT && rightValue != 0))
+            return pack(CONSTANT, 1);
+        if (leftState == BOTTOM || rightState == BOTTOM)
+            return pack(BOTTOM, 0);
+        if (leftState == TOP || rightState == TOP)
+            return pack(TOP, 0);
+
+        return switch (opType) {
+            case ADD -> pack(CONSTANT, leftValue + rightValue);
+            case SUB -> pack(CONSTANT, leftValue - rightValue);
+            case MUL -> pack(CONSTANT, leftValue * rightValue);
+            case DIV -> rightValue == 0 ? pack(BOTTOM, 0) : pack(CONSTANT, leftValue / rightValue);
+            case LTH -> pack(CONSTANT, leftValue < rightValue ? 1 : 0);
+            case LTE -> pack(CONSTANT, leftValue <= rightValue ? 1 : 0);
+            case GTH -> pack(CONSTANT, leftValue > rightValue ? 1 : 0);
+            case GTE -> pack(CONSTANT, leftValue >= rightValue ? 1 : 0);
+            case EQ -> pack(CONSTANT, leftValue == rightValue ? 1 : 0);
+            case NEQ -> pack(CONSTANT, leftValue != rightValue ? 1 : 0);
+            case ANDB, AND -> pack(CONSTANT, leftValue & rightValue);
+            case ORB, OR -> pack(CONSTANT, leftValue | rightValue);
+            default -> pack(BOTTOM, 0);
+        };
+    }
+
+    private static long pack(int state, int constant) {
+        return ((long) state << 32) | (constant & 0xFFFFFFFFL);
+    }
+
+    private static int stateOf(long value) {
+        return (int) (value >> 32);
+    }
+
+    private static int constantOf(long value) {
+        return (int) value;
+    }
+
+    // ---------- rewriting ----------
+
+    private void rewrite() {
+        boolean[] needed = neededValues();
+        Map<String, Instruction> labels = method.getLabels();
+        Map<Instruction, List<String>> labelsOf = new IdentityHashMap<>();
+        for (Map.Entry<String, Instruction> label : labels.entrySet()) {
+            labelsOf.computeIfAbsent(label.getValue(), instruction -> new ArrayList<>()).add(label.getKey());
+        }
+
+        List<Instruction> rewritten = new ArrayList<>();
+        List<String> pendingLabels = new ArrayList<>();
+        for (int node = 0; node < entry; node++) {
+            Instruction instruction = instructions.get(node);
+            pendingLabels.addAll(labelsOf.getOrDefault(instruction, List.of()));
+            Instruction replacement = executed[node] ? rewrite(node, needed) : null;
+            // the last instruction stays, so the labels always have an instruction
+            if (replacement == null && node == entry - 1)
+                replacement = instruction;
+            if (replacement == null)
+                continue;
+
+            moveLabels(pendingLabels, replacement, labelsOf);
+            pendingLabels.clear();
+            rewritten.add(replacement);
+        }
+
+        // a jump to the instruction right after it does nothing, e.g. where a branch on a constant skipped an else
+        boolean[] removed = new boolean[rewritten.size()];
+        Instruction next = null;
+        for (int i = rewritten.size() - 1; i >= 0; i--) {
+            Instruction instruction = rewritten.get(i);
+            String target = instruction instanceof GotoInstruction jump ? jump.getLabel()
+                    : instruction instanceof CondBranchInstruction branch ? branch.getLabel() : null;
+            if (next != null && target != null && labels.get(target) == next) {
+                moveLabels(labelsOf.getOrDefault(instruction, List.of()), next, labelsOf);
+                removed[i] = true;
+            } else {
+                next = instruction;
+            }
+        }
+
+        instructions.clear();
+        for (int i = 0; i < rewritten.size(); i++) {
+            if (!removed[i]) instructions.add(rewritten.get(i));
+        }
+    }
+
+    private void moveLabels(List<String> moved, Instruction instruction, Map<Instruction, List<String>> labelsOf) {
+        for (String label : moved) {
+            method.getLabels().put(label, instruction);
+        }
+        if (!moved.isEmpty())
+            labelsOf.computeIfAbsent(instruction, key -> new ArrayList<>()).addAll(moved);
+    }
+
+    /**
+     * The values a variable must still hold: those that are not constants and that an instruction that runs reads,
+     * and the arguments of the phis among them.
+     */
+    private boolean[] neededValues() {
+        Map<Integer, Phi> phiOfValue = new HashMap<>();
+        for (Phi phi : allPhis) {
+            phiOfValue.put(phi.value, phi);
+        }
+
+        boolean[] needed = new boolean[numValues];
+        Deque<Integer> worklist = new ArrayDeque<>();
+        for (int node = 0; node < entry; node++) {
+            if (!executed[node]) continue;
+            for (int value : uses.get(node).values()) {
+                if (state[value] != CONSTANT && !needed[value]) {
+                    needed[value] = true;
+                    worklist.push(value);
+                }
+            }
+        }
+        while (!worklist.isEmpty()) {
+            Phi phi = phiOfValue.get(worklist.pop());
+            if (phi == null) continue;
+            for (int argument : phi.arguments) {
+                if (argument != -1 && !needed[argument]) {
+                    needed[argument] = true;
+                    worklist.push(argument);
+                }
+            }
+        }
+        return needed;
+    }
+
+    /**
+     * @return the instruction that replaces the one of the node, or null to remove it
+     */
+    private Instruction rewrite(int node, boolean[] needed) {
+        Instruction instruction = instructions.get(node);
+        if (instruction instanceof CondBranchInstruction branch) {
+            long condition = evaluate(branch.getCondition(), node);
+            if (stateOf(condition) == CONSTANT)
+                return constantOf(condition) != 0 ? new GotoInstruction(branch.getLabel()) : null;
+        }
+        if (defVariable[node] != -1 && state[defValue[node]] == CONSTANT && !needed[defValue[node]])
+            return null;
+
+        Map<Integer, Integer> nodeUses = uses.get(node);
+        mapUses(instruction, element -> {
+            Integer variable = isVariable(element) ? variables.get(((Operand) element).getName()) : null;
+            if (variable == null) return element;
+            int value = nodeUses.get(variable);
+            return state[value] == CONSTANT ? new LiteralElement(Integer.toString(constant[value]), element.getType())
+                    : element;
+        });
+
+        if (instruction instanceof AssignInstruction assign && (assign.getRhs() instanceof BinaryOpInstruction
+                || assign.getRhs() instanceof UnaryOpInstruction)) {
+            long value = evaluate(assign.getRhs(), node);
+            if (stateOf(value) == CONSTANT) {
+                Element literal = new LiteralElement(Integer.toString(constantOf(value)), assign.getTypeOfAssign());
+                return new AssignInstruction(assign.getDest(), assign.getTypeOfAssign(), new SingleOpInstruction(literal));
+            }
+        }
+        return instruction;
+    }
+
+    /**
+     * Replaces each variable the instruction reads by the element the function gives for it. Literals are kept, and
+     * of an array element only the indexes are read.
+     */
+    private static void mapUses(Instruction instruction, UnaryOperator<Element> map) {
+        switch (instruction.getInstType()) {
+            case ASSIGN -> {
+                AssignInstruction assign = (AssignInstruction) instruction;
+                if (assign.getDest() instanceof ArrayOperand array)
+                    mapElement(array, map);
+                mapUses(assign.getRhs(), map);
+            }
+            case CALL -> {
+                CallInstruction call = (CallInstruction) instruction;
+                if (call.getListOfOperands() != null)
+                    call.getListOfOperands().replaceAll(operand -> mapElement(operand, map));
+            }
+            case BRANCH -> mapUses(((CondBranchInstruction) instruction).getCondition(), map);
+            case RETURN -> {
+                ReturnInstruction ret = (ReturnInstruction) instruction;
+                if (ret.hasReturnValue())
+                    ret.setOperand(mapElement(ret.getOperand(), map));
+            }
+            case PUTFIELD -> {
+                PutFieldInstruction putField = (PutFieldInstruction) instruction;
+                putField.setThirdOperand(mapElement(putField.getThirdOperand(), map));
+            }
+            case UNARYOPER -> {
+                UnaryOpInstruction unary = (UnaryOpInstruction) instruction;
+                unary.setOperand(mapElement(unary.getOperand(), map));
+            }
+            case BINARYOPER -> {
+                BinaryOpInstruction binary = (BinaryOpInstruction) instruction;
+                binary.setLeftOperand(mapElement(binary.getLeftOperand(), map));
+                binary.setRightOperand(mapElement(binary.getRightOperand(), map));
+            }
+            case NOPER -> {
+                SingleOpInstruction single = (SingleOpInstruction) instruction;
+                single.setSingleOperand(mapElement(single.getSingleOperand(), map));
+            }
+            case GOTO, GETFIELD -> {
+            }
+        }
+    }
+
+    private static Element mapElement(Element element, UnaryOperator<Element> map) {
+        if (element.isLiteral())
+            return element;
+        if (element instanceof ArrayOperand array) {
+            array.getIndexOperands().replaceAll(index -> mapElement(index, map));
+            return array;
+        }
+        return map.apply(element);
+    }
+
+    /**
+     * Whether the element is an int or boolean variable, the only ones whose values are propagated.
+     */
+    private static boolean isVariable(Element element) {
+        if (element.isLiteral() || element instanceof ArrayOperand || !(element instanceof Operand))
+            return false;
+        ElementType type = element.getType().getTypeOfElement();
+        return type == ElementType.INT32 || type == ElementType.BOOLEAN;
+    }
+}
@@ -61,7 +61,10 @@ public class MethodLivenessAnalysis {
             case ASSIGN:
                 AssignInstruction assignInstruction = (AssignInstruction) instruction;
                 Element dest = assignInstruction.getDest();
-                if (dest instanceof Operand) {
+                // storing in an element of an array uses the array and the index, it defines no variable
+                if (dest instanceof ArrayOperand) {
+                    addUseElement(dest, instruction.getId());
+                } else if (dest instanceof Operand) {
                     Operand op = (Operand) dest;
                     interferenceGraph.get(instruction.getId() - 1).addDef(op.getName());
                 }
@@ -69,6 +72,14 @@ public class MethodLivenessAnalysis {
                 break;
             case CALL:
                 CallInstruction callInstruction = (CallInstruction) instruction;
+                // the object of the call, the names of classes and this are not variables
+                CallType callType = callInstruction.getInvocationType();
+                if (callType == CallType.invokevirtual || callType == CallType.invokespecial
+                        || callType == CallType.arraylength)
+                    addUseElement(callInstruction.getFirstArg(), instruction.getId());
+                // calls without arguments have no list of operands
+                if (callInstruction.getListOfOperands() == null)
+                    break;
                 for (Element operand: callInstruction.getListOfOperands()) {
                     addUseElement(operand, instruction.getId());
                 }
@@ -86,6 +97,7 @@ public class MethodLivenessAnalysis {
                 }
                 break;
             case PUTFIELD:
+                addUseElement(((PutFieldInstruction) instruction).getThirdOperand(), instruction.getId());
                 break;
             case GETFIELD:
                 break;
@@ -111,7 +123,14 @@ public class MethodLivenessAnalysis {
             return;
         if (element instanceof Operand) {
             Operand op = (Operand) element;
+            if (op.getType().getTypeOfElement() == ElementType.THIS)
+                return;
             interferenceGraph.get(id - 1).addUse(op.getName());
         }
+        if (element instanceof ArrayOperand) {
+            for (Element index : ((ArrayOperand) element).getIndexOperands()) {
+                addUseElement(index, id);
+            }
+        }
     }
 }
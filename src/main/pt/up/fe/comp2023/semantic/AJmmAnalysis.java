@@ -1,20 +1,41 @@
 package pt.up.fe.comp2023.semantic;
 
 import java.util.List;
+import java.util.function.Consumer;
 
 import pt.up.fe.comp.jmm.analysis.JmmAnalysis;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2023.stats.StageStats;
 import pt.up.fe.comp2023.table.ASymbolTable;
 import pt.up.fe.comp2023.table.SymbolTableGenerator;
 
 public class AJmmAnalysis implements JmmAnalysis {
+    private final Consumer<Report> listener;
+
+    public AJmmAnalysis() {
+        this(null);
+    }
+
+    /**
+     * @param listener called with each report of the analysis as soon as it is known, in the order of the reports
+     *                 of the result, or null
+     */
+    public AJmmAnalysis(Consumer<Report> listener) {
+        this.listener = listener;
+    }
+
     @Override
     public JmmSemanticsResult semanticAnalysis(JmmParserResult jmmParserResult) {
-        ASymbolTable symbolTable = new SymbolTableGenerator().getSymbolTable(jmmParserResult.getRootNode());
-        Analyzer analyzer = new Analyzer(symbolTable);
-        analyzer.analyze(jmmParserResult.getRootNode());
+        ASymbolTable symbolTable = StageStats.measure(StageStats.SYMBOL_TABLE,
+                () -> new SymbolTableGenerator().getSymbolTable(jmmParserResult.getRootNode()));
+        boolean parallel = !"false".equals(jmmParserResult.getConfig().get("parallelSemantics"));
+        // the analysis stops after maxErrors errors, 0 for no limit (checked by Launcher.parseArgs)
+        int maxErrors = Integer.parseInt(jmmParserResult.getConfig().getOrDefault("maxErrors", "0"));
+        Analyzer analyzer = new Analyzer(symbolTable, parallel, maxErrors, listener);
+        StageStats.measure(StageStats.SEMANTIC_ANALYSIS, () -> analyzer.analyze(jmmParserResult.getRootNode()));
 
         return new JmmSemanticsResult(jmmParserResult.getRootNode(), symbolTable, analyzer.getReports(), jmmParserResult.getConfig());
     }
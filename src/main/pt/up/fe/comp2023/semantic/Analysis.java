@@ -2,17 +2,34 @@ package pt.up.fe.comp2023.semantic;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
+import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp.jmm.report.ReportType;
 import pt.up.fe.comp.jmm.report.Stage;
+import pt.up.fe.comp2023.ollir.OllirUtils;
 import pt.up.fe.comp2023.table.ASymbolTable;
+import pt.up.fe.comp2023.table.ResolvedSymbol;
 
 public class Analysis {
+    /**
+     * Attribute with the {@link Type} of each expression the analysis visits. It is "import" when the type comes
+     * from an imported class and the context expects no particular type.
+     */
+    public static final String TYPE = "type";
+    /**
+     * Attribute with the OLLIR suffix of the type of each expression, e.g. "i32" or "array.i32", when the type is
+     * known.
+     */
+    public static final String OLLIR_TYPE = "ollirType";
+
     private List<Report> reports;
     private ASymbolTable symbolTable;
+    private int maxErrors;
+    private Consumer<Report> listener;
 
     Analysis(List<Report> reports, ASymbolTable symbolTable) {
         this.reports = reports;
@@ -20,8 +37,19 @@ public class Analysis {
     }
 
     Analysis(ASymbolTable symbolTable) {
+        this(symbolTable, 0, null);
+    }
+
+    /**
+     * @param maxErrors number of errors after which the analysis stops, and the next reports are dropped, or 0 for
+     *                  no limit
+     * @param listener  called with each report as soon as it is added, or null
+     */
+    Analysis(ASymbolTable symbolTable, int maxErrors, Consumer<Report> listener) {
         this.reports = new ArrayList<Report>();
         this.symbolTable = symbolTable;
+        this.maxErrors = maxErrors;
+        this.listener = listener;
     }
 
     public List<Report> getReports() {
@@ -32,10 +60,53 @@ public class Analysis {
         return symbolTable;
     }
 
+    /**
+     * Puts in the node, which has an id, the symbol its id refers to inside the method, if there is one, for the
+     * passes after the analysis (see {@link ResolvedSymbol}).
+     */
+    public void resolve(JmmNode node, String method) {
+        ResolvedSymbol symbol = symbolTable.resolve(node.get("id"), method);
+        if (symbol != null) {
+            node.putObject(ResolvedSymbol.ATTRIBUTE, symbol);
+        }
+    }
+
+    /**
+     * Puts the type in the expression, with its OLLIR suffix, for the passes after the analysis.
+     */
+    public void setType(JmmNode node, Type type) {
+        node.putObject(TYPE, type);
+        if (type.getName().equals("this")) {
+            node.put(OLLIR_TYPE, symbolTable.getClassName());
+        } else if (!type.getName().equals("import")) {
+            node.put(OLLIR_TYPE, OllirUtils.getOllirType(type));
+        }
+    }
+
+    public int getMaxErrors() {
+        return maxErrors;
+    }
+
+    /**
+     * @return whether the analysis found as many errors as it was asked to, so it can stop
+     */
+    public boolean isFull() {
+        return maxErrors > 0 && reports.size() >= maxErrors;
+    }
+
     public void addReport(JmmNode node, String message) {
-        reports.add(new Report(ReportType.ERROR, Stage.SEMANTIC,
+        if (isFull()) return;
+        addReport(new Report(ReportType.ERROR, Stage.SEMANTIC,
                 //TODO get line and col
                 Integer.parseInt(node.get("lineStart")), Integer.parseInt(node.get("colStart")),
                 message));
     }
+
+    public void addReport(Report report) {
+        if (isFull()) return;
+        reports.add(report);
+        if (listener != null) {
+            listener.accept(report);
+        }
+    }
 }
@@ -1,23 +1,56 @@
 package pt.up.fe.comp2023.semantic;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import pt.up.fe.comp.jmm.analysis.table.SymbolTable;
 import pt.up.fe.comp.jmm.analysis.table.Type;
 import pt.up.fe.comp.jmm.ast.JmmNode;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2023.ast.AKindVisitor;
+import pt.up.fe.comp2023.ast.NodeKind;
 import pt.up.fe.comp2023.table.ASymbolTable;
 
-public class Analyzer extends AJmmVisitor<String, Void> {
+public class Analyzer extends AKindVisitor<String, Void> {
+    /**
+     * Classes with fewer methods are analyzed sequentially, as it would take longer to start the tasks.
+     */
+    public static final int PARALLEL_METHODS = 32;
+
     private Analysis analysis;
     private ExpressionVisitor expressionVisitor;
+    private boolean parallel;
+    // set when the analysis this one is a task of is full
+    private AtomicBoolean cancelled = new AtomicBoolean();
 
     public Analyzer(ASymbolTable symbolTable) {
+        this(symbolTable, false);
+    }
+
+    /**
+     * @param parallel whether to analyze the methods of large classes concurrently, each one on a task of the
+     *                 fork/join pool. The reports are the same, and in the same order, as when analyzed sequentially.
+     */
+    public Analyzer(ASymbolTable symbolTable, boolean parallel) {
+        this(symbolTable, parallel, 0, null);
+    }
+
+    /**
+     * @param maxErrors number of errors after which the analysis stops, or 0 for no limit
+     * @param listener  called with each report, in the order of {@link #getReports()}, as soon as it is known, or
+     *                  null. When the methods are analyzed concurrently, the reports of a method are known once it
+     *                  and the methods before it are analyzed
+     */
+    public Analyzer(ASymbolTable symbolTable, boolean parallel, int maxErrors, Consumer<Report> listener) {
         super();
-        analysis = new Analysis(symbolTable);
+        analysis = new Analysis(symbolTable, maxErrors, listener);
         expressionVisitor = new ExpressionVisitor(analysis);
+        this.parallel = parallel;
         setDefaultVisit(this::defaultVisit);
     }
 
@@ -32,14 +65,23 @@ public class Analyzer extends AJmmVisitor<String, Void> {
 
     @Override
     protected void buildVisitor() {
-        addVisit("Program", this::dealWithProgram);
-        addVisit("Class", this::dealWithClass);
-        addVisit("InstanceMethod", this::dealWithMethod);
-        addVisit("MainMethod", this::dealWithMainMethod);
-        addVisit("Condition", this::dealWithCondition);
-        addVisit("ExpressionStatement", this::dealWithExpressionStatement);
-        addVisit("Assignment", this::dealWithAssignment);
-        addVisit("ArrayAssignment", this::dealWithArrayAssignment);
+        addVisit(NodeKind.PROGRAM, this::dealWithProgram);
+        addVisit(NodeKind.CLASS, this::dealWithClass);
+        addVisit(NodeKind.INSTANCE_METHOD, this::dealWithMethod);
+        addVisit(NodeKind.MAIN_METHOD, this::dealWithMainMethod);
+        addVisit(NodeKind.CONDITION, this::dealWithCondition);
+        addVisit(NodeKind.EXPRESSION_STATEMENT, this::dealWithExpressionStatement);
+        addVisit(NodeKind.ASSIGNMENT, this::dealWithAssignment);
+        addVisit(NodeKind.ARRAY_ASSIGNMENT, this::dealWithArrayAssignment);
+    }
+
+    /**
+     * Visits the node, unless the analysis already found the maximum number of errors.
+     */
+    @Override
+    public Void visit(JmmNode node, String method) {
+        if (analysis.isFull() || cancelled.get()) return null;
+        return super.visit(node, method);
     }
 
     protected Void defaultVisit(JmmNode node, String method) {
@@ -48,28 +90,72 @@ public class Analyzer extends AJmmVisitor<String, Void> {
 
     private Void dealWithProgram(JmmNode node, String method) {
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("Import")) continue;
+            if (NodeKind.of(child) == NodeKind.IMPORT) continue;
             else visit(child, method);
         }
         return null;
     }
 
     private Void dealWithClass(JmmNode node, String method) {
+        List<JmmNode> methods = new ArrayList<>();
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("Extends")) continue;
-            else if (child.getKind().equals("Var")) continue;
-            else visit(child, method);
+            if (NodeKind.of(child) == NodeKind.EXTENDS) continue;
+            else if (NodeKind.of(child) == NodeKind.VAR) continue;
+            else methods.add(child);
+        }
+
+        if (!parallel || methods.size() < PARALLEL_METHODS) {
+            for (JmmNode child : methods) {
+                visit(child, method);
+            }
+            return null;
+        }
+
+        // the methods only share the symbol table, which they read, so each one gets its own analyzer and reports.
+        // The reports are merged in order as each task ends, which passes them on to the listener in order. Only a
+        // few tasks are forked ahead of the one merged, and once the errors reach the maximum the tasks forked are
+        // cancelled, so, as when analyzed sequentially, the methods after the limit are not analyzed.
+        AtomicBoolean cancelled = new AtomicBoolean();
+        List<ForkJoinTask<List<Report>>> tasks = new ArrayList<>();
+        for (JmmNode child : methods) {
+            tasks.add(ForkJoinTask.adapt(() -> {
+                Analyzer analyzer = new Analyzer(analysis.getSymbolTable(), false, analysis.getMaxErrors(), null);
+                analyzer.cancelled = cancelled;
+                analyzer.visit(child, method);
+                return analyzer.getReports();
+            }));
+        }
+
+        // fork() runs the tasks on the pool of the caller, e.g. of a batch compilation, if it is in one
+        ForkJoinPool pool = ForkJoinTask.inForkJoinPool() ? ForkJoinTask.getPool() : ForkJoinPool.commonPool();
+        int forked = Math.min(2 * pool.getParallelism() + 1, tasks.size());
+        for (int i = 0; i < forked; i++) {
+            tasks.get(i).fork();
+        }
+        int merged = 0;
+        for (; merged < forked && !analysis.isFull(); merged++) {
+            tasks.get(merged).join().forEach(analysis::addReport);
+            if (forked < tasks.size() && !analysis.isFull()) {
+                tasks.get(forked++).fork();
+            }
+        }
+
+        // the tasks left stop at their next statement, and are waited for as they annotate the nodes of their method
+        cancelled.set(true);
+        for (int i = merged; i < forked; i++) {
+            tasks.get(i).quietlyJoin();
         }
         return null;
     }
 
     private Void dealWithMethod(JmmNode node, String _method) {
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("Var")) continue;
-            if (child.getKind().equals("ReturnObject")) {
+            if (NodeKind.of(child) == NodeKind.VAR) continue;
+            if (NodeKind.of(child) == NodeKind.RETURN_OBJECT) {
                 Type returnType = expressionVisitor.visit(child.getChildren().get(0), node.get("id"));
                 if (returnType == null) return null;
                 Type methodType = analysis.getSymbolTable().getReturnType(node.get("id"));
+                expressionVisitor.expect(child.getChildren().get(0), methodType);
                 if (!expressionVisitor.checkTypes(methodType, returnType)) {
                     analysis.addReport(child.getChildren().get(0), "Return type of method "
                             + node.get("id") + " is " + methodType + " but found " + returnType);
@@ -82,7 +168,7 @@ public class Analyzer extends AJmmVisitor<String, Void> {
 
     private Void dealWithMainMethod(JmmNode node, String _method) {
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("Var")) continue;
+            if (NodeKind.of(child) == NodeKind.VAR) continue;
             else visit(child, "main");
         }
         return null;
@@ -94,6 +180,7 @@ public class Analyzer extends AJmmVisitor<String, Void> {
             //analysis.addReport(node.getChildren().get(0), "Condition can't be null");
             return null;
         }
+        expressionVisitor.expect(node.getChildren().get(0), new Type("boolean", false));
         if (!(conditionType.getName().equals("boolean") || conditionType.getName().equals("import"))) {
             analysis.addReport(node.getChildren().get(0),
                     "Condition must be of type boolean but found " + conditionType.getName());
@@ -107,6 +194,7 @@ public class Analyzer extends AJmmVisitor<String, Void> {
     }
 
     private Void dealWithAssignment(JmmNode node, String method) {
+        analysis.resolve(node, method);
         Type fieldType = analysis.getSymbolTable().getVariableType(node.get("id"), method);
         if (fieldType == null) {
             analysis.addReport(node.getChildren().get(0),
@@ -114,6 +202,7 @@ public class Analyzer extends AJmmVisitor<String, Void> {
             return null;
         }
         Type type = expressionVisitor.visit(node.getChildren().get(0), method);
+        expressionVisitor.expect(node.getChildren().get(0), fieldType);
 
         if (!expressionVisitor.checkTypes(fieldType, type)) {
             analysis.addReport(node.getChildren().get(0),
@@ -125,6 +214,7 @@ public class Analyzer extends AJmmVisitor<String, Void> {
     }
 
     private Void dealWithArrayAssignment(JmmNode node, String method) {
+        analysis.resolve(node, method);
         Type fieldType = analysis.getSymbolTable().getVariableType(node.get("id"), method);
         if (fieldType == null) {
             analysis.addReport(node.getChildren().get(0),
@@ -141,6 +231,7 @@ public class Analyzer extends AJmmVisitor<String, Void> {
             analysis.addReport(node.getChildren().get(0), "Array index can't be null");
             return null;
         }
+        expressionVisitor.expect(node.getChildren().get(0), new Type("int", false));
         if (!(indexType.getName().equals("int") || indexType.getName().equals("import"))) {
             analysis.addReport(node.getChildren().get(0),
                     "Array index must be of type int but found " + indexType.getName());
@@ -152,6 +243,7 @@ public class Analyzer extends AJmmVisitor<String, Void> {
 
         Type type = expressionVisitor.visit(node.getChildren().get(1), method);
         Type tempFieldType = new Type(fieldType.getName(), false);
+        expressionVisitor.expect(node.getChildren().get(1), tempFieldType);
         if (!expressionVisitor.checkTypes(tempFieldType, type)) {
             analysis.addReport(node.getChildren().get(0),
                     "Type of right side of assignment must be " + fieldType.getName()
@@ -4,11 +4,12 @@ import java.util.List;
 
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2023.ast.AKindVisitor;
+import pt.up.fe.comp2023.ast.NodeKind;
 import pt.up.fe.comp2023.table.SymbolTableMethod;
 
-public class ExpressionVisitor extends AJmmVisitor<String, Type> {
+public class ExpressionVisitor extends AKindVisitor<String, Type> {
     Analysis analysis;
 
     public ExpressionVisitor(Analysis analysis) {
@@ -21,22 +22,50 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
         return visit(node, null);
     }
 
+    /**
+     * Visits the expression and puts its type in it (see {@link Analysis#TYPE}). Once the analysis found the
+     * maximum number of errors, the expressions are no longer visited and have no type.
+     */
+    @Override
+    public Type visit(JmmNode node, String method) {
+        if (analysis.isFull()) return null;
+        Type type = super.visit(node, method);
+        if (type != null) {
+            analysis.setType(node, type);
+        }
+        return type;
+    }
+
+    /**
+     * Gives the type the context expects to an expression whose type comes from an import, e.g. to the call in
+     * {@code a = io.read();}, so the OLLIR of the expression has the type it is used with.
+     */
+    public void expect(JmmNode node, Type expected) {
+        Object type = node.getOptionalObject(Analysis.TYPE).orElse(null);
+        if (!(type instanceof Type actual) || !actual.getName().equals("import")) return;
+
+        analysis.setType(node, expected);
+        if (NodeKind.of(node) == NodeKind.PARENTHESES) {
+            expect(node.getJmmChild(0), expected);
+        }
+    }
+
     public Analysis getAnalysis() {
         return analysis;
     }
 
     @Override
     protected void buildVisitor() {
-        addVisit("UnaryOp", this::dealWithUnary);
-        addVisit("Negate", this::dealWithNegate);
-        addVisit("BinaryOp", this::dealWithBinaryOp);
-        addVisit("ArrayAccess", this::dealWithArrayAccess);
-        addVisit("Literal", this::dealWithLiteral);
-        addVisit("Variable", this::dealWithVariable);
-        addVisit("MethodCall", this::dealWithMethodCall);
-        addVisit("MemberAccessLength", this::dealWithMemberAccessLength);
-        addVisit("NewArray", this::dealWithNewArray);
-        addVisit("NewObject", this::dealWithNewObject);
+        addVisit(NodeKind.UNARY_OP, this::dealWithUnary);
+        addVisit(NodeKind.NEGATE, this::dealWithNegate);
+        addVisit(NodeKind.BINARY_OP, this::dealWithBinaryOp);
+        addVisit(NodeKind.ARRAY_ACCESS, this::dealWithArrayAccess);
+        addVisit(NodeKind.LITERAL, this::dealWithLiteral);
+        addVisit(NodeKind.VARIABLE, this::dealWithVariable);
+        addVisit(NodeKind.METHOD_CALL, this::dealWithMethodCall);
+        addVisit(NodeKind.MEMBER_ACCESS_LENGTH, this::dealWithMemberAccessLength);
+        addVisit(NodeKind.NEW_ARRAY, this::dealWithNewArray);
+        addVisit(NodeKind.NEW_OBJECT, this::dealWithNewObject);
     }
 
     protected Type defaultVisit(JmmNode node, String method) {
@@ -46,6 +75,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
     private Type dealWithUnary(JmmNode node, String method) {
        Type type = visit(node.getChildren().get(0), method);
        if (type == null) return null;
+       expect(node.getChildren().get(0), new Type("int", false));
          if ((type.getName().equals("int") || type.getName().equals("import")) && !type.isArray()) {
               return new Type("int", false);
          }
@@ -57,6 +87,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
 
     private Type dealWithNegate(JmmNode node, String method) {
         Type type = visit(node.getChildren().get(0), method);
+        expect(node.getChildren().get(0), new Type("boolean", false));
         if (type == null || !(type.getName().equals("boolean") || type.equals("import"))) {
             //analysis.addReport(node, "Negation operator ! can only be applied to bool");
             return null;
@@ -70,6 +101,9 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
         Type left = visit(node.getChildren().get(0), method);
         Type right = visit(node.getChildren().get(1), method);
         String op = node.get("op");
+        Type operands = op.equals("||") || op.equals("&&") ? new Type("boolean", false) : new Type("int", false);
+        expect(node.getChildren().get(0), operands);
+        expect(node.getChildren().get(1), operands);
         if (left == null || right == null) {
             //analysis.addReport(node, "Invalid operands for " + op + ".");
             return null;
@@ -102,6 +136,8 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
     private Type dealWithArrayAccess(JmmNode node, String method) {
         Type array = visit(node.getChildren().get(0), method);
         Type index = visit(node.getChildren().get(1), method);
+        expect(node.getChildren().get(0), new Type("int", true));
+        expect(node.getChildren().get(1), new Type("int", false));
         if (array == null || index == null) {
             analysis.addReport(node, "Invalid array access");
             return null;
@@ -133,6 +169,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
     }
 
     private Type dealWithVariable(JmmNode node, String method) {
+        analysis.resolve(node, method);
         Type type = analysis.getSymbolTable().getVariableType(node.get("id"), method);
         if (type == null) {
             analysis.addReport(node,
@@ -143,8 +180,14 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
 
     private Type dealWithMethodCall(JmmNode node, String methodName) {
         String calledMethodName = getMethodName(node);
-        if (checkMethod(node, methodName))
+        typeReceiver(node.getChildren().get(0), methodName);
+        if (checkMethod(node, methodName)) {
+            // the arguments are not checked, but the generation of their code needs their types
+            for (int i = 1; i < node.getChildren().size(); i++) {
+                visit(node.getChildren().get(i), methodName);
+            }
             return new Type("import", false);
+        }
 
         SymbolTableMethod calledMethod = analysis.getSymbolTable().getMethod(calledMethodName);
 
@@ -157,6 +200,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
         for (int i = 0; i < args.size() && i < node.getChildren().size() - 1; i++) {
             Type actualType = visit(node.getChildren().get(i + 1), methodName);
             Type expectedType = args.get(i).getType();
+            expect(node.getChildren().get(i + 1), expectedType);
             if (!checkTypes(expectedType, actualType)) {
                 analysis.addReport(node.getChildren().get(0),
                         "Expected to find " + expectedType.getName() + " but found " +
@@ -166,6 +210,34 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
         return returnType;
     }
 
+    /**
+     * Puts the type in the object a method is called on, when it is not the name of a class, without the checks
+     * of {@link #checkMethod}, which reports its errors.
+     */
+    private void typeReceiver(JmmNode callee, String method) {
+        if (NodeKind.of(callee) != NodeKind.CHAIN_METHODS) return;
+        JmmNode receiver = callee.getChildren().get(0);
+        while (NodeKind.of(receiver) == NodeKind.PARENTHESES) {
+            receiver = receiver.getChildren().get(0);
+        }
+
+        if (NodeKind.of(receiver) == NodeKind.VARIABLE) {
+            Type type = analysis.getSymbolTable().getVariableType(receiver.get("id"), method);
+            if (type != null) {
+                analysis.resolve(receiver, method);
+                analysis.setType(receiver, type);
+            }
+        }
+        else if (NodeKind.of(receiver) == NodeKind.LITERAL) {
+            if (receiver.get("value").equals("this")) {
+                analysis.setType(receiver, new Type("this", false));
+            }
+        }
+        else {
+            visit(receiver, method);
+        }
+    }
+
     private boolean checkMethod(JmmNode node, String method)  {
         // class extends another class
         if (!analysis.getSymbolTable().getSuper().equals("java.lang.Object")) {
@@ -174,8 +246,8 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
 
         // method is from imported class
         JmmNode firstChild = node.getChildren().get(0);
-        if (firstChild.getKind().equals("ChainMethods")) {
-            if (firstChild.getChildren().get(0).getKind().equals("Variable")) {
+        if (NodeKind.of(firstChild) == NodeKind.CHAIN_METHODS) {
+            if (NodeKind.of(firstChild.getChildren().get(0)) == NodeKind.VARIABLE) {
                 String className = firstChild.getChildren().get(0).get("id");
                 Type type = analysis.getSymbolTable().getVariableType(className, method);
                 for (String imp : analysis.getSymbolTable().getImports()) {
@@ -188,7 +260,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
                     }
                 }
             }
-            else if (firstChild.getChildren().get(0).getKind().equals("Literal")) {
+            else if (NodeKind.of(firstChild.getChildren().get(0)) == NodeKind.LITERAL) {
                 if (firstChild.getChildren().get(0).get("value").equals("this")
                         && analysis.getSymbolTable().getMethod(method).isStatic()) {
                     analysis.addReport(node, "'this' cannot be used this in a static method");
@@ -198,7 +270,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
 
         // method is from same class
         String methodName = getMethodName(node);
-        if (!analysis.getSymbolTable().getMethods().contains(methodName)) {
+        if (analysis.getSymbolTable().getMethod(methodName) == null) {
             analysis.addReport(node, "Method " + methodName + " not found");
             return true;
         }
@@ -236,14 +308,14 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
 
     private String getMethodName(JmmNode node) {
         JmmNode firstChild = node.getChildren().get(0);
-        if (firstChild.getKind().equals("Literal")) {
+        if (NodeKind.of(firstChild) == NodeKind.LITERAL) {
             if (node.get("value").equals("this")) return "this";
             else analysis.addReport(node, "Method " + node.get("id") + " called with invalid receiver");
         }
-        else if (firstChild.getKind().equals("Variable")) {
+        else if (NodeKind.of(firstChild) == NodeKind.VARIABLE) {
             return firstChild.get("id");
         }
-        else if (firstChild.getKind().equals("ChainMethods")) {
+        else if (NodeKind.of(firstChild) == NodeKind.CHAIN_METHODS) {
             return firstChild.get("id");
         }
         return null;
@@ -257,6 +329,7 @@ public class ExpressionVisitor extends AJmmVisitor<String, Type> {
     private Type dealWithNewArray(JmmNode node, String method) {
         Type type = visit(node.getChildren().get(0), method);
         if (type == null) return null;
+        expect(node.getChildren().get(0), new Type("int", false));
         if (!type.getName().equals("int") || type.isArray()) {
             analysis.addReport(node, "Array size must be of type int");
             return null;
@@ -0,0 +1,62 @@
+package pt.up.fe.comp2023.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input of a program run by a launch request, sent by the client as it becomes available: each chunk is its
+ * length in bytes on a line of its own followed by the bytes, and a chunk of length 0 ends the input. The
+ * client cannot close its side of the connection before reading the response, so the end must be marked.
+ */
+class ChunkedInputStream extends InputStream {
+    private final InputStream in;
+    private int remaining = 0;
+    private boolean ended = false;
+
+    ChunkedInputStream(InputStream in) {
+        this.in = in;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!nextChunk()) return -1;
+
+        int next = in.read();
+        if (next == -1) throw new EOFException("Connection closed in the middle of the input");
+        remaining--;
+        return next;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) return 0;
+        if (!nextChunk()) return -1;
+
+        int count = in.read(b, off, Math.min(len, remaining));
+        if (count == -1) throw new EOFException("Connection closed in the middle of the input");
+        remaining -= count;
+        return count;
+    }
+
+    /**
+     * @return false if the input ended
+     */
+    private boolean nextChunk() throws IOException {
+        while (remaining == 0 && !ended) {
+            StringBuilder length = new StringBuilder();
+            int next;
+            while ((next = in.read()) != -1 && next != '\n') {
+                length.append((char) next);
+            }
+            if (next == -1) {
+                // the client went away, which also ends the input
+                ended = true;
+                break;
+            }
+            remaining = Integer.parseInt(length.toString().trim());
+            ended = remaining == 0;
+        }
+        return !ended;
+    }
+}
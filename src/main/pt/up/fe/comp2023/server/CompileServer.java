@@ -0,0 +1,316 @@
+package pt.up.fe.comp2023.server;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import pt.up.fe.comp.jmm.report.Report;
+import pt.up.fe.comp2023.Jasmin.JasminAssembler;
+import pt.up.fe.comp2023.Jasmin.JasminRunner;
+import pt.up.fe.comp2023.Launcher;
+import pt.up.fe.comp2023.driver.CompilationResult;
+import pt.up.fe.comp2023.driver.CompilerPipeline;
+import pt.up.fe.comp2023.stats.StatsReport;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+/**
+ * Compiler daemon for editors and build tools. It keeps one {@link CompilerPipeline} in a long-running JVM, so
+ * the parser, the visitors and the backends stay JIT-compiled between compilations, and serves every
+ * connection on its own thread. It only listens on the loopback interface.
+ * <p>
+ * As other users of the machine can connect to the port too, the server makes a random token when it starts and
+ * writes it to a file only its user can read, {@code ~/.jmm/server-<port>.token}. Each request must have it in a
+ * "token" header, or it is refused.
+ * <p>
+ * A connection carries one request and its response, both {@link Message}s. The commands are:
+ * <ul>
+ * <li>compile OUTPUT: compiles the source in the body, with the compiler options (optimize, registerAllocation,
+ * backend, ...) as headers. OUTPUT is what the body of the response has: reports, ollir, jasmin or class.</li>
+ * <li>launch: does what the jmm script does with the "arg" headers, relative to the "cwd" header, i.e. compiles
+ * the file and runs it. The files it writes (the output folder, the statistics and the cache) must be inside that
+ * folder. The input of the program follows the request, as the program reads it, in the chunks of
+ * {@link ChunkedInputStream}. The body of the response is the output, and the "exit" header the exit status.
+ * Used by the thin client in the jmm script. A program that runs past the timeout of {@link JasminRunner} is
+ * stopped, except on Java 20 and later, where it keeps a thread of the server busy (see {@link JasminRunner}).</li>
+ * <li>stats: latency histograms of the requests served so far, one per command.</li>
+ * <li>shutdown: stops the server.</li>
+ * </ul>
+ * The first line of a response is "ok", "error" (the body has the reports) or "unsupported" (the client
+ * should compile by itself, e.g. a batch of files).
+ */
+public class CompileServer {
+    public static final int DEFAULT_PORT = 4404;
+    public static final File DEFAULT_TOKEN_FOLDER = new File(System.getProperty("user.home"), ".jmm");
+
+    private final CompilerPipeline pipeline = new CompilerPipeline();
+    private final JasminRunner runner = new JasminRunner();
+    private final Map<String, LatencyHistogram> latencies = new ConcurrentSkipListMap<>();
+    private final ServerSocket serverSocket;
+    private final ExecutorService executor;
+    private final byte[] token;
+    private final File tokenFile;
+
+    public CompileServer(int port) throws IOException {
+        this(port, DEFAULT_TOKEN_FOLDER);
+    }
+
+    /**
+     * @param tokenFolder where the token file is written, created with access only for its user if missing
+     */
+    public CompileServer(int port, File tokenFolder) throws IOException {
+        serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+        byte[] random = new byte[32];
+        new SecureRandom().nextBytes(random);
+        token = HexFormat.of().formatHex(random).getBytes(StandardCharsets.UTF_8);
+        tokenFile = new File(tokenFolder, "server-" + getPort() + ".token");
+        writeToken(tokenFolder.toPath(), tokenFile.toPath(), token);
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, "jmm-server-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        CompileServer server = new CompileServer(port);
+        System.out.println("Compile server listening on port " + server.getPort() + ", with the token in "
+                + server.getTokenFile());
+        server.serve();
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    public File getTokenFile() {
+        return tokenFile;
+    }
+
+    /**
+     * Writes the token to a file that is created readable and writable only by its owner, so no other user can read
+     * it, not even before it is written. A missing folder is created with access only for its owner.
+     */
+    private static void writeToken(Path folder, Path file, byte[] token) throws IOException {
+        boolean posix = folder.getFileSystem().supportedFileAttributeViews().contains("posix");
+        if (!Files.isDirectory(folder)) {
+            if (posix) {
+                Files.createDirectories(folder,
+                        PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rwx------")));
+            } else {
+                Files.createDirectories(folder);
+            }
+        }
+
+        Files.deleteIfExists(file);
+        if (posix) {
+            Files.createFile(file, PosixFilePermissions.asFileAttribute(PosixFilePermissions.fromString("rw-------")));
+        } else {
+            Files.createFile(file);
+        }
+        Files.write(file, token);
+    }
+
+    /**
+     * Accepts connections until the server is stopped.
+     */
+    public void serve() throws IOException {
+        try {
+            while (true) {
+                Socket socket = serverSocket.accept();
+                executor.execute(() -> handle(socket));
+            }
+        } catch (SocketException e) {
+            // the socket was closed by stop()
+            if (!serverSocket.isClosed()) throw e;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    public void stop() {
+        try {
+            Files.deleteIfExists(tokenFile.toPath());
+            serverSocket.close();
+        } catch (IOException e) {
+            throw new RuntimeException("Could not close the server socket", e);
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket) {
+            OutputStream out = new BufferedOutputStream(socket.getOutputStream());
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            Message request;
+            try {
+                request = Message.read(in);
+            } catch (IOException | RuntimeException e) {
+                new Message("error").body("Invalid request: " + e.getMessage() + "\n").write(out);
+                return;
+            }
+            if (!isAuthorized(request)) {
+                new Message("error").body("Missing or wrong token, see " + tokenFile + "\n").write(out);
+                return;
+            }
+
+            long start = System.nanoTime();
+            Message response;
+            try {
+                response = process(request, in);
+            } catch (RuntimeException e) {
+                response = new Message("error").body("Exception while processing '" + request.getFirstLine()
+                        + "': " + e + "\n");
+            }
+            latencies.computeIfAbsent(request.getFirstLine(), command -> new LatencyHistogram())
+                    .record(System.nanoTime() - start);
+
+            response.write(out);
+        } catch (IOException e) {
+            // the client went away, there is no one to tell
+        }
+    }
+
+    private boolean isAuthorized(Message request) {
+        String requestToken = request.getHeader("token");
+        return requestToken != null && MessageDigest.isEqual(token, requestToken.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private Message process(Message request, InputStream in) {
+        String[] command = request.getFirstLine().split(" ");
+        return switch (command[0]) {
+            case "compile" -> compile(request, command.length > 1 ? command[1] : "reports");
+            case "launch" -> launch(request, new ChunkedInputStream(in));
+            case "stats" -> new Message("ok").body(getStats());
+            case "shutdown" -> {
+                stop();
+                yield new Message("ok");
+            }
+            default -> new Message("error").body("Unknown command '" + command[0] + "'\n");
+        };
+    }
+
+    private Message compile(Message request, String output) {
+        Map<String, String> config = new HashMap<>();
+        for (String[] header : request.getAllHeaders()) {
+            config.put(header[0], header[1]);
+        }
+        config.remove("token");
+        // outputs are returned, not written to the file system of the server
+        config.remove("outputDir");
+        File inputFile = new File(config.getOrDefault("inputFile", "input.jmm"));
+
+        CompilationResult result = pipeline.compile(inputFile, request.getBodyAsString(), config);
+        if (!result.isSuccess()) {
+            return new Message("error").header("errors", result.getErrorCount()).body(toText(result.getReports()));
+        }
+
+        Message response = new Message("ok").header("millis", String.format("%.3f", result.getElapsedMillis()));
+        return switch (output) {
+            case "reports" -> response.body(toText(result.getReports()));
+            case "ollir" -> response.body(result.getOllirResult().getOllirCode());
+            case "jasmin" -> response.body(result.getJasminResult().getJasminCode());
+            case "class" -> response.header("class", result.getJasminResult().getClassName())
+                    .body(JasminAssembler.toClassBytes(result.getJasminResult()));
+            default -> new Message("error").body("Unknown output '" + output
+                    + "', expected reports, ollir, jasmin or class\n");
+        };
+    }
+
+    private Message launch(Message request, InputStream input) {
+        File cwd = new File(request.getHeader("cwd"));
+        List<String> inputs = new ArrayList<>();
+        Map<String, String> config = Launcher.parseArgs(request.getHeaders("arg").toArray(new String[0]), inputs);
+
+        File inputFile = resolve(cwd, inputs.get(0));
+        if (inputs.size() > 1 || !inputFile.isFile()) {
+            return new Message("unsupported").body("Batch compilation is not supported by the server\n");
+        }
+        config.put("inputFile", inputFile.getPath());
+        for (String option : List.of("outputDir", "stats", "cacheDir")) {
+            String path = config.get(option);
+            if (path == null || (option.equals("stats") && path.equals("true"))) continue;
+
+            File file = resolve(cwd, path);
+            if (!isInside(cwd, file)) {
+                return new Message("error").header("exit", 1)
+                        .body("The " + option + " '" + path + "' is not inside the folder of the client\n");
+            }
+            config.put(option, file.getPath());
+        }
+
+        CompilationResult result = pipeline.compile(inputFile, config);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(output, true, StandardCharsets.UTF_8);
+        for (Report report : result.getReports()) {
+            out.println(report);
+        }
+        if (result.getStats() != null) {
+            StatsReport statsReport = new StatsReport(config);
+            statsReport.add(inputFile.getPath(), result.getStats(), result.getElapsedNanos(), result.isCached());
+            statsReport.emit(out);
+        }
+        if (!result.isSuccess()) {
+            return new Message("error").header("exit", 1).body(output.toByteArray());
+        }
+
+        byte[] classBytes = JasminAssembler.toClassBytes(result.getJasminResult());
+        ProcessOutputAsString run = runner.run(classBytes, Collections.emptyList(), input);
+        out.print(run.getOutput());
+        return new Message("ok").header("exit", run.getReturnValue()).body(output.toByteArray());
+    }
+
+    private static String toText(List<Report> reports) {
+        StringBuilder text = new StringBuilder();
+        for (Report report : reports) {
+            text.append(report).append('\n');
+        }
+        return text.toString();
+    }
+
+    private static File resolve(File cwd, String path) {
+        File file = new File(path);
+        return file.isAbsolute() ? file : new File(cwd, path);
+    }
+
+    private static boolean isInside(File folder, File file) {
+        try {
+            return file.getCanonicalFile().toPath().startsWith(folder.getCanonicalFile().toPath());
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    public String getStats() {
+        StringBuilder stats = new StringBuilder();
+        for (Map.Entry<String, LatencyHistogram> entry : latencies.entrySet()) {
+            stats.append(entry.getValue().toTable(entry.getKey()));
+        }
+        return stats.toString();
+    }
+}
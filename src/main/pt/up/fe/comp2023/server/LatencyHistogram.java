@@ -0,0 +1,75 @@
+package pt.up.fe.comp2023.server;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Histogram of request latencies with power of two buckets: bucket i counts the latencies between 2^i and
+ * 2^(i+1) microseconds. Percentiles are the upper bound of the bucket they fall in, so they are accurate to a
+ * factor of two, which is enough to tell a warm request from a cold one. Safe to update from several threads.
+ */
+public class LatencyHistogram {
+    private static final int BUCKETS = 40;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        long micros = Math.max(1, nanos / 1000);
+        int bucket = Math.min(BUCKETS - 1, 63 - Long.numberOfLeadingZeros(micros));
+        buckets.incrementAndGet(bucket);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    public long getCount() {
+        return count.get();
+    }
+
+    public double getMeanMillis() {
+        long requests = count.get();
+        return requests == 0 ? 0 : totalNanos.get() / 1e6 / requests;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1e6;
+    }
+
+    /**
+     * @param percentile between 0 and 100
+     * @return the upper bound, in milliseconds, of the bucket where the given percentile of the latencies falls
+     */
+    public double getPercentileMillis(double percentile) {
+        long requests = count.get();
+        if (requests == 0) return 0;
+
+        long rank = (long) Math.ceil(requests * percentile / 100);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= Math.max(1, rank)) {
+                return Math.min((1L << (i + 1)) / 1000.0, getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * One line with the summary, followed by one line per non-empty bucket.
+     */
+    public String toTable(String name) {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-16s count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms%n",
+                name, getCount(), getMeanMillis(), getPercentileMillis(50), getPercentileMillis(90),
+                getPercentileMillis(99), getMaxMillis()));
+        for (int i = 0; i < BUCKETS; i++) {
+            long bucketCount = buckets.get(i);
+            if (bucketCount == 0) continue;
+            table.append(String.format("  < %10.3fms %d%n", (1L << (i + 1)) / 1000.0, bucketCount));
+        }
+        return table.toString();
+    }
+}
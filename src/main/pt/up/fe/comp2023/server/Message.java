@@ -0,0 +1,133 @@
+package pt.up.fe.comp2023.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A request to or a response from the {@link CompileServer}. On the wire it is a first line (the command of a
+ * request, the status of a response), header lines "key=value", an empty line and then a body of as many
+ * bytes as the "length" header says. A key can appear more than once, e.g. the arguments of a launch.
+ */
+public class Message {
+    private static final String LENGTH = "length";
+
+    private final String firstLine;
+    private final List<String[]> headers = new ArrayList<>();
+    private byte[] body = new byte[0];
+
+    public Message(String firstLine) {
+        this.firstLine = firstLine;
+    }
+
+    public String getFirstLine() {
+        return firstLine;
+    }
+
+    public Message header(String key, Object value) {
+        headers.add(new String[]{key, String.valueOf(value)});
+        return this;
+    }
+
+    /**
+     * @return the value of the first header with the given key, or null if there is none
+     */
+    public String getHeader(String key) {
+        for (String[] header : headers) {
+            if (header[0].equals(key)) return header[1];
+        }
+        return null;
+    }
+
+    public List<String> getHeaders(String key) {
+        List<String> values = new ArrayList<>();
+        for (String[] header : headers) {
+            if (header[0].equals(key)) values.add(header[1]);
+        }
+        return values;
+    }
+
+    public List<String[]> getAllHeaders() {
+        return headers;
+    }
+
+    public Message body(byte[] body) {
+        this.body = body;
+        return this;
+    }
+
+    public Message body(String body) {
+        return body(body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public String getBodyAsString() {
+        return new String(body, StandardCharsets.UTF_8);
+    }
+
+    public void write(OutputStream out) throws IOException {
+        StringBuilder head = new StringBuilder(firstLine).append('\n');
+        for (String[] header : headers) {
+            head.append(header[0]).append('=').append(header[1]).append('\n');
+        }
+        head.append(LENGTH).append('=').append(body.length).append("\n\n");
+        out.write(head.toString().getBytes(StandardCharsets.UTF_8));
+        out.write(body);
+        out.flush();
+    }
+
+    public static Message read(InputStream in) throws IOException {
+        String firstLine = readLine(in);
+        if (firstLine == null) {
+            throw new EOFException("Connection closed before the message");
+        }
+
+        Message message = new Message(firstLine);
+        int length = 0;
+        String line;
+        while ((line = readLine(in)) != null && !line.isEmpty()) {
+            int separator = line.indexOf('=');
+            if (separator < 0) {
+                throw new IOException("Expected key=value, got '" + line + "'");
+            }
+            String key = line.substring(0, separator);
+            String value = line.substring(separator + 1);
+            if (key.equals(LENGTH)) {
+                length = Integer.parseInt(value);
+            } else {
+                message.header(key, value);
+            }
+        }
+
+        message.body = in.readNBytes(length);
+        if (message.body.length < length) {
+            throw new EOFException("Expected a body of " + length + " bytes, got " + message.body.length);
+        }
+        return message;
+    }
+
+    /**
+     * Reads up to the next '\n', byte by byte so that nothing of the body is consumed.
+     *
+     * @return the line without the line terminator, or null at the end of the stream
+     */
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int next;
+        while ((next = in.read()) != -1 && next != '\n') {
+            line.write(next);
+        }
+        if (next == -1 && line.size() == 0) return null;
+
+        String text = line.toString(StandardCharsets.UTF_8);
+        return text.endsWith("\r") ? text.substring(0, text.length() - 1) : text;
+    }
+}
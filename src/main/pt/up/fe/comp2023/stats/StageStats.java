@@ -0,0 +1,177 @@
+package pt.up.fe.comp2023.stats;
+
+import com.google.gson.JsonObject;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Wall time, CPU time and allocated bytes of each compiler stage.
+ * <p>
+ * Recording is enabled per thread with {@link #start()}. The stages wrap their work in {@link #measure}, which
+ * does nothing but run the work when recording is not enabled on the current thread. A stage that runs
+ * several times (e.g. liveness, once per method) accumulates its measurements.
+ */
+public class StageStats {
+    public static final String PARSE = "parse";
+    public static final String SYMBOL_TABLE = "symbolTable";
+    public static final String SEMANTIC_ANALYSIS = "semanticAnalysis";
+    public static final String CONSTANT_FOLDING = "constantFolding";
+    public static final String OLLIR_GENERATION = "ollirGeneration";
+    public static final String CONSTANT_PROPAGATION = "constantPropagation";
+    public static final String OLLIR_PARSING = "ollirParsing";
+    public static final String LIVENESS = "liveness";
+    public static final String COLORING = "coloring";
+    // Jasmin code, or the class file itself with the classfile backend
+    public static final String CODE_GENERATION = "codeGeneration";
+    public static final String ASSEMBLY = "assembly";
+
+    public static final List<String> STAGES = List.of(PARSE, SYMBOL_TABLE, SEMANTIC_ANALYSIS, CONSTANT_FOLDING,
+            OLLIR_GENERATION, CONSTANT_PROPAGATION, OLLIR_PARSING, LIVENESS, COLORING, CODE_GENERATION, ASSEMBLY);
+
+    private static final ThreadLocal<StageStats> current = new ThreadLocal<>();
+    private static final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    private final Map<String, Measurement> measurements = new LinkedHashMap<>();
+
+    public StageStats() {
+        for (String stage : STAGES) {
+            measurements.put(stage, new Measurement());
+        }
+    }
+
+    public static class Measurement {
+        private long wallNanos = 0;
+        private long cpuNanos = 0;
+        private long allocatedBytes = 0;
+        private int count = 0;
+
+        private void add(long wallNanos, long cpuNanos, long allocatedBytes, int count) {
+            this.wallNanos += wallNanos;
+            this.cpuNanos += cpuNanos;
+            this.allocatedBytes += allocatedBytes;
+            this.count += count;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public long getCpuNanos() {
+            return cpuNanos;
+        }
+
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * @return how many times the stage ran, 0 if it was skipped
+         */
+        public int getCount() {
+            return count;
+        }
+    }
+
+    /**
+     * Starts recording the stages that run on the current thread.
+     */
+    public static StageStats start() {
+        StageStats stats = new StageStats();
+        current.set(stats);
+        return stats;
+    }
+
+    /**
+     * Stops recording on the current thread.
+     *
+     * @return the recorded stats, or null if recording was not started
+     */
+    public static StageStats stop() {
+        StageStats stats = current.get();
+        current.remove();
+        return stats;
+    }
+
+    public static <T> T measure(String stage, Supplier<T> work) {
+        StageStats stats = current.get();
+        if (stats == null) {
+            return work.get();
+        }
+
+        long cpuStart = getCpuTime();
+        long allocatedStart = getAllocatedBytes();
+        long wallStart = System.nanoTime();
+        try {
+            return work.get();
+        } finally {
+            long wall = System.nanoTime() - wallStart;
+            long cpu = getCpuTime() - cpuStart;
+            long allocated = getAllocatedBytes() - allocatedStart;
+            stats.measurements.get(stage).add(wall, cpu, allocated, 1);
+        }
+    }
+
+    public static void measure(String stage, Runnable work) {
+        measure(stage, () -> {
+            work.run();
+            return null;
+        });
+    }
+
+    private static long getCpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    private static long getAllocatedBytes() {
+        if (threads instanceof com.sun.management.ThreadMXBean sunThreads && sunThreads.isThreadAllocatedMemorySupported()) {
+            return sunThreads.getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    public Measurement get(String stage) {
+        return measurements.get(stage);
+    }
+
+    /**
+     * Adds the measurements of other stats to these ones, e.g. to get the totals of a batch.
+     */
+    public void add(StageStats other) {
+        other.measurements.forEach((stage, measurement) -> measurements.get(stage)
+                .add(measurement.wallNanos, measurement.cpuNanos, measurement.allocatedBytes, measurement.count));
+    }
+
+    public String toTable() {
+        StringBuilder table = new StringBuilder();
+        table.append(String.format("%-18s %6s %12s %12s %14s%n", "Stage", "Runs", "Wall (ms)", "CPU (ms)", "Allocated (KB)"));
+        long wall = 0, cpu = 0, allocated = 0;
+        for (var entry : measurements.entrySet()) {
+            Measurement measurement = entry.getValue();
+            table.append(String.format("%-18s %6d %12.3f %12.3f %14.1f%n", entry.getKey(), measurement.count,
+                    measurement.wallNanos / 1e6, measurement.cpuNanos / 1e6, measurement.allocatedBytes / 1024.0));
+            wall += measurement.wallNanos;
+            cpu += measurement.cpuNanos;
+            allocated += measurement.allocatedBytes;
+        }
+        table.append(String.format("%-18s %6s %12.3f %12.3f %14.1f%n", "total", "", wall / 1e6, cpu / 1e6, allocated / 1024.0));
+        return table.toString();
+    }
+
+    public JsonObject toJson() {
+        JsonObject stages = new JsonObject();
+        measurements.forEach((stage, measurement) -> {
+            JsonObject json = new JsonObject();
+            json.addProperty("count", measurement.count);
+            json.addProperty("wallNanos", measurement.wallNanos);
+            json.addProperty("cpuNanos", measurement.cpuNanos);
+            json.addProperty("allocatedBytes", measurement.allocatedBytes);
+            stages.add(stage, json);
+        });
+        return stages;
+    }
+}
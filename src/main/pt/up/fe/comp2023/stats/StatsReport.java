@@ -0,0 +1,74 @@
+package pt.up.fe.comp2023.stats;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+
+import java.io.File;
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Collects the {@link StageStats} of the compiled files and emits them as a table of totals and as a JSON
+ * document, meant to be kept to compare different versions of the compiler.
+ * <p>
+ * The "stats" option selects where the JSON goes: "true" prints it, anything else is the path of the file to
+ * write it to.
+ */
+public class StatsReport {
+    private static final List<String> OPTIONS = List.of("optimize", "registerAllocation", "backend", "ast", "ollir", "jobs");
+
+    private final Map<String, String> config;
+    private final JsonArray files = new JsonArray();
+    private final StageStats total = new StageStats();
+
+    public StatsReport(Map<String, String> config) {
+        this.config = config;
+    }
+
+    public void add(String file, StageStats stats, long wallNanos, boolean cached) {
+        JsonObject json = new JsonObject();
+        json.addProperty("file", file);
+        json.addProperty("cached", cached);
+        json.addProperty("wallNanos", wallNanos);
+        json.add("stages", stats.toJson());
+        files.add(json);
+        total.add(stats);
+    }
+
+    public String toJson() {
+        JsonObject options = new JsonObject();
+        for (String option : OPTIONS) {
+            if (config.containsKey(option)) options.addProperty(option, config.get(option));
+        }
+
+        JsonObject report = new JsonObject();
+        report.addProperty("timestamp", Instant.now().toString());
+        report.addProperty("javaVersion", System.getProperty("java.version"));
+        report.add("options", options);
+        report.add("stages", total.toJson());
+        report.add("files", files);
+        return new GsonBuilder().setPrettyPrinting().create().toJson(report);
+    }
+
+    public void emit() {
+        emit(System.out);
+    }
+
+    public void emit(PrintStream out) {
+        out.println();
+        out.print(total.toTable());
+
+        String target = config.getOrDefault("stats", "true");
+        if (target.equals("true")) {
+            out.println(toJson());
+        } else {
+            SpecsIo.write(new File(target), toJson());
+            out.println("Stats written to " + target);
+        }
+    }
+}
@@ -15,6 +15,11 @@ public class ASymbolTable implements SymbolTable {
     private List<String> importedClasses;
     private Map<String, Symbol> fields;
     private Map<String, SymbolTableMethod> methods;
+    // copies of the values of the maps, made when first asked for after a change
+    private List<Symbol> fieldList;
+    private List<String> methodList;
+    // the names visible in each method, and under the null key the fields, for the names outside of methods
+    private volatile Map<String, Map<String, ResolvedSymbol>> scopes;
 
     public ASymbolTable() {
         className = "";
@@ -41,12 +46,18 @@ public class ASymbolTable implements SymbolTable {
 
     @Override
     public List<Symbol> getFields() {
-        return List.copyOf(fields.values());
+        if (fieldList == null) {
+            fieldList = List.copyOf(fields.values());
+        }
+        return fieldList;
     }
 
     @Override
     public List<String> getMethods() {
-        return List.copyOf(methods.keySet());
+        if (methodList == null) {
+            methodList = List.copyOf(methods.keySet());
+        }
+        return methodList;
     }
 
     @Override
@@ -95,10 +106,18 @@ public class ASymbolTable implements SymbolTable {
 
     public void addField(String name, Symbol symbol) {
         fields.put(name, symbol);
+        fieldList = null;
+        scopes = null;
     }
 
     public void addMethod(SymbolTableMethod method) {
         methods.put(method.getName(), method);
+        methodList = null;
+        scopes = null;
+    }
+
+    public Symbol getField(String name) {
+        return fields.get(name);
     }
 
     public Type getFieldType(String name) {
@@ -108,23 +127,60 @@ public class ASymbolTable implements SymbolTable {
     }
 
     public Type getVariableType(String name, String methodName) {
-        Type fieldType = getFieldType(name);
-        if (methods.containsKey(methodName)) {
-            // local variable
-            Type type = methods.get(methodName).getFieldType(name);
-            if (type != null) {
-                return type;
-            }
+        ResolvedSymbol resolved = resolve(name, methodName);
+        if (resolved == null) return null;
 
-            // static methods can only access local variables
-            if (fieldType != null) {
-                if (methods.get(methodName).isStatic()) {
-                    return null;
-                }
-            }
+        // static methods can only access local variables
+        if (resolved.getScope() == ResolvedSymbol.Scope.FIELD && methods.containsKey(methodName)
+                && methods.get(methodName).isStatic()) {
+            return null;
+        }
+        return resolved.getType();
+    }
+
+    /**
+     * Finds what the name refers to inside the method: a local variable, a parameter or a field, in this order. The
+     * names visible in each method are indexed the first time, once the table is complete.
+     * <p>
+     * A local variable declared with the name of a parameter hides the parameter, both in the semantic analysis and
+     * in the OLLIR code, where the generation always used the local.
+     *
+     * @return the symbol, or null if there is none with this name. Outside of a method, only fields are found.
+     */
+    public ResolvedSymbol resolve(String name, String methodName) {
+        Map<String, Map<String, ResolvedSymbol>> scopes = this.scopes;
+        if (scopes == null) {
+            scopes = buildScopes();
+        }
+        Map<String, ResolvedSymbol> scope = scopes.get(methodName);
+        return (scope == null ? scopes.get(null) : scope).get(name);
+    }
+
+    private synchronized Map<String, Map<String, ResolvedSymbol>> buildScopes() {
+        if (this.scopes != null) return this.scopes;
+
+        Map<String, ResolvedSymbol> fieldScope = new HashMap<>();
+        for (Symbol field : fields.values()) {
+            fieldScope.put(field.getName(), new ResolvedSymbol(field, ResolvedSymbol.Scope.FIELD, 0));
+        }
 
+        Map<String, Map<String, ResolvedSymbol>> scopes = new HashMap<>();
+        scopes.put(null, fieldScope);
+        for (SymbolTableMethod method : methods.values()) {
+            Map<String, ResolvedSymbol> scope = new HashMap<>(fieldScope);
+            List<Symbol> parameters = method.getParameters();
+            for (int i = 0; i < parameters.size(); i++) {
+                Symbol parameter = parameters.get(i);
+                scope.put(parameter.getName(), new ResolvedSymbol(parameter, ResolvedSymbol.Scope.PARAMETER, i + 1));
+            }
+            for (Symbol local : method.getLocalVariables()) {
+                scope.put(local.getName(), new ResolvedSymbol(local, ResolvedSymbol.Scope.LOCAL, 0));
+            }
+            scopes.put(method.getName(), scope);
         }
-        return fieldType;
+
+        this.scopes = scopes;
+        return scopes;
     }
 
     public SymbolTableMethod getMethod(String name) {
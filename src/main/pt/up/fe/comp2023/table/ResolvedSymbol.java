@@ -0,0 +1,52 @@
+package pt.up.fe.comp2023.table;
+
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+
+/**
+ * Symbol a name refers to inside a method, with the scope it was found in. The semantic analysis puts it in the
+ * Variable, Assignment and ArrayAssignment nodes, as the {@link #ATTRIBUTE} attribute, so the later passes do
+ * not have to resolve the name again.
+ */
+public class ResolvedSymbol {
+    public static final String ATTRIBUTE = "symbol";
+
+    public enum Scope {
+        LOCAL, PARAMETER, FIELD
+    }
+
+    private final Symbol symbol;
+    private final Scope scope;
+    private final int parameterIndex;
+
+    public ResolvedSymbol(Symbol symbol, Scope scope, int parameterIndex) {
+        this.symbol = symbol;
+        this.scope = scope;
+        this.parameterIndex = parameterIndex;
+    }
+
+    public Symbol getSymbol() {
+        return symbol;
+    }
+
+    public Type getType() {
+        return symbol.getType();
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    /**
+     * @return the position of the parameter in the parameters of the method, starting at 1, or 0 if the symbol is
+     * not a parameter
+     */
+    public int getParameterIndex() {
+        return parameterIndex;
+    }
+
+    @Override
+    public String toString() {
+        return scope.name().toLowerCase() + " " + symbol.getName();
+    }
+}
@@ -4,10 +4,11 @@ import java.util.List;
 
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
-import pt.up.fe.comp.jmm.ast.AJmmVisitor;
 import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp2023.ast.AKindVisitor;
+import pt.up.fe.comp2023.ast.NodeKind;
 
-public class SymbolTableGenerator extends AJmmVisitor<Void, Void> {
+public class SymbolTableGenerator extends AKindVisitor<Void, Void> {
     private ASymbolTable symbolTable;
 
     public SymbolTableGenerator() {
@@ -21,16 +22,16 @@ public class SymbolTableGenerator extends AJmmVisitor<Void, Void> {
 
     @Override
     protected void buildVisitor() {
-        addVisit("Program", this::dealWithProgram);
-        addVisit("Class", this::dealWithClass);
-        addVisit("Extends", this::dealWithExtends);
-        addVisit("InstanceMethod", this::dealWithInstanceMethod);
-        addVisit("MainMethod", this::dealWithMainMethod);
+        addVisit(NodeKind.PROGRAM, this::dealWithProgram);
+        addVisit(NodeKind.CLASS, this::dealWithClass);
+        addVisit(NodeKind.EXTENDS, this::dealWithExtends);
+        addVisit(NodeKind.INSTANCE_METHOD, this::dealWithInstanceMethod);
+        addVisit(NodeKind.MAIN_METHOD, this::dealWithMainMethod);
     }
 
     private Void dealWithProgram(JmmNode node, Void arg) {
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("Import")) {
+            if (NodeKind.of(child) == NodeKind.IMPORT) {
                 String path = child.get("id");
                 for (JmmNode grandChild : child.getChildren()) {
                     path += "." + grandChild.get("id");
@@ -46,7 +47,7 @@ public class SymbolTableGenerator extends AJmmVisitor<Void, Void> {
     private Void dealWithClass(JmmNode node, Void arg) {
         symbolTable.setClassName(node.get("id"));
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("Var")) {
+            if (NodeKind.of(child) == NodeKind.VAR) {
                 symbolTable.addField(
                         child.get("id"),
                         new Symbol(getType(child.getChildren().get(0)), child.get("id")));
@@ -66,15 +67,13 @@ public class SymbolTableGenerator extends AJmmVisitor<Void, Void> {
     private Void dealWithInstanceMethod(JmmNode node, Void arg) {
         SymbolTableMethod method = new SymbolTableMethod(node.get("id"));
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("StaticMethod")) {
-                method.setIsStatic(true);
-            }
-            else if (child.getKind().equals("ReturnType")) {
-                method.setReturnType(getType(child.getChildren().get(0)));
-            } else if (child.getKind().equals("ArgumentObject")) {
-                method.addParameter(child.get("id"), getType(child.getChildren().get(0)));
-            } else if (child.getKind().equals("Var")) {
-                method.addLocalVariable(child.get("id"), getType(child.getChildren().get(0)));
+            switch (NodeKind.of(child)) {
+                case STATIC_METHOD -> method.setIsStatic(true);
+                case RETURN_TYPE -> method.setReturnType(getType(child.getChildren().get(0)));
+                case ARGUMENT_OBJECT -> method.addParameter(child.get("id"), getType(child.getChildren().get(0)));
+                case VAR -> method.addLocalVariable(child.get("id"), getType(child.getChildren().get(0)));
+                default -> {
+                }
             }
         }
         symbolTable.addMethod(method);
@@ -87,7 +86,7 @@ public class SymbolTableGenerator extends AJmmVisitor<Void, Void> {
         method.addParameter("args", new Type("String", true));
         method.setIsStatic(true);
         for (JmmNode child : node.getChildren()) {
-            if (child.getKind().equals("Var")) {
+            if (NodeKind.of(child) == NodeKind.VAR) {
                 method.addLocalVariable(child.get("id"), getType(child.getChildren().get(0)));
             }
         }
@@ -13,6 +13,9 @@ public class SymbolTableMethod {
     private Map<String, Symbol> parameters;
     private Map<String, Symbol> localVariables;
     private boolean isStatic;
+    // copies of the values of the maps, made when first asked for after a change
+    private List<Symbol> parameterList;
+    private List<Symbol> localVariableList;
 
     public SymbolTableMethod(String name) {
         this.name = name;
@@ -47,15 +50,30 @@ public class SymbolTableMethod {
     }
 
     public List<Symbol> getParameters() {
-        return List.copyOf(parameters.values());
+        if (parameterList == null) {
+            parameterList = List.copyOf(parameters.values());
+        }
+        return parameterList;
     }
 
     public List<Symbol> getLocalVariables() {
-        return List.copyOf(localVariables.values());
+        if (localVariableList == null) {
+            localVariableList = List.copyOf(localVariables.values());
+        }
+        return localVariableList;
+    }
+
+    public Symbol getParameter(String name) {
+        return parameters.get(name);
+    }
+
+    public Symbol getLocalVariable(String name) {
+        return localVariables.get(name);
     }
 
     public void addParameter(String name, Type type) {
         parameters.put(name, new Symbol(type, name));
+        parameterList = null;
     }
 
     public boolean isStatic() {
@@ -68,6 +86,7 @@ public class SymbolTableMethod {
 
     public void addLocalVariable(String name, Type type) {
         localVariables.put(name, new Symbol(type, name));
+        localVariableList = null;
     }
 
     public Type getFieldType(String name) {
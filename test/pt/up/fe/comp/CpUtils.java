@@ -54,6 +54,8 @@ import pt.up.fe.specs.util.SpecsStrings;
 import pt.up.fe.specs.util.exceptions.NotImplementedException;
 import pt.up.fe.specs.util.utilities.LineStream;
 
+import utils.ProjectTestUtils;
+
 /**
  * Utility methods used in checkpoint tests.
  *
@@ -137,7 +139,7 @@ public class CpUtils {
 
         var testName = new File(resource).getName();
         System.out.println(testName + ":\n" + result.getJasminCode());
-        var runOutput = result.runWithFullOutput();
+        var runOutput = ProjectTestUtils.run(result);
         Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                 + result.getJasminCode(), 0, runOutput.getReturnValue());
         System.out.println("\n Result: " + runOutput.getOutput());
@@ -161,7 +163,7 @@ public class CpUtils {
 
             var testName = new File(resource).getName();
             System.out.println(testName + ":\n" + result.getJasminCode());
-            var runOutput = result.runWithFullOutput();
+            var runOutput = ProjectTestUtils.run(result);
             Assert.assertEquals("Error while running compiled Jasmin: " + runOutput.getOutput() + "\n\nJasmin code:\n"
                             + result.getJasminCode(), 0,
                     runOutput.getReturnValue());
@@ -510,7 +512,7 @@ public class CpUtils {
 
     public static void runJasmin(JasminResult jasminResult, String expected) {
 		try {
-        var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+        var output = SpecsStrings.normalizeFileContents(ProjectTestUtils.run(jasminResult).getOutput(), true);
         assertEquals("Jasmin output", expected, output, jasminResult);
 		} catch(Exception e) {
 			throw new RuntimeException("Problems while running Jasmin code:\n" + jasminResult.getJasminCode(), e);
@@ -0,0 +1,156 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import pt.up.fe.comp2023.Jasmin.JasminAssembler;
+import pt.up.fe.comp2023.Jasmin.JasminRunner;
+import pt.up.fe.comp2023.driver.BatchCompiler;
+import pt.up.fe.comp2023.driver.CompilationResult;
+import pt.up.fe.specs.util.SpecsIo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MyBatchCompilerTest {
+    private static final int FILES = 12;
+    private static final int BROKEN = 5;
+    private static final int SAME_NAME = 4;
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private static String program(String className, int value) {
+        return "import io;\nclass " + className + " {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        io.println(" + value + ");\n"
+                + "    }\n}\n";
+    }
+
+    private static Map<String, String> config() {
+        Map<String, String> config = new HashMap<>();
+        config.put("optimize", "false");
+        config.put("registerAllocation", "-1");
+        config.put("debug", "false");
+        return config;
+    }
+
+    /**
+     * The inputs can be files, folders, searched for .jmm files, and globs. The batch is compiled in one job, and the
+     * summary counts the files that failed.
+     */
+    @Test
+    public void sequentialBatch() throws Exception {
+        File folder = temporaryFolder.getRoot();
+        File single = new File(folder, "Single.jmm");
+        SpecsIo.write(single, program("Single", 1));
+        File nested = SpecsIo.mkdir(new File(folder, "nested/deeper"));
+        SpecsIo.write(new File(nested, "Deep.jmm"), program("Deep", 2));
+        SpecsIo.write(new File(nested, "Notes.txt"), "not a Java-- file");
+        File globbed = SpecsIo.mkdir(new File(folder, "globbed"));
+        SpecsIo.write(new File(globbed, "G1.jmm"), program("G1", 3));
+        SpecsIo.write(new File(globbed, "G2.jmm"), "class G2 { public int f() { return true; } }");
+        SpecsIo.write(new File(globbed, "Other.java"), "class Other { }");
+
+        List<File> inputs = BatchCompiler.resolveInputs(List.of(single.getPath(),
+                new File(folder, "nested").getPath(), new File(globbed, "G*.jmm").getPath()));
+        assertEquals(List.of(single, new File(nested, "Deep.jmm"), new File(globbed, "G1.jmm"),
+                new File(globbed, "G2.jmm")), inputs);
+
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        List<CompilationResult> results;
+        try {
+            System.setOut(new PrintStream(output, true, StandardCharsets.UTF_8));
+            results = new BatchCompiler(config()).compile(inputs);
+        } finally {
+            System.setOut(stdout);
+        }
+
+        assertEquals(inputs.size(), results.size());
+        for (int i = 0; i < inputs.size(); i++) {
+            assertEquals(inputs.get(i), results.get(i).getInputFile());
+            assertEquals(i != 3, results.get(i).isSuccess());
+        }
+        String printed = output.toString(StandardCharsets.UTF_8);
+        assertTrue(printed, printed.contains("[failed] " + new File(globbed, "G2.jmm").getPath()));
+        assertTrue(printed, printed.contains("Compiled 4 file(s): 3 succeeded, 1 failed"));
+    }
+
+    /**
+     * Compiles files with several jobs: the results come in the order of the inputs, the broken file fails without
+     * affecting the others, and the classes with the same name, which are assembled at the same time, each get
+     * their own temporary .j file, which is deleted.
+     */
+    @Test
+    public void parallelBatch() throws Exception {
+        File folder = temporaryFolder.getRoot();
+        File outputDir = new File(folder, "out");
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < FILES; i++) {
+            File file = new File(folder, "P" + i + ".jmm");
+            SpecsIo.write(file, i == BROKEN ? "class P" + i + " { public int f() { return true; } }"
+                    : program("P" + i, i));
+            inputs.add(file);
+        }
+        for (int i = 0; i < SAME_NAME; i++) {
+            File file = new File(SpecsIo.mkdir(new File(folder, "same" + i)), "Same.jmm");
+            SpecsIo.write(file, program("Same", 100 + i));
+            inputs.add(file);
+        }
+        Set<String> tempFiles = jasminTempFiles();
+
+        Map<String, String> config = config();
+        config.put("jobs", "4");
+        config.put("outputDir", outputDir.getPath());
+        List<CompilationResult> results = new BatchCompiler(config).compile(inputs);
+
+        assertEquals(inputs.size(), results.size());
+        JasminRunner runner = new JasminRunner();
+        for (int i = 0; i < inputs.size(); i++) {
+            CompilationResult result = results.get(i);
+            assertEquals(inputs.get(i), result.getInputFile());
+            if (i == BROKEN) {
+                assertFalse(result.isSuccess());
+                String reports = result.getReports().toString();
+                assertTrue(reports, result.getReports().get(0).toString().startsWith("ERROR@semantic"));
+                assertFalse(new File(outputDir, "P" + i + ".class").exists());
+                continue;
+            }
+
+            assertTrue(result.getReports().toString(), result.isSuccess());
+            String expected = String.valueOf(i < FILES ? i : 100 + i - FILES);
+            byte[] classBytes = JasminAssembler.toClassBytes(result.getJasminResult());
+            assertEquals(expected, runner.run(classBytes, List.of(), (String) null).getStdOut().trim());
+            if (i < FILES) {
+                assertTrue(new File(outputDir, "P" + i + ".class").isFile());
+            }
+        }
+
+        // the class file written last is one of the programs named Same, whole
+        byte[] same = Files.readAllBytes(new File(outputDir, "Same.class").toPath());
+        int printed = Integer.parseInt(runner.run(same, List.of(), (String) null).getStdOut().trim());
+        assertTrue(String.valueOf(printed), printed >= 100 && printed < 100 + SAME_NAME);
+
+        assertEquals(tempFiles, jasminTempFiles());
+    }
+
+    private static Set<String> jasminTempFiles() {
+        String[] names = new File(System.getProperty("java.io.tmpdir"))
+                .list((folder, name) -> name.startsWith("jasmin_Same") && name.endsWith(".j"));
+        return names == null ? Set.of() : Set.of(names);
+    }
+}
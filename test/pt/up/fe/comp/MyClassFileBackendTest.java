@@ -0,0 +1,143 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.Jasmin.AJasminBackend;
+import pt.up.fe.comp2023.Jasmin.JasminAssembler;
+import pt.up.fe.comp2023.Jasmin.JasminRunner;
+import pt.up.fe.comp2023.classfile.ClassFileBackend;
+import pt.up.fe.comp2023.classfile.ClassFileResult;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MyClassFileBackendTest {
+    private static final List<String> OLLIR_FOLDERS = List.of(
+            "test/pt/up/fe/comp/cpf/4_jasmin",
+            "test/pt/up/fe/comp/cp2/jasmin");
+
+    private static List<Path> getOllirFiles() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String folder : OLLIR_FOLDERS) {
+            try (Stream<Path> paths = Files.walk(Paths.get(folder))) {
+                files.addAll(paths.filter(path -> path.toString().endsWith(".ollir")).sorted().collect(Collectors.toList()));
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Every program must load (and so pass the bytecode verifier) and print the same as the Jasmin backend.
+     */
+    @Test
+    public void sameOutputAsJasminBackend() throws IOException {
+        List<Path> files = getOllirFiles();
+        assertFalse(files.isEmpty());
+
+        JasminRunner runner = new JasminRunner();
+        for (Path file : files) {
+            OllirResult ollirResult = new OllirResult(SpecsIo.read(file.toFile()), Collections.emptyMap());
+
+            JasminResult expected = new AJasminBackend().toJasmin(ollirResult);
+            JasminResult actual = new ClassFileBackend().toJasmin(ollirResult);
+            assertTrue(actual instanceof ClassFileResult);
+
+            ProcessOutputAsString expectedOutput = runner.run(expected, "");
+            ProcessOutputAsString actualOutput = runner.run(actual, "");
+
+            assertFalse(file + ": " + actualOutput.getStdErr(), actualOutput.getStdErr().contains("VerifyError"));
+            assertEquals(file.toString(), expectedOutput.getReturnValue(), actualOutput.getReturnValue());
+            assertEquals(file.toString(), expectedOutput.getStdOut(), actualOutput.getStdOut());
+        }
+    }
+
+    @Test
+    public void largeConstantsAndWideLocals() {
+        StringBuilder code = new StringBuilder("Big {\n");
+        code.append(".construct Big().V {\ninvokespecial(this, \"<init>\").V;\n}\n");
+        code.append(".method public static main(args.array.String).V {\n");
+        // enough variables for registers above 255, which need the wide prefix
+        for (int i = 0; i < 300; i++) {
+            code.append("a").append(i).append(".i32 :=.i32 ").append(i * 1000).append(".i32;\n");
+        }
+        code.append("a299.i32 :=.i32 a299.i32 +.i32 1.i32;\n");
+        code.append("invokestatic(io, \"println\", a299.i32).V;\n");
+        code.append("invokestatic(io, \"println\", a0.i32).V;\n");
+        code.append("invokestatic(io, \"println\", a40.i32).V;\n");
+        code.append("ret.V;\n}\n}\n");
+
+        OllirResult ollirResult = new OllirResult(code.toString(), Collections.emptyMap());
+        ClassFileResult result = (ClassFileResult) new ClassFileBackend().toJasmin(ollirResult);
+        ProcessOutputAsString output = new JasminRunner().run(result);
+
+        assertEquals(output.getStdErr(), 0, output.getReturnValue());
+        assertEquals("299001\n0\n40000\n", output.getStdOut().replace("\r\n", "\n"));
+    }
+
+    /**
+     * A comparison stored in a variable that only the next branch tests is done by the branch itself, in both
+     * backends, and one whose variable is used again is still stored.
+     */
+    @Test
+    public void comparisonsFusedIntoBranches() {
+        String code = "Loop {\n"
+                + ".construct Loop().V {\ninvokespecial(this, \"<init>\").V;\n}\n"
+                + ".method public static main(args.array.String).V {\n"
+                + "i.i32 :=.i32 0.i32;\n"
+                + "While:\n"
+                + "t.bool :=.bool i.i32 <.bool 3.i32;\n"
+                + "if (!.bool t.bool) goto End;\n"
+                + "invokestatic(io, \"println\", i.i32).V;\n"
+                + "i.i32 :=.i32 i.i32 +.i32 1.i32;\n"
+                + "goto While;\n"
+                + "End:\n"
+                + "u.bool :=.bool i.i32 ==.bool 3.i32;\n"
+                + "if (u.bool) goto Print;\n"
+                + "ret.V;\n"
+                + "Print:\n"
+                + "invokestatic(io, \"println\", u.bool).V;\n"
+                + "ret.V;\n}\n}\n";
+        OllirResult ollirResult = new OllirResult(code, Collections.emptyMap());
+
+        String jasminCode = new AJasminBackend().toJasmin(ollirResult).getJasminCode();
+        assertTrue(jasminCode, jasminCode.contains("if_icmpge End"));
+        assertEquals(jasminCode, 1, jasminCode.split("iconst_0\n\tgoto", -1).length - 1);
+
+        JasminRunner runner = new JasminRunner();
+        for (JasminResult result : List.of(new AJasminBackend().toJasmin(ollirResult),
+                new ClassFileBackend().toJasmin(ollirResult))) {
+            ProcessOutputAsString output = runner.run(result, "");
+            assertEquals(output.getStdErr(), 0, output.getReturnValue());
+            assertEquals("0\n1\n2\ntrue\n", output.getStdOut().replace("\r\n", "\n"));
+        }
+    }
+
+    @Test
+    public void compileWritesClassFile() {
+        OllirResult ollirResult = new OllirResult(SpecsIo.getResource("pt/up/fe/comp/cp2/jasmin/OllirToJasminBasic.ollir"),
+                Collections.emptyMap());
+        ClassFileResult result = (ClassFileResult) new ClassFileBackend().toJasmin(ollirResult);
+
+        var classFile = result.compile();
+        assertTrue(classFile.isFile());
+        assertEquals(result.getClassBytes().length, classFile.length());
+        // jasmin.jar still accepts the code of the other backend for the same class
+        assertTrue(JasminAssembler.assemble(result.getClassName(),
+                new AJasminBackend().toJasmin(ollirResult).getJasminCode()).length > 0);
+    }
+}
@@ -0,0 +1,131 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.driver.CompilationCache;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MyCompilationCacheTest {
+    private static final String CODE = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
+
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    private File newCacheFolder() throws IOException {
+        return temporaryFolder.newFolder();
+    }
+
+    private static CompilationCache.Entry compileAndStore(CompilationCache cache, String code, Map<String, String> config) {
+        OllirResult ollirResult = TestUtils.optimize(code, config);
+        JasminResult jasminResult = TestUtils.backend(ollirResult);
+        return cache.put(code, config, ollirResult.getOllirCode(), jasminResult);
+    }
+
+    private static long countEntries(File folder) throws IOException {
+        try (Stream<Path> paths = Files.list(folder.toPath())) {
+            return paths.filter(path -> path.toString().endsWith(".entry")).count();
+        }
+    }
+
+    @Test
+    public void hitAfterStore() throws IOException {
+        CompilationCache cache = new CompilationCache(newCacheFolder(), CompilationCache.DEFAULT_MAX_BYTES);
+        Map<String, String> config = new HashMap<>();
+
+        assertNull(cache.get(CODE, config));
+        CompilationCache.Entry stored = compileAndStore(cache, CODE, config);
+
+        CompilationCache.Entry cached = cache.get(CODE, config);
+        assertNotNull(cached);
+        assertEquals(stored.getOllirCode(), cached.getOllirCode());
+        assertEquals(stored.getJasminCode(), cached.getJasminCode());
+        assertArrayEquals(stored.getClassBytes(), cached.getClassBytes());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        JasminResult result = cached.toJasminResult(config);
+        assertEquals("30", SpecsStrings.normalizeFileContents(ProjectTestUtils.run(result).getOutput(), true));
+    }
+
+    @Test
+    public void optionsArePartOfTheKey() throws IOException {
+        CompilationCache cache = new CompilationCache(newCacheFolder(), CompilationCache.DEFAULT_MAX_BYTES);
+        Map<String, String> config = new HashMap<>();
+        compileAndStore(cache, CODE, config);
+
+        Map<String, String> optimized = new HashMap<>();
+        optimized.put("optimize", "true");
+        assertNull(cache.get(CODE, optimized));
+
+        // missing options are the same as their defaults
+        Map<String, String> defaults = new HashMap<>();
+        defaults.put("optimize", "false");
+        defaults.put("registerAllocation", "-1");
+        assertEquals(cache.key(CODE, config), cache.key(CODE, defaults));
+        assertNotEquals(cache.key(CODE, config), cache.key(CODE + " ", config));
+    }
+
+    @Test
+    public void evictsLeastRecentlyUsed() throws IOException {
+        File folder = newCacheFolder();
+        CompilationCache unbounded = new CompilationCache(folder, CompilationCache.DEFAULT_MAX_BYTES);
+        Map<String, String> config = new HashMap<>();
+        String first = CODE + "\n// 1";
+        String second = CODE + "\n// 2";
+        compileAndStore(unbounded, first, config);
+        compileAndStore(unbounded, second, config);
+        long entrySize;
+        try (Stream<Path> paths = Files.list(folder.toPath())) {
+            entrySize = paths.mapToLong(path -> path.toFile().length()).max().orElse(0);
+        }
+
+        // use the first entry, so the second one is the least recently used
+        Path secondPath = folder.toPath().resolve(unbounded.key(second, config) + ".entry");
+        Files.setLastModifiedTime(secondPath, FileTime.fromMillis(0));
+        assertNotNull(unbounded.get(first, config));
+
+        // room for two entries only
+        CompilationCache bounded = new CompilationCache(folder, entrySize * 2 + entrySize / 2);
+        compileAndStore(bounded, CODE, config);
+
+        assertEquals(2, countEntries(folder));
+        assertEquals(1, bounded.getEvictions());
+        assertNotNull(bounded.get(first, config));
+        assertNull(bounded.get(second, config));
+    }
+
+    @Test
+    public void corruptedEntryIsAMiss() throws IOException {
+        File folder = newCacheFolder();
+        CompilationCache cache = new CompilationCache(folder, CompilationCache.DEFAULT_MAX_BYTES);
+        Map<String, String> config = new HashMap<>();
+        compileAndStore(cache, CODE, config);
+
+        Path path = folder.toPath().resolve(cache.key(CODE, config) + ".entry");
+        Files.write(path, new byte[]{1, 2, 3});
+
+        assertNull(cache.get(CODE, config));
+        assertEquals(0, countEntries(folder));
+    }
+}
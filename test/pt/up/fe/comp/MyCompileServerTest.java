@@ -0,0 +1,208 @@
+package pt.up.fe.comp;
+
+import org.junit.AfterClass;
+import org.junit.Assume;
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import pt.up.fe.comp2023.Jasmin.JasminRunner;
+import pt.up.fe.comp2023.server.CompileServer;
+import pt.up.fe.comp2023.server.Message;
+import pt.up.fe.specs.util.SpecsIo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MyCompileServerTest {
+    private static final String SIMPLE = "pt/up/fe/comp/cp2/apps/Simple.jmm";
+
+    private static CompileServer server;
+    private static String token;
+
+    @ClassRule
+    public static TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    @BeforeClass
+    public static void startServer() throws IOException {
+        // any free port
+        server = new CompileServer(0, temporaryFolder.newFolder());
+        token = SpecsIo.read(server.getTokenFile());
+        Thread thread = new Thread(() -> {
+            try {
+                server.serve();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @AfterClass
+    public static void stopServer() throws IOException {
+        assertEquals("ok", send(new Message("shutdown"), null).getFirstLine());
+    }
+
+    private static Message send(Message request, String input) throws IOException {
+        return sendUnauthorized(request.header("token", token), input);
+    }
+
+    private static Message sendUnauthorized(Message request, String input) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), server.getPort())) {
+            OutputStream out = socket.getOutputStream();
+            request.write(out);
+            if (input != null) {
+                byte[] bytes = input.getBytes(StandardCharsets.UTF_8);
+                out.write((bytes.length + "\n").getBytes(StandardCharsets.UTF_8));
+                out.write(bytes);
+                out.write("0\n".getBytes(StandardCharsets.UTF_8));
+                out.flush();
+            }
+            return Message.read(socket.getInputStream());
+        }
+    }
+
+    private static Message compile(String output, String code) throws IOException {
+        return send(new Message("compile " + output).body(code), null);
+    }
+
+    @Test
+    public void compileOutputs() throws IOException {
+        String code = SpecsIo.getResource(SIMPLE);
+
+        Message ollir = compile("ollir", code);
+        assertEquals(ollir.getBodyAsString(), "ok", ollir.getFirstLine());
+        assertTrue(ollir.getBodyAsString().contains(".construct Simple().V"));
+
+        Message jasmin = compile("jasmin", code);
+        assertTrue(jasmin.getBodyAsString().contains(".class public Simple"));
+
+        Message classFile = compile("class", code);
+        assertEquals("Simple", classFile.getHeader("class"));
+        var output = new JasminRunner().run(classFile.getBody(), List.of(), (String) null);
+        assertEquals("30", output.getStdOut().trim());
+    }
+
+    @Test
+    public void errorsAreReported() throws IOException {
+        Message response = compile("jasmin", "class A { public int f() { return true; } }");
+        assertEquals("error", response.getFirstLine());
+        assertEquals("1", response.getHeader("errors"));
+        assertTrue(response.getBodyAsString(), response.getBodyAsString().startsWith("ERROR@semantic"));
+    }
+
+    @Test
+    public void concurrentRequests() throws Exception {
+        String code = SpecsIo.getResource(SIMPLE);
+        String expected = compile("jasmin", code).getBodyAsString();
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Message>> responses = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                responses.add(executor.submit(() -> compile("jasmin", code)));
+            }
+            for (Future<Message> response : responses) {
+                assertEquals(expected, response.get().getBodyAsString());
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        String stats = send(new Message("stats"), null).getBodyAsString();
+        assertTrue(stats, stats.contains("compile jasmin"));
+    }
+
+    @Test
+    public void launchWithInput() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        SpecsIo.write(new File(folder, "Double.jmm"), "import ioPlus;\nclass Double {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        int x;\n"
+                + "        x = ioPlus.requestNumber();\n"
+                + "        ioPlus.printResult(x * 2);\n"
+                + "    }\n}\n");
+
+        Message request = new Message("launch").header("cwd", folder.getAbsolutePath()).header("arg", "Double.jmm");
+        Message response = send(request, "21\n");
+        assertEquals(response.getBodyAsString(), "0", response.getHeader("exit"));
+        assertTrue(response.getBodyAsString(), response.getBodyAsString().contains("Result: 42"));
+    }
+
+    /**
+     * A program that does not end is stopped at the timeout, so it no longer runs on the server.
+     */
+    @Test
+    public void launchStopsEndlessProgram() throws Exception {
+        Assume.assumeTrue("threads can not be stopped", Runtime.version().feature() < 20);
+        File folder = temporaryFolder.newFolder();
+        SpecsIo.write(new File(folder, "Endless.jmm"), "class Endless {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        int i;\n"
+                + "        i = 0;\n"
+                + "        while (i < 1) { }\n"
+                + "    }\n}\n");
+
+        Message request = new Message("launch").header("cwd", folder.getAbsolutePath()).header("arg", "Endless.jmm");
+        Message response = send(request, "");
+        assertEquals(response.getBodyAsString(), "-1", response.getHeader("exit"));
+        assertTrue(response.getBodyAsString(), response.getBodyAsString().contains("Timeout"));
+
+        for (StackTraceElement[] stack : Thread.getAllStackTraces().values()) {
+            for (StackTraceElement frame : stack) {
+                assertFalse(frame.getClassName().equals("Endless"));
+            }
+        }
+    }
+
+    @Test
+    public void tokenIsRequired() throws IOException {
+        assertTrue(Files.getPosixFilePermissions(server.getTokenFile().toPath())
+                .equals(PosixFilePermissions.fromString("rw-------")));
+
+        String code = SpecsIo.getResource(SIMPLE);
+        Message missing = sendUnauthorized(new Message("compile jasmin").body(code), null);
+        assertEquals("error", missing.getFirstLine());
+        Message wrong = sendUnauthorized(new Message("compile jasmin").header("token", "0" + token).body(code), null);
+        assertEquals("error", wrong.getFirstLine());
+        assertFalse(wrong.getBodyAsString().contains(".class public Simple"));
+    }
+
+    @Test
+    public void launchWritesOnlyInsideItsFolder() throws IOException {
+        File folder = temporaryFolder.newFolder();
+        SpecsIo.write(new File(folder, "Simple.jmm"), SpecsIo.getResource(SIMPLE));
+
+        for (String outputDir : List.of("../jmm-server-outside", new File(folder.getParentFile(), "x").getPath())) {
+            Message request = new Message("launch").header("cwd", folder.getAbsolutePath())
+                    .header("arg", "-out=" + outputDir).header("arg", "Simple.jmm");
+            // refused before the program runs, so without reading its input
+            Message response = send(request, null);
+            assertEquals("error", response.getFirstLine());
+            assertEquals("1", response.getHeader("exit"));
+            assertTrue(response.getBodyAsString(), response.getBodyAsString().contains("not inside"));
+        }
+
+        Message request = new Message("launch").header("cwd", folder.getAbsolutePath())
+                .header("arg", "-out=out").header("arg", "Simple.jmm");
+        Message response = send(request, "");
+        assertEquals(response.getBodyAsString(), "0", response.getHeader("exit"));
+    }
+}
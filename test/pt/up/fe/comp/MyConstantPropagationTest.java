@@ -0,0 +1,82 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MyConstantPropagationTest {
+    private static final String CODE = "import io;\n"
+            + "class A {\n"
+            + "    public int f(int n) {\n"
+            + "        int a; int b; int i; int s;\n"
+            + "        a = 3;\n"
+            + "        if (n < 2) { b = a + 2; } else { b = 5; }\n"
+            + "        i = 0; s = 0;\n"
+            + "        while (i < n) { s = s + b * a; i = i + 1; }\n"
+            + "        if (b < a) { io.println(0); }\n"
+            + "        return s;\n"
+            + "    }\n"
+            + "    public static void main(String[] args) {\n"
+            + "        A o; int r;\n"
+            + "        o = new A();\n"
+            + "        r = o.f(1); io.println(r);\n"
+            + "        r = o.f(4); io.println(r);\n"
+            + "    }\n"
+            + "}";
+
+    private static String run(OllirResult result) {
+        return ProjectTestUtils.run(TestUtils.backend(result)).getOutput();
+    }
+
+    /**
+     * b is 5 on both sides of the if and a is the same around the loop, so both are propagated into the loop, and
+     * the if on b < a, which is never true, is removed. The variables that change in the loop are not constants.
+     */
+    @Test
+    public void propagatesThroughMergesAndLoops() {
+        OllirResult result = TestUtils.optimize(CODE, Map.of("optimize", "true"));
+        String ollirCode = result.getOllirCode();
+
+        assertTrue(ollirCode, ollirCode.contains("s.i32 :=.i32 s.i32 +.i32 15.i32;"));
+        assertTrue(ollirCode, ollirCode.contains("i.i32 :=.i32 i.i32 +.i32 1.i32;"));
+        assertTrue(ollirCode, ollirCode.contains("if (i.i32 <.bool $1.n.i32) goto While1;"));
+        assertFalse(ollirCode, ollirCode.contains("b.i32"));
+        assertFalse(ollirCode, ollirCode.contains("a.i32"));
+        assertFalse(ollirCode, ollirCode.contains("println\", 0.i32"));
+
+        String output = SpecsStrings.normalizeFileContents(run(result), true);
+        assertEquals("15\n60", output);
+    }
+
+    /**
+     * The optimized programs print the same as those that are not optimized, the loop ends although its counter
+     * starts as a constant.
+     */
+    @Test
+    public void sameOutputAsUnoptimized() {
+        String loop = "import io;\n"
+                + "class L {\n"
+                + "    public static void main(String[] args) {\n"
+                + "        int i; int s;\n"
+                + "        i = 0; s = 0;\n"
+                + "        while (i < 5) { s = s + i; i = i + 1; }\n"
+                + "        io.println(s);\n"
+                + "    }\n"
+                + "}";
+        for (String code : List.of(loop, SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm"))) {
+            String expected = run(TestUtils.optimize(code, Map.of("optimize", "false")));
+            String actual = run(TestUtils.optimize(code, Map.of("optimize", "true")));
+            assertEquals(code, expected, actual);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package pt.up.fe.comp;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.junit.Test;
+
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.ast.JmmNodeImpl;
+import pt.up.fe.comp2023.JavammParser;
+import pt.up.fe.comp2023.ast.AKindVisitor;
+import pt.up.fe.comp2023.ast.NodeKind;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class MyNodeKindTest {
+
+    @Test
+    public void kindsMatchTheGrammar() {
+        List<Class<?>> contexts = Arrays.asList(JavammParser.class.getClasses());
+        Set<NodeKind> kinds = EnumSet.noneOf(NodeKind.class);
+        for (Class<?> context : contexts) {
+            // the contexts of the rules with labels are only the superclasses of the contexts of the labels
+            if (!ParserRuleContext.class.isAssignableFrom(context)
+                    || contexts.stream().anyMatch(other -> other.getSuperclass() == context)) continue;
+
+            List<String> hierarchy = new ArrayList<>();
+            for (Class<?> current = context; current != ParserRuleContext.class; current = current.getSuperclass()) {
+                hierarchy.add(current.getSimpleName().replaceFirst("Context$", ""));
+            }
+            NodeKind kind = NodeKind.fromName(hierarchy.get(0));
+            assertNotNull("No kind for " + context.getSimpleName(), kind);
+            assertEquals(hierarchy, kind.getHierarchy());
+            kinds.add(kind);
+        }
+        assertEquals(EnumSet.allOf(NodeKind.class), kinds);
+    }
+
+    @Test
+    public void nodesKeepTheirKind() {
+        for (Map<String, String> config : List.of(Map.<String, String>of(), Map.of("ast", "packed"))) {
+            JmmNode root = TestUtils.parse("class A { int x; public int f() { return x + 1; } }", config).getRootNode();
+            JmmNode method = root.getJmmChild(0).getJmmChild(1);
+            assertEquals(NodeKind.INSTANCE_METHOD, NodeKind.of(method));
+            assertEquals(NodeKind.BINARY_OP, NodeKind.of(method.getJmmChild(1).getJmmChild(0)));
+        }
+        assertEquals(NodeKind.LITERAL, NodeKind.of(new JmmNodeImpl("Literal")));
+        assertNull(NodeKind.of(new JmmNodeImpl("Other")));
+    }
+
+    @Test
+    public void visitsAreFoundByKindOrByRule() {
+        AKindVisitor<Void, String> visitor = new AKindVisitor<>() {
+            @Override
+            protected void buildVisitor() {
+                addVisit(NodeKind.LITERAL, (node, data) -> "literal");
+                addVisit("Expression", (node, data) -> "expression");
+                setDefaultVisit((node, data) -> "default");
+            }
+        };
+
+        JmmNode expression = TestUtils.parse("a + 1", "expression").getRootNode();
+        assertEquals("expression", visitor.visit(expression));
+        assertEquals("literal", visitor.visit(expression.getJmmChild(1)));
+        assertEquals("default", visitor.visit(new JmmNodeImpl("Other")));
+
+        visitor.addVisit(NodeKind.BINARY_OP, (node, data) -> "binary");
+        assertEquals("binary", visitor.visit(expression));
+    }
+}
@@ -0,0 +1,132 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.specs.comp.ollir.Method;
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.ollir.OllirClassResult;
+import pt.up.fe.comp2023.ollir.OllirGenerator;
+import pt.up.fe.comp2023.ollir.OllirPrinter;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.SpecsStrings;
+import utils.ProjectTestUtils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class MyOllirGeneratorTest {
+    private static final List<String> FOLDERS = List.of(
+            "test/pt/up/fe/comp/cp2/ollir",
+            "test/pt/up/fe/comp/cpf/3_ollir",
+            "test/pt/up/fe/comp/cpf/4_jasmin");
+
+    private static List<Path> getValidPrograms() throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (String folder : FOLDERS) {
+            try (Stream<Path> paths = Files.walk(Paths.get(folder))) {
+                files.addAll(paths.filter(path -> path.toString().endsWith(".jmm")).sorted().collect(Collectors.toList()));
+            }
+        }
+        files.removeIf(file -> {
+            JmmSemanticsResult result = TestUtils.analyse(SpecsIo.read(file.toFile()));
+            return TestUtils.getNumErrors(result.getReports()) > 0;
+        });
+        return files;
+    }
+
+    /**
+     * The class built in memory must be the one the OLLIR parser builds from its printed code.
+     */
+    @Test
+    public void sameClassAsParsedCode() throws IOException {
+        List<Path> files = getValidPrograms();
+        assertFalse(files.isEmpty());
+
+        for (Path file : files) {
+            String code = SpecsIo.read(file.toFile());
+            for (String optimize : List.of("false", "true")) {
+                OllirResult direct = TestUtils.optimize(code, Map.of("optimize", optimize));
+                OllirResult parsed = TestUtils.optimize(code, Map.of("optimize", optimize, "ollir", "text"));
+                assertTrue(direct instanceof OllirClassResult);
+
+                assertEquals(file.toString(), direct.getOllirCode(), OllirPrinter.print(parsed.getOllirClass()));
+                assertEquals(file.toString(), TestUtils.backend(parsed).getJasminCode(),
+                        TestUtils.backend(direct).getJasminCode());
+            }
+        }
+    }
+
+    /**
+     * The indexes are used in place, the sum is assigned whole to the element and the temporary of a[1] is reused
+     * for a[2], once the first sum used it.
+     */
+    @Test
+    public void temporariesOnlyWhereNeeded() {
+        String code = "class A {\n"
+                + "    public int f(int[] a, int i) { int x; a[i] = a[0] + a[1] + a[2]; x = a[i]; return x; }\n"
+                + "    public static void main(String[] args) { }\n"
+                + "}";
+        OllirResult result = TestUtils.optimize(code);
+        String ollirCode = result.getOllirCode();
+
+        assertTrue(ollirCode, ollirCode.contains("t1.i32 :=.i32 $1.a[2.i32].i32;"));
+        assertTrue(ollirCode, ollirCode.contains("a[$2.i.i32].i32 :=.i32 t2.i32 +.i32 t1.i32;"));
+        assertTrue(ollirCode, ollirCode.contains("x.i32 :=.i32 $1.a[$2.i.i32].i32;"));
+        Method method = result.getOllirClass().getMethod(1);
+        assertEquals(Set.of("a", "i", "x", "t0", "t1", "t2"), method.getVarTable().keySet());
+
+        // the naive lowering has a temporary for each index and each element
+        JmmSemanticsResult semantics = TestUtils.analyse(code);
+        OllirGenerator naive = new OllirGenerator(semantics.getSymbolTable(), false);
+        naive.visit(semantics.getRootNode());
+        naive.ollirClass.buildVarTables();
+        assertEquals(14, naive.ollirClass.getMethod(1).getVarTable().size());
+    }
+
+    /**
+     * The right side of && and || only runs when the left side does not decide the result, the conditions jump on
+     * their comparisons, and an if without an else runs its statement when the condition is true.
+     */
+    @Test
+    public void shortCircuitConditions() {
+        String code = "import io;\n"
+                + "class A {\n"
+                + "    public boolean side(int v) { io.println(v); return true; }\n"
+                + "    public int f(int a, int b, boolean c) {\n"
+                + "        boolean x;\n"
+                + "        if (a < b && this.side(1)) io.println(10);\n"
+                + "        if (!(a < b) || c) { io.println(11); } else { io.println(12); }\n"
+                + "        while (a < b && !c) { a = a + 1; }\n"
+                + "        x = a < b && this.side(2);\n"
+                + "        io.println(x || this.side(3));\n"
+                + "        return a;\n"
+                + "    }\n"
+                + "    public static void main(String[] args) {\n"
+                + "        A o; int r;\n"
+                + "        o = new A();\n"
+                + "        r = o.f(1, 3, false); io.println(r);\n"
+                + "        r = o.f(5, 3, true); io.println(r);\n"
+                + "    }\n"
+                + "}";
+        String ollirCode = TestUtils.optimize(code).getOllirCode();
+        assertTrue(ollirCode, ollirCode.contains("if ($1.a.i32 >=.bool $2.b.i32) goto EndIf1;"));
+        assertFalse(ollirCode, ollirCode.contains("&&.bool"));
+
+        String output = ProjectTestUtils.run(TestUtils.backend(code)).getOutput();
+        output = SpecsStrings.normalizeFileContents(output, true);
+        assertEquals("1\n10\n12\n3\ntrue\n3\n11\n3\ntrue\n5", output);
+    }
+}
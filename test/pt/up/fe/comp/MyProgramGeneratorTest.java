@@ -0,0 +1,93 @@
+package pt.up.fe.comp;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.List;
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import pt.up.fe.comp.benchmark.ProgramGenerator;
+import pt.up.fe.comp.jmm.jasmin.JasminResult;
+import pt.up.fe.comp2023.Jasmin.JasminRunner;
+import pt.up.fe.specs.util.SpecsIo;
+import pt.up.fe.specs.util.system.ProcessOutputAsString;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class MyProgramGeneratorTest {
+    @Rule
+    public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
+    /**
+     * Compiles the program with javac, Java-- being a subset of Java, and returns the class file.
+     */
+    private byte[] compileWithJavac(String code, String className) throws IOException {
+        File folder = temporaryFolder.newFolder();
+        File source = new File(folder, className + ".java");
+        // classes in the default package are visible without the import, which javac does not accept, and the
+        // class must be public for the runner to call main
+        SpecsIo.write(source, code.replace("import ioPlus;", "").replace("class " + className, "public class " + className));
+
+        JavaCompiler javac = ToolProvider.getSystemJavaCompiler();
+        int status = javac.run(null, null, null, "-d", folder.getPath(),
+                "-cp", TestUtils.getLibsClasspath(), source.getPath());
+        assertEquals("javac failed", 0, status);
+        return Files.readAllBytes(new File(folder, className + ".class").toPath());
+    }
+
+    @Test
+    public void sameOptionsSameProgram() {
+        String spec = "methods=3,statements=50,depth=3,expressionDepth=4,locals=5,seed=7";
+        assertEquals(ProgramGenerator.fromSpec(spec).generate("A"), ProgramGenerator.fromSpec(spec).generate("A"));
+        assertNotEquals(ProgramGenerator.fromSpec(spec).generate("A"),
+                ProgramGenerator.fromSpec(spec).seed(8).generate("A"));
+    }
+
+    /**
+     * The generated programs must compile without errors and print the same as when compiled by javac.
+     */
+    @Test
+    public void sameOutputAsJavac() throws IOException {
+        JasminRunner runner = new JasminRunner();
+        for (int seed = 0; seed < 5; seed++) {
+            ProgramGenerator generator = new ProgramGenerator().methods(4).statements(40).depth(3)
+                    .expressionDepth(5).locals(6).seed(seed);
+            String code = generator.generate("Generated");
+
+            JasminResult jasminResult = TestUtils.backend(code);
+            ProcessOutputAsString output = runner.run(jasminResult);
+            ProcessOutputAsString expected = runner.run(compileWithJavac(code, "Generated"),
+                    Collections.emptyList(), (String) null);
+
+            assertEquals(generator.getSpec() + ": " + output.getStdErr(), 0, output.getReturnValue());
+            assertTrue(expected.getStdErr(), expected.getStdOut().startsWith("Result: "));
+            assertEquals(generator.getSpec(), expected.getStdOut(), output.getStdOut());
+        }
+    }
+
+    /**
+     * Only up to the Jasmin code: larger methods than these go over the limits of the JVM on the size of the
+     * code of a method and on the offset of a jump.
+     */
+    @Test
+    public void largeProgramsCompile() {
+        List<String> specs = List.of(
+                "methods=100",
+                "methods=1,statements=1000",
+                "methods=1,statements=100,depth=20",
+                "methods=1,statements=10,expressionDepth=60",
+                "methods=1,statements=50,locals=300");
+        for (String spec : specs) {
+            JasminResult jasminResult = TestUtils.backend(ProgramGenerator.fromSpec(spec).generate("Large"));
+            TestUtils.noErrors(jasminResult);
+        }
+    }
+}
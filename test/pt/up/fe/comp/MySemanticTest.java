@@ -2,18 +2,32 @@ package pt.up.fe.comp;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp.jmm.report.Report;
 import pt.up.fe.comp2023.SimpleParser;
 import pt.up.fe.comp2023.semantic.AJmmAnalysis;
+import pt.up.fe.comp2023.semantic.Analysis;
+import pt.up.fe.comp2023.semantic.Analyzer;
 import pt.up.fe.comp2023.table.ASymbolTable;
 import pt.up.fe.comp2023.table.SymbolTableGenerator;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
 public class MySemanticTest {
     private boolean showTree = true;
+    private Consumer<Report> listener;
 
     /**
      * Using the parser to save some trouble instantiating the AST
@@ -21,6 +35,14 @@ public class MySemanticTest {
      * @return Jmm
      */
     private JmmSemanticsResult getResult(String code) {
+        return getResult(code, true);
+    }
+
+    private JmmSemanticsResult getResult(String code, boolean parallel) {
+        return getResult(code, parallel, Map.of());
+    }
+
+    private JmmSemanticsResult getResult(String code, boolean parallel, Map<String, String> options) {
         // Instantiate JmmParser
         SimpleParser parser = new SimpleParser();
 
@@ -30,12 +52,14 @@ public class MySemanticTest {
         config.put("optimize", "false");
         config.put("registerAllocation", "-1");
         config.put("debug", "false");
+        config.put("parallelSemantics", Boolean.toString(parallel));
+        config.putAll(options);
 
         // Parse stage
         JmmParserResult parserResult = parser.parse(code, parser.getDefaultRule(),config);
         if (showTree)
             System.out.println(parserResult.getRootNode().toTree());
-        AJmmAnalysis analysis = new AJmmAnalysis();
+        AJmmAnalysis analysis = new AJmmAnalysis(listener);
 
         return analysis.semanticAnalysis(parserResult);
     }
@@ -264,4 +288,82 @@ class myClass {
         JmmSemanticsResult result = getResult(code);
         assert result.getReports().size() == 0;
     }
+
+    @Test
+    public void expressionsHaveTheirTypes() {
+        String code = "import io; class Foo { public int foo(int[] a) { int b; b = io.read() + a.length; return b; } }";
+
+        JmmSemanticsResult result = getResult(code);
+        assert result.getReports().size() == 0;
+        JmmNode assignment = result.getRootNode().getJmmChild(1).getJmmChild(0).getChildren().stream()
+                .filter(node -> node.getKind().equals("Assignment"))
+                .findFirst().orElseThrow();
+        JmmNode sum = assignment.getJmmChild(0);
+
+        assert sum.getObject(Analysis.TYPE).equals(new Type("int", false));
+        // the call to the imported method has the type of the operand
+        assert sum.getJmmChild(0).get(Analysis.OLLIR_TYPE).equals("i32");
+        assert sum.getJmmChild(1).getJmmChild(0).get(Analysis.OLLIR_TYPE).equals("array.i32");
+    }
+
+    @Test
+    public void parallelReportsInSourceOrder() {
+        StringBuilder code = new StringBuilder("class Foo { int x; ");
+        for (int i = 0; i < Analyzer.PARALLEL_METHODS * 2; i++) {
+            code.append("public int f").append(i).append("(int a) { boolean b; b = a + ").append(i)
+                    .append("; return y").append(i).append("; } ");
+        }
+        code.append("}");
+
+        boolean showTree = this.showTree;
+        this.showTree = false;
+        JmmSemanticsResult sequential = getResult(code.toString(), false);
+        JmmSemanticsResult parallel = getResult(code.toString(), true);
+        this.showTree = showTree;
+
+        assert sequential.getReports().size() == Analyzer.PARALLEL_METHODS * 4;
+        assert parallel.getReports().toString().equals(sequential.getReports().toString());
+    }
+
+    /**
+     * The limit is on the errors of the whole class, also when its methods are analyzed concurrently: the first two
+     * methods have three errors each, so the analysis stops in the second one, and the methods after it, up to the
+     * last one, are not analyzed, which leaves their expressions without types.
+     */
+    @Test
+    public void stopsAtMaxErrors() {
+        int methods = Analyzer.PARALLEL_METHODS * 2 + ForkJoinPool.getCommonPoolParallelism() * 2 + 2;
+        StringBuilder code = new StringBuilder("class Foo { ");
+        for (int i = 0; i < methods; i++) {
+            code.append("public int f").append(i).append("(int a) { ")
+                    .append(i < 2 ? "a = true; a = true; a = true; " : "")
+                    .append("return a; } ");
+        }
+        code.append("}");
+        showTree = false;
+
+        for (boolean parallel : new boolean[]{false, true}) {
+            List<Report> streamed = new ArrayList<>();
+            listener = streamed::add;
+            JmmSemanticsResult limited = getResult(code.toString(), parallel, Map.of("maxErrors", "5"));
+            listener = null;
+            JmmSemanticsResult all = getResult(code.toString(), parallel);
+
+            assertEquals(6, all.getReports().size());
+            assertEquals(all.getReports().subList(0, 5).toString(), limited.getReports().toString());
+            assertEquals(limited.getReports(), streamed);
+
+            assertTrue(getReturned(all).getOptionalObject(Analysis.TYPE).isPresent());
+            assertFalse(getReturned(limited).getOptionalObject(Analysis.TYPE).isPresent());
+        }
+    }
+
+    /**
+     * The expression returned by the last method of the class.
+     */
+    private static JmmNode getReturned(JmmSemanticsResult result) {
+        List<JmmNode> methods = result.getRootNode().getJmmChild(0).getChildren();
+        List<JmmNode> statements = methods.get(methods.size() - 1).getChildren();
+        return statements.get(statements.size() - 1).getJmmChild(0);
+    }
 }
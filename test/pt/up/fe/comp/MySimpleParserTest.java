@@ -0,0 +1,99 @@
+package pt.up.fe.comp;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2023.SimpleParser;
+import pt.up.fe.comp2023.ast.PackedNode;
+import pt.up.fe.specs.util.SpecsIo;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class MySimpleParserTest {
+
+    @Test
+    public void validProgramNeedsNoFallback() {
+        long fallbacks = SimpleParser.getLlFallbacks();
+        long sllParses = SimpleParser.getSllParses();
+
+        JmmParserResult result = TestUtils.parse(SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm"));
+        assertNotNull(result.getRootNode());
+        assertEquals(fallbacks, SimpleParser.getLlFallbacks());
+        assertEquals(sllParses + 1, SimpleParser.getSllParses());
+    }
+
+    @Test
+    public void syntaxErrorFallsBackAndIsReported() {
+        long fallbacks = SimpleParser.getLlFallbacks();
+
+        JmmParserResult result = TestUtils.parse("class A { public int f() { return 1 } }");
+        assertNull(result.getRootNode());
+        assertEquals(1, TestUtils.getNumErrors(result.getReports()));
+        assertEquals(fallbacks + 1, SimpleParser.getLlFallbacks());
+    }
+
+    @Test
+    public void postfixChainsBindTighterThanPrefixOperators() {
+        JmmNode expression = TestUtils.parse("!a.b(c).length", "expression").getRootNode();
+        assertEquals("Negate", expression.getKind());
+
+        JmmNode length = expression.getJmmChild(0);
+        assertEquals("MemberAccessLength", length.getKind());
+        JmmNode call = length.getJmmChild(0);
+        assertEquals("MethodCall", call.getKind());
+        assertEquals("ChainMethods", call.getJmmChild(0).getKind());
+        assertEquals("b", call.getJmmChild(0).get("id"));
+        assertEquals("Variable", call.getJmmChild(1).getKind());
+    }
+
+    @Test
+    public void nodesHaveHierarchyAndPositions() {
+        JmmNode root = TestUtils.parse("class A {\n    int x;\n}\n").getRootNode();
+        assertEquals(List.of("Program"), List.copyOf(root.getHierarchy()));
+
+        JmmNode var = root.getJmmChild(0).getJmmChild(0);
+        assertEquals(List.of("Var", "VarDeclaration"), List.copyOf(var.getHierarchy()));
+        assertEquals("x", var.get("id"));
+        assertEquals("2", var.get("lineStart"));
+        assertEquals("4", var.get("colStart"));
+        assertEquals("9", var.get("colEnd"));
+        assertEquals(root.getJmmChild(0), var.getJmmParent());
+    }
+
+    @Test
+    public void packedAstIsTheSameTree() {
+        String code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
+        JmmNode tree = TestUtils.parse(code).getRootNode();
+        JmmNode packed = TestUtils.parse(code, Map.of("ast", "packed")).getRootNode();
+
+        assertTrue(packed instanceof PackedNode);
+        assertEquals(tree.toTree(), packed.toTree());
+        assertEquals(tree.getJmmChild(0).get("colEnd"), packed.getJmmChild(0).get("colEnd"));
+        assertSame(packed.getJmmChild(0), packed.getJmmChild(0));
+    }
+
+    @Test
+    public void packedAstFoldsInPlace() {
+        String code = "class A { public int f() { int a; a = 2 * 3 + 1; return a; } }";
+        JmmSemanticsResult semantics = TestUtils.analyse(code, Map.of("ast", "packed", "optimize", "true"));
+        JmmNode assignment = semantics.getRootNode().getJmmChild(0).getJmmChild(0).getChildren().stream()
+                .filter(node -> node.getKind().equals("Assignment"))
+                .findFirst().orElseThrow();
+        JmmNode sum = assignment.getJmmChild(0);
+
+        TestUtils.getJmmOptimization().optimize(semantics);
+        assertSame(sum, assignment.getJmmChild(0));
+        assertEquals("Literal", sum.getKind());
+        assertEquals("7", sum.get("value"));
+        assertEquals(0, sum.getNumChildren());
+    }
+}
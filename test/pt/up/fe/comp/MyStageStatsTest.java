@@ -0,0 +1,53 @@
+package pt.up.fe.comp;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import pt.up.fe.comp2023.driver.CompilationResult;
+import pt.up.fe.comp2023.driver.CompilerPipeline;
+import pt.up.fe.comp2023.stats.StageStats;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class MyStageStatsTest {
+
+    @Test
+    public void notRecordedByDefault() {
+        assertNull(StageStats.stop());
+        assertEquals("ok", StageStats.measure(StageStats.PARSE, () -> "ok"));
+
+        CompilationResult result = new CompilerPipeline().compile(
+                new File("test/pt/up/fe/comp/cp2/apps/Simple.jmm"), new HashMap<>());
+        assertTrue(result.isSuccess());
+        assertNull(result.getStats());
+    }
+
+    @Test
+    public void recordsEveryStageThatRuns() {
+        Map<String, String> config = new HashMap<>();
+        config.put("stats", "true");
+        config.put("optimize", "true");
+        config.put("registerAllocation", "0");
+        // the OLLIR code is only parsed when it is printed as text
+        config.put("ollir", "text");
+        config.put("outputDir", new File(System.getProperty("java.io.tmpdir"), "jmm-stats-test").getPath());
+
+        CompilationResult result = new CompilerPipeline().compile(
+                new File("test/pt/up/fe/comp/cpf/5_optimizations/reg_alloc/regalloc.jmm"), config);
+        assertTrue(result.isSuccess());
+
+        StageStats stats = result.getStats();
+        for (String stage : StageStats.STAGES) {
+            assertTrue(stage + " did not run", stats.get(stage).getCount() > 0);
+            assertTrue(stats.get(stage).getWallNanos() > 0);
+        }
+        // once per method
+        assertEquals(stats.get(StageStats.LIVENESS).getCount(), stats.get(StageStats.COLORING).getCount());
+        assertNull("recording must stop with the compilation", StageStats.stop());
+    }
+}
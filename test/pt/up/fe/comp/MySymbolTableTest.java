@@ -1,6 +1,10 @@
 package pt.up.fe.comp;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 
@@ -10,9 +14,11 @@ import java.util.Map;
 
 import pt.up.fe.comp.jmm.analysis.table.Symbol;
 import pt.up.fe.comp.jmm.analysis.table.Type;
+import pt.up.fe.comp.jmm.ast.JmmNode;
 import pt.up.fe.comp.jmm.parser.JmmParserResult;
 import pt.up.fe.comp2023.SimpleParser;
 import pt.up.fe.comp2023.table.ASymbolTable;
+import pt.up.fe.comp2023.table.ResolvedSymbol;
 import pt.up.fe.comp2023.table.SymbolTableGenerator;
 
 public class MySymbolTableTest {
@@ -141,4 +147,56 @@ public class MySymbolTableTest {
 
         assertEquals(expected, result.getFields());
     }
+
+    @Test
+    public void testResolve() {
+        String code = "class Foo { int a; boolean b; public int f(int b, int c) { int c; return 0; }"
+                + " public static void main(String[] args) { } }";
+
+        ASymbolTable result = getTable(code);
+
+        assertEquals(ResolvedSymbol.Scope.FIELD, result.resolve("a", "f").getScope());
+        assertEquals(ResolvedSymbol.Scope.PARAMETER, result.resolve("b", "f").getScope());
+        assertEquals(result.getParameters("f").indexOf(result.resolve("b", "f").getSymbol()) + 1,
+                result.resolve("b", "f").getParameterIndex());
+        assertEquals(ResolvedSymbol.Scope.LOCAL, result.resolve("c", "f").getScope());
+        assertEquals(new Type("boolean", false), result.resolve("b", null).getType());
+        assertNull(result.resolve("d", "f"));
+
+        // fields are found in static methods, but have no type there
+        assertEquals(ResolvedSymbol.Scope.FIELD, result.resolve("a", "main").getScope());
+        assertNull(result.getVariableType("a", "main"));
+        assertSame(result.getFields(), result.getFields());
+    }
+
+    @Test
+    public void testLocalShadowsParameter() {
+        String code = "class Foo { public int f(int b) { boolean b; b = true; return 0; } }";
+
+        ASymbolTable result = getTable(code);
+
+        assertEquals(ResolvedSymbol.Scope.LOCAL, result.resolve("b", "f").getScope());
+        assertEquals(new Type("boolean", false), result.getVariableType("b", "f"));
+
+        // the analysis types the assignment with the local, and the OLLIR code assigns the local, not $1.b
+        String ollirCode = TestUtils.optimize(code).getOllirCode();
+        assertTrue(ollirCode, ollirCode.contains("b.bool :=.bool 1.bool;"));
+        assertFalse(ollirCode, ollirCode.contains("$1.b"));
+    }
+
+    @Test
+    public void testResolvedSymbolAnnotation() {
+        String code = "class Foo { int a; public int f(int b) { a = b; return a; } }";
+
+        JmmNode method = TestUtils.analyse(code).getRootNode().getJmmChild(0).getJmmChild(1);
+        JmmNode assignment = method.getChildren().stream()
+                .filter(node -> node.getKind().equals("Assignment"))
+                .findFirst().orElseThrow();
+
+        ResolvedSymbol field = assignment.getObject(ResolvedSymbol.ATTRIBUTE, ResolvedSymbol.class);
+        assertEquals(ResolvedSymbol.Scope.FIELD, field.getScope());
+        ResolvedSymbol parameter = assignment.getJmmChild(0).getObject(ResolvedSymbol.ATTRIBUTE, ResolvedSymbol.class);
+        assertEquals(ResolvedSymbol.Scope.PARAMETER, parameter.getScope());
+        assertEquals(1, parameter.getParameterIndex());
+    }
 }
@@ -0,0 +1,86 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.specs.comp.ollir.ClassUnit;
+import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp2023.Jasmin.JasminAssembler;
+import pt.up.fe.comp2023.Jasmin.JasminGenerator;
+import pt.up.fe.comp2023.classfile.ClassFileGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Compares the latency of the two backends, from the OLLIR class to the bytes of the class file, over the
+ * OLLIR files of the test corpus. The Jasmin backend is measured with in-memory assembly, so the difference
+ * is the cost of generating and re-parsing the Jasmin text, not of disk access.
+ * <p>
+ * Usage: BackendBenchmark [iterations] [folders...], run from the project folder ({@code gradle backendBenchmark}).
+ */
+public class BackendBenchmark {
+    private static final int WARMUP_ITERATIONS = 200;
+
+    private static final Function<ClassUnit, byte[]> JASMIN =
+            classUnit -> JasminAssembler.assemble(classUnit.getClassName(), new JasminGenerator(classUnit).generate());
+    private static final Function<ClassUnit, byte[]> CLASS_FILE =
+            classUnit -> new ClassFileGenerator(classUnit).generate();
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        List<String> folders = args.length > 1 ? List.of(args).subList(1, args.length) : List.of("test");
+
+        List<ClassUnit> classes = new ArrayList<>();
+        for (String folder : folders) {
+            try (Stream<Path> paths = Files.walk(Paths.get(folder))) {
+                for (Path path : paths.filter(path -> path.toString().endsWith(".ollir")).sorted().collect(Collectors.toList())) {
+                    try {
+                        ClassUnit classUnit = new OllirResult(SpecsIo.read(path.toFile()), Collections.emptyMap()).getOllirClass();
+                        JASMIN.apply(classUnit);
+                        CLASS_FILE.apply(classUnit);
+                        classes.add(classUnit);
+                    } catch (RuntimeException e) {
+                        // some files are expected outputs of the OLLIR tests, which are not complete programs
+                        System.out.println("Skipping " + path + ": " + e.getMessage().lines().findFirst().orElse(""));
+                    }
+                }
+            }
+        }
+
+        System.out.println("Classes: " + classes.size() + ", iterations: " + iterations);
+        double jasmin = measure("jasmin", classes, iterations, JASMIN);
+        double classFile = measure("classfile", classes, iterations, CLASS_FILE);
+        System.out.printf("Speedup: %.2fx%n", jasmin / classFile);
+    }
+
+    /**
+     * @return the mean time, in microseconds, to generate all the classes once
+     */
+    private static double measure(String name, List<ClassUnit> classes, int iterations, Function<ClassUnit, byte[]> backend) {
+        long bytes = 0;
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            for (ClassUnit classUnit : classes) {
+                bytes += backend.apply(classUnit).length;
+            }
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (ClassUnit classUnit : classes) {
+                bytes += backend.apply(classUnit).length;
+            }
+        }
+        double micros = (System.nanoTime() - start) / 1_000.0 / iterations;
+
+        System.out.printf("%-10s %10.1f us per corpus, %8.2f us per class (%d bytes generated)%n",
+                name, micros, micros / classes.size(), bytes);
+        return micros;
+    }
+}
@@ -0,0 +1,153 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.atn.DecisionInfo;
+import pt.up.fe.comp.jmm.ast.antlr.ThrowingErrorListener;
+import pt.up.fe.comp2023.JavammLexer;
+import pt.up.fe.comp2023.JavammParser;
+import pt.up.fe.comp2023.SimpleParser;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Measures how hard the grammar is to predict, over the valid programs of the test corpus and a set of
+ * generated programs. With ANTLR's profiler it counts, for the decisions of each rule, how many were made, how
+ * many of those needed full LL prediction because SLL prediction found a conflict (the fallbacks), the tokens
+ * of lookahead they used and the steps of ATN simulation, the slow path taken until the prediction caches
+ * have seen an input. Then it times the parse of the whole corpus: the first pass, cold, which also fills the
+ * caches, and the mean of the passes after warming up.
+ * <p>
+ * Usage: ParserBenchmark [iterations] [folders...], run from the project folder ({@code gradle parserBenchmark}).
+ */
+public class ParserBenchmark {
+    private static final int WARMUP_ITERATIONS = 20;
+    private static final int GENERATED_PROGRAMS = 20;
+
+    public static void main(String[] args) throws IOException {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        List<String> folders = args.length > 1 ? List.of(args).subList(1, args.length) : List.of("test");
+
+        List<String> inputs = new ArrayList<>();
+        for (String folder : folders) {
+            try (Stream<Path> paths = Files.walk(Paths.get(folder))) {
+                for (Path path : paths.filter(path -> path.toString().endsWith(".jmm")).sorted().collect(Collectors.toList())) {
+                    inputs.add(SpecsIo.read(path.toFile()));
+                }
+            }
+        }
+        for (int i = 0; i < GENERATED_PROGRAMS; i++) {
+            inputs.add(ProgramGenerator.fromSpec("methods=5,statements=40,depth=3,expressionDepth=4,seed=" + i)
+                    .generate("Generated"));
+        }
+
+        // the programs with syntax errors would count the decisions of the error recovery
+        List<String> valid = inputs.stream().filter(ParserBenchmark::isValid).collect(Collectors.toList());
+        System.out.printf("Inputs: %d valid of %d, iterations: %d%n", valid.size(), inputs.size(), iterations);
+
+        // the prediction caches of ANTLR are shared by all the parsers, they are cleared so that the profile
+        // counts the work of filling them, as the first compilation in a JVM does
+        clearCaches();
+        profile(valid);
+
+        clearCaches();
+        double cold = time(valid);
+        double warm = measure(valid, iterations);
+        System.out.printf("Parse time: cold %.3fms, warm %.3fms%n", cold, warm);
+    }
+
+    private static void profile(List<String> inputs) {
+        // per rule: decisions, LL fallbacks, tokens of lookahead, maximum lookahead, ATN transitions
+        Map<String, long[]> rules = new LinkedHashMap<>();
+        for (String input : inputs) {
+            JavammParser parser = newParser(input);
+            parser.setProfile(true);
+            parser.program();
+            for (DecisionInfo info : parser.getParseInfo().getDecisionInfo()) {
+                String rule = parser.getRuleNames()[parser.getATN().getDecisionState(info.decision).ruleIndex];
+                long[] counts = rules.computeIfAbsent(rule, name -> new long[5]);
+                counts[0] += info.invocations;
+                counts[1] += info.LL_Fallback;
+                counts[2] += info.SLL_TotalLook + info.LL_TotalLook;
+                counts[3] = Math.max(counts[3], Math.max(info.SLL_MaxLook, info.LL_MaxLook));
+                counts[4] += info.SLL_ATNTransitions + info.LL_ATNTransitions;
+            }
+        }
+
+        long[] total = new long[5];
+        System.out.printf("%-28s %10s %10s %10s %8s %10s%n", "rule", "decisions", "fallbacks", "meanLook", "maxLook",
+                "atnSteps");
+        for (Map.Entry<String, long[]> entry : rules.entrySet()) {
+            long[] counts = entry.getValue();
+            if (counts[0] == 0) continue;
+            print(entry.getKey(), counts);
+            for (int i = 0; i < total.length; i++) {
+                total[i] = i == 3 ? Math.max(total[i], counts[i]) : total[i] + counts[i];
+            }
+        }
+        print("total", total);
+        System.out.printf("LL fallback rate: %.3f%%%n", 100.0 * total[1] / Math.max(1, total[0]));
+    }
+
+    private static void print(String rule, long[] counts) {
+        System.out.printf("%-28s %10d %10d %10.3f %8d %10d%n", rule, counts[0], counts[1],
+                (double) counts[2] / counts[0], counts[3], counts[4]);
+    }
+
+    /**
+     * @return the mean time, in milliseconds, to parse all the inputs once
+     */
+    private static double measure(List<String> inputs, int iterations) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            time(inputs);
+        }
+        double total = 0;
+        for (int i = 0; i < iterations; i++) {
+            total += time(inputs);
+        }
+        return total / iterations;
+    }
+
+    private static double time(List<String> inputs) {
+        SimpleParser parser = new SimpleParser();
+        Map<String, String> config = new HashMap<>();
+        long start = System.nanoTime();
+        for (String input : inputs) {
+            parser.parse(input, config);
+        }
+        return (System.nanoTime() - start) / 1e6;
+    }
+
+    private static void clearCaches() {
+        newParser("").getInterpreter().clearDFA();
+    }
+
+    private static boolean isValid(String input) {
+        JavammParser parser = newParser(input);
+        parser.removeErrorListeners();
+        try {
+            parser.program();
+        } catch (RuntimeException e) {
+            return false;
+        }
+        return parser.getNumberOfSyntaxErrors() == 0;
+    }
+
+    private static JavammParser newParser(String input) {
+        JavammLexer lexer = new JavammLexer(new ANTLRInputStream(input));
+        lexer.removeErrorListeners();
+        lexer.addErrorListener(new ThrowingErrorListener());
+        return new JavammParser(new CommonTokenStream(lexer));
+    }
+}
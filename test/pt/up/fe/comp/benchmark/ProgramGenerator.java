@@ -0,0 +1,242 @@
+package pt.up.fe.comp.benchmark;
+
+import java.util.Random;
+
+/**
+ * Generates valid Java-- programs of a chosen size and shape, to see how the compiler scales with inputs far
+ * larger than the test corpus. The shape is controlled by:
+ * <ul>
+ * <li>methods: number of generated methods in the class</li>
+ * <li>statements: number of statements in the body of each method, counting the nested ones</li>
+ * <li>depth: maximum nesting of if and while statements</li>
+ * <li>expressionDepth: nesting of the generated expressions</li>
+ * <li>locals: number of int locals of each method, all of them live from the start to the end of the body</li>
+ * <li>seed: seed of the random choices, the same options always generate the same program</li>
+ * </ul>
+ * The programs terminate: loops run a fixed number of times on their own counter, array indexes are
+ * constants within bounds and divisions are by non-zero constants. The main method calls every method once
+ * and prints the sum of the results.
+ */
+public class ProgramGenerator {
+    private static final int ARRAY_SIZE = 16;
+    private static final int LOOP_ITERATIONS = 2;
+
+    private int methods = 10;
+    private int statements = 20;
+    private int depth = 2;
+    private int expressionDepth = 3;
+    private int locals = 4;
+    private long seed = 0;
+
+    private Random random;
+    private StringBuilder code;
+
+    /**
+     * Parses options such as "methods=100,statements=50", the others keep their default values. The options
+     * can also be separated by ';', which JMH does not split parameter values on.
+     */
+    public static ProgramGenerator fromSpec(String spec) {
+        ProgramGenerator generator = new ProgramGenerator();
+        for (String option : spec.split("[,;]")) {
+            String[] parts = option.trim().split("=");
+            if (parts.length != 2) {
+                throw new RuntimeException("Expected option=value, got '" + option + "'");
+            }
+            generator.set(parts[0].trim(), Long.parseLong(parts[1].trim()));
+        }
+        return generator;
+    }
+
+    public ProgramGenerator set(String option, long value) {
+        switch (option) {
+            case "methods" -> methods = (int) value;
+            case "statements" -> statements = (int) value;
+            case "depth" -> depth = (int) value;
+            case "expressionDepth" -> expressionDepth = (int) value;
+            case "locals" -> locals = Math.max(1, (int) value);
+            case "seed" -> seed = value;
+            default -> throw new RuntimeException("Unknown generator option '" + option + "'");
+        }
+        return this;
+    }
+
+    public ProgramGenerator methods(int methods) {
+        return set("methods", methods);
+    }
+
+    public ProgramGenerator statements(int statements) {
+        return set("statements", statements);
+    }
+
+    public ProgramGenerator depth(int depth) {
+        return set("depth", depth);
+    }
+
+    public ProgramGenerator expressionDepth(int expressionDepth) {
+        return set("expressionDepth", expressionDepth);
+    }
+
+    public ProgramGenerator locals(int locals) {
+        return set("locals", locals);
+    }
+
+    public ProgramGenerator seed(long seed) {
+        return set("seed", seed);
+    }
+
+    public String getSpec() {
+        return "methods=" + methods + ",statements=" + statements + ",depth=" + depth +
+                ",expressionDepth=" + expressionDepth + ",locals=" + locals + ",seed=" + seed;
+    }
+
+    public String generate(String className) {
+        random = new Random(seed);
+        code = new StringBuilder();
+
+        code.append("import ioPlus;\n\n");
+        code.append("class ").append(className).append(" {\n\n");
+        code.append("    public int mix(int a, int b) {\n");
+        code.append("        return a * 31 + b;\n");
+        code.append("    }\n\n");
+        for (int i = 0; i < methods; i++) {
+            generateMethod(i);
+        }
+        generateMain(className);
+        code.append("}\n");
+        return code.toString();
+    }
+
+    private void generateMethod(int index) {
+        code.append("    public int method").append(index).append("(int a, int b) {\n");
+        code.append("        int[] values;\n");
+        code.append("        boolean flag;\n");
+        code.append("        int result;\n");
+        for (int i = 0; i < locals; i++) {
+            code.append("        int v").append(i).append(";\n");
+        }
+        for (int i = 0; i < depth; i++) {
+            code.append("        int k").append(i).append(";\n");
+        }
+
+        code.append("        values = new int[").append(ARRAY_SIZE).append("];\n");
+        code.append("        flag = a < b;\n");
+        for (int i = 0; i < locals; i++) {
+            code.append("        v").append(i).append(" = a + ").append(i).append(";\n");
+        }
+
+        generateStatements(statements, 0, "        ");
+
+        // every local is used at the end, so all of them stay live through the body
+        code.append("        result = 0;\n");
+        for (int i = 0; i < locals; i++) {
+            code.append("        result = result + v").append(i).append(";\n");
+        }
+        code.append("        return result;\n");
+        code.append("    }\n\n");
+    }
+
+    private void generateMain(String className) {
+        code.append("    public static void main(String[] args) {\n");
+        code.append("        ").append(className).append(" program;\n");
+        code.append("        int result;\n");
+        code.append("        program = new ").append(className).append("();\n");
+        code.append("        result = 0;\n");
+        for (int i = 0; i < methods; i++) {
+            code.append("        result = result + program.method").append(i).append("(")
+                    .append(i).append(", result);\n");
+        }
+        code.append("        ioPlus.printResult(result);\n");
+        code.append("    }\n");
+    }
+
+    private void generateStatements(int count, int level, String indent) {
+        while (count > 0) {
+            if (level < depth && count >= 3 && random.nextInt(4) == 0) {
+                int nested = 1 + random.nextInt(Math.min(count - 2, 16));
+                generateCompound(nested, level, indent);
+                count -= nested + 1;
+            } else {
+                generateSimple(indent);
+                count--;
+            }
+        }
+    }
+
+    private void generateCompound(int nested, int level, String indent) {
+        String inner = indent + "    ";
+        if (random.nextBoolean()) {
+            code.append(indent).append("if (").append(condition()).append(") {\n");
+            generateStatements((nested + 1) / 2, level + 1, inner);
+            code.append(indent).append("} else {\n");
+            generateStatements(nested / 2, level + 1, inner);
+            code.append(indent).append("}\n");
+        } else {
+            String counter = "k" + level;
+            code.append(indent).append(counter).append(" = 0;\n");
+            code.append(indent).append("while (").append(counter).append(" < ").append(LOOP_ITERATIONS).append(") {\n");
+            generateStatements(nested, level + 1, inner);
+            code.append(inner).append(counter).append(" = ").append(counter).append(" + 1;\n");
+            code.append(indent).append("}\n");
+        }
+    }
+
+    private void generateSimple(String indent) {
+        int choice = random.nextInt(10);
+        code.append(indent);
+        if (choice < 7) {
+            code.append(local()).append(" = ").append(expression(expressionDepth)).append(";\n");
+        } else if (choice < 9) {
+            code.append("values[").append(random.nextInt(ARRAY_SIZE)).append("] = ")
+                    .append(expression(expressionDepth)).append(";\n");
+        } else if (random.nextBoolean()) {
+            code.append("flag = ").append(leaf()).append(" < ").append(leaf()).append(";\n");
+        } else {
+            code.append("flag = !flag;\n");
+        }
+    }
+
+    /**
+     * A condition of an if or while. The operands are variables or constants, because the OLLIR generator
+     * writes the condition inline in the branch and cannot compute it in temporaries first.
+     */
+    private String condition() {
+        return switch (random.nextInt(4)) {
+            case 0 -> "flag";
+            case 1 -> "!flag";
+            case 2 -> local() + " < " + local();
+            default -> local() + " < " + random.nextInt(100);
+        };
+    }
+
+    /**
+     * An int expression nested exactly {@code depth} times: the left operand has depth - 1 and the right one
+     * is smaller, so the size grows linearly with the depth.
+     */
+    private String expression(int depth) {
+        if (depth <= 0) return leaf();
+
+        String left = expression(depth - 1);
+        return switch (random.nextInt(6)) {
+            case 0 -> "(" + left + " + " + expression(random.nextInt(depth)) + ")";
+            case 1 -> "(" + left + " - " + leaf() + ")";
+            case 2 -> "(" + left + " * " + leaf() + ")";
+            case 3 -> "(" + left + " / " + (1 + random.nextInt(9)) + ")";
+            case 4 -> "this.mix(" + left + ", " + leaf() + ")";
+            default -> "(" + left + " + " + leaf() + ")";
+        };
+    }
+
+    private String leaf() {
+        return switch (random.nextInt(6)) {
+            case 0 -> String.valueOf(random.nextInt(100));
+            case 1 -> random.nextBoolean() ? "a" : "b";
+            case 2 -> "values[" + random.nextInt(ARRAY_SIZE) + "]";
+            case 3 -> "values.length";
+            default -> local();
+        };
+    }
+
+    private String local() {
+        return "v" + random.nextInt(locals);
+    }
+}
@@ -0,0 +1,173 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import pt.up.fe.comp2023.driver.CompilationResult;
+import pt.up.fe.comp2023.driver.CompilerPipeline;
+import pt.up.fe.comp2023.stats.StageStats;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Compiles generated programs of growing size and prints, for each size, the time and allocations of every
+ * stage and the peak heap usage as CSV, to plot them against the size of the input. At the end it prints the
+ * growth of each stage, the exponent k of time ~ size^k fitted over the sizes, to find the super-linear ones.
+ * <p>
+ * Usage: ScalingBenchmark option sizes [generatorOptions] [compilerOptions], run from the project folder, e.g.
+ * {@code gradle scalingBenchmark -PscalingArgs="statements 500,1000,2000,4000 methods=1,locals=50 registerAllocation=0"}.
+ * The option is one of the {@link ProgramGenerator} options, and each size is the value it takes.
+ */
+public class ScalingBenchmark {
+    private static final int REPETITIONS = 3;
+    private static final double SUPER_LINEAR = 1.3;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.out.println("Usage: ScalingBenchmark option sizes [generatorOptions] [compilerOptions]");
+            return;
+        }
+        String option = args[0];
+        List<Long> sizes = new ArrayList<>();
+        for (String size : args[1].split(",")) {
+            sizes.add(Long.parseLong(size.trim()));
+        }
+        String generatorOptions = args.length > 2 ? args[2] : "";
+        Map<String, String> config = new HashMap<>();
+        if (args.length > 3) {
+            for (String compilerOption : args[3].split(",")) {
+                String[] parts = compilerOption.split("=");
+                config.put(parts[0].trim(), parts[1].trim());
+            }
+        }
+        config.put("stats", "true");
+
+        CompilerPipeline pipeline = new CompilerPipeline();
+        File folder = SpecsIo.mkdir(new File(System.getProperty("java.io.tmpdir"), "jmm-scaling"));
+
+        // warm up the JIT and the parser caches with the smallest program
+        compile(pipeline, generate(folder, generatorOptions, option, sizes.get(0)), config);
+
+        StringBuilder header = new StringBuilder(option + ",totalMs,peakHeapMb");
+        for (String stage : StageStats.STAGES) {
+            header.append(",").append(stage).append("Ms,").append(stage).append("Kb");
+        }
+        System.out.println(header);
+
+        List<StageStats> results = new ArrayList<>();
+        for (long size : sizes) {
+            File file = generate(folder, generatorOptions, option, size);
+            StageStats best = null;
+            long bestTotal = Long.MAX_VALUE;
+            long peakHeap = 0;
+            for (int i = 0; i < REPETITIONS; i++) {
+                System.gc();
+                resetPeakHeap();
+                StageStats stats = compile(pipeline, file, config);
+                peakHeap = Math.max(peakHeap, getPeakHeap());
+                long total = getTotalNanos(stats);
+                if (total < bestTotal) {
+                    bestTotal = total;
+                    best = stats;
+                }
+            }
+            results.add(best);
+
+            StringBuilder row = new StringBuilder();
+            row.append(size).append(",").append(String.format("%.3f", bestTotal / 1e6))
+                    .append(",").append(String.format("%.1f", peakHeap / (1024.0 * 1024)));
+            for (String stage : StageStats.STAGES) {
+                StageStats.Measurement measurement = best.get(stage);
+                row.append(",").append(String.format("%.3f", measurement.getWallNanos() / 1e6))
+                        .append(",").append(String.format("%.1f", measurement.getAllocatedBytes() / 1024.0));
+            }
+            System.out.println(row);
+        }
+
+        System.out.println();
+        System.out.println("Growth (time ~ " + option + "^k):");
+        for (String stage : StageStats.STAGES) {
+            List<Double> times = new ArrayList<>();
+            for (StageStats stats : results) {
+                times.add((double) stats.get(stage).getWallNanos());
+            }
+            printGrowth(stage, sizes, times);
+        }
+        List<Double> totals = new ArrayList<>();
+        for (StageStats stats : results) {
+            totals.add((double) getTotalNanos(stats));
+        }
+        printGrowth("total", sizes, totals);
+    }
+
+    private static File generate(File folder, String generatorOptions, String option, long size) {
+        ProgramGenerator generator = generatorOptions.isEmpty() ? new ProgramGenerator() :
+                ProgramGenerator.fromSpec(generatorOptions);
+        generator.set(option, size);
+        String className = "Scaling" + size;
+        File file = new File(folder, className + ".jmm");
+        SpecsIo.write(file, generator.generate(className));
+        return file;
+    }
+
+    private static StageStats compile(CompilerPipeline pipeline, File file, Map<String, String> config) {
+        CompilationResult result = pipeline.compile(file, config);
+        if (!result.isSuccess()) {
+            throw new RuntimeException("Could not compile " + file + ": " + result.getReports());
+        }
+        return result.getStats();
+    }
+
+    private static long getTotalNanos(StageStats stats) {
+        long total = 0;
+        for (String stage : StageStats.STAGES) {
+            total += stats.get(stage).getWallNanos();
+        }
+        return total;
+    }
+
+    private static void resetPeakHeap() {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) pool.resetPeakUsage();
+        }
+    }
+
+    private static long getPeakHeap() {
+        long peak = 0;
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) peak += pool.getPeakUsage().getUsed();
+        }
+        return peak;
+    }
+
+    /**
+     * Prints the slope of the least squares fit of log(time) against log(size), over the sizes where the
+     * stage ran.
+     */
+    private static void printGrowth(String stage, List<Long> sizes, List<Double> times) {
+        double sumX = 0, sumY = 0, sumXX = 0, sumXY = 0;
+        int n = 0;
+        for (int i = 0; i < sizes.size(); i++) {
+            if (times.get(i) <= 0 || sizes.get(i) <= 0) continue;
+            double x = Math.log(sizes.get(i));
+            double y = Math.log(times.get(i));
+            sumX += x;
+            sumY += y;
+            sumXX += x * x;
+            sumXY += x * y;
+            n++;
+        }
+        if (n < 2 || n * sumXX - sumX * sumX == 0) {
+            System.out.printf("  %-18s -%n", stage);
+            return;
+        }
+        double k = (n * sumXY - sumX * sumY) / (n * sumXX - sumX * sumX);
+        System.out.printf("  %-18s %5.2f%s%n", stage, k, k > SUPER_LINEAR ? "  super-linear" : "");
+    }
+}
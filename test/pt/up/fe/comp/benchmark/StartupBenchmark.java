@@ -0,0 +1,80 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Measures the time the jmm launcher takes to compile and run a program, from starting the JVM to its exit,
+ * with and without the class data sharing archive made by {@code gradle cdsArchive}. Each configuration runs
+ * the installed start script several times, after one run to warm up the file system caches.
+ * <p>
+ * Usage: StartupBenchmark installDir input [runs], run with {@code gradle startupBenchmark}.
+ */
+public class StartupBenchmark {
+    private static final int DEFAULT_RUNS = 10;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2) {
+            System.out.println("Usage: StartupBenchmark installDir input [runs]");
+            return;
+        }
+        File installDir = new File(args[0]);
+        String input = args[1];
+        int runs = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_RUNS;
+
+        boolean windows = System.getProperty("os.name").toLowerCase().contains("windows");
+        File script = new File(installDir, windows ? "bin/jmm.bat" : "bin/jmm");
+        File archive = new File(installDir, "lib/jmm.jsa");
+        if (!archive.isFile()) {
+            throw new RuntimeException("Could not find the archive " + archive + ", run gradle cdsArchive first");
+        }
+
+        List<Long> without = measure(script, input, "-Xshare:auto", runs);
+        // with -Xshare:on the JVM fails instead of running without the archive
+        List<Long> with = measure(script, input, "-XX:SharedArchiveFile=" + archive + " -Xshare:on", runs);
+
+        System.out.printf("%-16s %10s %10s %10s%n", "", "mean", "median", "min");
+        print("without archive", without);
+        print("with archive", with);
+        System.out.printf("speedup (median)  %.2fx%n", (double) median(without) / median(with));
+    }
+
+    private static List<Long> measure(File script, String input, String options, int runs)
+            throws IOException, InterruptedException {
+        List<Long> times = new ArrayList<>();
+        for (int i = 0; i <= runs; i++) {
+            ProcessBuilder builder = new ProcessBuilder(script.getPath(), input)
+                    .redirectErrorStream(true)
+                    .redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.environment().put("JMM_OPTS", options);
+
+            long start = System.nanoTime();
+            int status = builder.start().waitFor();
+            long elapsed = System.nanoTime() - start;
+            if (status != 0) {
+                throw new RuntimeException("The launcher failed with " + options + ", exit status " + status);
+            }
+            // the first run only warms up the file system caches
+            if (i > 0) times.add(elapsed);
+        }
+        return times;
+    }
+
+    private static void print(String name, List<Long> times) {
+        long total = 0;
+        for (long time : times) {
+            total += time;
+        }
+        System.out.printf("%-16s %8.1fms %8.1fms %8.1fms%n", name, total / 1e6 / times.size(), median(times) / 1e6,
+                Collections.min(times) / 1e6);
+    }
+
+    private static long median(List<Long> times) {
+        List<Long> sorted = new ArrayList<>(times);
+        Collections.sort(sorted);
+        return sorted.get(sorted.size() / 2);
+    }
+}
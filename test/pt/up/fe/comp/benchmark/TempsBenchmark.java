@@ -0,0 +1,125 @@
+package pt.up.fe.comp.benchmark;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.specs.comp.ollir.ClassUnit;
+import org.specs.comp.ollir.Element;
+import org.specs.comp.ollir.Method;
+import org.specs.comp.ollir.Operand;
+import pt.up.fe.comp.jmm.analysis.table.Symbol;
+import pt.up.fe.comp.jmm.ast.JmmNode;
+import pt.up.fe.comp.jmm.parser.JmmParserResult;
+import pt.up.fe.comp2023.Jasmin.JasminGenerator;
+import pt.up.fe.comp2023.SimpleParser;
+import pt.up.fe.comp2023.ollir.OllirGenerator;
+import pt.up.fe.comp2023.semantic.Analyzer;
+import pt.up.fe.comp2023.table.ASymbolTable;
+import pt.up.fe.comp2023.table.SymbolTableGenerator;
+import pt.up.fe.specs.util.SpecsIo;
+
+/**
+ * Counts the temporaries the OLLIR generator makes in each method, with the naive lowering, a new temporary for
+ * every value, and with the one that only makes those OLLIR needs and reuses them. For both it also counts the
+ * variables of the methods, their OLLIR instructions and the loads and stores of variables in their Jasmin code,
+ * without register allocation, over the valid programs of the test corpus and a set of generated programs.
+ * <p>
+ * Usage: TempsBenchmark [folders...], run from the project folder ({@code gradle tempsBenchmark}).
+ */
+public class TempsBenchmark {
+    private static final int GENERATED_PROGRAMS = 20;
+
+    public static void main(String[] args) throws IOException {
+        List<String> folders = args.length > 0 ? List.of(args) : List.of("test");
+
+        List<String> corpus = new ArrayList<>();
+        for (String folder : folders) {
+            try (Stream<Path> paths = Files.walk(Paths.get(folder))) {
+                for (Path path : paths.filter(path -> path.toString().endsWith(".jmm")).sorted().collect(Collectors.toList())) {
+                    corpus.add(SpecsIo.read(path.toFile()));
+                }
+            }
+        }
+        List<String> generated = new ArrayList<>();
+        for (int i = 0; i < GENERATED_PROGRAMS; i++) {
+            generated.add(ProgramGenerator.fromSpec("methods=5,statements=40,depth=3,expressionDepth=4,seed=" + i)
+                    .generate("Generated"));
+        }
+
+        System.out.printf("%-10s %-10s %8s %13s %9s %17s %20s %13s%n", "inputs", "lowering", "methods",
+                "temps/method", "maxTemps", "variables/method", "instructions/method", "loads+stores");
+        report("corpus", corpus);
+        report("generated", generated);
+    }
+
+    private static void report(String name, List<String> sources) {
+        for (boolean minimizeTemps : List.of(false, true)) {
+            Counts counts = new Counts();
+            for (String source : sources) {
+                count(source, minimizeTemps, counts);
+            }
+            double methods = Math.max(1, counts.methods);
+            System.out.printf("%-10s %-10s %8d %13.2f %9d %17.2f %20.2f %13d%n", name,
+                    minimizeTemps ? "minimized" : "naive", counts.methods, counts.temps / methods, counts.maxTemps,
+                    counts.variables / methods, counts.instructions / methods, counts.loadsAndStores);
+        }
+    }
+
+    private static class Counts {
+        private int methods;
+        private long temps;
+        private int maxTemps;
+        private long variables;
+        private long instructions;
+        private long loadsAndStores;
+    }
+
+    private static void count(String source, boolean minimizeTemps, Counts counts) {
+        JmmParserResult parserResult = new SimpleParser().parse(source, new HashMap<>());
+        if (parserResult.getRootNode() == null) return;
+        JmmNode root = parserResult.getRootNode();
+
+        ASymbolTable symbolTable = new SymbolTableGenerator().getSymbolTable(root);
+        Analyzer analyzer = new Analyzer(symbolTable);
+        analyzer.analyze(root);
+        if (!analyzer.getReports().isEmpty()) return;
+
+        OllirGenerator ollirGenerator = new OllirGenerator(symbolTable, minimizeTemps);
+        ollirGenerator.visit(root);
+        ClassUnit classUnit = ollirGenerator.ollirClass;
+        classUnit.buildVarTables();
+
+        for (Method method : classUnit.getMethods()) {
+            // the variables that are not this, a parameter or a declared local are the temporaries
+            Set<String> temps = new HashSet<>(method.getVarTable().keySet());
+            temps.remove("this");
+            for (Element param : method.getParams()) {
+                temps.remove(((Operand) param).getName());
+            }
+            if (!method.isConstructMethod()) {
+                for (Symbol local : symbolTable.getLocalVariables(method.getMethodName())) {
+                    temps.remove(local.getName());
+                }
+            }
+
+            counts.methods++;
+            counts.temps += temps.size();
+            counts.maxTemps = Math.max(counts.maxTemps, temps.size());
+            counts.variables += method.getVarTable().size();
+            counts.instructions += method.getInstructions().size();
+        }
+
+        String jasminCode = new JasminGenerator(classUnit).generate();
+        counts.loadsAndStores += jasminCode.lines().map(String::trim)
+                .filter(line -> line.matches("[ia](load|store)([ _]\\d+)?")).count();
+    }
+}
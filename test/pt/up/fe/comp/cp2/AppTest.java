@@ -12,14 +12,14 @@ public class AppTest {
     @Test
     public void testHelloWorld() {
         var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/HelloWorld.jmm");
-        var jasminResult = TestUtils.backend(code, Collections.emptyMap());
+        var jasminResult = ProjectTestUtils.backend(code, Collections.emptyMap());
         ProjectTestUtils.runJasmin(jasminResult, "Hello, World!");
     }
 
     @Test
     public void testSimple() {
         var code = SpecsIo.getResource("pt/up/fe/comp/cp2/apps/Simple.jmm");
-        var jasminResult = TestUtils.backend(code, Collections.emptyMap());
+        var jasminResult = ProjectTestUtils.backend(code, Collections.emptyMap());
         ProjectTestUtils.runJasmin(jasminResult, "30");
     }
 
@@ -19,13 +19,14 @@ import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.analysis.JmmSemanticsResult;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.specs.util.SpecsIo;
+import utils.ProjectTestUtils;
 
 import static org.junit.Assert.assertEquals;
 
 public class Cpf2_SemanticAnalysis {
 
     static JasminResult getJasminResult(String filename) {
-        return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cpf/2_semantic_analysis/" + filename));
+        return ProjectTestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cpf/2_semantic_analysis/" + filename));
     }
 
     static JmmSemanticsResult getSemanticsResult(String filename) {
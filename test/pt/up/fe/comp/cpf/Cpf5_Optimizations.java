@@ -20,6 +20,7 @@ import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
+import utils.ProjectTestUtils;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -34,19 +35,19 @@ public class Cpf5_Optimizations {
 
     static JasminResult getJasminResult(String filename) {
         String resource = SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/" + filename);
-        return TestUtils.backend(resource);
+        return ProjectTestUtils.backend(resource);
     }
 
     static JasminResult getJasminResultOpt(String filename) {
         Map<String, String> config = new HashMap<>();
         config.put("optimize", "true");
-        return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/" + filename), config);
+        return ProjectTestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/" + filename), config);
     }
 
     static JasminResult getJasminResultReg(String filename, int numReg) {
         Map<String, String> config = new HashMap<>();
         config.put("registerAllocation", String.valueOf(numReg));
-        return TestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/" + filename), config);
+        return ProjectTestUtils.backend(SpecsIo.getResource("pt/up/fe/comp/cpf/5_optimizations/" + filename), config);
     }
 
     /**
@@ -4,9 +4,14 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.function.Predicate;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -25,8 +30,12 @@ import org.specs.comp.ollir.Node;
 import org.specs.comp.ollir.Operand;
 import org.specs.comp.ollir.Type;
 
+import pt.up.fe.comp.TestUtils;
 import pt.up.fe.comp.jmm.jasmin.JasminResult;
 import pt.up.fe.comp.jmm.ollir.OllirResult;
+import pt.up.fe.comp.jmm.report.ReportType;
+import pt.up.fe.comp2023.Jasmin.JasminRunner;
+import pt.up.fe.comp2023.driver.CompilationCache;
 import pt.up.fe.specs.util.SpecsIo;
 import pt.up.fe.specs.util.SpecsStrings;
 import pt.up.fe.specs.util.SpecsSystem;
@@ -36,6 +45,10 @@ import pt.up.fe.specs.util.utilities.LineStream;
 
 public class ProjectTestUtils {
 
+    private static CompilationCache compilationCache;
+    private static boolean compilationCacheChecked = false;
+    private static final JasminRunner RUNNER = new JasminRunner();
+
     // private static final File RANDOM_TEST_FOLDER = SpecsIo.newRandomFolder();
 
     public static File getRandomFolder() {
@@ -73,6 +86,59 @@ public class ProjectTestUtils {
         return folder;
     }
 
+    /**
+     * Cache used by {@link #backend(String, Map)}. It is enabled by setting the system property "jmm.cache" to
+     * the folder of the cache (e.g. gradle test -PjmmCache=build/jmm-cache).
+     *
+     * @return the cache, or null if it is not enabled
+     */
+    public static synchronized CompilationCache getCompilationCache() {
+        if (!compilationCacheChecked) {
+            compilationCacheChecked = true;
+            var folder = System.getProperty("jmm.cache");
+            if (folder != null && !folder.isBlank()) {
+                var cache = new CompilationCache(new File(folder), CompilationCache.DEFAULT_MAX_BYTES);
+                // System.err may already be closed by the logging shutdown hook, so write to the descriptor itself
+                var stderr = new PrintStream(new FileOutputStream(FileDescriptor.err), true);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> stderr.println(cache.getStats())));
+                compilationCache = cache;
+            }
+        }
+        return compilationCache;
+    }
+
+    public static JasminResult backend(String code) {
+        return backend(code, new HashMap<>());
+    }
+
+    /**
+     * Same as {@link TestUtils#backend(String, Map)}, but when the compilation cache is enabled, code that was
+     * already compiled with the same options skips every stage.
+     */
+    public static JasminResult backend(String code, Map<String, String> config) {
+        var cache = getCompilationCache();
+        if (cache == null || TestUtils.hasAstToJasminClass()) {
+            return TestUtils.backend(code, config);
+        }
+
+        // the backend is set in config.properties, and must also be part of the key
+        Map<String, String> keyConfig = new HashMap<>(config);
+        keyConfig.put("backend", TestUtils.getJasminBackend().getClass().getName());
+
+        var cached = cache.get(code, keyConfig);
+        if (cached != null) {
+            return cached.toJasminResult(config);
+        }
+
+        var ollirResult = TestUtils.optimize(code, config, true);
+        TestUtils.noErrors(ollirResult.getReports());
+        var jasminResult = TestUtils.backend(ollirResult);
+        if (jasminResult.getReports().stream().noneMatch(report -> report.getType() == ReportType.ERROR)) {
+            cache.put(code, keyConfig, ollirResult.getOllirCode(), jasminResult);
+        }
+        return jasminResult;
+    }
+
     public static File getGeneratedJasmin(File workingFolder) {
         var jasminFiles = SpecsIo.getFilesRecursive(workingFolder, "j");
 
@@ -329,8 +395,16 @@ public class ProjectTestUtils {
         assertTrue("Expected code to match /" + regex + "/:\n" + code + "", matches);
     }
 
+    /**
+     * Same as {@link JasminResult#runWithFullOutput()}, but the program runs inside the test JVM, with its own class
+     * loader and standard streams, instead of in a new JVM. Tests calling it can run in parallel.
+     */
+    public static ProcessOutputAsString run(JasminResult jasminResult) {
+        return RUNNER.run(jasminResult);
+    }
+
     public static void runJasmin(JasminResult jasminResult, String expected) {
-        var output = SpecsStrings.normalizeFileContents(jasminResult.run(), true);
+        var output = SpecsStrings.normalizeFileContents(run(jasminResult).getOutput(), true);
 
         // No expected output, just run test
         if(expected == null) {